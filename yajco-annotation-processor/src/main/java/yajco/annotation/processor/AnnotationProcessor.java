@@ -10,16 +10,21 @@ import yajco.annotation.reference.References;
 import yajco.generator.FilesGenerator;
 import yajco.generator.GeneratorException;
 import yajco.generator.parsergen.CompilerGenerator;
+import yajco.generator.util.FilesGeneratorExecutor;
+import yajco.generator.util.RegexAnalyzer;
 import yajco.generator.util.ServiceFinder;
+import yajco.grammar.translator.YajcoModelToBNFGrammarTranslator;
 import yajco.model.*;
 import yajco.model.pattern.Pattern;
 import yajco.model.pattern.PatternSupport;
 import yajco.model.pattern.impl.Factory;
 import yajco.model.type.*;
+import yajco.model.utilities.LanguageCompositionLoader;
 import yajco.model.utilities.XMLLanguageFormatHelper;
 import yajco.printer.Printer;
 
 import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.Filer;
 import javax.annotation.processing.RoundEnvironment;
 import javax.annotation.processing.SupportedAnnotationTypes;
 import javax.annotation.processing.SupportedSourceVersion;
@@ -27,12 +32,17 @@ import javax.lang.model.SourceVersion;
 import javax.lang.model.element.*;
 import javax.lang.model.type.ArrayType;
 import javax.lang.model.type.*;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+import java.io.File;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.PrintWriter;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
 import java.util.*;
 import java.util.Optional;
+import java.util.regex.PatternSyntaxException;
 
 @SupportedSourceVersion(SourceVersion.RELEASE_11)
 @SupportedAnnotationTypes({"yajco.annotation.config.Parser", "yajco.annotation.Exclude"})
@@ -49,6 +59,7 @@ public class AnnotationProcessor extends AbstractProcessor {
      */
     private static final String VERSION = "0.5.1";
     private static final String PROPERTY_SETTINGS_FILE = "/yajco.properties";
+    private static final String CACHE_DIRECTORY_NAME = "yajco-cache";
     private static final Logger logger = LoggerFactory.getLogger("YAJCO Annotation Processor");
     /**
      * Stored round environment.
@@ -66,12 +77,32 @@ public class AnnotationProcessor extends AbstractProcessor {
      */
     private Set<Concept> conceptsToProcess = new HashSet<>();
 
+    /**
+     * Languages included as JAR files, loaded when their concepts are referenced.
+     */
+    private LanguageCompositionLoader includedLanguages;
+
     /**
      * Used for creation of string tokens defined by @StringToken annotation.
      */
     private int stringTokenId = 1;
     private static final String DEFAULT_STRING_TOKEN_NAME = "STRING_TOKEN";
 
+    /**
+     * Root classes and interfaces of the round, built once per round.
+     */
+    private Set<Element> knownClasses = new HashSet<>();
+
+    /**
+     * Root classes and interfaces indexed by qualified names of their direct supertypes, built once per round.
+     */
+    private Map<String, List<TypeElement>> directSubtypesIndex = new HashMap<>();
+
+    /**
+     * Cache of generated files, null if caching is disabled.
+     */
+    private GeneratedFilesCache generatedFilesCache;
+
     @Override
     public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
         // Leave only @Parser annotation for later processing.
@@ -117,6 +148,8 @@ public class AnnotationProcessor extends AbstractProcessor {
                 Parser parserAnnotation = parserAnnotationElement.getAnnotation(Parser.class);
 
                 this.extractOptionsFromParserAnnotation(parserAnnotation);
+                this.generatedFilesCache = createGeneratedFilesCache();
+                this.indexRootElements();
 
                 // Extract the main element, package or type can be annotated with @Parser.
                 ElementKind parserAnnotationElemKind = parserAnnotationElement.getKind();
@@ -184,16 +217,44 @@ public class AnnotationProcessor extends AbstractProcessor {
                 // Add tokens and skips into language.
                 addTokensAndSkipsIntoLanguage(parserAnnotation);
 
+                // Find generators, they are part of the fingerprint. One of the compiler generators is selected
+                // only when the cache is not used, the selection depends only on the fingerprinted inputs.
+                List<CompilerGenerator> compilerGenerators = null;
+                if (!("false".equalsIgnoreCase(properties.getProperty("yajco.generateParser")))) {
+                    compilerGenerators = findCompilerGenerators();
+                }
+                Set<FilesGenerator> tools = ServiceFinder.findFilesGenerators(properties);
+
+                // Fingerprint is computed before settings are stored into language, their order is not stable.
+                String fingerprint = computeFingerprint(compilerGenerators, tools);
+
                 // Convert properties to language settings.
                 language.setSettings(LanguageSetting.convertToLanguageSetting(properties));
 
                 // Print recognized language to output.
                 printLanguage();
 
+                // Check regular expressions of tokens and skips, it may fail the build.
+                checkRegularExpressionSyntax();
+                if (RegexAnalyzer.isEnabled(properties)) {
+                    RegexAnalyzer.check(language, properties);
+                }
+
+                if (generatedFilesCache != null && generatedFilesCache.matches(fingerprint)) {
+                    System.out.println("Language and settings not changed, using generated files from cache " + generatedFilesCache.getDirectory());
+                    generatedFilesCache.replay(processingEnv.getFiler());
+                    return false;
+                }
+                Filer filer = processingEnv.getFiler();
+                if (generatedFilesCache != null) {
+                    filer = generatedFilesCache.record(filer);
+                }
+
                 // Generate compiler.
-                if (!("false".equalsIgnoreCase(properties.getProperty("yajco.generateParser")))) {
+                if (compilerGenerators != null) {
+                    CompilerGenerator compilerGenerator = ServiceFinder.selectCompilerGenerator(compilerGenerators, language, properties);
                     String parserClassName = parserAnnotation.className();
-                    generateCompiler(parserClassName);
+                    generateCompiler(compilerGenerator, parserClassName, filer);
                 }
 
                 // generates all new files
@@ -203,7 +264,15 @@ public class AnnotationProcessor extends AbstractProcessor {
 //            }
 
                 // Generate all tools.
-                generateAllTools();
+                generateAllTools(tools, filer);
+
+                if (generatedFilesCache != null) {
+                    Set<String> modelTypes = new HashSet<>();
+                    for (Element element : knownClasses) {
+                        modelTypes.add(((TypeElement) element).getQualifiedName().toString());
+                    }
+                    generatedFilesCache.store(fingerprint, (GeneratedFilesCache.RecordingFiler) filer, modelTypes);
+                }
             }
         } catch (Throwable e) {
             //e.printStackTrace();
@@ -248,6 +317,142 @@ public class AnnotationProcessor extends AbstractProcessor {
         this.printExcludedClassses();
     }
 
+    /**
+     * Creates cache of generated files. Cache is stored in directory set by 'yajco.cacheDirectory' property,
+     * or next to the class output directory by default. Setting 'yajco.cache' property to false disables it.
+     *
+     * @return Cache of generated files or null if caching is disabled.
+     */
+    private GeneratedFilesCache createGeneratedFilesCache() {
+        if ("false".equalsIgnoreCase(properties.getProperty("yajco.cache"))) {
+            return null;
+        }
+        String directory = properties.getProperty("yajco.cacheDirectory");
+        if (directory != null && !directory.isEmpty()) {
+            return new GeneratedFilesCache(new File(directory));
+        }
+        try {
+            FileObject fileObject = processingEnv.getFiler().getResource(StandardLocation.CLASS_OUTPUT, "", CACHE_DIRECTORY_NAME);
+            File file = GeneratedFilesCache.toFile(fileObject.toUri());
+            if (file != null && file.getAbsoluteFile().getParentFile().getParentFile() != null) {
+                return new GeneratedFilesCache(new File(file.getAbsoluteFile().getParentFile().getParentFile(), CACHE_DIRECTORY_NAME));
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            logger.debug("Finding class output directory: {}", e.getLocalizedMessage());
+        }
+        logger.info("Cannot find directory for generated files cache, set 'yajco.cacheDirectory' property. Cache disabled.");
+        return null;
+    }
+
+    /**
+     * Computes fingerprint of everything the generated files depend on: the language, settings, generators and
+     * the code of the processor and generators with their templates.
+     *
+     * @param compilerGenerators Compiler generators to select from or null if parser is not generated.
+     * @param filesGenerators Generators of tools.
+     * @return Fingerprint.
+     */
+    private String computeFingerprint(List<CompilerGenerator> compilerGenerators, Set<FilesGenerator> filesGenerators) {
+        List<String> parts = new ArrayList<>();
+        // Code of the processor, the model, the grammar translator and shared generator templates.
+        parts.add(VERSION);
+        parts.add(GeneratedFilesCache.codeFingerprint(AnnotationProcessor.class));
+        parts.add(GeneratedFilesCache.codeFingerprint(Language.class));
+        parts.add(GeneratedFilesCache.codeFingerprint(YajcoModelToBNFGrammarTranslator.class));
+        parts.add(GeneratedFilesCache.codeFingerprint(FilesGenerator.class));
+        parts.add(XMLLanguageFormatHelper.writeToXML(language));
+        for (String name : new TreeSet<>(properties.stringPropertyNames())) {
+            parts.add(name + "=" + properties.getProperty(name));
+        }
+        if (compilerGenerators != null) {
+            for (CompilerGenerator compilerGenerator : compilerGenerators) {
+                parts.add(compilerGenerator.getClass().getName() + "=" + GeneratedFilesCache.codeFingerprint(compilerGenerator.getClass()));
+            }
+        } else {
+            parts.add("");
+        }
+        Set<String> tools = new TreeSet<>();
+        for (FilesGenerator filesGenerator : filesGenerators) {
+            tools.add(filesGenerator.getClass().getName() + "=" + GeneratedFilesCache.codeFingerprint(filesGenerator.getClass()));
+        }
+        parts.addAll(tools);
+        return GeneratedFilesCache.fingerprint(parts.toArray(new String[0]));
+    }
+
+    /**
+     * Indexes root classes and interfaces of the round by their direct supertypes, so concept discovery does not
+     * have to scan all root elements for every processed type. Model types remembered by the cache are indexed
+     * too, because in incremental builds unchanged types are not root elements.
+     */
+    private void indexRootElements() {
+        knownClasses.clear();
+        directSubtypesIndex.clear();
+        List<Element> elements = new ArrayList<>(roundEnv.getRootElements());
+        if (generatedFilesCache != null) {
+            Set<Element> rootElements = new HashSet<>(roundEnv.getRootElements());
+            for (String name : generatedFilesCache.loadModelTypes()) {
+                TypeElement typeElement = processingEnv.getElementUtils().getTypeElement(name);
+                if (typeElement != null) {
+                    if (!rootElements.contains(typeElement)) {
+                        checkParameterNames(typeElement);
+                    }
+                    elements.add(typeElement);
+                }
+            }
+        }
+        for (Element element : elements) {
+            if (!element.getKind().isClass() && !element.getKind().isInterface()) {
+                continue;
+            }
+            if (!knownClasses.add(element)) {
+                continue;
+            }
+            TypeElement typeElement = (TypeElement) element;
+            addToDirectSubtypesIndex(typeElement.getSuperclass(), typeElement);
+            for (TypeMirror type : typeElement.getInterfaces()) {
+                addToDirectSubtypesIndex(type, typeElement);
+            }
+        }
+    }
+
+    /**
+     * Checks that parameter names of constructors and factory methods are available for the type read from a class
+     * file. Without the -parameters option of javac they are arg0, arg1, ... and the language would get wrong
+     * property names.
+     *
+     * @param typeElement Language model type which is not compiled in this round.
+     * @throws GeneratorException When parameter names are missing.
+     */
+    private void checkParameterNames(TypeElement typeElement) throws GeneratorException {
+        for (Element element : typeElement.getEnclosedElements()) {
+            boolean factoryMethod = element.getKind() == ElementKind.METHOD && element.getModifiers().contains(Modifier.STATIC);
+            if (element.getKind() != ElementKind.CONSTRUCTOR && !factoryMethod) {
+                continue;
+            }
+            List<? extends VariableElement> parameters = ((ExecutableElement) element).getParameters();
+            if (parameters.isEmpty()) {
+                continue;
+            }
+            boolean synthesized = true;
+            for (int i = 0; i < parameters.size(); i++) {
+                synthesized &= parameters.get(i).getSimpleName().contentEquals("arg" + i);
+            }
+            if (synthesized) {
+                throw new GeneratorException("Parameter names of " + typeElement.getQualifiedName() + " are not stored in its class file, "
+                        + "so the language cannot be built from it in an incremental build. Compile the language model with "
+                        + "the -parameters option of javac, run a clean build, or disable the cache by 'yajco.cache' property.");
+            }
+        }
+    }
+
+    private void addToDirectSubtypesIndex(TypeMirror superType, TypeElement typeElement) {
+        Element superElement = processingEnv.getTypeUtils().asElement(superType);
+        if (superElement instanceof TypeElement) {
+            String name = ((TypeElement) superElement).getQualifiedName().toString();
+            directSubtypesIndex.computeIfAbsent(name, key -> new ArrayList<>()).add(typeElement);
+        }
+    }
+
     /**
      * Prints names of all excluded elements.
      */
@@ -277,12 +482,32 @@ public class AnnotationProcessor extends AbstractProcessor {
     }
 
     /**
-     * Loads language concepts, skips and tokens from languages included as JAR files.
+     * Finds languages included as JAR files. Only their indexes are read, a language is loaded when processing
+     * reaches one of its concepts or a parent of one of its concepts, see {@link #includeLanguagesReferencing}.
      */
     private void addLanguageConceptsFromIncludedJARs() {
-        List<Language> includedLanguages = XMLLanguageFormatHelper.getAllLanguagesFromXML();
-        System.out.println("Loaded external language specifications: " + includedLanguages.size());
-        for (Language incLang : includedLanguages) {
+        includedLanguages = LanguageCompositionLoader.fromClasspath();
+        System.out.println("Found external language specifications: " + includedLanguages.size());
+    }
+
+    /**
+     * Loads included languages defining or extending concepts with the given names and adds their concepts,
+     * skips and tokens into language.
+     *
+     * @param conceptNames Relative or qualified names of a concept.
+     */
+    private void includeLanguagesReferencing(String... conceptNames) {
+        if (includedLanguages == null) {
+            return;
+        }
+        for (String conceptName : conceptNames) {
+            addIncludedLanguages(includedLanguages.loadDefining(conceptName));
+            addIncludedLanguages(includedLanguages.loadExtending(conceptName));
+        }
+    }
+
+    private void addIncludedLanguages(List<Language> loadedLanguages) {
+        for (Language incLang : loadedLanguages) {
             System.out.print("Loaded from JAR: ");
             for (Concept concept : incLang.getConcepts()) {
                 System.out.print(concept.getName() + ", ");
@@ -293,6 +518,13 @@ public class AnnotationProcessor extends AbstractProcessor {
             addToListAsSet(language.getTokens(), incLang.getTokens(), true);
             conceptsToProcess.addAll(incLang.getConcepts());
             language.getConcepts().addAll(incLang.getConcepts());
+            // Other included languages may extend concepts of this one.
+            for (Concept concept : incLang.getConcepts()) {
+                addIncludedLanguages(includedLanguages.loadExtending(concept.getName()));
+                if (incLang.getName() != null && !incLang.getName().isEmpty()) {
+                    addIncludedLanguages(includedLanguages.loadExtending(incLang.getName() + "." + concept.getName()));
+                }
+            }
         }
     }
 
@@ -319,6 +551,29 @@ public class AnnotationProcessor extends AbstractProcessor {
         addToListAsSet(language.getTokens(), tokens, true);
     }
 
+    /**
+     * Checks syntax of regular expressions of tokens and skips. Generated lexers compile them only when they are
+     * matched for the first time, an invalid one would fail in the middle of parsing.
+     *
+     * @throws GeneratorException When a regular expression is invalid.
+     */
+    private void checkRegularExpressionSyntax() throws GeneratorException {
+        for (TokenDef tokenDef : language.getTokens()) {
+            checkRegularExpressionSyntax("token " + tokenDef.getName(), tokenDef.getRegexp());
+        }
+        for (SkipDef skipDef : language.getSkips()) {
+            checkRegularExpressionSyntax("skip", skipDef.getRegexp());
+        }
+    }
+
+    private void checkRegularExpressionSyntax(String element, String regex) throws GeneratorException {
+        try {
+            java.util.regex.Pattern.compile(regex);
+        } catch (PatternSyntaxException e) {
+            throw new GeneratorException("Invalid regular expression '" + regex + "' of " + element + ": " + e.getDescription(), e);
+        }
+    }
+
     /**
      * Prints created language.
      */
@@ -332,11 +587,8 @@ public class AnnotationProcessor extends AbstractProcessor {
     /**
      * Generates all providing tools.
      */
-    private void generateAllTools() {
-        Set<FilesGenerator> tools = ServiceFinder.findFilesGenerators(properties);
-        for (FilesGenerator filesGenerator : tools) {
-            filesGenerator.generateFiles(language, processingEnv.getFiler(), properties);
-        }
+    private void generateAllTools(Set<FilesGenerator> tools, Filer filer) {
+        FilesGeneratorExecutor.generateFiles(tools, language, filer, properties);
     }
 
     /**
@@ -366,6 +618,7 @@ public class AnnotationProcessor extends AbstractProcessor {
         if (language.getName() != null && !language.getName().isEmpty() && name.startsWith(language.getName())) {
             name = name.substring(language.getName().length() + 1); // +1 because of dot after package name '.'
         }
+        includeLanguagesReferencing(name, typeElement.getQualifiedName().toString());
 
         Concept concept = language.getConcept(name);
         if (concept != null) { // Already processed
@@ -999,14 +1252,11 @@ public class AnnotationProcessor extends AbstractProcessor {
      */
     private boolean isKnownClass(Element element) {
         if (element.getKind().isClass() || element.getKind().isInterface()) {
+            includeLanguagesReferencing(((TypeElement) element).getQualifiedName().toString());
             if (language.getConcept(((TypeElement) element).getQualifiedName().toString()) != null) {
                 return true;
             }
-            for (Element elem : roundEnv.getRootElements()) {
-                if ((elem.getKind().isClass() || elem.getKind().isInterface()) && elem.equals(element)) {
-                    return true;
-                }
-            }
+            return knownClasses.contains(element);
         }
         return false;
     }
@@ -1019,9 +1269,13 @@ public class AnnotationProcessor extends AbstractProcessor {
      */
     private Set<TypeElement> getDirectSubtypes(TypeElement typeElement) {
         Set<TypeElement> subclassElements = new HashSet<>();
-        for (Element element : roundEnv.getRootElements()) {
-            if (isDirectSubtype(typeElement, element)) {
-                subclassElements.add((TypeElement) element);
+        // Candidates share the erased supertype, exact type comparison is left to isDirectSubtype.
+        List<TypeElement> candidates = directSubtypesIndex.get(typeElement.getQualifiedName().toString());
+        if (candidates != null) {
+            for (TypeElement element : candidates) {
+                if (isDirectSubtype(typeElement, element)) {
+                    subclassElements.add(element);
+                }
             }
         }
 
@@ -1154,24 +1408,34 @@ public class AnnotationProcessor extends AbstractProcessor {
     }
 
     /**
-     * Generates compiler for created language.
+     * Finds compiler generators in classpath, if there are more of them, one is chosen by the grammar of the language
+     * before the compiler is generated.
      *
-     * @param parserClassName Class name for generated parser.
+     * @return Compiler generators.
      * @throws GeneratorException When no compiler generator is found in classpath.
      */
-    private void generateCompiler(String parserClassName) throws GeneratorException {
-        CompilerGenerator compilerGenerator = ServiceFinder.findCompilerGenerator();
-
-        if (compilerGenerator != null) {
-            if (parserClassName != null && !parserClassName.isEmpty()) {
-                compilerGenerator.generateFiles(language, processingEnv.getFiler(), properties, parserClassName);
-            } else {
-                compilerGenerator.generateFiles(language, processingEnv.getFiler(), properties);
-            }
-        } else {
+    private List<CompilerGenerator> findCompilerGenerators() throws GeneratorException {
+        List<CompilerGenerator> compilerGenerators = ServiceFinder.findCompilerGenerators();
+        if (compilerGenerators.isEmpty()) {
             throw new GeneratorException("No compiler generator in class path. Include service implementation of " +
                     CompilerGenerator.class.getName() + " in your classpath. (see java.util.ServiceLoader javadoc for details)");
         }
+        return compilerGenerators;
+    }
+
+    /**
+     * Generates compiler for created language.
+     *
+     * @param compilerGenerator Compiler generator.
+     * @param parserClassName Class name for generated parser.
+     * @param filer Filer for generated files.
+     */
+    private void generateCompiler(CompilerGenerator compilerGenerator, String parserClassName, Filer filer) {
+        if (parserClassName != null && !parserClassName.isEmpty()) {
+            compilerGenerator.generateFiles(language, filer, properties, parserClassName);
+        } else {
+            compilerGenerator.generateFiles(language, filer, properties);
+        }
     }
 
 
@@ -1199,14 +1463,12 @@ public class AnnotationProcessor extends AbstractProcessor {
      * @param <T>
      */
     private <T> void addToListAsSet(List<T> originalList, List<T> newItems, boolean overwrite) {
+        if (overwrite) {
+            LanguageCompositionLoader.mergeAsSet(originalList, newItems);
+            return;
+        }
         for (T item : newItems) {
-            if (originalList.contains(item)) {
-                if (overwrite) {
-                    // dolezite je to, aby item.equals fungoval spravne
-                    originalList.remove(item); // odstrani povodny
-                    originalList.add(item); // vlozi novy
-                }
-            } else {
+            if (!originalList.contains(item)) {
                 originalList.add(item);
             }
         }
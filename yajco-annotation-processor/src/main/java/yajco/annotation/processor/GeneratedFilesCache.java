@@ -0,0 +1,323 @@
+package yajco.annotation.processor;
+
+import javax.annotation.processing.Filer;
+import javax.lang.model.element.Element;
+import javax.tools.FileObject;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardLocation;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.CodeSource;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.stream.Stream;
+
+/**
+ * Cache of files generated for the language. Files written through the recording filer are stored together with
+ * the fingerprint of the language and settings they were generated from. When the fingerprint of the next build
+ * matches, stored files are written through the filer again and no generator has to be run.
+ */
+class GeneratedFilesCache {
+
+    private static final String FINGERPRINT_FILE = "fingerprint";
+    private static final String MANIFEST_FILE = "manifest";
+    private static final String MODEL_TYPES_FILE = "model-types";
+    private static final String FILES_DIRECTORY = "files";
+    private static final String SEPARATOR = "\t";
+
+    private enum Kind {
+        SOURCE, CLASS, RESOURCE
+    }
+
+    private static final ConcurrentMap<String, String> codeDigests = new ConcurrentHashMap<>();
+
+    private final Path directory;
+
+    GeneratedFilesCache(File directory) {
+        this.directory = directory.toPath();
+    }
+
+    public File getDirectory() {
+        return directory.toFile();
+    }
+
+    /**
+     * Computes fingerprint of the given parts.
+     *
+     * @param parts Parts of the fingerprint, their order matters.
+     * @return Hexadecimal SHA-256 digest of all parts.
+     */
+    public static String fingerprint(String... parts) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (String part : parts) {
+                digest.update(part.getBytes(StandardCharsets.UTF_8));
+                // Separates parts, so moving text from one part to another changes the fingerprint.
+                digest.update((byte) 0);
+            }
+            return toHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported", e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder sb = new StringBuilder();
+        for (byte b : bytes) {
+            sb.append(String.format("%02x", b));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Returns fingerprint of the code of the class: its implementation version and digest of the JAR file or class
+     * directory it was loaded from. Templates are resources of the same JAR, so a rebuilt generator or changed
+     * template changes the fingerprint even if the version stays the same. Digests are computed once per location.
+     *
+     * @param type Class of a generator or the processor.
+     * @return Fingerprint of the code, only the version if the location is unknown.
+     */
+    public static String codeFingerprint(Class<?> type) {
+        String version = String.valueOf(type.getPackage() != null ? type.getPackage().getImplementationVersion() : null);
+        CodeSource codeSource = type.getProtectionDomain().getCodeSource();
+        if (codeSource == null || codeSource.getLocation() == null) {
+            return version;
+        }
+        String location = codeSource.getLocation().toString();
+        return version + SEPARATOR + codeDigests.computeIfAbsent(location, GeneratedFilesCache::digestLocation);
+    }
+
+    private static String digestLocation(String location) {
+        try {
+            File file = toFile(new URI(location));
+            if (file == null || !file.exists()) {
+                return location;
+            }
+            List<Path> files = new ArrayList<>();
+            if (file.isDirectory()) {
+                try (Stream<Path> stream = Files.walk(file.toPath())) {
+                    stream.filter(Files::isRegularFile).sorted().forEach(files::add);
+                }
+            } else {
+                files.add(file.toPath());
+            }
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (Path path : files) {
+                digest.update(file.toPath().relativize(path).toString().getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0);
+                digest.update(Files.readAllBytes(path));
+            }
+            return toHex(digest.digest());
+        } catch (IOException | URISyntaxException | IllegalArgumentException | NoSuchAlgorithmException e) {
+            System.out.println("WARNING: Cannot compute fingerprint of " + location + " (" + e.getMessage() + ")");
+            return location;
+        }
+    }
+
+    /**
+     * Checks if the cache contains complete output generated from language with the given fingerprint.
+     */
+    public boolean matches(String fingerprint) {
+        try {
+            Path fingerprintFile = directory.resolve(FINGERPRINT_FILE);
+            Path manifestFile = directory.resolve(MANIFEST_FILE);
+            if (!Files.isRegularFile(fingerprintFile) || !Files.isRegularFile(manifestFile)) {
+                return false;
+            }
+            if (!fingerprint.equals(new String(Files.readAllBytes(fingerprintFile), StandardCharsets.UTF_8).trim())) {
+                return false;
+            }
+            for (String line : Files.readAllLines(manifestFile, StandardCharsets.UTF_8)) {
+                if (!Files.isRegularFile(directory.resolve(FILES_DIRECTORY).resolve(line.split(SEPARATOR)[0]))) {
+                    return false;
+                }
+            }
+            return true;
+        } catch (IOException e) {
+            System.out.println("WARNING: Cannot read generated files cache " + directory + " (" + e.getMessage() + ")");
+            return false;
+        }
+    }
+
+    /**
+     * Writes all cached files through the filer.
+     */
+    public void replay(Filer filer) throws IOException {
+        Path filesDirectory = directory.resolve(FILES_DIRECTORY);
+        for (String line : Files.readAllLines(directory.resolve(MANIFEST_FILE), StandardCharsets.UTF_8)) {
+            String[] fields = line.split(SEPARATOR, -1);
+            FileObject fileObject;
+            switch (Kind.valueOf(fields[1])) {
+                case SOURCE:
+                    fileObject = filer.createSourceFile(fields[3]);
+                    break;
+                case CLASS:
+                    fileObject = filer.createClassFile(fields[3]);
+                    break;
+                default:
+                    fileObject = filer.createResource(StandardLocation.locationFor(fields[2]), fields[3], fields[4]);
+            }
+            try (OutputStream outputStream = fileObject.openOutputStream()) {
+                Files.copy(filesDirectory.resolve(fields[0]), outputStream);
+            }
+        }
+    }
+
+    /**
+     * Returns filer which remembers all files created through it, so they can be stored after generation.
+     */
+    public RecordingFiler record(Filer filer) {
+        return new RecordingFiler(filer);
+    }
+
+    /**
+     * Stores final content of all files created through the recording filer. Files are read after generation,
+     * because some tools write the content of registered files directly.
+     *
+     * @param fingerprint Fingerprint of the language and settings.
+     * @param recordingFiler Filer used for generation.
+     * @param modelTypes Qualified names of language model types.
+     */
+    public void store(String fingerprint, RecordingFiler recordingFiler, Collection<String> modelTypes) {
+        try {
+            Path filesDirectory = directory.resolve(FILES_DIRECTORY);
+            // Without the fingerprint an incomplete cache never matches.
+            Files.deleteIfExists(directory.resolve(FINGERPRINT_FILE));
+            deleteDirectory(filesDirectory);
+            Files.createDirectories(filesDirectory);
+
+            List<String> manifest = new ArrayList<>();
+            int id = 0;
+            for (RecordedFile recordedFile : recordingFiler.getRecordedFiles()) {
+                File file = toFile(recordedFile.fileObject.toUri());
+                if (file == null || !file.isFile()) {
+                    System.out.println("WARNING: Generated file " + recordedFile.fileObject.toUri() + " cannot be cached, cache not updated");
+                    return;
+                }
+                String entryName = String.valueOf(id++);
+                Files.copy(file.toPath(), filesDirectory.resolve(entryName));
+                manifest.add(entryName + SEPARATOR + recordedFile.toString());
+            }
+            Files.write(directory.resolve(MANIFEST_FILE), manifest, StandardCharsets.UTF_8);
+            Files.write(directory.resolve(MODEL_TYPES_FILE), new TreeSet<>(modelTypes), StandardCharsets.UTF_8);
+            Files.write(directory.resolve(FINGERPRINT_FILE), fingerprint.getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            System.out.println("WARNING: Cannot store generated files into cache " + directory + " (" + e.getMessage() + ")");
+        }
+    }
+
+    /**
+     * Returns qualified names of language model types stored by the last generation. In incremental builds
+     * unchanged types are not root elements of the round, so they have to be looked up by name.
+     */
+    public Set<String> loadModelTypes() {
+        Path modelTypesFile = directory.resolve(MODEL_TYPES_FILE);
+        if (!Files.isRegularFile(modelTypesFile)) {
+            return Collections.emptySet();
+        }
+        try {
+            return new LinkedHashSet<>(Files.readAllLines(modelTypesFile, StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            System.out.println("WARNING: Cannot read language model types from " + modelTypesFile + " (" + e.getMessage() + ")");
+            return Collections.emptySet();
+        }
+    }
+
+    /**
+     * Converts URI of file object into file, relative URIs are relative to working directory.
+     *
+     * @return File or null if file object is not stored in file system.
+     */
+    static File toFile(URI uri) {
+        if (!uri.isAbsolute()) {
+            return new File(uri.getPath());
+        }
+        return "file".equals(uri.getScheme()) ? new File(uri) : null;
+    }
+
+    private static void deleteDirectory(Path path) throws IOException {
+        if (!Files.isDirectory(path)) {
+            return;
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(path)) {
+            for (Path file : stream) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(path);
+    }
+
+    private static class RecordedFile {
+        private final Kind kind;
+        private final String location;
+        private final String name;
+        private final String relativeName;
+        private final FileObject fileObject;
+
+        RecordedFile(Kind kind, String location, CharSequence name, CharSequence relativeName, FileObject fileObject) {
+            this.kind = kind;
+            this.location = location;
+            this.name = name.toString();
+            this.relativeName = relativeName != null ? relativeName.toString() : "";
+            this.fileObject = fileObject;
+        }
+
+        @Override
+        public String toString() {
+            return kind + SEPARATOR + location + SEPARATOR + name + SEPARATOR + relativeName;
+        }
+    }
+
+    /**
+     * Filer delegating to the compiler's filer and remembering created files.
+     */
+    static class RecordingFiler implements Filer {
+        private final Filer filer;
+        private final List<RecordedFile> recordedFiles = Collections.synchronizedList(new ArrayList<>());
+
+        RecordingFiler(Filer filer) {
+            this.filer = filer;
+        }
+
+        List<RecordedFile> getRecordedFiles() {
+            return recordedFiles;
+        }
+
+        @Override
+        public JavaFileObject createSourceFile(CharSequence name, Element... originatingElements) throws IOException {
+            JavaFileObject fileObject = filer.createSourceFile(name, originatingElements);
+            recordedFiles.add(new RecordedFile(Kind.SOURCE, "", name, null, fileObject));
+            return fileObject;
+        }
+
+        @Override
+        public JavaFileObject createClassFile(CharSequence name, Element... originatingElements) throws IOException {
+            JavaFileObject fileObject = filer.createClassFile(name, originatingElements);
+            recordedFiles.add(new RecordedFile(Kind.CLASS, "", name, null, fileObject));
+            return fileObject;
+        }
+
+        @Override
+        public FileObject createResource(JavaFileManager.Location location, CharSequence pkg, CharSequence relativeName, Element... originatingElements) throws IOException {
+            FileObject fileObject = filer.createResource(location, pkg, relativeName, originatingElements);
+            recordedFiles.add(new RecordedFile(Kind.RESOURCE, location.getName(), pkg, relativeName, fileObject));
+            return fileObject;
+        }
+
+        @Override
+        public FileObject getResource(JavaFileManager.Location location, CharSequence pkg, CharSequence relativeName) throws IOException {
+            return filer.getResource(location, pkg, relativeName);
+        }
+    }
+}
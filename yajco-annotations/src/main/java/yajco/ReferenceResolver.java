@@ -21,8 +21,8 @@ import java.lang.reflect.*;
 import java.util.*;
 
 public class ReferenceResolver {
-    /** Singleton. */
-    private static ReferenceResolver instance;
+    /** Singleton per thread, so that parsers can run concurrently. */
+    private static final ThreadLocal<ReferenceResolver> instance = new ThreadLocal<ReferenceResolver>();
 
     private static final String IDENT_ELEMENT_NAME = "identifier";
 
@@ -77,15 +77,25 @@ public class ReferenceResolver {
     }
 
     public static ReferenceResolver createInstance() {
-        instance = new ReferenceResolver();
-        return instance;
+        ReferenceResolver resolver = new ReferenceResolver();
+        instance.set(resolver);
+        return resolver;
+    }
+
+    /**
+     * Forgets the resolver of the current thread, so it does not keep the objects of the last parse alive.
+     * Parsers call it when parsing ends.
+     */
+    public static void removeInstance() {
+        instance.remove();
     }
 
     public static ReferenceResolver getInstance() {
-        if (instance == null) {
+        ReferenceResolver resolver = instance.get();
+        if (resolver == null) {
             return createInstance();
         }
-        return instance;
+        return resolver;
     }
 
     /**
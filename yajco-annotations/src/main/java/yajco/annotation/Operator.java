@@ -7,7 +7,7 @@ import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
 import yajco.annotation.processor.MapsTo;
 
-@Retention(RetentionPolicy.SOURCE)
+@Retention(RetentionPolicy.CLASS)
 @Target(ElementType.CONSTRUCTOR)
 @MapsTo("yajco.model.pattern.impl.Operator")
 public @interface Operator {
@@ -6,7 +6,7 @@ import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
 import yajco.annotation.processor.MapsTo;
 
-@Retention(RetentionPolicy.SOURCE)
+@Retention(RetentionPolicy.CLASS)
 @Target(ElementType.TYPE)
 @MapsTo("yajco.model.pattern.impl.Parentheses")
 //Remove default values, have to be specified, or create a better processing with message about LPAR and RPAR
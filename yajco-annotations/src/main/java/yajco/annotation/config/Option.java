@@ -10,7 +10,7 @@ import java.lang.annotation.RetentionPolicy;
  * compilerGenerator - "string of class name implementing yajco.generator.parsergen.CompilerGenerator" - use this generator instead of build in generators
  * @author DeeL
  */
-@Retention(RetentionPolicy.SOURCE)
+@Retention(RetentionPolicy.CLASS)
 //Target: None
 public @interface Option {
 
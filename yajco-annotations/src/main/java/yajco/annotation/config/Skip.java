@@ -3,7 +3,7 @@ package yajco.annotation.config;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 
-@Retention(RetentionPolicy.SOURCE)
+@Retention(RetentionPolicy.CLASS)
 //Target: None
 public @interface Skip {
     String value();
@@ -1,6 +1,7 @@
 package yajco.lexer;
 
 import java.util.AbstractMap;
+import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -9,8 +10,8 @@ import java.util.regex.Pattern;
 
 public class Lexer {
     private final String input;
-    private final LinkedHashMap<Integer, Pattern> tokens;
-    private final List<Pattern> skips;
+    private final List<TokenPatterns.Entry> tokens;
+    private final List<TokenPatterns.Entry> skips;
 
     private int position = 0;
     private int line = 1;
@@ -23,8 +24,24 @@ public class Lexer {
      */
     public Lexer(String input, LinkedHashMap<Integer, Pattern> tokens, List<Pattern> skips) {
         this.input = input;
-        this.tokens = tokens;
-        this.skips = skips;
+        this.tokens = new ArrayList<>();
+        for (Map.Entry<Integer, Pattern> entry : tokens.entrySet()) {
+            this.tokens.add(new TokenPatterns.Entry(entry.getKey(), entry.getValue()));
+        }
+        this.skips = new ArrayList<>();
+        for (Pattern skip : skips) {
+            this.skips.add(new TokenPatterns.Entry(Token.EOF, skip));
+        }
+    }
+
+    /**
+     * @param input Input sentence.
+     * @param patterns Tokens and skips, usually shared by all lexers of a language.
+     */
+    public Lexer(String input, TokenPatterns patterns) {
+        this.input = input;
+        this.tokens = patterns.getTokens();
+        this.skips = patterns.getSkips();
     }
 
     public int getLine() {
@@ -56,11 +73,21 @@ public class Lexer {
         Matcher matcher = null;
         int longest = 0;
         Token token = null;
-        for (Map.Entry<Integer, Pattern> entry : this.tokens.entrySet()) {
+        for (TokenPatterns.Entry entry : this.tokens) {
+            String literal = entry.getLiteral();
+            if (literal != null) {
+                // Plain string token does not need a matcher
+                if (longest < literal.length() && this.input.startsWith(literal, this.position)) {
+                    longest = literal.length();
+                    int end = this.position + longest;
+                    token = createToken(entry.getType(), literal, this.position, end, this.position, end);
+                }
+                continue;
+            }
             if (matcher == null) {
-                matcher = entry.getValue().matcher(this.input);
+                matcher = entry.getPattern().matcher(this.input);
             } else {
-                matcher.usePattern(entry.getValue());
+                matcher.usePattern(entry.getPattern());
             }
             matcher.useTransparentBounds(true);
             matcher.region(this.position, this.input.length());
@@ -79,22 +106,7 @@ public class Lexer {
                         }
                     }
 
-                    //Create token
-                    token = new Token(entry.getKey(), group,
-                                new Token.Range<>(
-                                    new Token.Position(start,
-                                            indexToLineCol(start).getKey(),
-                                            indexToLineCol(start).getValue()),
-                                    new Token.Position(end - 1,
-                                            indexToLineCol(end - 1).getKey(),
-                                            indexToLineCol(end - 1).getValue())
-                                ),
-                                new Token.Range<>(
-                                        new Token.Position(matcher.start(), this.line, this.column),
-                                        new Token.Position(matcher.end() - 1,
-                                                indexToLineCol(matcher.end() - 1).getKey(),
-                                                indexToLineCol(matcher.end() - 1).getValue())
-                                ));
+                    token = createToken(entry.getType(), group, start, end, matcher.start(), matcher.end());
                 }
             }
         }
@@ -108,16 +120,43 @@ public class Lexer {
         throw new LexerException("No token recognized at " + this.line + ":" + this.column);
     }
 
+    private Token createToken(int type, String text, int start, int end, int matchStart, int matchEnd) {
+        return new Token(type, text,
+                new Token.Range<>(
+                    new Token.Position(start,
+                            indexToLineCol(start).getKey(),
+                            indexToLineCol(start).getValue()),
+                    new Token.Position(end - 1,
+                            indexToLineCol(end - 1).getKey(),
+                            indexToLineCol(end - 1).getValue())
+                ),
+                new Token.Range<>(
+                        new Token.Position(matchStart, this.line, this.column),
+                        new Token.Position(matchEnd - 1,
+                                indexToLineCol(matchEnd - 1).getKey(),
+                                indexToLineCol(matchEnd - 1).getValue())
+                ));
+    }
+
     private void skipWhiteSpaces() {
         boolean matched;
         do {
             matched = false;
             Matcher matcher = null;
-            for (Pattern skip : this.skips) {
+            for (TokenPatterns.Entry skip : this.skips) {
+                String literal = skip.getLiteral();
+                if (literal != null) {
+                    if (this.input.startsWith(literal, this.position)) {
+                        consumeInput(literal.length());
+                        matched = true;
+                        break;
+                    }
+                    continue;
+                }
                 if (matcher == null) {
-                    matcher = skip.matcher(this.input);
+                    matcher = skip.getPattern().matcher(this.input);
                 } else {
-                    matcher.usePattern(skip);
+                    matcher.usePattern(skip.getPattern());
                 }
                 matcher.useTransparentBounds(true);
                 matcher.region(this.position, this.input.length());
@@ -0,0 +1,130 @@
+package yajco.lexer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Tokens and skips of a generated lexer. Regular expressions matching just one string, e.g. keywords and operators,
+ * are matched as strings. Other regular expressions are compiled when they are matched for the first time, not when
+ * the lexer class is loaded, so an invalid one throws {@link java.util.regex.PatternSyntaxException} during lexing.
+ * Regular expressions of generated lexers are checked when the parser is generated. Instance can be shared by lexers
+ * in all threads.
+ */
+public class TokenPatterns {
+
+    private final List<Entry> tokens = new ArrayList<Entry>();
+    private final List<Entry> skips = new ArrayList<Entry>();
+
+    /**
+     * Adds token, tokens are tried in the order of adding.
+     *
+     * @param type token type number
+     * @param regex Java regular expression of the token
+     */
+    public TokenPatterns token(int type, String regex) {
+        tokens.add(new Entry(type, regex, toLiteral(regex)));
+        return this;
+    }
+
+    /**
+     * Adds skip, skips are tried in the order of adding.
+     *
+     * @param regex Java regular expression to be ignored when matched
+     */
+    public TokenPatterns skip(String regex) {
+        skips.add(new Entry(Token.EOF, regex, toLiteral(regex)));
+        return this;
+    }
+
+    List<Entry> getTokens() {
+        return Collections.unmodifiableList(tokens);
+    }
+
+    List<Entry> getSkips() {
+        return Collections.unmodifiableList(skips);
+    }
+
+    /**
+     * Returns the only string matched by the regular expression, or null if it can match more strings or it is not
+     * simple enough to be decided.
+     */
+    static String toLiteral(String regex) {
+        StringBuilder sb = new StringBuilder();
+        int i = 0;
+        while (i < regex.length()) {
+            char c = regex.charAt(i);
+            if (Character.isLetterOrDigit(c) || c == ' ' || c == '_' || c == '"' || c == '\'' || c == '@' || c == '#'
+                    || c == '%' || c == '!' || c == ',' || c == ';' || c == ':' || c == '=' || c == '<' || c == '>'
+                    || c == '~' || c == '`' || c == '/') {
+                sb.append(c);
+                i++;
+            } else if (c == '[' && i + 2 < regex.length() && regex.charAt(i + 2) == ']'
+                    && "\\[]^-&".indexOf(regex.charAt(i + 1)) < 0) {
+                // Single character class, e.g. [+]
+                sb.append(regex.charAt(i + 1));
+                i += 3;
+            } else if (c == '\\' && i + 1 < regex.length()) {
+                char escaped = regex.charAt(i + 1);
+                if (escaped == 't') {
+                    sb.append('\t');
+                } else if (escaped == 'n') {
+                    sb.append('\n');
+                } else if (escaped == 'r') {
+                    sb.append('\r');
+                } else if (escaped == 'f') {
+                    sb.append('\f');
+                } else if (!Character.isLetterOrDigit(escaped)) {
+                    sb.append(escaped);
+                } else {
+                    return null;
+                }
+                i += 2;
+            } else {
+                return null;
+            }
+        }
+        return sb.length() > 0 ? sb.toString() : null;
+    }
+
+    static final class Entry {
+
+        private final int type;
+        private final String regex;
+        private final String literal;
+        private volatile Pattern pattern;
+
+        Entry(int type, String regex, String literal) {
+            this.type = type;
+            this.regex = regex;
+            this.literal = literal;
+        }
+
+        Entry(int type, Pattern pattern) {
+            this(type, pattern.pattern(), null);
+            this.pattern = pattern;
+        }
+
+        int getType() {
+            return type;
+        }
+
+        /**
+         * Returns the matched string if the entry matches only one string, otherwise null.
+         */
+        String getLiteral() {
+            return literal;
+        }
+
+        Pattern getPattern() {
+            Pattern compiled = pattern;
+            if (compiled == null) {
+                // Compiled patterns are immutable, compiling one twice by concurrent lexers is harmless
+                compiled = Pattern.compile(regex);
+                pattern = compiled;
+            }
+            return compiled;
+        }
+    }
+}
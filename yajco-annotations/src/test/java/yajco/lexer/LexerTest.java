@@ -0,0 +1,72 @@
+package yajco.lexer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.PatternSyntaxException;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class LexerTest {
+
+    private static final int KEYWORD = 1;
+    private static final int IDENTIFIER = 2;
+    private static final int OPERATOR = 3;
+
+    @Test
+    public void earlierLiteralWinsTieWithRegex() throws LexerException {
+        TokenPatterns patterns = new TokenPatterns().token(KEYWORD, "if").token(IDENTIFIER, "[a-z]+").skip("\\s");
+        assertEquals("1:if 2:iff 2:i 1:if", lex("if iff i if", patterns));
+    }
+
+    @Test
+    public void earlierRegexWinsTieWithLiteral() throws LexerException {
+        TokenPatterns patterns = new TokenPatterns().token(IDENTIFIER, "[a-z]+").token(KEYWORD, "if").skip("\\s");
+        assertEquals("2:if 2:iff", lex("if iff", patterns));
+    }
+
+    @Test
+    public void longerMatchWinsRegardlessOfOrder() throws LexerException {
+        TokenPatterns patterns = new TokenPatterns().token(OPERATOR, "[<]").token(OPERATOR + 1, "[<][=]").token(IDENTIFIER, "[a-z]+");
+        assertEquals("3:< 4:<= 3:<", lex("<<=<", patterns));
+        patterns = new TokenPatterns().token(KEYWORD, "in").token(IDENTIFIER, "[a-z]+");
+        assertEquals("2:int", lex("int", patterns));
+    }
+
+    @Test
+    public void earlierLiteralWinsTieWithLiteral() throws LexerException {
+        TokenPatterns patterns = new TokenPatterns().token(OPERATOR, "[+]").token(OPERATOR + 1, "\\+");
+        assertEquals("3:+ 3:+", lex("++", patterns));
+    }
+
+    @Test
+    public void literalAndRegexSkipsAreSkipped() throws LexerException {
+        TokenPatterns patterns = new TokenPatterns().token(IDENTIFIER, "[a-z]+").skip("//[^\\n]*").skip("[,]").skip("\\s");
+        assertEquals("2:a 2:b 2:c", lex("a, b // comment\n,,c", patterns));
+    }
+
+    @Test
+    public void invalidRegexFailsWhenItIsMatched() throws LexerException {
+        TokenPatterns patterns = new TokenPatterns().token(KEYWORD, "if").token(IDENTIFIER, "[a-z");
+        try {
+            lex("if", patterns);
+            fail("invalid regular expression was compiled");
+        } catch (PatternSyntaxException e) {
+            assertEquals("[a-z", e.getPattern());
+        }
+    }
+
+    private static String lex(String input, TokenPatterns patterns) throws LexerException {
+        Lexer lexer = new Lexer(input, patterns);
+        List<String> tokens = new ArrayList<String>();
+        for (Token token = lexer.nextToken(); !token.isEOF(); token = lexer.nextToken()) {
+            tokens.add(token.getType() + ":" + token.getText());
+        }
+        StringBuilder sb = new StringBuilder();
+        for (String token : tokens) {
+            sb.append(sb.length() > 0 ? " " : "").append(token);
+        }
+        return sb.toString();
+    }
+}
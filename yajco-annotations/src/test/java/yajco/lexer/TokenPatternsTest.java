@@ -0,0 +1,62 @@
+package yajco.lexer;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class TokenPatternsTest {
+
+    @Test
+    public void plainStringsAreLiterals() {
+        assertEquals("while", TokenPatterns.toLiteral("while"));
+        assertEquals("<=", TokenPatterns.toLiteral("<="));
+        assertEquals("a_1 b", TokenPatterns.toLiteral("a_1 b"));
+    }
+
+    @Test
+    public void escapedCharactersAreLiterals() {
+        assertEquals("+", TokenPatterns.toLiteral("\\+"));
+        assertEquals("(*)", TokenPatterns.toLiteral("\\(\\*\\)"));
+        assertEquals("a\\b", TokenPatterns.toLiteral("a\\\\b"));
+        assertEquals("\t\n\r\f", TokenPatterns.toLiteral("\\t\\n\\r\\f"));
+    }
+
+    @Test
+    public void singleCharacterClassesAreLiterals() {
+        assertEquals("(", TokenPatterns.toLiteral("[(]"));
+        assertEquals("..", TokenPatterns.toLiteral("[.][.]"));
+        assertEquals("a+b", TokenPatterns.toLiteral("a[+]b"));
+    }
+
+    @Test
+    public void characterClassesMatchingMoreCharactersAreNotLiterals() {
+        assertNull(TokenPatterns.toLiteral("[ab]"));
+        assertNull(TokenPatterns.toLiteral("[^a]"));
+        assertNull(TokenPatterns.toLiteral("[\\]]"));
+        assertNull(TokenPatterns.toLiteral("[-]"));
+        assertNull(TokenPatterns.toLiteral("[a"));
+    }
+
+    @Test
+    public void metacharactersAreNotLiterals() {
+        assertNull(TokenPatterns.toLiteral("a|b"));
+        assertNull(TokenPatterns.toLiteral("ab?"));
+        assertNull(TokenPatterns.toLiteral("a.b"));
+        assertNull(TokenPatterns.toLiteral("a*"));
+        assertNull(TokenPatterns.toLiteral("a+"));
+        assertNull(TokenPatterns.toLiteral("a{2}"));
+        assertNull(TokenPatterns.toLiteral("(ab)"));
+        assertNull(TokenPatterns.toLiteral("^a$"));
+    }
+
+    @Test
+    public void escapedClassesAndEmptyRegexAreNotLiterals() {
+        assertNull(TokenPatterns.toLiteral("\\d"));
+        assertNull(TokenPatterns.toLiteral("\\w+"));
+        assertNull(TokenPatterns.toLiteral("\\Qa\\E"));
+        assertNull(TokenPatterns.toLiteral("\\0"));
+        assertNull(TokenPatterns.toLiteral("a\\"));
+        assertNull(TokenPatterns.toLiteral(""));
+    }
+}
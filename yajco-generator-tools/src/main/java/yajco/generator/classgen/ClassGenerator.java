@@ -53,6 +53,7 @@ public class ClassGenerator implements FilesGenerator {
     private static final String PROPERTY_ENABLER = "class";
 
     private Language actualLanguage;
+    private Properties actualProperties;
 
     @Override
     public void generateFiles(Language language, Filer filer, Properties properties) {
@@ -65,6 +66,7 @@ public class ClassGenerator implements FilesGenerator {
             throw new NullPointerException("Parameter language is NULL.");
         }
         actualLanguage = language;
+        actualProperties = properties;
 
         generatePackageInfoFile(filer);
         generateConceptFiles(filer);
@@ -85,17 +87,21 @@ public class ClassGenerator implements FilesGenerator {
 //                    }
 //                }
 //                file = new File(directory, filePath);
+                long start = System.nanoTime();
                 JavaFileObject fileObject = filer.createSourceFile(filePath);
                 
                 writer = fileObject.openWriter();
                 generate(concept, writer);
+                // File has to be complete before it is formatted.
+                writer.close();
+                writer = null;
                 try {
-                    Utilities.formatCode(new File(new URI("file:///").resolve(fileObject.toUri())));
+                    Utilities.formatCode(new File(new URI("file:///").resolve(fileObject.toUri())), actualProperties);
                 } catch (URISyntaxException e) {
                     System.err.println("Cannot create absolute path for file "+fileObject.toUri().toString());
                     throw new GeneratorException("Cannot create absolute URI for file "+fileObject.toUri().toString(), e);
                 }
-                System.out.println("Success generating file: " + filePath);
+                System.out.println("Success generating file: " + filePath + " (" + (System.nanoTime() - start) / 1000000L + " ms)");
             } catch (IOException ex) {
                 throw new GeneratorException("Problem writing file for concept " + concept.getConceptName(), ex);
             } finally {
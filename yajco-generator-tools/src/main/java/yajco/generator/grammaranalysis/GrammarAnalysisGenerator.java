@@ -0,0 +1,81 @@
+package yajco.generator.grammaranalysis;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Properties;
+import javax.annotation.processing.Filer;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+import yajco.GeneratorHelper;
+import yajco.generator.FilesGenerator;
+import yajco.generator.GeneratorException;
+import yajco.generator.util.AnalyzedGrammar;
+import yajco.grammar.analysis.GrammarAnalysis;
+import yajco.grammar.analysis.GrammarAnalyzer;
+import yajco.model.Language;
+import yajco.model.utilities.Utilities;
+
+/**
+ * Writes analysis of the BNF grammar of the language into 'grammar-analysis.json' in the language package of
+ * generated sources. It contains FIRST and FOLLOW sets, lookahead needed by LL decisions and LALR(1) conflicts.
+ * Decisions needing more lookahead than 'yajco.grammar.analysis.maxLookahead' (3 by default) and unresolved
+ * LALR(1) conflicts are reported as warnings.
+ * <p>
+ * The analysis is generated only when 'yajco.generateTools' property contains 'analysis' or 'all'.
+ */
+public class GrammarAnalysisGenerator implements FilesGenerator {
+
+    public static final String REPORT_FILE_NAME = "grammar-analysis.json";
+    public static final String MAX_LOOKAHEAD_PROPERTY = "yajco.grammar.analysis.maxLookahead";
+    private static final String PROPERTY_ENABLER = "analysis";
+
+    @Override
+    public void generateFiles(Language language, Filer filer, Properties properties) {
+        String option = properties.getProperty(GeneratorHelper.GENERATE_TOOLS_KEY, "").toLowerCase();
+        if (!option.contains("all") && !option.contains(PROPERTY_ENABLER)) {
+            System.out.println(getClass().getCanonicalName()+": Grammar analysis not generated - property disabled (set "+GeneratorHelper.GENERATE_TOOLS_KEY+" to '"+PROPERTY_ENABLER+"' or 'all')");
+            return;
+        }
+        long start = System.nanoTime();
+        // The same grammar as parser generators use, it is analyzed only once if the selector analyzed it already.
+        GrammarAnalysis analysis = AnalyzedGrammar.getAnalysis(language, properties, getMaxLookahead(properties));
+
+        try {
+            FileObject fileObject = filer.createResource(StandardLocation.SOURCE_OUTPUT, Utilities.getLanguagePackageName(language), REPORT_FILE_NAME);
+            try (Writer writer = new OutputStreamWriter(fileObject.openOutputStream(), StandardCharsets.UTF_8)) {
+                analysis.writeJson(writer);
+            }
+        } catch (IOException ex) {
+            throw new GeneratorException("Cannot write grammar analysis (" + ex.getMessage() + ")", ex);
+        }
+
+        System.out.println(analysis);
+        for (GrammarAnalysis.Decision decision : analysis.getDecisions()) {
+            if (decision.isLeftRecursive()) {
+                System.out.println("WARNING: Nonterminal " + decision.getNonterminal() + " is left recursive, LL parsers cannot decide among its alternatives");
+            } else if (decision.getLookahead() < 0) {
+                System.out.println("WARNING: Nonterminal " + decision.getNonterminal() + " needs more than " + analysis.getMaxLookahead() + " tokens of lookahead or backtracking, conflicting tokens " + decision.getLl1Conflicts());
+            }
+        }
+        for (GrammarAnalysis.Conflict conflict : analysis.getConflicts()) {
+            if (!conflict.isResolvedByPrecedence()) {
+                System.out.println("WARNING: LALR(1) " + conflict);
+            }
+        }
+        System.out.println("Generated file " + REPORT_FILE_NAME + " in " + (System.nanoTime() - start) / 1000000L + " ms");
+    }
+
+    private static int getMaxLookahead(Properties properties) {
+        String value = properties.getProperty(MAX_LOOKAHEAD_PROPERTY);
+        if (value == null || value.trim().isEmpty()) {
+            return GrammarAnalyzer.DEFAULT_MAX_LOOKAHEAD;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new GeneratorException("Property " + MAX_LOOKAHEAD_PROPERTY + " should be a number, not '" + value + "'", e);
+        }
+    }
+}
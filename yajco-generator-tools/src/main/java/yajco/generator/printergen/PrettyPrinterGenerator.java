@@ -1,14 +1,13 @@
 package yajco.generator.printergen;
 
 import java.io.IOException;
-import java.io.InputStreamReader;
 import java.io.Writer;
 import org.apache.velocity.VelocityContext;
-import org.apache.velocity.app.VelocityEngine;
 import yajco.GeneratorHelper;
 import yajco.generator.AbstractFileGenerator;
 import yajco.generator.GeneratorException;
 import yajco.generator.annotation.DependsOn;
+import yajco.generator.util.TemplateService;
 import yajco.generator.util.Utilities;
 import yajco.generator.visitorgen.VisitorGenerator;
 import yajco.model.*;
@@ -29,7 +28,7 @@ public class PrettyPrinterGenerator extends AbstractFileGenerator {
     public static final String PRINTER_PACKAGE = "printer";
     public static final String PRINTER_CLASS_NAME = "Printer";
     private final String template;
-    protected final VelocityEngine velocityEngine = new VelocityEngine();
+    protected static final TemplateService templateService = TemplateService.getInstance();
 
     public PrettyPrinterGenerator() {
         template = "Printer.java.vm";
@@ -49,7 +48,6 @@ public class PrettyPrinterGenerator extends AbstractFileGenerator {
     public void generate(Language language, Writer writer) {
 
         try {
-            InputStreamReader reader = new InputStreamReader(getClass().getResourceAsStream(TEMPLATE_PACKAGE + "/" + template), "utf-8");
             VelocityContext context = new VelocityContext();
             VisitorGenerator visitorGenerator = new VisitorGenerator();
             context.put("Utilities", Utilities.class);
@@ -83,7 +81,7 @@ public class PrettyPrinterGenerator extends AbstractFileGenerator {
             context.put("quote","\"");
             context.put("escapedQuote","\\\"");
 
-            velocityEngine.evaluate(context, writer, "", reader);
+            templateService.render(getClass(), TEMPLATE_PACKAGE + "/" + template, context, writer);
 
             writer.flush();
         } catch (IOException ex) {
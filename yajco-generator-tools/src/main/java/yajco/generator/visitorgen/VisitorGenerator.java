@@ -1,7 +1,6 @@
 package yajco.generator.visitorgen;
 
 import java.io.IOException;
-import java.io.InputStreamReader;
 import java.io.Writer;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -9,10 +8,10 @@ import java.util.Map;
 import java.util.Set;
 
 import org.apache.velocity.VelocityContext;
-import org.apache.velocity.app.VelocityEngine;
 import yajco.GeneratorHelper;
 import yajco.generator.AbstractFileGenerator;
 import yajco.generator.GeneratorException;
+import yajco.generator.util.TemplateService;
 import yajco.generator.util.Utilities;
 import yajco.model.*;
 import yajco.model.pattern.impl.Token;
@@ -27,7 +26,7 @@ public class VisitorGenerator extends AbstractFileGenerator {
     protected static final String VISITOR_PACKAGE = "visitor";
     protected static final String VISITOR_CLASS_NAME = "Visitor";
     private final String template;
-    protected final VelocityEngine velocityEngine = new VelocityEngine();
+    protected static final TemplateService templateService = TemplateService.getInstance();
     /**
      * Maps properties from abstract syntax to token names in concrete syntax.
      */
@@ -55,7 +54,6 @@ public class VisitorGenerator extends AbstractFileGenerator {
     public void generate(Language language, Writer writer) {
         fillMaps(language);
         try {
-            InputStreamReader reader = new InputStreamReader(getClass().getResourceAsStream(TEMPLATE_PACKAGE + "/" + template), "utf-8");
             VelocityContext context = new VelocityContext();
             context.put("Utilities", Utilities.class);
             context.put("ModelUtilities", yajco.model.utilities.Utilities.class);
@@ -70,7 +68,7 @@ public class VisitorGenerator extends AbstractFileGenerator {
             context.put("optionalTypeClassName", OptionalType.class.getCanonicalName());
             context.put("propertyToTokenNameMap", propertyToTokenNameMap);
             context.put("tokenToUsedTypesMap", tokenToUsedTypesMap);
-            velocityEngine.evaluate(context, writer, "", reader);
+            templateService.render(getClass(), TEMPLATE_PACKAGE + "/" + template, context, writer);
             writer.flush();
         } catch (IOException ex) {
             throw new GeneratorException("Cannot generate visitor class", ex);
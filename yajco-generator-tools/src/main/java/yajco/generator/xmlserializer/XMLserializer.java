@@ -2,13 +2,19 @@ package yajco.generator.xmlserializer;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Properties;
 import javax.annotation.processing.Filer;
 import javax.tools.FileObject;
 import javax.tools.StandardLocation;
 import yajco.generator.AbstractFileGenerator;
 import yajco.generator.GeneratorException;
 import yajco.model.Language;
+import yajco.model.utilities.BinaryLanguageFormatHelper;
+import yajco.model.utilities.LanguageCompositionLoader;
 import yajco.model.utilities.XMLLanguageFormatHelper;
 
 /**
@@ -18,6 +24,27 @@ import yajco.model.utilities.XMLLanguageFormatHelper;
 public class XMLserializer extends AbstractFileGenerator{
     private static final String PROPERTY_ENABLER = "xml";
 
+    @Override
+    public void generateFiles(Language language, Filer filer, Properties properties) {
+        super.generateFiles(language, filer, properties);
+        if (shouldGenerate()) {
+            // Binary format next to the XML one, readers of languages prefer it.
+            try {
+                FileObject fileObject = filer.createResource(StandardLocation.CLASS_OUTPUT, "", getPackageName() + "/" + BinaryLanguageFormatHelper.YAJCO_BINARY_FILE_NAME);
+                try (OutputStream stream = fileObject.openOutputStream()) {
+                    BinaryLanguageFormatHelper.writeToBinary(language, stream);
+                }
+                // Index of concepts, languages including this one load it only when its concepts are used.
+                fileObject = filer.createResource(StandardLocation.CLASS_OUTPUT, "", getPackageName() + "/" + LanguageCompositionLoader.YAJCO_INDEX_FILE_NAME);
+                try (Writer writer = new OutputStreamWriter(fileObject.openOutputStream(), StandardCharsets.UTF_8)) {
+                    LanguageCompositionLoader.writeIndex(language, writer);
+                }
+            } catch (IOException ex) {
+                throw new GeneratorException("Cannot write serialized language (" + ex.getMessage() + ")", ex);
+            }
+        }
+    }
+
     @Override
     public void generate(Language language, Writer writer) {
         XMLLanguageFormatHelper.writeToXML(language, writer);
@@ -12,6 +12,8 @@ import yajco.annotation.reference.Identifier;
 import yajco.annotation.reference.References;
 import yajco.model.pattern.ConceptPattern;
 import yajco.model.pattern.PatternSupport;
+import yajco.model.utilities.ModelList;
+import yajco.model.utilities.NameIndex;
 import yajco.model.utilities.Utilities;
 
 public class Concept extends PatternSupport<ConceptPattern> {
@@ -22,6 +24,10 @@ public class Concept extends PatternSupport<ConceptPattern> {
     private Concept parent;
     private List<Property> abstractSyntax = new ArrayList<Property>();
     private List<Notation> concreteSyntax = new ArrayList<Notation>();
+    // Not serialized, created lazily also for deserialized concepts.
+    private transient ModelList<Property> propertyList;
+    private transient ModelList<Notation> notationList;
+    private transient NameIndex<Property> propertyIndex;
 
     public Concept(
             @Before("concept") String name,
@@ -194,28 +200,29 @@ public class Concept extends PatternSupport<ConceptPattern> {
     }
 
     public List<Property> getAbstractSyntax() {
-        return abstractSyntax;
+        propertyList = ModelList.of(propertyList, abstractSyntax);
+        return propertyList;
     }
 
     public Property getProperty(String name) {
-        for (Property property : abstractSyntax) {
-            if (property.getName().equals(name)) {
-                return property;
-            }
+        if (propertyIndex == null) {
+            propertyIndex = new NameIndex<Property>(Property::getName);
         }
-        return null;
+        getAbstractSyntax();
+        return propertyIndex.get(propertyList, name);
     }
 
     public void addProperty(Property property) {
-        abstractSyntax.add(property);
+        getAbstractSyntax().add(property);
     }
 
     public List<Notation> getConcreteSyntax() {
-        return concreteSyntax;
+        notationList = ModelList.of(notationList, concreteSyntax);
+        return notationList;
     }
 
     public void addNotation(Notation notation) {
-        concreteSyntax.add(notation);
+        getConcreteSyntax().add(notation);
     }
 
     public String getConceptName() {
@@ -1,6 +1,7 @@
 package yajco.model;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -11,6 +12,8 @@ import yajco.annotation.Before;
 import yajco.annotation.Exclude;
 import yajco.annotation.Range;
 import yajco.model.pattern.impl.Token;
+import yajco.model.utilities.ModelList;
+import yajco.model.utilities.NameIndex;
 
 public class Language extends YajcoModelElement {
 
@@ -20,6 +23,15 @@ public class Language extends YajcoModelElement {
     private List<SkipDef> skips = new ArrayList<SkipDef>();
     private Properties settings = new Properties();
 
+    // Views and lookup caches are not serialized, they are created lazily also for deserialized languages.
+    // Lists passed to constructors and setters belong to the model, later changes must go through the getters.
+    private transient ModelList<Concept> conceptList;
+    private transient ModelList<TokenDef> tokenList;
+    private transient NameIndex<Concept> conceptIndex;
+    private transient NameIndex<TokenDef> tokenIndex;
+    private transient List<TokenDef> usedTokens;
+    private transient long usedTokensModifications;
+
     public Language(
             @Before("tokens") @Range(minOccurs = 0) List<TokenDef> tokens,
             @Before("skips") @Range(minOccurs = 0) List<SkipDef> skips,
@@ -85,20 +97,20 @@ public class Language extends YajcoModelElement {
     }
 
     public List<Concept> getConcepts() {
-        return concepts;
+        conceptList = ModelList.of(conceptList, concepts);
+        return conceptList;
     }
 
     public Concept getConcept(String name) {
-        for (Concept concept : concepts) {
-            if (concept.getName().equals(name)) {
-                return concept;
-            }
+        if (conceptIndex == null) {
+            conceptIndex = new NameIndex<Concept>(Concept::getName);
         }
-        return null;
+        getConcepts();
+        return conceptIndex.get(conceptList, name);
     }
 
     public void addConcept(Concept concept) {
-        concepts.add(concept);
+        getConcepts().add(concept);
     }
 
     public List<SkipDef> getSkips() {
@@ -110,20 +122,21 @@ public class Language extends YajcoModelElement {
     }
 
     public List<TokenDef> getTokens() {
-        return tokens;
+        tokenList = ModelList.of(tokenList, tokens);
+        return tokenList;
     }
 
     public void setTokens(List<TokenDef> tokens) {
         this.tokens = tokens;
+        this.usedTokens = null;
     }
 
     public TokenDef getToken(String name) {
-        for (TokenDef token : tokens) {
-            if (token.getName().equals(name)) {
-                return token;
-            }
+        if (tokenIndex == null) {
+            tokenIndex = new NameIndex<TokenDef>(TokenDef::getName);
         }
-        return null;
+        getTokens();
+        return tokenIndex.get(tokenList, name);
     }
 
     public void setName(String name) {
@@ -169,14 +182,29 @@ public class Language extends YajcoModelElement {
         settings.setProperty(name, value);
     }
     
-    public List<TokenDef> getUsedTokens() {
+    /**
+     * Returns tokens used in concrete syntax of concepts. The tokens are found again only after some list of the
+     * model was modified.
+     *
+     * @return unmodifiable list of used tokens
+     */
+    public synchronized List<TokenDef> getUsedTokens() {
+        long modifications = ModelList.getAllModifications();
+        if (usedTokens == null || usedTokensModifications != modifications) {
+            usedTokens = Collections.unmodifiableList(findUsedTokens());
+            usedTokensModifications = modifications;
+        }
+        return usedTokens;
+    }
+
+    private List<TokenDef> findUsedTokens() {
         Set<TokenDef> usedTokens = new HashSet<TokenDef>();
         Map<String, TokenDef> mapTokens = new HashMap<String, TokenDef>();
-        for (TokenDef tokenDef : tokens) {
+        for (TokenDef tokenDef : getTokens()) {
             mapTokens.put(tokenDef.getName().toUpperCase(), tokenDef);
         }
         
-        for (Concept concept : concepts) {
+        for (Concept concept : getConcepts()) {
             for (Notation notation : concept.getConcreteSyntax()) {
                 for (NotationPart notationPart : notation.getParts()) {
                     String possibleToken;
@@ -184,8 +212,9 @@ public class Language extends YajcoModelElement {
                     if (mapTokens.containsKey(possibleToken.toUpperCase())) {
                         usedTokens.add(mapTokens.get(possibleToken.toUpperCase()));
                     } else if (possibleToken.toUpperCase().endsWith("S")) {
-                        if(mapTokens.containsKey(possibleToken.substring(0, possibleToken.length()-1).toUpperCase())) {
-                            usedTokens.add(mapTokens.get(possibleToken.toUpperCase()));
+                        String singularToken = possibleToken.substring(0, possibleToken.length()-1).toUpperCase();
+                        if(mapTokens.containsKey(singularToken)) {
+                            usedTokens.add(mapTokens.get(singularToken));
                         }
                     }
                 }
@@ -8,6 +8,7 @@ import yajco.annotation.Exclude;
 import yajco.annotation.Optional;
 import yajco.annotation.Range;
 import yajco.annotation.Separator;
+import yajco.model.utilities.ModelList;
 import yajco.model.utilities.Utilities;
 import yajco.model.pattern.NotationPattern;
 import yajco.model.pattern.PatternSupport;
@@ -19,6 +20,8 @@ import yajco.model.pattern.PatternSupport;
 public class Notation extends PatternSupport<NotationPattern> {
 
     private List<NotationPart> parts;
+    // Not serialized, created lazily also for deserialized notations.
+    private transient ModelList<NotationPart> partList;
 
     public Notation(
             @Range(minOccurs = 1) NotationPart[] parts,
@@ -46,11 +49,12 @@ public class Notation extends PatternSupport<NotationPattern> {
     }
 
     public List<NotationPart> getParts() {
-        return parts;
+        partList = ModelList.of(partList, parts);
+        return partList;
     }
 
     public void addPart(NotationPart part) {
-        parts.add(part);
+        getParts().add(part);
     }
 
     @Override
@@ -39,6 +39,11 @@ public class SkipDef extends YajcoModelElement {
         }
         return this.regexp.equals(that.regexp);
     }
+
+    @Override
+    public int hashCode() {
+        return regexp != null ? regexp.hashCode() : 0;
+    }
     
     
 }
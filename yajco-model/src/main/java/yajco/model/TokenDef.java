@@ -1,5 +1,6 @@
 package yajco.model;
 
+import java.util.Locale;
 import yajco.annotation.Before;
 import yajco.annotation.Exclude;
 import yajco.annotation.Token;
@@ -51,7 +52,8 @@ public class TokenDef extends YajcoModelElement {
     @Override
     public int hashCode() {
         int hash = 3;
-        hash = 67 * hash + (this.name != null ? this.name.hashCode() : 0);
+        // Names are compared ignoring case.
+        hash = 67 * hash + (this.name != null ? this.name.toUpperCase(Locale.ROOT).hashCode() : 0);
         return hash;
     }
     
@@ -1,12 +1,15 @@
 package yajco.model.pattern;
 
 import yajco.model.YajcoModelElement;
+import yajco.model.utilities.ModelList;
 
 import java.util.ArrayList;
 import java.util.List;
 
 public class PatternSupport<T extends Pattern> extends YajcoModelElement {
     private final List<T> patterns;
+    // Not serialized, created lazily also for deserialized elements.
+    private transient ModelList<T> patternList;
 
     public PatternSupport(Object sourceElement) {
         super(sourceElement);
@@ -19,11 +22,12 @@ public class PatternSupport<T extends Pattern> extends YajcoModelElement {
     }
 
     public List<T> getPatterns() {
-        return patterns;
+        patternList = ModelList.of(patternList, patterns);
+        return patternList;
     }
 
     public void addPattern(T pattern) {
-        patterns.add(pattern);
+        getPatterns().add(pattern);
     }
 
     /**
@@ -0,0 +1,512 @@
+package yajco.model.utilities;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import yajco.model.Language;
+import yajco.model.YajcoModelElement;
+
+/**
+ * Compact binary format of the language model, stored in 'META-INF/yajco-lang.bin' next to 'yajco-lang.xml'.
+ * <p>
+ * The file starts with a header (magic number and format version) followed by a table of strings, a table of
+ * classes with names of their serialized fields and finally records of model objects. Strings, classes and
+ * fields are written only once in the tables and records refer to them by index. Objects referenced several
+ * times are written once and then referred to by index of their record, so shared and cyclic references are
+ * preserved. Same as in the XML format, transient fields and source elements are not stored.
+ * <p>
+ * Fields are matched by name when read, so a field added to the model is left uninitialized and a removed field
+ * is skipped. Incompatible changes of the format itself increase {@link #VERSION}.
+ */
+public class BinaryLanguageFormatHelper {
+
+    public final static String YAJCO_BINARY_FILE_NAME = "yajco-lang.bin";
+    public final static int VERSION = 1;
+
+    private final static int MAGIC = 0x594A434C; // "YJCL"
+
+    private final static int TAG_NULL = 0;
+    private final static int TAG_REFERENCE = 1;
+    private final static int TAG_OBJECT = 2;
+    private final static int TAG_COLLECTION = 3;
+    private final static int TAG_MAP = 4;
+    private final static int TAG_ARRAY = 5;
+    private final static int TAG_STRING = 6;
+    private final static int TAG_ENUM = 7;
+    private final static int TAG_TRUE = 8;
+    private final static int TAG_FALSE = 9;
+    private final static int TAG_INT = 10;
+    private final static int TAG_LONG = 11;
+    private final static int TAG_DOUBLE = 12;
+    private final static int TAG_FLOAT = 13;
+    private final static int TAG_SHORT = 14;
+    private final static int TAG_BYTE = 15;
+    private final static int TAG_CHAR = 16;
+
+    private final static Map<Class<?>, Map<String, Field>> serializedFields = new ConcurrentHashMap<Class<?>, Map<String, Field>>();
+    private final static Map<Class<?>, Constructor<?>> constructors = new ConcurrentHashMap<Class<?>, Constructor<?>>();
+    // Classes without default constructor, e.g. unmodifiable collections, so they are not looked up repeatedly.
+    private final static Set<Class<?>> withoutConstructor = ConcurrentHashMap.newKeySet();
+
+    public static void writeToBinary(Language language, OutputStream stream) throws IOException {
+        new ModelWriter().write(language, stream);
+    }
+
+    public static byte[] writeToBinary(Language language) {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        try {
+            writeToBinary(language, stream);
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot write language in binary format", e);
+        }
+        return stream.toByteArray();
+    }
+
+    public static Language readFromBinary(InputStream stream) throws IOException {
+        Object lang = new ModelReader(new DataInputStream(new BufferedInputStream(stream))).read();
+        if (lang instanceof Language) {
+            return (Language) lang;
+        } else {
+            throw new IllegalArgumentException("Provided input does not contain Language in binary format");
+        }
+    }
+
+    public static Language readFromBinary(byte[] input) {
+        try {
+            return readFromBinary(new ByteArrayInputStream(input));
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Provided input does not contain Language in binary format", e);
+        }
+    }
+
+    /**
+     * Reads all languages on the classpath. Language stored in both formats is read from the binary file, the XML
+     * file is used when the binary one is missing or cannot be read.
+     */
+    public static List<Language> getAllLanguages() {
+        return LanguageCompositionLoader.fromClasspath().loadAll();
+    }
+
+    /**
+     * Returns serialized fields of the class by their names. Names of fields hidden by a field of a subclass are
+     * prefixed by the name of their declaring class.
+     */
+    private static Map<String, Field> getSerializedFields(Class<?> clazz) {
+        Map<String, Field> fields = serializedFields.get(clazz);
+        if (fields == null) {
+            fields = new LinkedHashMap<String, Field>();
+            for (Class<?> c = clazz; c != null && c != Object.class; c = c.getSuperclass()) {
+                for (Field field : c.getDeclaredFields()) {
+                    int modifiers = field.getModifiers();
+                    if (Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers) || field.isSynthetic()
+                            || (c == YajcoModelElement.class && field.getName().equals("sourceElement"))) {
+                        continue;
+                    }
+                    field.setAccessible(true);
+                    String name = fields.containsKey(field.getName()) ? c.getName() + "." + field.getName() : field.getName();
+                    fields.put(name, field);
+                }
+            }
+            serializedFields.put(clazz, fields);
+        }
+        return fields;
+    }
+
+    private static Object newInstance(Class<?> clazz) throws IOException {
+        if (withoutConstructor.contains(clazz)) {
+            throw new IOException("Cannot create instance of " + clazz.getName() + ", it has no default constructor");
+        }
+        try {
+            Constructor<?> constructor = constructors.get(clazz);
+            if (constructor == null) {
+                constructor = findConstructor(clazz);
+                constructors.put(clazz, constructor);
+            }
+            return constructor.newInstance();
+        } catch (NoSuchMethodException e) {
+            withoutConstructor.add(clazz);
+            throw new IOException("Cannot create instance of " + clazz.getName() + ", it has no default constructor", e);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            throw new IOException("Cannot create instance of " + clazz.getName(), e);
+        }
+    }
+
+    /**
+     * Model classes have no default constructors, so they are created the same way as by Java serialization,
+     * without running their constructors. Other classes (collections) are created by their default constructors,
+     * classes without one fail, so collections and maps are replaced by common ones.
+     */
+    private static Constructor<?> findConstructor(Class<?> clazz) throws ReflectiveOperationException {
+        if (!YajcoModelElement.class.isAssignableFrom(clazz)) {
+            Constructor<?> constructor = clazz.getDeclaredConstructor();
+            constructor.setAccessible(true);
+            return constructor;
+        }
+        Class<?> factoryClass = Class.forName("sun.reflect.ReflectionFactory");
+        Object factory = factoryClass.getMethod("getReflectionFactory").invoke(null);
+        Method method = factoryClass.getMethod("newConstructorForSerialization", Class.class, Constructor.class);
+        Constructor<?> constructor = (Constructor<?>) method.invoke(factory, clazz, Object.class.getDeclaredConstructor());
+        constructor.setAccessible(true);
+        return constructor;
+    }
+
+    private static class ModelWriter {
+        private final Map<String, Integer> stringIndexes = new HashMap<String, Integer>();
+        private final List<String> strings = new ArrayList<String>();
+        private final Map<Class<?>, Integer> classIndexes = new HashMap<Class<?>, Integer>();
+        private final List<Class<?>> classes = new ArrayList<Class<?>>();
+        private final Map<Object, Integer> objects = new IdentityHashMap<Object, Integer>();
+        private final ByteArrayOutputStream records = new ByteArrayOutputStream();
+        private final DataOutputStream out = new DataOutputStream(records);
+
+        void write(Language language, OutputStream stream) throws IOException {
+            writeValue(language);
+            out.flush();
+
+            DataOutputStream header = new DataOutputStream(stream);
+            header.writeInt(MAGIC);
+            header.writeShort(VERSION);
+            // Class table refers to strings, so it is written after them, but names of fields have to be added first.
+            int[][] classFields = new int[classes.size()][];
+            for (int i = 0; i < classes.size(); i++) {
+                Class<?> clazz = classes.get(i);
+                Set<String> fieldNames = isRecord(clazz) ? getSerializedFields(clazz).keySet() : new LinkedHashSet<String>();
+                classFields[i] = new int[fieldNames.size() + 1];
+                classFields[i][0] = stringIndex(clazz.getName());
+                int j = 1;
+                for (String fieldName : fieldNames) {
+                    classFields[i][j++] = stringIndex(fieldName);
+                }
+            }
+            writeVarInt(header, strings.size());
+            for (String string : strings) {
+                byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+                writeVarInt(header, bytes.length);
+                header.write(bytes);
+            }
+            writeVarInt(header, classes.size());
+            for (int[] fields : classFields) {
+                writeVarInt(header, fields[0]);
+                writeVarInt(header, fields.length - 1);
+                for (int j = 1; j < fields.length; j++) {
+                    writeVarInt(header, fields[j]);
+                }
+            }
+            header.flush();
+            records.writeTo(stream);
+            stream.flush();
+        }
+
+        private void writeValue(Object value) throws IOException {
+            if (value == null) {
+                out.writeByte(TAG_NULL);
+            } else if (value instanceof String) {
+                out.writeByte(TAG_STRING);
+                writeVarInt(out, stringIndex((String) value));
+            } else if (value instanceof Boolean) {
+                out.writeByte((Boolean) value ? TAG_TRUE : TAG_FALSE);
+            } else if (value instanceof Integer) {
+                out.writeByte(TAG_INT);
+                writeVarInt(out, zigZag((Integer) value));
+            } else if (value instanceof Long) {
+                out.writeByte(TAG_LONG);
+                out.writeLong((Long) value);
+            } else if (value instanceof Double) {
+                out.writeByte(TAG_DOUBLE);
+                out.writeDouble((Double) value);
+            } else if (value instanceof Float) {
+                out.writeByte(TAG_FLOAT);
+                out.writeFloat((Float) value);
+            } else if (value instanceof Short) {
+                out.writeByte(TAG_SHORT);
+                out.writeShort((Short) value);
+            } else if (value instanceof Byte) {
+                out.writeByte(TAG_BYTE);
+                out.writeByte((Byte) value);
+            } else if (value instanceof Character) {
+                out.writeByte(TAG_CHAR);
+                out.writeChar((Character) value);
+            } else if (value instanceof Enum) {
+                out.writeByte(TAG_ENUM);
+                writeVarInt(out, classIndex(((Enum<?>) value).getDeclaringClass()));
+                writeVarInt(out, stringIndex(((Enum<?>) value).name()));
+            } else if (objects.containsKey(value)) {
+                out.writeByte(TAG_REFERENCE);
+                writeVarInt(out, objects.get(value));
+            } else {
+                objects.put(value, objects.size());
+                if (value.getClass().isArray()) {
+                    int length = Array.getLength(value);
+                    out.writeByte(TAG_ARRAY);
+                    writeVarInt(out, classIndex(value.getClass()));
+                    writeVarInt(out, length);
+                    for (int i = 0; i < length; i++) {
+                        writeValue(Array.get(value, i));
+                    }
+                } else if (value instanceof Collection) {
+                    Collection<?> collection = (Collection<?>) value;
+                    out.writeByte(TAG_COLLECTION);
+                    writeVarInt(out, classIndex(value.getClass()));
+                    writeVarInt(out, collection.size());
+                    for (Object element : collection) {
+                        writeValue(element);
+                    }
+                } else if (value instanceof Map) {
+                    Map<?, ?> map = (Map<?, ?>) value;
+                    out.writeByte(TAG_MAP);
+                    writeVarInt(out, classIndex(value.getClass()));
+                    writeVarInt(out, map.size());
+                    for (Map.Entry<?, ?> entry : map.entrySet()) {
+                        writeValue(entry.getKey());
+                        writeValue(entry.getValue());
+                    }
+                } else {
+                    out.writeByte(TAG_OBJECT);
+                    writeVarInt(out, classIndex(value.getClass()));
+                    try {
+                        for (Field field : getSerializedFields(value.getClass()).values()) {
+                            writeValue(field.get(value));
+                        }
+                    } catch (IllegalAccessException e) {
+                        throw new IOException("Cannot read fields of " + value.getClass().getName(), e);
+                    }
+                }
+            }
+        }
+
+        private static boolean isRecord(Class<?> clazz) {
+            return !clazz.isArray() && !clazz.isEnum() && !Collection.class.isAssignableFrom(clazz) && !Map.class.isAssignableFrom(clazz);
+        }
+
+        private int stringIndex(String string) {
+            Integer index = stringIndexes.get(string);
+            if (index == null) {
+                index = strings.size();
+                strings.add(string);
+                stringIndexes.put(string, index);
+            }
+            return index;
+        }
+
+        private int classIndex(Class<?> clazz) {
+            Integer index = classIndexes.get(clazz);
+            if (index == null) {
+                index = classes.size();
+                classes.add(clazz);
+                classIndexes.put(clazz, index);
+            }
+            return index;
+        }
+
+        private static int zigZag(int value) {
+            return (value << 1) ^ (value >> 31);
+        }
+
+        private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+            while ((value & ~0x7F) != 0) {
+                out.writeByte((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            out.writeByte(value);
+        }
+    }
+
+    private static class ModelReader {
+        private final DataInputStream in;
+        private String[] strings;
+        private Class<?>[] classes;
+        private Field[][] classFields;
+        private final List<Object> objects = new ArrayList<Object>();
+
+        ModelReader(DataInputStream in) {
+            this.in = in;
+        }
+
+        Object read() throws IOException {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a language in binary format");
+            }
+            int version = in.readUnsignedShort();
+            if (version != VERSION) {
+                throw new IOException("Unsupported version " + version + " of binary language format, expected " + VERSION);
+            }
+            strings = new String[readVarInt()];
+            for (int i = 0; i < strings.length; i++) {
+                byte[] bytes = new byte[readVarInt()];
+                in.readFully(bytes);
+                strings[i] = new String(bytes, StandardCharsets.UTF_8);
+            }
+            classes = new Class<?>[readVarInt()];
+            classFields = new Field[classes.length][];
+            for (int i = 0; i < classes.length; i++) {
+                classes[i] = loadClass(strings[readVarInt()]);
+                Map<String, Field> fields = ModelWriter.isRecord(classes[i]) ? getSerializedFields(classes[i]) : new HashMap<String, Field>();
+                classFields[i] = new Field[readVarInt()];
+                for (int j = 0; j < classFields[i].length; j++) {
+                    // Field removed from the model is null, its value is read and ignored.
+                    classFields[i][j] = fields.get(strings[readVarInt()]);
+                }
+            }
+            return readValue();
+        }
+
+        @SuppressWarnings("unchecked")
+        private Object readValue() throws IOException {
+            int tag = in.readByte();
+            switch (tag) {
+                case TAG_NULL:
+                    return null;
+                case TAG_STRING:
+                    return strings[readVarInt()];
+                case TAG_TRUE:
+                    return Boolean.TRUE;
+                case TAG_FALSE:
+                    return Boolean.FALSE;
+                case TAG_INT:
+                    int value = readVarInt();
+                    return (value >>> 1) ^ -(value & 1);
+                case TAG_LONG:
+                    return in.readLong();
+                case TAG_DOUBLE:
+                    return in.readDouble();
+                case TAG_FLOAT:
+                    return in.readFloat();
+                case TAG_SHORT:
+                    return in.readShort();
+                case TAG_BYTE:
+                    return in.readByte();
+                case TAG_CHAR:
+                    return in.readChar();
+                case TAG_ENUM: {
+                    Class<?> enumClass = classes[readVarInt()];
+                    return Enum.valueOf(enumClass.asSubclass(Enum.class), strings[readVarInt()]);
+                }
+                case TAG_REFERENCE:
+                    return objects.get(readVarInt());
+                case TAG_ARRAY: {
+                    Class<?> arrayClass = classes[readVarInt()];
+                    Object array = Array.newInstance(arrayClass.getComponentType(), readVarInt());
+                    objects.add(array);
+                    for (int i = 0; i < Array.getLength(array); i++) {
+                        Array.set(array, i, readValue());
+                    }
+                    return array;
+                }
+                case TAG_COLLECTION: {
+                    Class<?> collectionClass = classes[readVarInt()];
+                    int size = readVarInt();
+                    Collection<Object> collection = (Collection<Object>) newCollection(collectionClass);
+                    objects.add(collection);
+                    for (int i = 0; i < size; i++) {
+                        collection.add(readValue());
+                    }
+                    return collection;
+                }
+                case TAG_MAP: {
+                    Class<?> mapClass = classes[readVarInt()];
+                    int size = readVarInt();
+                    Map<Object, Object> map = (Map<Object, Object>) newMap(mapClass);
+                    objects.add(map);
+                    for (int i = 0; i < size; i++) {
+                        Object key = readValue();
+                        map.put(key, readValue());
+                    }
+                    return map;
+                }
+                case TAG_OBJECT: {
+                    int classIndex = readVarInt();
+                    Object object = newInstance(classes[classIndex]);
+                    objects.add(object);
+                    try {
+                        for (Field field : classFields[classIndex]) {
+                            Object fieldValue = readValue();
+                            if (field != null) {
+                                field.set(object, fieldValue);
+                            }
+                        }
+                    } catch (IllegalArgumentException | IllegalAccessException e) {
+                        throw new IOException("Cannot set fields of " + classes[classIndex].getName(), e);
+                    }
+                    return object;
+                }
+                default:
+                    throw new IOException("Corrupted binary language format, unknown tag " + tag);
+            }
+        }
+
+        /**
+         * Collections without default constructor (unmodifiable views, Arrays.asList) are replaced by common ones.
+         */
+        private Collection<?> newCollection(Class<?> clazz) throws IOException {
+            try {
+                return (Collection<?>) newInstance(clazz);
+            } catch (IOException e) {
+                if (List.class.isAssignableFrom(clazz)) {
+                    return new ArrayList<Object>();
+                } else if (SortedSet.class.isAssignableFrom(clazz)) {
+                    return new TreeSet<Object>();
+                } else if (Set.class.isAssignableFrom(clazz)) {
+                    return new LinkedHashSet<Object>();
+                }
+                throw e;
+            }
+        }
+
+        private Map<?, ?> newMap(Class<?> clazz) throws IOException {
+            try {
+                return (Map<?, ?>) newInstance(clazz);
+            } catch (IOException e) {
+                return SortedMap.class.isAssignableFrom(clazz) ? new TreeMap<Object, Object>() : new LinkedHashMap<Object, Object>();
+            }
+        }
+
+        private Class<?> loadClass(String name) throws IOException {
+            try {
+                return Class.forName(name, false, BinaryLanguageFormatHelper.class.getClassLoader());
+            } catch (ClassNotFoundException e) {
+                try {
+                    return Class.forName(name, false, Thread.currentThread().getContextClassLoader());
+                } catch (ClassNotFoundException ex) {
+                    throw new IOException("Class " + name + " of the language model not found", ex);
+                }
+            }
+        }
+
+        private int readVarInt() throws IOException {
+            int value = 0;
+            for (int shift = 0; shift < 35; shift += 7) {
+                int b = in.readByte();
+                value |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IOException("Corrupted binary language format, malformed number");
+        }
+    }
+}
@@ -0,0 +1,253 @@
+package yajco.model.utilities;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import yajco.model.Concept;
+import yajco.model.Language;
+
+/**
+ * Finds languages included on the classpath and loads them on demand. Languages are indexed by names of their
+ * concepts and names of parents of their concepts first, and a language is deserialized only when one of its
+ * concepts, or a parent of one of its concepts, is requested.
+ * <p>
+ * Index of a language is read from 'META-INF/yajco-lang.index' written next to the serialized language. Languages
+ * without the index are loaded immediately to index them.
+ */
+public class LanguageCompositionLoader {
+
+    public final static String YAJCO_INDEX_FILE_NAME = "yajco-lang.index";
+
+    private final static String LANGUAGE_RECORD = "language";
+    private final static String CONCEPT_RECORD = "concept";
+    private final static String SEPARATOR = "\t";
+
+    private final List<IncludedLanguage> includedLanguages = new ArrayList<IncludedLanguage>();
+    private final Map<String, List<IncludedLanguage>> byConceptName = new HashMap<String, List<IncludedLanguage>>();
+    private final Map<String, List<IncludedLanguage>> byParentName = new HashMap<String, List<IncludedLanguage>>();
+
+    /**
+     * Finds all languages on the classpath, only their indexes are read.
+     */
+    public static LanguageCompositionLoader fromClasspath() {
+        ClassLoader classLoader = LanguageCompositionLoader.class.getClassLoader();
+        if (classLoader == null) {
+            classLoader = ClassLoader.getSystemClassLoader();
+        }
+        try {
+            // All files of one language are in the same directory of the same classpath entry.
+            Map<String, URL[]> files = new LinkedHashMap<String, URL[]>();
+            String[] fileNames = {XMLLanguageFormatHelper.YAJCO_XML_FILE_NAME, BinaryLanguageFormatHelper.YAJCO_BINARY_FILE_NAME, YAJCO_INDEX_FILE_NAME};
+            for (int i = 0; i < fileNames.length; i++) {
+                Enumeration<URL> e = classLoader.getResources(XMLLanguageFormatHelper.YAJCO_XML_FILE_DIR + "/" + fileNames[i]);
+                while (e.hasMoreElements()) {
+                    URL url = e.nextElement();
+                    String path = url.toExternalForm();
+                    String base = path.substring(0, path.length() - fileNames[i].length());
+                    if (!files.containsKey(base)) {
+                        files.put(base, new URL[fileNames.length]);
+                    }
+                    files.get(base)[i] = url;
+                }
+            }
+            LanguageCompositionLoader loader = new LanguageCompositionLoader();
+            for (URL[] urls : files.values()) {
+                if (urls[0] != null || urls[1] != null) {
+                    loader.add(new IncludedLanguage(urls[0], urls[1]), urls[2]);
+                }
+            }
+            return loader;
+        } catch (IOException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    /**
+     * Returns number of included languages, loaded or not.
+     */
+    public int size() {
+        return includedLanguages.size();
+    }
+
+    /**
+     * Loads not yet loaded languages defining a concept with the given name.
+     *
+     * @param conceptName concept name, either relative to its language or qualified
+     * @return newly loaded languages
+     */
+    public List<Language> loadDefining(String conceptName) {
+        return load(byConceptName.get(conceptName));
+    }
+
+    /**
+     * Loads not yet loaded languages with a concept whose parent has the given name.
+     *
+     * @param conceptName concept name, either relative to its language or qualified
+     * @return newly loaded languages
+     */
+    public List<Language> loadExtending(String conceptName) {
+        return load(byParentName.get(conceptName));
+    }
+
+    /**
+     * Loads all not yet loaded languages.
+     *
+     * @return newly loaded languages
+     */
+    public List<Language> loadAll() {
+        return load(includedLanguages);
+    }
+
+    /**
+     * Writes index of concepts of the language.
+     */
+    public static void writeIndex(Language language, Writer writer) {
+        PrintWriter printWriter = new PrintWriter(writer);
+        printWriter.println(LANGUAGE_RECORD + SEPARATOR + (language.getName() != null ? language.getName() : ""));
+        for (Concept concept : language.getConcepts()) {
+            String parentName = concept.getParent() != null ? concept.getParent().getName() : "";
+            printWriter.println(CONCEPT_RECORD + SEPARATOR + concept.getName() + SEPARATOR + parentName);
+        }
+        printWriter.flush();
+    }
+
+    /**
+     * Adds items into the list, an item equal to one already in the list replaces it and is moved to the end.
+     * Items are compared by their hash codes and equals, so they have to be consistent.
+     */
+    public static <T> void mergeAsSet(List<T> list, Collection<? extends T> items) {
+        if (items.isEmpty()) {
+            return;
+        }
+        Map<T, T> merged = new LinkedHashMap<T, T>(2 * (list.size() + items.size()));
+        for (T item : list) {
+            merged.put(item, item);
+        }
+        for (T item : items) {
+            merged.remove(item);
+            merged.put(item, item);
+        }
+        list.clear();
+        list.addAll(merged.values());
+    }
+
+    private void add(IncludedLanguage includedLanguage, URL indexFile) {
+        includedLanguages.add(includedLanguage);
+        if (indexFile != null) {
+            try (InputStream stream = indexFile.openStream()) {
+                readIndex(includedLanguage, stream);
+                return;
+            } catch (IOException | RuntimeException e) {
+                System.out.println("WARNING: Cannot read language index " + indexFile + " (" + e.getMessage() + ")");
+            }
+        }
+        // Language without index is indexed by its concepts.
+        Language language = includedLanguage.load();
+        for (Concept concept : language.getConcepts()) {
+            index(includedLanguage, language.getName(), concept.getName(), concept.getParent() != null ? concept.getParent().getName() : null);
+        }
+    }
+
+    private void readIndex(IncludedLanguage includedLanguage, InputStream stream) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8));
+        String languageName = null;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            String[] fields = line.split(SEPARATOR, -1);
+            if (LANGUAGE_RECORD.equals(fields[0])) {
+                languageName = fields[1];
+            } else if (CONCEPT_RECORD.equals(fields[0])) {
+                index(includedLanguage, languageName, fields[1], fields[2]);
+            }
+        }
+    }
+
+    private void index(IncludedLanguage includedLanguage, String languageName, String conceptName, String parentName) {
+        addToIndex(byConceptName, conceptName, includedLanguage);
+        if (parentName != null && !parentName.isEmpty()) {
+            addToIndex(byParentName, parentName, includedLanguage);
+        }
+        if (languageName != null && !languageName.isEmpty()) {
+            addToIndex(byConceptName, languageName + "." + conceptName, includedLanguage);
+            if (parentName != null && !parentName.isEmpty()) {
+                addToIndex(byParentName, languageName + "." + parentName, includedLanguage);
+            }
+        }
+    }
+
+    private static void addToIndex(Map<String, List<IncludedLanguage>> index, String name, IncludedLanguage includedLanguage) {
+        List<IncludedLanguage> list = index.get(name);
+        if (list == null) {
+            list = new ArrayList<IncludedLanguage>(1);
+            index.put(name, list);
+        }
+        if (!list.contains(includedLanguage)) {
+            list.add(includedLanguage);
+        }
+    }
+
+    private static List<Language> load(List<IncludedLanguage> candidates) {
+        if (candidates == null) {
+            return Collections.emptyList();
+        }
+        List<Language> loaded = new ArrayList<Language>();
+        for (IncludedLanguage includedLanguage : candidates) {
+            if (!includedLanguage.used) {
+                includedLanguage.used = true;
+                loaded.add(includedLanguage.load());
+            }
+        }
+        return loaded;
+    }
+
+    private static class IncludedLanguage {
+        private final URL xmlFile;
+        private final URL binaryFile;
+        private Language language;
+        private boolean used;
+
+        IncludedLanguage(URL xmlFile, URL binaryFile) {
+            this.xmlFile = xmlFile;
+            this.binaryFile = binaryFile;
+        }
+
+        /**
+         * Reads the language, binary format is preferred.
+         */
+        Language load() {
+            if (language == null) {
+                if (binaryFile != null) {
+                    try (InputStream stream = binaryFile.openStream()) {
+                        language = BinaryLanguageFormatHelper.readFromBinary(stream);
+                    } catch (IOException | RuntimeException e) {
+                        if (xmlFile == null) {
+                            throw new RuntimeException("Cannot read language from " + binaryFile, e);
+                        }
+                        System.out.println("WARNING: Cannot read language from " + binaryFile + ", XML format is used (" + e.getMessage() + ")");
+                    }
+                }
+                if (language == null) {
+                    try (InputStream stream = xmlFile.openStream()) {
+                        language = XMLLanguageFormatHelper.readFromXML(stream);
+                    } catch (IOException e) {
+                        throw new RuntimeException("Cannot read language from " + xmlFile, e);
+                    }
+                }
+            }
+            return language;
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package yajco.model.utilities;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * View of a list of the model which counts its modifications, so indexes and caches of the model know when they
+ * have to be rebuilt. Model classes keep their lists in plain fields, which are serialized as before, and return
+ * this view from their getters. Every change done through the view, including {@link List#set}, iterators and
+ * sublists, is counted by the view and by a counter shared by all views. Changes done directly to the wrapped
+ * list, e.g. to a list passed to a constructor, are not seen, except changes of its size.
+ *
+ * @param <T> type of elements
+ */
+public class ModelList<T> extends AbstractList<T> implements RandomAccess {
+
+    private static final AtomicLong allModifications = new AtomicLong();
+
+    private final List<T> elements;
+    private int modifications;
+
+    public ModelList(List<T> elements) {
+        this.elements = elements;
+    }
+
+    /**
+     * Returns the view of the list, the same view is returned while the list is not replaced.
+     *
+     * @param view view returned last time or null
+     * @param elements list stored in the model, may be null
+     * @return view of the list or null if there is no list
+     */
+    public static <T> ModelList<T> of(ModelList<T> view, List<T> elements) {
+        if (elements == null) {
+            return null;
+        }
+        if (view != null && view.elements == elements) {
+            return view;
+        }
+        return new ModelList<T>(elements);
+    }
+
+    /**
+     * Returns number of modifications of all model lists done through their views.
+     */
+    public static long getAllModifications() {
+        return allModifications.get();
+    }
+
+    /**
+     * Returns number of modifications of the list done through this view.
+     */
+    public int getModifications() {
+        return modifications;
+    }
+
+    @Override
+    public T get(int index) {
+        return elements.get(index);
+    }
+
+    @Override
+    public int size() {
+        return elements.size();
+    }
+
+    @Override
+    public T set(int index, T element) {
+        T previous = elements.set(index, element);
+        modified();
+        return previous;
+    }
+
+    @Override
+    public void add(int index, T element) {
+        elements.add(index, element);
+        modified();
+    }
+
+    @Override
+    public T remove(int index) {
+        T removed = elements.remove(index);
+        modified();
+        return removed;
+    }
+
+    private void modified() {
+        modifications++;
+        modCount++;
+        allModifications.incrementAndGet();
+    }
+}
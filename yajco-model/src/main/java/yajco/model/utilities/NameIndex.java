@@ -0,0 +1,57 @@
+package yajco.model.utilities;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Lazily built index of named model elements stored in a {@link ModelList}. The index is rebuilt when the list is
+ * replaced, modified through its view or changes its size, otherwise both found and missing names are answered
+ * from the index. Names of the indexed elements cannot be changed.
+ * <p>
+ * Same as the linear search it replaces, the first element with the given name is found.
+ *
+ * @param <T> type of indexed elements
+ */
+public class NameIndex<T> {
+    private final Function<T, String> nameFunction;
+    private ModelList<T> indexedList;
+    private int indexedModifications;
+    private int indexedSize;
+    private Map<String, T> index;
+
+    public NameIndex(Function<T, String> nameFunction) {
+        this.nameFunction = nameFunction;
+    }
+
+    /**
+     * Finds element by name.
+     *
+     * @param elements view of the list of elements, the same view should be passed until the list is replaced
+     * @param name name of the element
+     * @return first element with the name or null if there is no such element
+     */
+    public synchronized T get(ModelList<T> elements, String name) {
+        if (elements == null || name == null) {
+            return null;
+        }
+        if (index == null || indexedList != elements || indexedModifications != elements.getModifications()
+                || indexedSize != elements.size()) {
+            rebuild(elements);
+        }
+        return index.get(name);
+    }
+
+    private void rebuild(ModelList<T> elements) {
+        index = new HashMap<String, T>(elements.size() * 2);
+        for (T element : elements) {
+            String name = nameFunction.apply(element);
+            if (name != null && !index.containsKey(name)) {
+                index.put(name, element);
+            }
+        }
+        indexedList = elements;
+        indexedModifications = elements.getModifications();
+        indexedSize = elements.size();
+    }
+}
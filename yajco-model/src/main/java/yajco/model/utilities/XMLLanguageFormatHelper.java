@@ -57,6 +57,17 @@ public class XMLLanguageFormatHelper {
         return testLanguage(lang);
     }
     
+    /**
+     * Creates deep copy of the language. Source elements are not copied.
+     */
+    public static Language copy(Language language) {
+        return BinaryLanguageFormatHelper.readFromBinary(BinaryLanguageFormatHelper.writeToBinary(language));
+    }
+
+    /**
+     * Reads all languages on the classpath from XML files. Use {@link BinaryLanguageFormatHelper#getAllLanguages()}
+     * to read also languages in binary format.
+     */
     public static List<Language> getAllLanguagesFromXML() {
         try {
             List<InputStream> inputStreams = loadResources(YAJCO_XML_FILE_DIR+"/"+YAJCO_XML_FILE_NAME, XMLLanguageFormatHelper.class.getClassLoader());
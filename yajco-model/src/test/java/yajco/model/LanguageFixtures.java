@@ -0,0 +1,103 @@
+package yajco.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import yajco.model.pattern.impl.Associativity;
+import yajco.model.pattern.impl.Operator;
+import yajco.model.type.PrimitiveType;
+import yajco.model.type.PrimitiveTypeConst;
+import yajco.model.type.ReferenceType;
+
+/**
+ * Builds language models for tests of the model and of the generators, shared by other modules as the test jar
+ * of yajco-model.
+ */
+public final class LanguageFixtures {
+
+    private LanguageFixtures() {
+    }
+
+    public static Language createLanguage(String name, List<TokenDef> tokens, List<SkipDef> skips) {
+        Language language = new Language((Object) null);
+        language.setName(name);
+        language.setTokens(tokens);
+        language.setSkips(skips);
+        return language;
+    }
+
+    /**
+     * Language 'calc', expression with numbers, two levels of binary operators and parentheses.
+     */
+    public static Language createExpressionLanguage() {
+        Language language = createLanguage("calc", tokens(new TokenDef("VALUE", "[0-9]+", null)), skips(new SkipDef("\\s", null)));
+        Concept expression = new Concept("Expression", (Object) null);
+        language.addConcept(expression);
+        language.addConcept(createLiteral("Number", expression));
+        language.addConcept(createOperator("Add", 1, Associativity.LEFT, expression, null, "+", null));
+        language.addConcept(createOperator("Mul", 2, Associativity.LEFT, expression, null, "*", null));
+        language.addConcept(createParentheses(expression));
+        return language;
+    }
+
+    /**
+     * Creates a concept with one integer property written by token VALUE.
+     */
+    public static Concept createLiteral(String name, Concept expression) {
+        Concept concept = new Concept(name, (Object) null);
+        concept.setParent(expression);
+        Property value = new Property("value", new PrimitiveType(PrimitiveTypeConst.INTEGER, null), (Object) null);
+        concept.addProperty(value);
+        concept.addNotation(notation(new PropertyReferencePart(value, null)));
+        return concept;
+    }
+
+    /**
+     * Creates concept 'Parentheses' with the expression written inside parentheses.
+     */
+    public static Concept createParentheses(Concept expression) {
+        Concept concept = new Concept("Parentheses", (Object) null);
+        concept.setParent(expression);
+        Property inner = new Property("expression", new ReferenceType(expression, null), (Object) null);
+        concept.addProperty(inner);
+        concept.addNotation(notation(new TokenPart("(", null), new PropertyReferencePart(inner, null), new TokenPart(")", null)));
+        return concept;
+    }
+
+    /**
+     * Creates an operator concept, null parts of the notation are operands named 'operand1', 'operand2' etc.
+     */
+    public static Concept createOperator(String name, int priority, Associativity associativity, Concept expression, String... parts) {
+        Concept concept = new Concept(name, (Object) null);
+        concept.setParent(expression);
+        concept.addPattern(new Operator(priority, associativity, null));
+        Notation notation = new Notation((Object) null);
+        for (String part : parts) {
+            if (part == null) {
+                Property operand = new Property("operand" + (concept.getAbstractSyntax().size() + 1), new ReferenceType(expression, null), (Object) null);
+                concept.addProperty(operand);
+                notation.addPart(new PropertyReferencePart(operand, null));
+            } else {
+                notation.addPart(new TokenPart(part, null));
+            }
+        }
+        concept.addNotation(notation);
+        return concept;
+    }
+
+    public static Notation notation(NotationPart... parts) {
+        Notation notation = new Notation((Object) null);
+        for (NotationPart part : parts) {
+            notation.addPart(part);
+        }
+        return notation;
+    }
+
+    public static List<TokenDef> tokens(TokenDef... tokens) {
+        return new ArrayList<TokenDef>(Arrays.asList(tokens));
+    }
+
+    public static List<SkipDef> skips(SkipDef... skips) {
+        return new ArrayList<SkipDef>(Arrays.asList(skips));
+    }
+}
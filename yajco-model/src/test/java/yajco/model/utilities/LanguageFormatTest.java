@@ -0,0 +1,168 @@
+package yajco.model.utilities;
+
+import java.nio.charset.StandardCharsets;
+import org.junit.Test;
+import yajco.model.Concept;
+import yajco.model.Language;
+import yajco.model.Notation;
+import yajco.model.Property;
+import yajco.model.PropertyReferencePart;
+import yajco.model.TokenPart;
+import yajco.model.pattern.ConceptPattern;
+import yajco.model.pattern.impl.Associativity;
+import yajco.model.pattern.impl.Operator;
+import yajco.model.pattern.impl.Range;
+import yajco.model.pattern.impl.Separator;
+import yajco.model.pattern.impl.Token;
+import yajco.model.type.ListType;
+import yajco.model.type.ReferenceType;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static yajco.model.LanguageFixtures.createExpressionLanguage;
+import static yajco.model.LanguageFixtures.notation;
+
+/**
+ * Round trips of languages through the binary and XML formats and through {@link XMLLanguageFormatHelper#copy}.
+ * Copies are compared by their XML form, which covers all serialized fields, and by identity of the objects
+ * which are shared or referenced in cycles.
+ */
+public class LanguageFormatTest {
+
+    @Test
+    public void binaryRoundTripKeepsLanguage() {
+        Language language = createLanguage();
+        Language copy = BinaryLanguageFormatHelper.readFromBinary(BinaryLanguageFormatHelper.writeToBinary(language));
+        assertCopy(language, copy);
+    }
+
+    @Test
+    public void xmlRoundTripKeepsLanguage() {
+        Language language = createLanguage();
+        Language copy = XMLLanguageFormatHelper.readFromXML(XMLLanguageFormatHelper.writeToXML(language));
+        assertCopy(language, copy);
+    }
+
+    @Test
+    public void bothFormatsGiveSameLanguage() {
+        Language language = createLanguage();
+        Language fromXml = XMLLanguageFormatHelper.readFromXML(XMLLanguageFormatHelper.writeToXML(language));
+        Language fromBinary = BinaryLanguageFormatHelper.readFromBinary(BinaryLanguageFormatHelper.writeToBinary(fromXml));
+        assertCopy(language, fromBinary);
+        assertCopy(language, XMLLanguageFormatHelper.copy(fromBinary));
+    }
+
+    @Test
+    public void fieldsAreMatchedByName() {
+        Language language = createLanguage();
+        PatternV1 pattern = new PatternV1();
+        pattern.kept = "kept value";
+        pattern.removed = "removed value";
+        language.getConcept("Number").addPattern(pattern);
+
+        // The same class in a later version of the model, with field 'removed' removed and field 'added' added
+        byte[] binary = replace(BinaryLanguageFormatHelper.writeToBinary(language), PatternV1.class.getName(), PatternV2.class.getName());
+        Language copy = BinaryLanguageFormatHelper.readFromBinary(binary);
+        PatternV2 newPattern = copy.getConcept("Number").getPattern(PatternV2.class);
+        assertEquals("kept value", newPattern.kept);
+        assertNull(newPattern.added);
+        assertSame(copy.getConcept("Expression"), copy.getConcept("Number").getParent());
+    }
+
+    private static void assertCopy(Language language, Language copy) {
+        assertNotSame(language, copy);
+        assertEquals(XMLLanguageFormatHelper.writeToXML(language), XMLLanguageFormatHelper.writeToXML(copy));
+        assertEquals("value", copy.getSetting("yajco.test.setting"));
+        assertEquals(language.getSettingsProperties(), copy.getSettingsProperties());
+
+        // Shared references
+        Concept expression = copy.getConcept("Expression");
+        Concept add = copy.getConcept("Add");
+        assertSame(expression, add.getParent());
+        assertSame(expression, ((ReferenceType) add.getAbstractSyntax().get(0).getType()).getConcept());
+        PropertyReferencePart operand = (PropertyReferencePart) add.getConcreteSyntax().get(0).getParts().get(0);
+        assertSame(add.getAbstractSyntax().get(0), operand.getProperty());
+        assertSame(copy.getToken("VALUE"), copy.getTokens().get(0));
+
+        // Cycle
+        Concept block = copy.getConcept("Block");
+        ListType type = (ListType) block.getProperty("blocks").getType();
+        assertSame(block, ((ReferenceType) type.getComponentType()).getConcept());
+
+        // Patterns
+        assertEquals(1, add.getPattern(Operator.class).getPriority());
+        assertEquals(Associativity.LEFT, copy.getConcept("Mul").getPattern(Operator.class).getAssociativity());
+        PropertyReferencePart blocks = (PropertyReferencePart) block.getConcreteSyntax().get(0).getParts().get(1);
+        assertEquals(";", blocks.getPattern(Separator.class).getValue());
+        assertEquals(5, blocks.getPattern(Range.class).getMaxOccurs());
+        PropertyReferencePart value = (PropertyReferencePart) copy.getConcept("Number").getConcreteSyntax().get(0).getParts().get(0);
+        assertEquals("VALUE", value.getPattern(Token.class).getName());
+
+        // Lookups work on the copy
+        assertTrue(copy.getUsedTokens().contains(copy.getToken("VALUE")));
+    }
+
+    /**
+     * Expression language with settings, patterns and concept 'Block' containing a list of blocks.
+     */
+    private static Language createLanguage() {
+        Language language = createExpressionLanguage();
+        language.setSetting("yajco.test.setting", "value");
+        language.setSetting("yajco.test.other", "other value");
+        PropertyReferencePart value = (PropertyReferencePart) language.getConcept("Number").getConcreteSyntax().get(0).getParts().get(0);
+        value.addPattern(new Token("VALUE", null));
+
+        Concept block = new Concept("Block", (Object) null);
+        Property blocks = new Property("blocks", new ListType(new ReferenceType(block, null), null), (Object) null);
+        block.addProperty(blocks);
+        PropertyReferencePart blocksPart = new PropertyReferencePart(blocks, null);
+        blocksPart.addPattern(new Separator(";"));
+        blocksPart.addPattern(new Range(0, 5, null));
+        Notation notation = notation(new TokenPart("{", null), blocksPart, new TokenPart("}", null));
+        block.addNotation(notation);
+        language.addConcept(block);
+        return language;
+    }
+
+    /**
+     * Replaces a string of the same length in the binary format.
+     */
+    private static byte[] replace(byte[] binary, String string, String replacement) {
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        byte[] replacementBytes = replacement.getBytes(StandardCharsets.UTF_8);
+        assertEquals(bytes.length, replacementBytes.length);
+        for (int i = 0; i + bytes.length <= binary.length; i++) {
+            int j = 0;
+            while (j < bytes.length && binary[i + j] == bytes[j]) {
+                j++;
+            }
+            if (j == bytes.length) {
+                byte[] result = binary.clone();
+                System.arraycopy(replacementBytes, 0, result, i, replacementBytes.length);
+                return result;
+            }
+        }
+        throw new AssertionError(string + " not found");
+    }
+
+    public static class PatternV1 extends ConceptPattern {
+        private String kept;
+        private String removed;
+
+        PatternV1() {
+            super(null);
+        }
+    }
+
+    public static class PatternV2 extends ConceptPattern {
+        private String kept;
+        private String added;
+
+        PatternV2() {
+            super(null);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package yajco.model.utilities;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+import org.junit.Test;
+import yajco.model.Concept;
+import yajco.model.Language;
+import yajco.model.Notation;
+import yajco.model.TokenDef;
+import yajco.model.TokenPart;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class NameIndexTest {
+
+    @Test
+    public void missesOnUnchangedListAreAnsweredFromIndex() {
+        CountingName names = new CountingName();
+        NameIndex<String> index = new NameIndex<String>(names);
+        ModelList<String> list = new ModelList<String>(new ArrayList<String>(Arrays.asList("a", "b", "c")));
+
+        assertEquals("b", index.get(list, "b"));
+        assertEquals(3, names.calls);
+        for (int i = 0; i < 10; i++) {
+            assertNull(index.get(list, "d"));
+        }
+        assertEquals(3, names.calls);
+
+        list.add("d");
+        assertEquals("d", index.get(list, "d"));
+        assertEquals(7, names.calls);
+    }
+
+    @Test
+    public void replacingElementThroughViewRebuildsIndex() {
+        NameIndex<String> index = new NameIndex<String>(new CountingName());
+        ModelList<String> list = new ModelList<String>(new ArrayList<String>(Arrays.asList("a", "b")));
+
+        assertEquals("a", index.get(list, "a"));
+        list.set(0, "x");
+        assertNull(index.get(list, "a"));
+        assertEquals("x", index.get(list, "x"));
+        list.subList(0, 1).clear();
+        assertNull(index.get(list, "x"));
+    }
+
+    @Test
+    public void firstElementWithNameIsFound() {
+        Language language = new Language((Object) null);
+        Concept first = new Concept("A", (Object) null);
+        language.addConcept(first);
+        language.addConcept(new Concept("A", (Object) null));
+
+        assertSame(first, language.getConcept("A"));
+    }
+
+    @Test
+    public void conceptsAddedThroughGetterAreFound() {
+        Language language = new Language((Object) null);
+        assertNull(language.getConcept("A"));
+
+        Concept concept = new Concept("A", (Object) null);
+        language.getConcepts().add(concept);
+        assertSame(concept, language.getConcept("A"));
+
+        language.getConcepts().remove(concept);
+        assertNull(language.getConcept("A"));
+    }
+
+    @Test
+    public void usedTokensFollowChangesOfModel() {
+        Language language = new Language((Object) null);
+        TokenDef plus = new TokenDef("PLUS", "\\+", null);
+        TokenDef minus = new TokenDef("MINUS", "-", null);
+        language.setTokens(new ArrayList<TokenDef>(Arrays.asList(plus, minus)));
+        Concept concept = new Concept("Expression", (Object) null);
+        language.addConcept(concept);
+        Notation notation = new Notation((Object) null);
+        notation.addPart(new TokenPart("PLUS", null));
+        concept.addNotation(notation);
+
+        List<TokenDef> used = language.getUsedTokens();
+        assertEquals(Arrays.asList(plus), used);
+        assertSame(used, language.getUsedTokens());
+
+        notation.getParts().add(new TokenPart("MINUS", null));
+        used = language.getUsedTokens();
+        assertEquals(2, used.size());
+        assertTrue(used.contains(minus));
+
+        language.setTokens(new ArrayList<TokenDef>(Arrays.asList(minus)));
+        assertEquals(Arrays.asList(minus), language.getUsedTokens());
+    }
+
+    private static class CountingName implements Function<String, String> {
+        private int calls;
+
+        @Override
+        public String apply(String element) {
+            calls++;
+            return element;
+        }
+    }
+}
@@ -2,12 +2,16 @@ package yajco.generator.parsergen.antlr4;
 
 import org.antlr.v4.Tool;
 import org.antlr.v4.runtime.Token;
+import org.antlr.v4.tool.ANTLRMessage;
+import org.antlr.v4.tool.ANTLRToolListener;
+import org.antlr.v4.tool.ast.GrammarRootAST;
 import org.apache.velocity.VelocityContext;
-import org.apache.velocity.app.VelocityEngine;
 import yajco.generator.GeneratorException;
+import yajco.generator.annotation.ParsingAlgorithm;
 import yajco.generator.parsergen.CompilerGenerator;
 import yajco.generator.parsergen.antlr4.translator.ModelTranslator;
 import yajco.generator.parsergen.antlr4.model.Grammar;
+import yajco.generator.util.TemplateService;
 import yajco.generator.util.Utilities;
 import yajco.model.Language;
 import yajco.model.SkipDef;
@@ -16,26 +20,57 @@ import javax.annotation.processing.Filer;
 import javax.tools.FileObject;
 import javax.tools.StandardLocation;
 import java.io.*;
-import java.net.URI;
-import java.security.Permission;
 import java.util.*;
 
+@ParsingAlgorithm(ParsingAlgorithm.Algorithm.ALL_STAR)
 public class Antlr4CompilerGenerator implements CompilerGenerator {
     static final private String ANTLR4_PARSER_CLASS_TEMPLATE = "/yajco/generator/parsergen/antlr4/templates/Parser.java.vm";
     static final private String ANTLR4_LEXER_CLASS_TEMPLATE = "/yajco/generator/parsergen/antlr4/templates/Lexer.java.vm";
     static final private String ANTLR4_PARSE_EXCEPTION_CLASS_TEMPLATE = "/yajco/generator/parsergen/antlr4/templates/ParseException.java.vm";
-    private VelocityEngine velocityEngine;
+    // Native ANTLR4 lexer is used unless set to false. It takes the longest match of all rules, so it is used only
+    // if every regex matches the same string as in yajco.lexer.Lexer, which tries skips first and takes the first
+    // match found by backtracking; otherwise the custom lexer wrapping yajco.lexer.Lexer is generated.
+    static final private String NATIVE_LEXER_PROPERTY = "yajco.antlr4.nativeLexer";
+    static final private String PREDICTION_MODE_PROPERTY = "yajco.antlr4.predictionMode";
+    static final private String MAX_CACHE_SIZE_PROPERTY = "yajco.antlr4.maxCacheSize";
+    static final private List<String> PREDICTION_MODES = Arrays.asList("TWO_STAGE", "SLL", "LL");
+    static final private int TOOL_OUTPUT_CACHE_SIZE = 16;
+    private static final TemplateService templateService = TemplateService.getInstance();
 
-    // TODO: Remove this hack later.
-    static private class SystemExitException extends SecurityException {
-        private final int status;
+    // Files generated by the ANTLR tool by grammar text, least recently used grammars are removed first.
+    private static final Map<String, Map<String, String>> toolOutputCache = new LinkedHashMap<String, Map<String, String>>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Map<String, String>> eldest) {
+            return size() > TOOL_OUTPUT_CACHE_SIZE;
+        }
+    };
+
+    /**
+     * ANTLR tool keeping generated files in memory instead of writing them into the output directory.
+     */
+    static private class InMemoryTool extends Tool {
+        private final Map<String, StringWriter> outputs = new LinkedHashMap<>();
 
-        public SystemExitException(int status) {
-            this.status = status;
+        InMemoryTool() {
+            super(new String[] {
+                "-no-listener", // Don't generate listeners or visitors; we only need the parser.
+                "-no-visitor"
+            });
         }
 
-        public int getStatus() {
-            return status;
+        @Override
+        public Writer getOutputFileWriter(org.antlr.v4.tool.Grammar g, String fileName) {
+            StringWriter writer = new StringWriter();
+            outputs.put(fileName, writer);
+            return writer;
+        }
+
+        Map<String, String> getOutputs() {
+            Map<String, String> result = new LinkedHashMap<>();
+            for (Map.Entry<String, StringWriter> entry : outputs.entrySet()) {
+                result.put(entry.getKey(), entry.getValue().toString());
+            }
+            return result;
         }
     }
 
@@ -48,10 +83,6 @@ public class Antlr4CompilerGenerator implements CompilerGenerator {
 
     @Override
     public void generateFiles(Language language, Filer filer, Properties properties, String parserFullClassName) {
-        if (this.velocityEngine == null) {
-            this.velocityEngine = new VelocityEngine();
-        }
-
         try {
             final int lastDotPos = parserFullClassName.lastIndexOf(".");
             if (lastDotPos == -1) {
@@ -66,59 +97,50 @@ public class Antlr4CompilerGenerator implements CompilerGenerator {
             final String grammarName = parserClassName;
             final String grammarFileName = grammarName + ".g4";
 
-            ModelTranslator translator = new ModelTranslator(language, grammarName, ANTLRParserPackageName);
+            final String predictionMode = properties.getProperty(PREDICTION_MODE_PROPERTY, "TWO_STAGE").toUpperCase();
+            if (!PREDICTION_MODES.contains(predictionMode)) {
+                throw new GeneratorException("Unknown ANTLR4 prediction mode '" + predictionMode + "', use one of " + PREDICTION_MODES);
+            }
+            final int maxCacheSize;
+            try {
+                maxCacheSize = Integer.parseInt(properties.getProperty(MAX_CACHE_SIZE_PROPERTY, "0"));
+            } catch (NumberFormatException e) {
+                throw new GeneratorException("Property " + MAX_CACHE_SIZE_PROPERTY + " must be a number", e);
+            }
+            final boolean preferNativeLexer = !"false".equalsIgnoreCase(properties.getProperty(NATIVE_LEXER_PROPERTY));
+            ModelTranslator translator = new ModelTranslator(language, grammarName, ANTLRParserPackageName, preferNativeLexer);
 
             // Create ANTLR4 grammar specification
             FileObject fileObject = filer.createResource(
                     StandardLocation.SOURCE_OUTPUT, ANTLRParserPackageName, grammarFileName);
+            final String grammarText;
             try (Writer writer = fileObject.openWriter()) {
                 Grammar grammar = translator.translate();
+                grammarText = grammar.generate();
                 System.out.println("\nGenerated ANTLR4 grammar:");
                 System.out.println("--------------------------------------------------------------------------------------------------------");
-                System.out.println(grammar.generate());
+                System.out.println(grammarText);
                 System.out.println("--------------------------------------------------------------------------------------------------------");
-                writer.write(grammar.generate());
+                writer.write(grammarText);
             }
 
-            URI grammarURI = fileObject.toUri();
-
-            final String[] args = new String[] {
-                "-o", new File(grammarURI).getParent(), // Output directory.
-                "-no-listener", // Don't generate listeners or visitors; we only need the parser.
-                "-no-visitor",
-                grammarURI.getPath() // Path of the grammar file.
-            };
-
-            // These will be later overwritten when we run the ANTLR tool. We have to do this so they
-            // are registered for compilation.
-            try (Writer writer = filer.createSourceFile(ANTLRParserPackageName + "." + ANTLRParserClassName).openWriter()) {
-            }
-            FileObject lexerFileObject = filer.createSourceFile(ANTLRParserPackageName + "." + ANTLRLexerClassName);
-
-            // Run the ANTLR tool.
-            // FIXME: Is this part of the public API? Maybe there is a better way, less prone to compatibility breakage?
-            // FIXME: We use a nasty hack to catch System.exit called from Tool.main.
-            SecurityManager oldSecurityManager = System.getSecurityManager();
-            System.setSecurityManager(new SecurityManager() {
-                @Override
-                public void checkPermission(Permission perm)
-                {
+            // Run the ANTLR tool and write files it generated. The ANTLR-generated lexer is not used
+            // when we generate our own.
+            for (Map.Entry<String, String> output : runAntlrTool(grammarText, grammarFileName).entrySet()) {
+                final String fileName = output.getKey();
+                final FileObject outputFileObject;
+                if (fileName.endsWith(".java")) {
+                    final String className = fileName.substring(0, fileName.length() - ".java".length());
+                    if (className.equals(ANTLRLexerClassName) && !translator.usesNativeLexer()) {
+                        continue;
+                    }
+                    outputFileObject = filer.createSourceFile(ANTLRParserPackageName + "." + className);
+                } else {
+                    outputFileObject = filer.createResource(StandardLocation.SOURCE_OUTPUT, ANTLRParserPackageName, fileName);
                 }
-
-                @Override
-                public void checkExit(int status)
-                {
-                    throw new SystemExitException(status);
+                try (Writer writer = outputFileObject.openWriter()) {
+                    writer.write(output.getValue());
                 }
-            });
-            try {
-                Tool.main(args);
-            } catch (SystemExitException e) {
-                if (e.getStatus() != 0)
-                    throw new RuntimeException("ANTLR4 exited with a non-zero code");
-            } finally {
-                // Restore old security manager
-                System.setSecurityManager(oldSecurityManager);
             }
 
             // Create parser class wrapping the ANTLR-generated one.
@@ -128,7 +150,10 @@ public class Antlr4CompilerGenerator implements CompilerGenerator {
                     ANTLRParserPackageName + "." + ANTLRLexerClassName,
                     parserPackageName,
                     parserClassName,
-                    yajco.model.utilities.Utilities.getFullConceptClassName(language, language.getConcepts().get(0))
+                    yajco.model.utilities.Utilities.getFullConceptClassName(language, language.getConcepts().get(0)),
+                    predictionMode,
+                    maxCacheSize,
+                    translator.usesNativeLexer()
                 ));
             }
             CompilerGenerator.registerParserServiceProvider(parserFullClassName, filer);
@@ -138,10 +163,12 @@ public class Antlr4CompilerGenerator implements CompilerGenerator {
                 writer.write(generateParseException(parserPackageName));
             }
 
-            // Create lexer, overwriting the ANTLR generated one (which is empty anyway)
-            try (Writer writer = lexerFileObject.openWriter()) {
-                writer.write(generateLexer(ANTLRParserPackageName, ANTLRLexerClassName,
-                        translator.getOrderedTokens(), language.getSkips()));
+            // Create lexer instead of the ANTLR generated one (which is empty anyway)
+            if (!translator.usesNativeLexer()) {
+                try (Writer writer = filer.createSourceFile(ANTLRParserPackageName + "." + ANTLRLexerClassName).openWriter()) {
+                    writer.write(generateLexer(ANTLRParserPackageName, ANTLRLexerClassName,
+                            translator.getOrderedTokens(), language.getSkips()));
+                }
             }
         } catch (Exception e) {
             e.printStackTrace();
@@ -149,20 +176,75 @@ public class Antlr4CompilerGenerator implements CompilerGenerator {
         }
     }
 
+    /**
+     * Runs the ANTLR tool on the grammar in memory. Tool instances are independent, so grammars of several
+     * languages can be processed in parallel. Output for the same grammar text is reused.
+     *
+     * @return contents of generated files by their names
+     */
+    private static Map<String, String> runAntlrTool(String grammarText, String grammarFileName) {
+        synchronized (toolOutputCache) {
+            Map<String, String> cached = toolOutputCache.get(grammarText);
+            if (cached != null) {
+                System.out.println("ANTLR4 output for grammar " + grammarFileName + " reused from cache");
+                return cached;
+            }
+        }
+
+        final List<String> errors = new ArrayList<>();
+        final InMemoryTool tool = new InMemoryTool();
+        tool.removeListeners();
+        tool.addListener(new ANTLRToolListener() {
+            @Override
+            public void info(String msg) {
+                System.out.println(msg);
+            }
+
+            @Override
+            public void error(ANTLRMessage msg) {
+                errors.add(tool.errMgr.getMessageTemplate(msg).render());
+            }
+
+            @Override
+            public void warning(ANTLRMessage msg) {
+                System.out.println("WARNING: " + tool.errMgr.getMessageTemplate(msg).render());
+            }
+        });
+
+        GrammarRootAST grammarAST = tool.parseGrammarFromString(grammarText);
+        if (grammarAST != null && !grammarAST.hasErrors) {
+            org.antlr.v4.tool.Grammar grammar = tool.createGrammar(grammarAST);
+            grammar.fileName = grammarFileName;
+            tool.process(grammar, true);
+        }
+        if (grammarAST == null || grammarAST.hasErrors || !errors.isEmpty() || tool.getNumErrors() > 0) {
+            throw new GeneratorException("ANTLR4 reports errors in grammar " + grammarFileName + ": " + errors);
+        }
+
+        Map<String, String> outputs = Collections.unmodifiableMap(tool.getOutputs());
+        synchronized (toolOutputCache) {
+            toolOutputCache.put(grammarText, outputs);
+        }
+        return outputs;
+    }
+
     private String generateParserWrapper(String ANTLRParserFullClassName, String ANTLRLexerFullClassName,
                                          String parserPackageName, String parserClassName,
-                                         String mainElementClassName) throws IOException {
+                                         String mainElementClassName, String predictionMode,
+                                         int maxCacheSize, boolean nativeLexer) throws IOException {
         VelocityContext context = new VelocityContext();
         context.put("ANTLRParserFullClassName", ANTLRParserFullClassName);
         context.put("ANTLRLexerFullClassName", ANTLRLexerFullClassName);
         context.put("parserPackageName", parserPackageName);
         context.put("parserClassName", parserClassName);
         context.put("mainElementClassName", mainElementClassName);
+        context.put("predictionMode", predictionMode);
+        context.put("maxCacheSize", maxCacheSize);
+        context.put("nativeLexer", nativeLexer);
         context.put("returnVarName", ModelTranslator.RETURN_VAR_NAME);
 
         StringWriter writer = new StringWriter();
-        this.velocityEngine.evaluate(context, writer, "",
-                new InputStreamReader(getClass().getResourceAsStream(ANTLR4_PARSER_CLASS_TEMPLATE)));
+        templateService.render(getClass(), ANTLR4_PARSER_CLASS_TEMPLATE, context, writer);
         return writer.toString();
     }
 
@@ -171,8 +253,7 @@ public class Antlr4CompilerGenerator implements CompilerGenerator {
         context.put("parserPackageName", parserPackageName);
 
         StringWriter writer = new StringWriter();
-        this.velocityEngine.evaluate(context, writer, "",
-                new InputStreamReader(getClass().getResourceAsStream(ANTLR4_PARSE_EXCEPTION_CLASS_TEMPLATE)));
+        templateService.render(getClass(), ANTLR4_PARSE_EXCEPTION_CLASS_TEMPLATE, context, writer);
         return writer.toString();
     }
 
@@ -185,8 +266,7 @@ public class Antlr4CompilerGenerator implements CompilerGenerator {
         context.put("skips", skips);
         context.put("firstUserTokenType", Token.MIN_USER_TOKEN_TYPE);
         context.put("Utilities", Utilities.class);
-        this.velocityEngine.evaluate(context, writer, "",
-                new InputStreamReader(getClass().getResourceAsStream(ANTLR4_LEXER_CLASS_TEMPLATE)));
+        templateService.render(getClass(), ANTLR4_LEXER_CLASS_TEMPLATE, context, writer);
         return writer.toString();
     }
 }
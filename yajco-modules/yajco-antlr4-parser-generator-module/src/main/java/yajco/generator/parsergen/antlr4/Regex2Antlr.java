@@ -5,12 +5,14 @@ Converts Java/YAJCo regexes into ANTLR4 lexical rules.
 
 For example: aa[abc]+(bb|cc) is converted into 'aa'[abc]+('bb'|'cc').
 
-FIXME: This converter is incomplete and will only work on basic regexes.
-TODO: It will be later removed when we switch to a custom lexer.
+The converter only handles basic regexes. Constructs which have no ANTLR4 lexer
+counterpart (bounded quantifiers, anchors, lookaround, reluctant or possessive
+quantifiers, back references, ...) are rejected with ConvertException, so that the
+caller can fall back to the regex based yajco.lexer.Lexer.
 */
 public class Regex2Antlr {
-    static class ConvertException extends Exception {
-        ConvertException(String message) {
+    public static class ConvertException extends Exception {
+        public ConvertException(String message) {
             super(message);
         }
     }
@@ -46,6 +48,21 @@ public class Regex2Antlr {
         return "[]()*+.?|".indexOf((char) ch) != -1;
     }
 
+    private boolean isUnsupportedChar(int ch) {
+        return "{}^$".indexOf((char) ch) != -1;
+    }
+
+    private boolean isQuantifier(int ch) {
+        return "*+?".indexOf((char) ch) != -1;
+    }
+
+    private void checkEscapeSequence(int ch) throws ConvertException {
+        // Only single character escapes with the same meaning in ANTLR4 are allowed.
+        if (!isSpecialChar(ch) && !isUnsupportedChar(ch) && "\\tnrf'-".indexOf((char) ch) == -1) {
+            throw new ConvertException("Unsupported escape sequence: \\" + (char) ch);
+        }
+    }
+
     private boolean isPartOfLiteral(int ch) {
         return !isSpecialChar(ch) || ch == '\\';
     }
@@ -54,6 +71,13 @@ public class Regex2Antlr {
         return peek() == '\\' && "dDsSwW".indexOf((char) peek(2)) != -1;
     }
 
+    // A quantifier applies only to the last character of a literal, so such character must start a new literal.
+    private boolean isQuantifiedCharacterAhead() {
+        int length = peek() == '\\' ? 2 : 1;
+        int next = peek(length + 1);
+        return next != EOF && (isQuantifier(next) || next == '{');
+    }
+
     public String convert() throws ConvertException {
         StringBuilder ret = new StringBuilder();
         int ch;
@@ -88,12 +112,14 @@ public class Regex2Antlr {
                 do {
                     ch = consume();
                     if (ch == '\\') { // escape sequence
-                        // FIXME: Sequences with multiple characters are currently not considered.
                         ch = consume();
-                        if (!isSpecialChar(ch)) {
+                        checkEscapeSequence(ch);
+                        if (!isSpecialChar(ch) && !isUnsupportedChar(ch) && ch != '-') {
                             ret.append('\\');
                         }
                         ret.append((char) ch);
+                    } else if (isUnsupportedChar(ch)) {
+                        throw new ConvertException("Unsupported construct: " + (char) ch);
                     } else {
                         if (ch == '\'') {
                             // apostrophes in ANTLR literals must be escaped
@@ -101,10 +127,27 @@ public class Regex2Antlr {
                         }
                         ret.append((char) ch);
                     }
-                } while (peek() != EOF && isPartOfLiteral(peek()) && !isCharacterClassAhead());
+                } while (peek() != EOF && isPartOfLiteral(peek()) && !isCharacterClassAhead()
+                        && !isQuantifiedCharacterAhead());
                 ret.append('\'');
             } else {
                 ch = consume();
+                if (isQuantifier(ch) && (peek() == '?' || peek() == '+')) {
+                    throw new ConvertException("Reluctant and possessive quantifiers are not supported");
+                }
+                if (ch == '(' && peek() == '?') {
+                    consume();
+                    if (consume() != ':') {
+                        throw new ConvertException("Only non-capturing groups are supported");
+                    }
+                    ret.append('(');
+                    continue;
+                }
+                if (ch == '.') {
+                    // In Java regexes the dot does not match line terminators.
+                    ret.append("~[\\r\\n\\u0085\\u2028\\u2029]");
+                    continue;
+                }
                 ret.append((char) ch);
                 if (ch == '[') { // character range
                     int startOfCharacterRange = ret.length() - 1;
@@ -115,10 +158,17 @@ public class Regex2Antlr {
                             ret.append((char) ch);
                             break;
                         } else if (ch == '\\') {
-                            // Ignore escape sequences within character ranges.
+                            // Keep escape sequences within character ranges.
                             // This is mainly so we don't end on \]
+                            ch = consume();
+                            checkEscapeSequence(ch);
+                            // ANTLR4 accepts only a few escapes within sets.
+                            if ("\\]-tnrf".indexOf((char) ch) != -1) {
+                                ret.append('\\');
+                            }
                             ret.append((char) ch);
-                            ret.append((char) consume());
+                        } else if (ch == '[' || (ch == '&' && peek() == '&')) {
+                            throw new ConvertException("Nested character classes are not supported");
                         } else if (ch == '^' && i == 0) {
                             // ANTLR notates negation with a tilde before character range
                             ret.insert(startOfCharacterRange, '~');
@@ -8,13 +8,25 @@ import java.util.List;
 public class Grammar implements Element {
     private final String name;
     private final String header;
+    private final String parserMembers;
+    private final String lexerMembers;
     private final List<String> implicitTokens;
     private final List<ParserRule> parserRules;
     private final List<LexicalRule> lexicalRules;
 
     public Grammar(String name, String header, List<String> implicitTokens, List<ParserRule> parserRules, List<LexicalRule> lexicalRules) {
+        this(name, header, null, implicitTokens, parserRules, lexicalRules);
+    }
+
+    public Grammar(String name, String header, String lexerMembers, List<String> implicitTokens, List<ParserRule> parserRules, List<LexicalRule> lexicalRules) {
+        this(name, header, null, lexerMembers, implicitTokens, parserRules, lexicalRules);
+    }
+
+    public Grammar(String name, String header, String parserMembers, String lexerMembers, List<String> implicitTokens, List<ParserRule> parserRules, List<LexicalRule> lexicalRules) {
         this.name = name;
         this.header = header;
+        this.parserMembers = parserMembers;
+        this.lexerMembers = lexerMembers;
         this.implicitTokens = implicitTokens;
         this.parserRules = parserRules;
         this.lexicalRules = lexicalRules;
@@ -26,6 +38,12 @@ public class Grammar implements Element {
         if (this.header != null && !this.header.isEmpty()) {
             sb.append("@header {\n").append(this.header).append("\n}\n\n");
         }
+        if (this.parserMembers != null && !this.parserMembers.isEmpty()) {
+            sb.append("@parser::members {\n").append(Formatting.indent(this.parserMembers, 1)).append("}\n\n");
+        }
+        if (this.lexerMembers != null && !this.lexerMembers.isEmpty()) {
+            sb.append("@lexer::members {\n").append(Formatting.indent(this.lexerMembers, 1)).append("}\n\n");
+        }
 
         if (this.implicitTokens != null && !this.implicitTokens.isEmpty()) {
             sb.append("tokens {\n");
@@ -12,6 +12,7 @@ public abstract class Part implements Element {
     protected String codeAfter = "";
     protected Associativity associativity = Associativity.Unspecified;
     private String label = "";
+    private boolean listLabel = false;
     protected Part parent = null;
 
     public void setCodeBefore(String codeBefore) {
@@ -28,6 +29,13 @@ public abstract class Part implements Element {
 
     public void setLabel(String label) {
         this.label = label;
+        this.listLabel = false;
+    }
+
+    // Label collecting every element matched by this part into a list (label+=part).
+    public void setListLabel(String label) {
+        this.label = label;
+        this.listLabel = true;
     }
 
     void setParent(Part parent) {
@@ -67,7 +75,7 @@ public abstract class Part implements Element {
                 break;
         }
         if (!this.label.isEmpty()) {
-            sb.append(this.label).append("=");
+            sb.append(this.label).append(this.listLabel ? "+=" : "=");
         }
         sb.append(generatePart());
         if (!this.codeAfter.isEmpty()) {
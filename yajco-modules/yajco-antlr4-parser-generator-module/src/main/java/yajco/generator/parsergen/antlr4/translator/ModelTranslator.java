@@ -3,7 +3,9 @@ package yajco.generator.parsergen.antlr4.translator;
 import yajco.ReferenceResolver;
 import yajco.generator.GeneratorException;
 import yajco.generator.parsergen.Conversions;
+import yajco.generator.parsergen.antlr4.Regex2Antlr;
 import yajco.generator.parsergen.antlr4.model.*;
+import yajco.generator.util.RegexAnalyzer;
 import yajco.generator.util.RegexUtil;
 import yajco.generator.util.Utilities;
 import yajco.model.*;
@@ -12,6 +14,8 @@ import yajco.model.pattern.impl.Enum;
 import yajco.model.type.*;
 
 import java.util.*;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
 import java.util.stream.Collectors;
 
 /**
@@ -20,6 +24,13 @@ import java.util.stream.Collectors;
  */
 public class ModelTranslator {
     public static final String RETURN_VAR_NAME = "_retval";
+    private static final String SKIP_RULE_PREFIX = "SKIP_";
+    // Gives the parser wrapper access to the DFA cache shared by all instances of the parser or lexer.
+    private static final String DECISION_TO_DFA_MEMBER = "public static org.antlr.v4.runtime.dfa.DFA[] getDecisionToDFA() {\n"
+            + "    return _decisionToDFA;\n"
+            + "}\n";
+    // List label of the elements in a list production, the separators are not collected by it.
+    private static final String LIST_ELEMENTS_LABEL = "list_elements";
     private final static String REFERENCE_RESOLVER_CLASS_NAME = ReferenceResolver.class.getCanonicalName();
 
     private static final Conversions conversions = new Conversions();
@@ -27,6 +38,8 @@ public class ModelTranslator {
     private final Language language;
     private final String parserClassName;
     private final String parserPackageName;
+    private final boolean preferNativeLexer;
+    private boolean nativeLexer;
 
     private static class Production {
         String returns;
@@ -43,9 +56,19 @@ public class ModelTranslator {
     private final Map<String, String> tokens = new LinkedHashMap<>();
 
     public ModelTranslator(Language language, String parserClassName, String parserPackageName) {
+        this(language, parserClassName, parserPackageName, true);
+    }
+
+    /**
+     * @param preferNativeLexer If true, tokens and skips are translated into ANTLR4 lexical rules whenever all
+     *                          of their regexes can be converted. Otherwise the custom lexer wrapping
+     *                          yajco.lexer.Lexer has to be used.
+     */
+    public ModelTranslator(Language language, String parserClassName, String parserPackageName, boolean preferNativeLexer) {
         this.language = language;
         this.parserClassName = parserClassName;
         this.parserPackageName = parserPackageName;
+        this.preferNativeLexer = preferNativeLexer;
     }
 
     public Grammar translate() {
@@ -102,23 +125,115 @@ public class ModelTranslator {
         }
 
         List<ParserRule> parserRules = translateProductions();
-        // Intentionally empty as we will use a custom lexer
-        List<LexicalRule> lexicalRules = new ArrayList<>();
-
-        // Forward declaration of tokens to silence ANTLR warnings
+        List<LexicalRule> lexicalRules = this.preferNativeLexer ? translateLexicalRules() : null;
         List<String> implicitTokens = new ArrayList<>();
-        for (Map.Entry<String, String> entry : getOrderedTokens().entrySet()) {
-            implicitTokens.add(entry.getKey());
+        this.nativeLexer = lexicalRules != null;
+        if (!this.nativeLexer) {
+            // Intentionally empty as we will use a custom lexer
+            lexicalRules = new ArrayList<>();
+
+            // Forward declaration of tokens to silence ANTLR warnings
+            for (Map.Entry<String, String> entry : getOrderedTokens().entrySet()) {
+                implicitTokens.add(entry.getKey());
+            }
         }
 
         return new Grammar(
                 this.parserClassName,
                 "package " + this.parserPackageName + ";",
+                DECISION_TO_DFA_MEMBER,
+                this.nativeLexer ? makeLexerMembers() : null,
                 implicitTokens,
                 parserRules,
                 lexicalRules);
     }
 
+    /**
+     * Returns true if the last translated grammar contains its own lexical rules, so ANTLR4 generates the lexer.
+     * Returns false if the custom lexer wrapping yajco.lexer.Lexer has to be generated instead.
+     */
+    public boolean usesNativeLexer() {
+        return this.nativeLexer;
+    }
+
+    /**
+     * Translates tokens and skips into ANTLR4 lexical rules in the order of {@link #getOrderedTokens()}, so that
+     * ties of the longest match are resolved the same way as in yajco.lexer.Lexer.
+     * <p>
+     * yajco.lexer.Lexer differs from ANTLR4 lexer in two ways: it tries skips before tokens, and every regex
+     * matches the first string found by backtracking (the first matching alternative), while ANTLR4 always takes
+     * the longest match of all rules. Skips which can start where a token or another skip starts and regexes
+     * whose longest match can differ are therefore not translated.
+     *
+     * @return lexical rules or null if some regex cannot be expressed in ANTLR4 lexer without changing its meaning
+     */
+    private List<LexicalRule> translateLexicalRules() {
+        List<LexicalRule> lexicalRules = new ArrayList<>();
+        try {
+            Map<String, String> orderedTokens = getOrderedTokens();
+            for (Map.Entry<String, String> entry : orderedTokens.entrySet()) {
+                lexicalRules.add(new LexicalRule(entry.getKey(), convertRegex(entry.getValue())));
+            }
+            List<SkipDef> skips = this.language.getSkips();
+            for (int i = 0; i < skips.size(); i++) {
+                String skip = skips.get(i).getRegexp();
+                for (Map.Entry<String, String> entry : orderedTokens.entrySet()) {
+                    if (RegexAnalyzer.canStartWithSameCharacter(skip, entry.getValue())) {
+                        throw new Regex2Antlr.ConvertException("Skip '" + skip + "' can start where token " + entry.getKey() + " starts, yajco lexer skips it before trying tokens");
+                    }
+                }
+                for (int j = i + 1; j < skips.size(); j++) {
+                    if (RegexAnalyzer.canStartWithSameCharacter(skip, skips.get(j).getRegexp())) {
+                        throw new Regex2Antlr.ConvertException("Skips '" + skip + "' and '" + skips.get(j).getRegexp() + "' can start with the same character, yajco lexer takes the first of them");
+                    }
+                }
+                lexicalRules.add(new LexicalRule(SKIP_RULE_PREFIX + (i + 1), convertRegex(skip), true));
+            }
+        } catch (Regex2Antlr.ConvertException e) {
+            System.out.println("ANTLR4: " + e.getMessage() + ", using custom lexer instead of native ANTLR4 lexer.");
+            return null;
+        }
+        return lexicalRules;
+    }
+
+    /**
+     * Makes the native lexer fail on unrecognized input instead of reporting an error and skipping a character,
+     * which is how the custom lexer behaves. Exposes the DFA cache of the lexer as well.
+     */
+    private String makeLexerMembers() {
+        return "@Override\n"
+                + "public void recover(LexerNoViableAltException e) {\n"
+                + "    throw new org.antlr.v4.runtime.misc.ParseCancellationException(e);\n"
+                + "}\n"
+                + DECISION_TO_DFA_MEMBER;
+    }
+
+    private String convertRegex(String regex) throws Regex2Antlr.ConvertException {
+        Pattern pattern;
+        try {
+            pattern = Pattern.compile(regex);
+        } catch (PatternSyntaxException e) {
+            throw new Regex2Antlr.ConvertException("Regex '" + regex + "' is not valid");
+        }
+        // yajco.lexer.Lexer uses the first matched group as the token text, ANTLR4 lexer always uses whole match.
+        if (pattern.matcher("").groupCount() > 0) {
+            throw new Regex2Antlr.ConvertException("Regex '" + regex + "' contains capturing group");
+        }
+        // ANTLR4 does not allow lexical rules matching an empty string.
+        if (pattern.matcher("").matches()) {
+            throw new Regex2Antlr.ConvertException("Regex '" + regex + "' matches an empty string");
+        }
+        String difference = RegexAnalyzer.findLongestMatchDifference(regex);
+        if (difference != null) {
+            throw new Regex2Antlr.ConvertException("Regex '" + regex + "' " + difference);
+        }
+        try {
+            return new Regex2Antlr(regex).convert();
+        } catch (Regex2Antlr.ConvertException e) {
+            throw new Regex2Antlr.ConvertException("Regex '" + regex + "': " + e.getMessage());
+        }
+    }
+
     public Map<String, String> getOrderedTokens() {
         Map<String, String> acyclicTerminals = new LinkedHashMap<>();
         Map<String, String> cyclicTerminals = new LinkedHashMap<>();
@@ -181,7 +296,8 @@ public class ModelTranslator {
             }
         }
 
-        // Group operator alternatives by priority.
+        // Group operator alternatives by priority. Operators stay alternatives of this single left-recursive
+        // rule, ANTLR 4 rewrites it into a precedence climbing loop, so no rule per priority is needed.
         Map<Integer, List<Alternative>> operatorGroups = unresolvedAlts.stream()
                 .filter(alt -> alt.op != null)
                 .sorted(Comparator.comparingInt((Alternative alt) -> alt.op.getPriority()).reversed())
@@ -422,7 +538,7 @@ public class ModelTranslator {
 
                         alt.sequence = generateListGrammar(ruleName, range, sepToken);
 
-                        StringBuilder action = new StringBuilder();
+                        StringBuilder action = new StringBuilder(generateListSizeCheck(range));
 
                         // Streams of primitive types are not possible in Java. :-(
                         boolean useStream =
@@ -430,11 +546,11 @@ public class ModelTranslator {
                                     || ((PrimitiveType) innerType).getPrimitiveTypeConst() == PrimitiveTypeConst.STRING);
 
                         if (useStream) {
-                            action.append("$").append(RETURN_VAR_NAME).append(" = $ctx.").append(ruleName)
-                                    .append("().stream().map(elem -> ");
+                            action.append("$").append(RETURN_VAR_NAME).append(" = $ctx.").append(LIST_ELEMENTS_LABEL)
+                                    .append(".stream().map(elem -> ");
                             if (innerType instanceof PrimitiveType) {
                                 String conversionExpr = conversions.getConversion(innerTypeString);
-                                action.append(String.format(conversionExpr, "elem.getSymbol().getText()"));
+                                action.append(String.format(conversionExpr, "elem.getText()"));
                             } else {
                                 action.append("elem.").append(RETURN_VAR_NAME);
                             }
@@ -455,8 +571,8 @@ public class ModelTranslator {
 
                             String boxedTypeString = primitiveTypeToBoxedTypeString((PrimitiveType) innerType);
                             action.append("java.util.List<").append(boxedTypeString).append("> boxedList = ")
-                                    .append("$ctx.").append(ruleName).append("().stream().map(elem -> ")
-                                    .append(String.format(conversionExpr, "elem.getSymbol().getText()"))
+                                    .append("$ctx.").append(LIST_ELEMENTS_LABEL).append(".stream().map(elem -> ")
+                                    .append(String.format(conversionExpr, "elem.getText()"))
                                     .append(").collect(java.util.stream.Collectors.toList());\n");
                             action.append("$").append(RETURN_VAR_NAME).append(" = new ")
                                     .append(innerTypeString).append("[boxedList.size()];\n");
@@ -539,95 +655,71 @@ public class ModelTranslator {
     }
 
     // Generates a grammar rule for a list of elements, which may be lexical or parser rules.
-    // The list is constrained by the given range, with elements separated by the given separator token.
+    // The list is unbounded, elements are separated by the given separator token. Only the lower bound 0 or 1
+    // is expressed in the grammar, other bounds of the range are checked by generateListSizeCheck, so the size
+    // of the grammar does not depend on them.
     // Note: No semantic actions are generated, only pure grammar.
     private SequencePart generateListGrammar(String elemRule, Range range, String sepToken) {
         List<Part> parts = new ArrayList<>();
 
         if (sepToken.isEmpty()) { // No separator.
-            if (range.getMaxOccurs() == Range.INFINITY) {
-                if (range.getMinOccurs() == 0) {
-                    parts.add(new ZeroOrMorePart(new RulePart(elemRule)));
-                } else {
-                    for (int i = 0; i < (range.getMinOccurs() - 1); i++) {
-                        parts.add(new RulePart(elemRule));
-                    }
-                    parts.add(new OneOrMorePart(new RulePart(elemRule)));
-                }
+            if (range.getMinOccurs() == 0) {
+                parts.add(new ZeroOrMorePart(createListElement(elemRule)));
             } else {
-                for (int i = 0; i < range.getMinOccurs(); i++) {
-                    parts.add(new RulePart(elemRule));
-                }
-                for (int i = 0; i < (range.getMaxOccurs() - range.getMinOccurs()); i++) {
-                    parts.add(new ZeroOrOnePart(new RulePart(elemRule)));
-                }
+                parts.add(new OneOrMorePart(createListElement(elemRule)));
             }
         } else { // With separator.
-            if (range.getMaxOccurs() == Range.INFINITY) {
-                if (range.getMinOccurs() == 0) {
-                    // ( elem ( SEP elem )* )?
-                    parts.add(
-                        new ZeroOrOnePart(
-                            new SequencePart(Arrays.asList(
-                                new RulePart(elemRule),
-                                new ZeroOrMorePart(
-                                    new SequencePart(Arrays.asList(
-                                        new RulePart(sepToken),
-                                        new RulePart(elemRule)
-                                    ))
-                                )
-                            ))
-                        )
-                    );
-                } else {
-                    parts.add(new RulePart(elemRule));
-                    for (int i = 0; i < (range.getMinOccurs() - 1); i++) {
-                        parts.add(
-                            new SequencePart(Arrays.asList(
-                                new RulePart(sepToken),
-                                new RulePart(elemRule)
-                            ))
-                        );
-                    }
-                    parts.add(
-                        new ZeroOrMorePart(
-                            new SequencePart(Arrays.asList(
-                                new RulePart(sepToken),
-                                new RulePart(elemRule)
-                            ))
-                        )
-                    );
-                }
+            // elem ( SEP elem )*
+            SequencePart list = new SequencePart(Arrays.asList(
+                createListElement(elemRule),
+                new ZeroOrMorePart(
+                    new SequencePart(Arrays.asList(
+                        new RulePart(sepToken),
+                        createListElement(elemRule)
+                    ))
+                )
+            ));
+            if (range.getMinOccurs() == 0) {
+                // ( elem ( SEP elem )* )?
+                parts.add(new ZeroOrOnePart(list));
             } else {
-                parts.add(new RulePart(elemRule));
-                for (int i = 0; i < (range.getMinOccurs() - 1); i++) {
-                    parts.add(
-                        new SequencePart(Arrays.asList(
-                            new RulePart(sepToken),
-                            new RulePart(elemRule)
-                        ))
-                    );
-                }
-                for (int i = 0; i < (range.getMaxOccurs() - Math.max(range.getMinOccurs(), 1)); i++) {
-                    parts.add(
-                        new ZeroOrOnePart(
-                            new SequencePart(Arrays.asList(
-                                new RulePart(sepToken),
-                                new RulePart(elemRule)
-                            ))
-                        )
-                    );
-                }
-
-                if (range.getMinOccurs() == 0) {
-                    parts = Arrays.asList(new ZeroOrOnePart(new SequencePart(parts)));
-                }
+                parts.add(list);
             }
         }
 
         return new SequencePart(parts);
     }
 
+    // Element of the list is collected by the list label, so it is not mixed up with the separator
+    // even if the separator is the same token.
+    private RulePart createListElement(String elemRule) {
+        RulePart rulePart = new RulePart(elemRule);
+        rulePart.setListLabel(LIST_ELEMENTS_LABEL);
+        return rulePart;
+    }
+
+    // Generates a check of the number of elements matched by generateListGrammar, the parse is cancelled
+    // when the number is out of the range. Empty string is returned if the grammar itself ensures the range.
+    private String generateListSizeCheck(Range range) {
+        if (range.getMinOccurs() <= 1 && range.getMaxOccurs() == Range.INFINITY) {
+            return "";
+        }
+
+        String size = "$ctx." + LIST_ELEMENTS_LABEL + ".size()";
+        StringBuilder check = new StringBuilder();
+        check.append("if (").append(size).append(" < ").append(range.getMinOccurs());
+        if (range.getMaxOccurs() != Range.INFINITY) {
+            check.append(" || ").append(size).append(" > ").append(range.getMaxOccurs());
+        }
+        String expected = range.getMaxOccurs() != Range.INFINITY
+                ? "from " + range.getMinOccurs() + " to " + range.getMaxOccurs()
+                : "at least " + range.getMinOccurs();
+        check.append(") {\n    throw new org.antlr.v4.runtime.misc.ParseCancellationException(\"line \" + $ctx.start.getLine()")
+                .append(" + \":\" + $ctx.start.getCharPositionInLine() + \" expected ").append(expected)
+                .append(" elements, found \" + ").append(size).append(");\n}\n");
+        return check.toString();
+    }
+
     private String getFullConceptClassName(Concept c) {
         return yajco.model.utilities.Utilities.getLanguagePackageName(this.language) + "." + c.getName();
     }
@@ -0,0 +1,119 @@
+package yajco.generator.parsergen.antlr4;
+
+import java.io.File;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import yajco.generator.parsergen.Parser;
+import yajco.generator.util.GeneratedSources;
+import yajco.model.Language;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static yajco.model.LanguageFixtures.createExpressionLanguage;
+
+/**
+ * Checks the shared DFA cache of generated parsers: warming up, reporting of hits and misses to the metrics
+ * listener and clearing of the cache when it grows over its bound. Parsers with the native ANTLR4 lexer and with
+ * the custom lexer are both checked.
+ */
+public class ParserCacheTest {
+
+    private static final String NATIVE_PARSER_CLASS_NAME = "calc.parser.CalcParser";
+    private static final String CUSTOM_PARSER_CLASS_NAME = "calc.custom.CalcParser";
+    private static final List<String> SAMPLES = Arrays.asList("1 + 2", "1 * 2 + 3", "( 1 + 2 ) * 3", "1 + 2 * ( 3 + 4 ) * 5");
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void cacheIsWarmedUpReportedAndBounded() throws Exception {
+        GeneratedSources sources = new GeneratedSources(folder.getRoot());
+        Language language = createExpressionLanguage();
+        sources.writeConceptClasses(language);
+        new Antlr4CompilerGenerator().generateFiles(language, sources.getFiler(), new Properties(), NATIVE_PARSER_CLASS_NAME);
+        Properties customLexer = new Properties();
+        customLexer.setProperty("yajco.antlr4.nativeLexer", "false");
+        new Antlr4CompilerGenerator().generateFiles(language, sources.getFiler(), customLexer, CUSTOM_PARSER_CLASS_NAME);
+        File classes = sources.compile(org.antlr.v4.runtime.Parser.class);
+
+        try (URLClassLoader classLoader = new URLClassLoader(new URL[]{classes.toURI().toURL()}, getClass().getClassLoader())) {
+            checkCache(classLoader.loadClass(NATIVE_PARSER_CLASS_NAME));
+            checkCache(classLoader.loadClass(CUSTOM_PARSER_CLASS_NAME));
+        }
+    }
+
+    private void checkCache(Class<?> parserClass) throws Exception {
+        String name = parserClass.getName();
+        Parser<?, ?> parser = (Parser<?, ?>) parserClass.newInstance();
+        invoke(parserClass, "clearCache");
+        assertEquals(name, 0, cacheSize(parserClass));
+
+        assertEquals(name, SAMPLES.size(), invoke(parserClass, "warmUp", Iterable.class, SAMPLES));
+        int warmedUp = cacheSize(parserClass);
+        assertTrue(name + " cache is empty after warm-up", warmedUp > 0);
+
+        // Samples are parsed again from the cache
+        final List<long[]> metrics = new ArrayList<long[]>();
+        Class<?> listenerClass = parserClass.getClassLoader().loadClass(name + "$MetricsListener");
+        Object listener = Proxy.newProxyInstance(listenerClass.getClassLoader(), new Class<?>[]{listenerClass}, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                metrics.add(new long[]{(Integer) args[0], (Long) args[1], (Long) args[2]});
+                return null;
+            }
+        });
+        invoke(parserClass, "setMetricsListener", listenerClass, listener);
+        try {
+            for (String sample : SAMPLES) {
+                parser.parse(sample);
+            }
+            assertEquals(name, SAMPLES.size(), metrics.size());
+            for (long[] metric : metrics) {
+                assertEquals(name + " cache size", warmedUp, metric[0]);
+                assertTrue(name + " no hits", metric[1] > 0);
+                assertEquals(name + " misses", 0, metric[2]);
+            }
+
+            // Cold cache misses
+            metrics.clear();
+            invoke(parserClass, "clearCache");
+            parser.parse(SAMPLES.get(SAMPLES.size() - 1));
+            assertTrue(name + " no misses", metrics.get(0)[2] > 0);
+        } finally {
+            invoke(parserClass, "setMetricsListener", listenerClass, null);
+        }
+
+        // Cache is cleared once it grows over the bound
+        invoke(parserClass, "setMaxCacheSize", int.class, 1);
+        try {
+            parser.parse(SAMPLES.get(0));
+            assertEquals(name, 0, cacheSize(parserClass));
+        } finally {
+            invoke(parserClass, "setMaxCacheSize", int.class, 0);
+        }
+        parser.parse(SAMPLES.get(0));
+        assertTrue(name + " cache is not filled", cacheSize(parserClass) > 0);
+    }
+
+    private static int cacheSize(Class<?> parserClass) throws Exception {
+        return (Integer) invoke(parserClass, "getCacheSize");
+    }
+
+    private static Object invoke(Class<?> type, String methodName) throws Exception {
+        return type.getMethod(methodName).invoke(null);
+    }
+
+    private static Object invoke(Class<?> type, String methodName, Class<?> parameterType, Object argument) throws Exception {
+        return type.getMethod(methodName, parameterType).invoke(null, argument);
+    }
+}
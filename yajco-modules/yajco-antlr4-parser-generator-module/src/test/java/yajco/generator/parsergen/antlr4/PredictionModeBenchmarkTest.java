@@ -0,0 +1,152 @@
+package yajco.generator.parsergen.antlr4;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.PrintStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+import org.antlr.v4.runtime.RecognitionException;
+import org.antlr.v4.runtime.Token;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import yajco.generator.parsergen.ParseException;
+import yajco.generator.parsergen.Parser;
+import yajco.generator.util.GeneratedSources;
+import yajco.model.Language;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static yajco.model.LanguageFixtures.createExpressionLanguage;
+
+/**
+ * Compares two-stage SLL/LL prediction of generated parsers with full LL prediction used before. The parser
+ * wrapper is generated and compiled for the expression language and run in both modes, which have to give the
+ * same trees for valid inputs and throw and report the same errors for invalid ones. Invalid inputs make the SLL
+ * stage fail, so they also go through the fallback to LL. Times of both modes are only printed, they include
+ * resolution of references done after every parse.
+ */
+public class PredictionModeBenchmarkTest {
+
+    private static final String PARSER_CLASS_NAME = "calc.parser.CalcParser";
+    private static final int WARMUP_ROUNDS = 10;
+    private static final int MEASURED_ROUNDS = 20;
+    private static final int TERMS = 500;
+    private static final int RANDOM_INPUTS = 200;
+    private static final String[] INVALID_INPUTS = {"1 +", "( 1", "1 2", "+ 1", "1 + * 2", "( ) + 1", "1 + ( 2 * )", ")"};
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void twoStagePredictionParsesSameTreesAsLL() throws Exception {
+        GeneratedSources sources = new GeneratedSources(folder.getRoot());
+        Language language = createExpressionLanguage();
+        sources.writeConceptClasses(language);
+        new Antlr4CompilerGenerator().generateFiles(language, sources.getFiler(), new Properties(), PARSER_CLASS_NAME);
+        File classes = sources.compile(org.antlr.v4.runtime.Parser.class);
+
+        try (URLClassLoader classLoader = new URLClassLoader(new URL[]{classes.toURI().toURL()}, getClass().getClassLoader())) {
+            Parser<?, ?> ll = createParser(classLoader, "LL");
+            Parser<?, ?> twoStage = createParser(classLoader, "TWO_STAGE");
+
+            Random random = new Random(42);
+            List<String> inputs = new ArrayList<String>();
+            for (int i = 0; i < RANDOM_INPUTS; i++) {
+                inputs.add(createInput(random, 1 + random.nextInt(20)));
+            }
+            for (String input : inputs) {
+                assertEquals(input, parse(ll, input), parse(twoStage, input));
+            }
+            assertEquals("(Add (Number 1) (Mul (Number 2) (Number 3)))", parse(twoStage, "1 + 2 * 3"));
+            for (String input : INVALID_INPUTS) {
+                String error = parse(ll, input);
+                assertTrue(input + " parsed as " + error, error.startsWith("error"));
+                assertEquals(input, error, parse(twoStage, input));
+            }
+
+            String input = createInput(new Random(42), TERMS);
+            assertEquals(parse(ll, input), parse(twoStage, input));
+            for (int round = 0; round < WARMUP_ROUNDS; round++) {
+                ll.parse(input);
+                twoStage.parse(input);
+            }
+            long llTime = 0;
+            long twoStageTime = 0;
+            for (int round = 0; round < MEASURED_ROUNDS; round++) {
+                long start = System.nanoTime();
+                ll.parse(input);
+                llTime += System.nanoTime() - start;
+                start = System.nanoTime();
+                twoStage.parse(input);
+                twoStageTime += System.nanoTime() - start;
+            }
+            System.out.println("ANTLR4 prediction of " + TERMS + " terms: LL " + llTime / MEASURED_ROUNDS / 1000L
+                    + " us, two-stage SLL/LL " + twoStageTime / MEASURED_ROUNDS / 1000L + " us per parse");
+        }
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Parser<?, ?> createParser(ClassLoader classLoader, String mode) throws Exception {
+        Class<?> parserClass = classLoader.loadClass(PARSER_CLASS_NAME);
+        Class<? extends Enum> modeClass = (Class<? extends Enum>) classLoader.loadClass(PARSER_CLASS_NAME + "$Mode");
+        Parser<?, ?> parser = (Parser<?, ?>) parserClass.newInstance();
+        parserClass.getMethod("setMode", modeClass).invoke(parser, Enum.valueOf(modeClass, mode));
+        return parser;
+    }
+
+    /**
+     * Returns the tree of the parsed input, or the error with its offending token if the input is rejected,
+     * followed by errors reported by the parser to the console.
+     */
+    private static String parse(Parser<?, ?> parser, String input) throws Exception {
+        PrintStream console = System.err;
+        ByteArrayOutputStream reported = new ByteArrayOutputStream();
+        System.setErr(new PrintStream(reported, true, "UTF-8"));
+        String result;
+        try {
+            result = String.valueOf(parser.parse(input));
+        } catch (ParseException e) {
+            Throwable cause = e;
+            while (cause != null && !(cause instanceof RecognitionException)) {
+                cause = cause.getCause();
+            }
+            assertNotNull("no recognition exception in " + e, cause);
+            Token token = ((RecognitionException) cause).getOffendingToken();
+            result = "error " + cause.getClass().getSimpleName() + " at token " + token.getTokenIndex() + " '" + token.getText() + "'";
+        } finally {
+            System.setErr(console);
+        }
+        String errors = reported.toString("UTF-8").trim();
+        return errors.isEmpty() ? result : result + " reported '" + errors + "'";
+    }
+
+    private static String createInput(Random random, int terms) {
+        StringBuilder sb = new StringBuilder();
+        int open = 0;
+        for (int term = 0; term < terms; term++) {
+            if (term > 0) {
+                sb.append(random.nextBoolean() ? " + " : " * ");
+            }
+            if (random.nextInt(4) == 0) {
+                sb.append('(');
+                open++;
+            }
+            sb.append(random.nextInt(1000));
+            if (open > 0 && random.nextInt(3) == 0) {
+                sb.append(')');
+                open--;
+            }
+        }
+        for (; open > 0; open--) {
+            sb.append(')');
+        }
+        return sb.toString();
+    }
+}
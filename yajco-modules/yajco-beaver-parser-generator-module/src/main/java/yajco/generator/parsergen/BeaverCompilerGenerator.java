@@ -1,32 +1,54 @@
 package yajco.generator.parsergen;
 
 import beaver.comp.run.Options;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.io.PrintStream;
 import java.io.StringWriter;
 import java.io.Writer;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.nio.file.attribute.UserPrincipal;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
 import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import javax.annotation.processing.Filer;
 import javax.tools.FileObject;
 import javax.tools.StandardLocation;
 import org.apache.velocity.VelocityContext;
-import org.apache.velocity.app.VelocityEngine;
 import yajco.ReferenceResolver;
 import yajco.generator.GeneratorException;
+import yajco.generator.annotation.ParsingAlgorithm;
 import yajco.generator.parsergen.beaver.BeaverParserGenerator;
+import yajco.generator.util.AnalyzedGrammar;
 import yajco.generator.util.RegexUtil;
+import yajco.generator.util.StepTimer;
+import yajco.generator.util.TemplateService;
 import yajco.grammar.TerminalSymbol;
 import yajco.grammar.bnf.Grammar;
 import yajco.grammar.translator.YajcoModelToBNFGrammarTranslator;
 import yajco.model.Language;
 
+@ParsingAlgorithm(ParsingAlgorithm.Algorithm.LALR1)
 public class BeaverCompilerGenerator implements CompilerGenerator {
 
     private static final String BEAVER_SCANNER_CLASS_TEMPLATE = "/yajco/generator/parsergen/beaver/templates/BeaverScannerTemplate.vm";
@@ -37,14 +59,23 @@ public class BeaverCompilerGenerator implements CompilerGenerator {
     private static final String SYMBOL_LINKED_HASH_SET_IMPL_CLASS_TEMPLATE = "/yajco/generator/parsergen/beaver/templates/SymbolLinkedHashSetImplClassTemplate.vm";
     private static final String SYMBOL_LIST_IMPL_WITH_SHARED_CLASS_TEMPLATE = "/yajco/generator/parsergen/beaver/templates/SymbolListImplWithSharedClassTemplate.vm";
     private static final String QUOTED_STRING_UTILS_CLASS_TEMPLATE = "/yajco/generator/parsergen/beaver/templates/QuotedStringUtilsClassTemplate.vm";
+    private static final String COLLECTION_RANGE_UTILS_CLASS_TEMPLATE = "/yajco/generator/parsergen/beaver/templates/CollectionRangeUtilsClassTemplate.vm";
     private static final String SYMBOL_HASH_MAP_IMPL_CLASS_TEMPLATE = "/yajco/generator/parsergen/beaver/templates/SymbolHashMapImplClassTemplate.vm";
     private static final String SYMBOL_UNORDERED_PARAM_CLASS_TEMPLATE = "/yajco/generator/parsergen/beaver/templates/SymbolUnorderedParamClassTemplate.vm";
     private static final String SYMBOL_WRAPPER_CLASS_TEMPLATE = "/yajco/generator/parsergen/beaver/templates/SymbolWrapperClassTemplate.vm";
+    static final private String CACHE_PROPERTY = "yajco.beaver.cache";
+    static final private String CACHE_DIRECTORY_PROPERTY = "yajco.beaver.cacheDirectory";
+    static final private String CACHE_FILE_SUFFIX = ".parser";
+    static final private String TABLES_RESOURCE_PROPERTY = "yajco.beaver.tablesResource";
+    // Name Beaver's ParsingTables(Class) looks for next to the parser class.
+    static final private String TABLES_RESOURCE_SUFFIX = ".spec";
+    private static final Pattern PARSING_TABLES_PATTERN = Pattern.compile("new ParsingTables\\(((?:\\s*\"[^\"]*\"\\s*\\+?)+)\\s*\\)");
+    private static final Pattern STRING_LITERAL_PATTERN = Pattern.compile("\"([^\"]*)\"");
+    private static final TemplateService templateService = TemplateService.getInstance();
     private static final BeaverParserGenerator beaverParGen = BeaverParserGenerator.getInstance();
-    private static final YajcoModelToBNFGrammarTranslator modelToBNFGrammarTranslator = YajcoModelToBNFGrammarTranslator.getInstance();
     private Filer filer;
     private Language language;
-    private VelocityEngine engine;
+    private Properties properties;
     private boolean metalexerScanner = false;
     private String providedParserClassName = null;
 
@@ -56,9 +87,7 @@ public class BeaverCompilerGenerator implements CompilerGenerator {
 
         this.filer = filer;
         this.language = language;
-        if (engine == null) {
-            engine = new VelocityEngine();
-        }
+        this.properties = properties;
 
         try {
             generateBeaverCompiler();
@@ -74,8 +103,11 @@ public class BeaverCompilerGenerator implements CompilerGenerator {
     }
 
     private void generateBeaverCompiler() throws IOException {
+        StepTimer timer = new StepTimer();
         String mainElementClassName = yajco.model.utilities.Utilities.getFullConceptClassName(language, language.getConcepts().get(0));
-        Grammar grammar = modelToBNFGrammarTranslator.translate(language);
+        // Shared with the compiler generator selector, the grammar is translated and optimized only once.
+        Grammar grammar = AnalyzedGrammar.getGrammar(language, properties);
+        timer.stop("translation");
         String parserPackageName;
         String parserClassName;
         String parserClassPackageName;
@@ -145,6 +177,13 @@ public class BeaverCompilerGenerator implements CompilerGenerator {
         writer.flush();
         writer.close();
 
+        // trieda CollectionRangeUtils
+        fileObject = filer.createSourceFile(parserPackageName + "." + "CollectionRangeUtils");
+        writer = fileObject.openWriter();
+        writer.write(generateCollectionRangeUtilsClass(parserPackageName));
+        writer.flush();
+        writer.close();
+
         // trieda SymbolLinkedHashSetImpl
         //file = Utilities.createFile(filer, parserPackageName, "SymbolLinkedHashSetImpl.java");
         fileObject = filer.createSourceFile(parserPackageName + "." + "SymbolLinkedHashSetImpl");
@@ -184,14 +223,20 @@ public class BeaverCompilerGenerator implements CompilerGenerator {
         writer.write(generateSymbolWrapperClass(parserPackageName));
         writer.flush();
         writer.close();
+        timer.stop("templates");
 
         // vstupny subor pre Beaver
         //file = Utilities.createFile(filer, parserPackageName, "grammar.grammar");
-        fileObject = filer.createResource(StandardLocation.SOURCE_OUTPUT, parserPackageName, "grammar.grammar");
-        PrintStream streamWriter = new PrintStream(fileObject.openOutputStream()); // new PrintStream(file);
+        ByteArrayOutputStream grammarOutput = new ByteArrayOutputStream();
+        PrintStream streamWriter = new PrintStream(grammarOutput);
         beaverParGen.generateFrom(language, grammar, parserPackageName, parserClassName, streamWriter);
         streamWriter.flush();
-        streamWriter.close();
+        byte[] grammarText = grammarOutput.toByteArray();
+        fileObject = filer.createResource(StandardLocation.SOURCE_OUTPUT, parserPackageName, "grammar.grammar");
+        OutputStream grammarStream = fileObject.openOutputStream();
+        grammarStream.write(grammarText);
+        grammarStream.close();
+        timer.stop("grammar");
 
         // remember path to grammar.grammar
         URI inputFileURI = fileObject.toUri();
@@ -201,14 +246,33 @@ public class BeaverCompilerGenerator implements CompilerGenerator {
             System.err.println("Cannot make absolute uri!");
         }
 
+        // parser with the same grammar was already generated by Beaver
+        File cacheFile = getCacheFile(grammarText);
+        byte[] parserSource = cacheFile != null ? readFromCache(cacheFile, grammarText) : null;
+        if (parserSource != null) {
+            fileObject = filer.createSourceFile(parserPackageName+"."+parserClassName);
+            OutputStream parserStream = fileObject.openOutputStream();
+            if (isTablesResourceEnabled()) {
+                parserSource = moveTablesIntoResource(new String(parserSource, StandardCharsets.UTF_8), parserPackageName, parserClassName).getBytes(StandardCharsets.UTF_8);
+            }
+            parserStream.write(parserSource);
+            parserStream.close();
+            timer.stop("cached tables");
+            System.out.println("Beaver parser " + parserClassName + " reused from cache " + cacheFile);
+            timer.report("Beaver parser " + parserClassName);
+            return;
+        }
+
         // registering file later generated by Beaver for compilation
         fileObject = filer.createSourceFile(parserPackageName+"."+parserClassName);
         fileObject.openWriter().close();
-        
+        URI parserFileURI = fileObject.toUri();
+
         // pouzitie Beaver-a
         File inputFile = inputFileURI.isAbsolute() ? new File(inputFileURI) : new File(inputFileURI.toString());
         beaver.comp.util.Log log = new beaver.comp.util.Log();
         beaver.comp.io.SrcReader srcReader = new beaver.comp.io.SrcReader(inputFile);
+        timer.restart();
         try {
             beaver.comp.ParserGenerator.compile(srcReader, new Options(), log);
             log.report(inputFile.getName(), srcReader);
@@ -218,6 +282,174 @@ public class BeaverCompilerGenerator implements CompilerGenerator {
         } catch (Exception e) {
             throw new IOException(e);
         }
+        timer.stop("tables");
+
+        File parserFile = parserFileURI.isAbsolute() ? new File(parserFileURI) : new File(parserFileURI.getPath());
+        if (cacheFile != null && !log.hasErrors()) {
+            storeInCache(parserFile, cacheFile, grammarText);
+        }
+        if (isTablesResourceEnabled() && !log.hasErrors()) {
+            String generatedSource = new String(Files.readAllBytes(parserFile.toPath()), StandardCharsets.UTF_8);
+            Files.write(parserFile.toPath(), moveTablesIntoResource(generatedSource, parserPackageName, parserClassName).getBytes(StandardCharsets.UTF_8));
+            timer.stop("tables resource");
+        }
+        timer.report("Beaver parser " + parserClassName);
+    }
+
+    /**
+     * Returns file in which the parser generated from the grammar is cached, or null if the cache is disabled.
+     * Beaver options are always the same, so the parser depends only on the grammar and the version of Beaver.
+     * The cache directory is '.yajco/beaver-cache' in the user home by default. It has to be owned by the user and
+     * not writable by others, otherwise the cache is not used.
+     */
+    private File getCacheFile(byte[] grammarText) {
+        if ("false".equalsIgnoreCase(properties.getProperty(CACHE_PROPERTY))) {
+            return null;
+        }
+        String directory = properties.getProperty(CACHE_DIRECTORY_PROPERTY);
+        File cacheDirectory = directory != null && !directory.trim().isEmpty()
+                ? new File(directory.trim())
+                : new File(System.getProperty("user.home"), ".yajco" + File.separator + "beaver-cache");
+        try {
+            if (!isPrivateDirectory(cacheDirectory.toPath())) {
+                System.out.println("WARNING: Beaver parser cache not used, directory " + cacheDirectory + " is not owned by the user or is writable by others");
+                return null;
+            }
+            return new File(cacheDirectory, digest(grammarText) + CACHE_FILE_SUFFIX);
+        } catch (IOException | NoSuchAlgorithmException e) {
+            System.out.println("WARNING: Beaver parser cache not used (" + e.getMessage() + ")");
+            return null;
+        }
+    }
+
+    /**
+     * Creates the directory readable only by the user if it does not exist, otherwise checks that it is owned by
+     * the user and others cannot write into it.
+     */
+    private static boolean isPrivateDirectory(Path directory) throws IOException {
+        boolean posix = directory.getFileSystem().supportedFileAttributeViews().contains("posix");
+        if (!Files.isDirectory(directory)) {
+            if (posix) {
+                Files.createDirectories(directory, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rwx------")));
+            } else {
+                Files.createDirectories(directory);
+            }
+        }
+        UserPrincipal user = directory.getFileSystem().getUserPrincipalLookupService().lookupPrincipalByName(System.getProperty("user.name"));
+        if (!user.equals(Files.getOwner(directory))) {
+            return false;
+        }
+        if (posix) {
+            Set<PosixFilePermission> permissions = Files.getPosixFilePermissions(directory);
+            return !permissions.contains(PosixFilePermission.GROUP_WRITE) && !permissions.contains(PosixFilePermission.OTHERS_WRITE);
+        }
+        return true;
+    }
+
+    private static String digest(byte[] grammarText) throws NoSuchAlgorithmException {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        digest.update(grammarText);
+        digest.update(String.valueOf(beaver.comp.ParserGenerator.class.getPackage().getImplementationVersion()).getBytes(StandardCharsets.UTF_8));
+        StringBuilder sb = new StringBuilder();
+        for (byte b : digest.digest()) {
+            sb.append(String.format("%02x", b));
+        }
+        return sb.toString();
+    }
+
+    private boolean isTablesResourceEnabled() {
+        return "true".equalsIgnoreCase(properties.getProperty(TABLES_RESOURCE_PROPERTY));
+    }
+
+    /**
+     * Writes parsing tables encoded in the string literal of the parser generated by Beaver into a binary resource
+     * next to the parser class and returns source of the parser loading them by {@link TablesResource}, which lets
+     * Beaver read the resource directly by {@code ParsingTables(Class)}. Big tables do not need to fit into the
+     * constant pool of the parser class and they are shared by class loaders.
+     */
+    private String moveTablesIntoResource(String parserSource, String parserPackageName, String parserClassName) throws IOException {
+        Matcher matcher = PARSING_TABLES_PATTERN.matcher(parserSource);
+        if (!matcher.find()) {
+            System.out.println("WARNING: Parsing tables not found in Beaver parser " + parserClassName + ", they stay in the parser class");
+            return parserSource;
+        }
+        StringBuilder spec = new StringBuilder();
+        Matcher literalMatcher = STRING_LITERAL_PATTERN.matcher(matcher.group(1));
+        while (literalMatcher.find()) {
+            spec.append(literalMatcher.group(1));
+        }
+        byte[] tables = TablesResource.decode(spec.toString());
+
+        String resourceName = parserClassName + TABLES_RESOURCE_SUFFIX;
+        FileObject fileObject = filer.createResource(StandardLocation.CLASS_OUTPUT, parserPackageName, resourceName);
+        try (OutputStream tablesStream = fileObject.openOutputStream()) {
+            tablesStream.write(tables);
+        }
+        System.out.println("Beaver parser " + parserClassName + " loads " + tables.length + " bytes of parsing tables from resource " + resourceName);
+
+        String loading = TablesResource.class.getName() + ".load(" + parserClassName + ".class, \"" + resourceName + "\", ParsingTables.class, ParsingTables::new)";
+        return parserSource.substring(0, matcher.start()) + loading + parserSource.substring(matcher.end());
+    }
+
+    /**
+     * Returns source of the parser stored in the cache file, or null if the file does not exist or was not created
+     * from the same grammar. The file contains the grammar, the parser source and a digest of both, so a file with
+     * a clashing name or a damaged file is not used.
+     */
+    private byte[] readFromCache(File cacheFile, byte[] grammarText) {
+        if (!cacheFile.isFile()) {
+            return null;
+        }
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(cacheFile)))) {
+            byte[] cachedGrammar = readBlock(input, cacheFile.length());
+            byte[] parserSource = readBlock(input, cacheFile.length());
+            byte[] cachedDigest = readBlock(input, cacheFile.length());
+            if (Arrays.equals(cachedGrammar, grammarText) && MessageDigest.isEqual(cachedDigest, contentDigest(cachedGrammar, parserSource))) {
+                return parserSource;
+            }
+            System.out.println("WARNING: Beaver parser cache file " + cacheFile + " does not match the grammar, it is not used");
+        } catch (IOException | NoSuchAlgorithmException e) {
+            System.out.println("WARNING: Cannot read Beaver parser from cache " + cacheFile + " (" + e + ")");
+        }
+        return null;
+    }
+
+    private static byte[] readBlock(DataInputStream input, long fileLength) throws IOException {
+        int length = input.readInt();
+        if (length < 0 || length > fileLength) {
+            throw new IOException("damaged cache file");
+        }
+        byte[] block = new byte[length];
+        input.readFully(block);
+        return block;
+    }
+
+    private void storeInCache(File parserFile, File cacheFile, byte[] grammarText) {
+        try {
+            Path cacheDirectory = cacheFile.getParentFile().toPath();
+            byte[] parserSource = Files.readAllBytes(parserFile.toPath());
+            byte[] digest = contentDigest(grammarText, parserSource);
+            // Other builds may read the cache at the same time, so the file appears only when it is complete.
+            Path temporaryFile = Files.createTempFile(cacheDirectory, "parser", ".tmp");
+            try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporaryFile)))) {
+                output.writeInt(grammarText.length);
+                output.write(grammarText);
+                output.writeInt(parserSource.length);
+                output.write(parserSource);
+                output.writeInt(digest.length);
+                output.write(digest);
+            }
+            Files.move(temporaryFile, cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | NoSuchAlgorithmException e) {
+            System.out.println("WARNING: Cannot store Beaver parser into cache " + cacheFile + " (" + e.getMessage() + ")");
+        }
+    }
+
+    private static byte[] contentDigest(byte[] grammarText, byte[] parserSource) throws NoSuchAlgorithmException {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        digest.update(grammarText);
+        digest.update(parserSource);
+        return digest.digest();
     }
 
     private String generateBeaverScannerClass(Grammar grammar, String parserClassName, String parserPackageName) throws IOException {
@@ -230,7 +462,7 @@ public class BeaverCompilerGenerator implements CompilerGenerator {
         context.put("defaultSymbolName", YajcoModelToBNFGrammarTranslator.DEFAULT_SYMBOL_NAME);
         context.put("Utilities", yajco.generator.util.Utilities.class);
         StringWriter writer = new StringWriter();
-        engine.evaluate(context, writer, "", new InputStreamReader(getClass().getResourceAsStream(BEAVER_SCANNER_CLASS_TEMPLATE)));
+        templateService.render(getClass(), BEAVER_SCANNER_CLASS_TEMPLATE, context, writer);
 
         return writer.toString();
     }
@@ -245,9 +477,9 @@ public class BeaverCompilerGenerator implements CompilerGenerator {
         context.put("referenceResolverClassName", referenceResolverClassName);
         StringWriter writer = new StringWriter();
         if (metalexerScanner) {
-            engine.evaluate(context, writer, "", new InputStreamReader(getClass().getResourceAsStream(BEAVER_PARSER_METALEXER_CLASS_TEMPLATE)));
+            templateService.render(getClass(), BEAVER_PARSER_METALEXER_CLASS_TEMPLATE, context, writer);
         } else {
-            engine.evaluate(context, writer, "", new InputStreamReader(getClass().getResourceAsStream(BEAVER_PARSER_CLASS_TEMPLATE)));
+            templateService.render(getClass(), BEAVER_PARSER_CLASS_TEMPLATE, context, writer);
         }
 
         return writer.toString();
@@ -257,7 +489,7 @@ public class BeaverCompilerGenerator implements CompilerGenerator {
         VelocityContext context = new VelocityContext();
         context.put("parserClassPackageName", parserClassPackageName);
         StringWriter writer = new StringWriter();
-        engine.evaluate(context, writer, "", new InputStreamReader(getClass().getResourceAsStream(BEAVER_PARSE_EXCEPTION_CLASS_TEMPLATE)));
+        templateService.render(getClass(), BEAVER_PARSE_EXCEPTION_CLASS_TEMPLATE, context, writer);
 
         return writer.toString();
     }
@@ -266,7 +498,7 @@ public class BeaverCompilerGenerator implements CompilerGenerator {
         VelocityContext context = new VelocityContext();
         context.put("parserPackageName", parserPackageName);
         StringWriter writer = new StringWriter();
-        engine.evaluate(context, writer, "", new InputStreamReader(getClass().getResourceAsStream(SYMBOL_LIST_IMPL_CLASS_TEMPLATE)));
+        templateService.render(getClass(), SYMBOL_LIST_IMPL_CLASS_TEMPLATE, context, writer);
 
         return writer.toString();
     }
@@ -275,7 +507,7 @@ public class BeaverCompilerGenerator implements CompilerGenerator {
         VelocityContext context = new VelocityContext();
         context.put("parserPackageName", parserPackageName);
         StringWriter writer = new StringWriter();
-        engine.evaluate(context, writer, "", new InputStreamReader(getClass().getResourceAsStream(SYMBOL_LINKED_HASH_SET_IMPL_CLASS_TEMPLATE)));
+        templateService.render(getClass(), SYMBOL_LINKED_HASH_SET_IMPL_CLASS_TEMPLATE, context, writer);
         return writer.toString();
     }
 
@@ -283,7 +515,7 @@ public class BeaverCompilerGenerator implements CompilerGenerator {
         VelocityContext context = new VelocityContext();
         context.put("parserPackageName", parserPackageName);
         StringWriter writer = new StringWriter();
-        engine.evaluate(context, writer, "", new InputStreamReader(getClass().getResourceAsStream(SYMBOL_LIST_IMPL_WITH_SHARED_CLASS_TEMPLATE)));
+        templateService.render(getClass(), SYMBOL_LIST_IMPL_WITH_SHARED_CLASS_TEMPLATE, context, writer);
 
         return writer.toString();
     }
@@ -292,7 +524,16 @@ public class BeaverCompilerGenerator implements CompilerGenerator {
         VelocityContext context = new VelocityContext();
         context.put("parserPackageName", parserPackageName);
         StringWriter writer = new StringWriter();
-        engine.evaluate(context, writer, "", new InputStreamReader(getClass().getResourceAsStream(QUOTED_STRING_UTILS_CLASS_TEMPLATE)));
+        templateService.render(getClass(), QUOTED_STRING_UTILS_CLASS_TEMPLATE, context, writer);
+
+        return writer.toString();
+    }
+
+    private String generateCollectionRangeUtilsClass(String parserPackageName) throws IOException {
+        VelocityContext context = new VelocityContext();
+        context.put("parserPackageName", parserPackageName);
+        StringWriter writer = new StringWriter();
+        templateService.render(getClass(), COLLECTION_RANGE_UTILS_CLASS_TEMPLATE, context, writer);
 
         return writer.toString();
     }
@@ -301,7 +542,7 @@ public class BeaverCompilerGenerator implements CompilerGenerator {
         VelocityContext context = new VelocityContext();
         context.put("parserPackageName", parserPackageName);
         StringWriter writer = new StringWriter();
-        engine.evaluate(context, writer, "", new InputStreamReader(getClass().getResourceAsStream(SYMBOL_HASH_MAP_IMPL_CLASS_TEMPLATE)));
+        templateService.render(getClass(), SYMBOL_HASH_MAP_IMPL_CLASS_TEMPLATE, context, writer);
 
         return writer.toString();
     }
@@ -310,7 +551,7 @@ public class BeaverCompilerGenerator implements CompilerGenerator {
         VelocityContext context = new VelocityContext();
         context.put("parserPackageName", parserPackageName);
         StringWriter writer = new StringWriter();
-        engine.evaluate(context, writer, "", new InputStreamReader(getClass().getResourceAsStream(SYMBOL_UNORDERED_PARAM_CLASS_TEMPLATE)));
+        templateService.render(getClass(), SYMBOL_UNORDERED_PARAM_CLASS_TEMPLATE, context, writer);
 
         return writer.toString();
     }
@@ -321,7 +562,7 @@ public class BeaverCompilerGenerator implements CompilerGenerator {
         VelocityContext context = new VelocityContext();
         context.put("parserPackageName", parserPackageName);
         StringWriter writer = new StringWriter();
-        engine.evaluate(context, writer, "", new InputStreamReader(getClass().getResourceAsStream(SYMBOL_WRAPPER_CLASS_TEMPLATE)));
+        templateService.render(getClass(), SYMBOL_WRAPPER_CLASS_TEMPLATE, context, writer);
 
         return writer.toString();
     }
@@ -38,6 +38,11 @@ public class BeaverParserGenerator {
     }
 
     public void generateFrom(Language language, Grammar grammar, String parserPackageName, String parserClassName, PrintStream writer) {
+        // Generation state is kept by a new generator, so the shared instance can be used concurrently
+        new BeaverParserGenerator().generate(language, grammar, parserPackageName, parserClassName, writer);
+    }
+
+    private void generate(Language language, Grammar grammar, String parserPackageName, String parserClassName, PrintStream writer) {
         this.language = language;
         this.grammar = grammar;
         this.operatorTerminalsUsed = new HashSet<TerminalSymbol>();
@@ -82,6 +87,7 @@ public class BeaverParserGenerator {
         writer.println("%import \"" + parserPackageName + ".SymbolLinkedHashSetImpl\";");
         writer.println("%import \"" + parserPackageName + ".SymbolListImplWithShared\";");
         writer.println("%import \"" + parserPackageName + ".QuotedStringUtils\";");
+        writer.println("%import \"" + parserPackageName + ".CollectionRangeUtils\";");
         writer.println("%import \"" + parserPackageName + ".SymbolHashMapImpl\";");
         writer.println("%import \"" + parserPackageName + ".SymbolUnorderedParam\";");
         //DOMINIK TEST
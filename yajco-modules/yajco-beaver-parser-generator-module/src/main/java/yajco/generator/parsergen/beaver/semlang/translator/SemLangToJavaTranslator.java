@@ -28,6 +28,11 @@ public class SemLangToJavaTranslator {
             throw new NullPointerException("Parameter 'writer' cann't be null!");
         }
 
+        // Translation state is kept by a new translator, so the shared instance can be used concurrently
+        new SemLangToJavaTranslator().translateActionsOf(actions, language, writer);
+    }
+
+    private void translateActionsOf(List<Action> actions, Language language, PrintStream writer) {
         this.language = language;
 //        String parserPackageName = this.language.getName() != null ? this.language.getName() + "." + BeaverParserGenerator.DEFAULT_PACKAGE_NAME : BeaverParserGenerator.DEFAULT_PACKAGE_NAME;
         for (Action action : actions) {
@@ -93,6 +98,9 @@ public class SemLangToJavaTranslator {
             case CONVERT_UNORDERED_PARAMS_TO_OBJECT:
                 translateConvertUnorderedParamsToObjectAction((ConvertUnorderedParamsToObjectAction) action, writer);
                 break;
+            case CHECK_COLLECTION_SIZE:
+                translateCheckCollectionSizeAction((CheckCollectionSizeAction) action, writer);
+                break;
             default:
                 throw new IllegalArgumentException("Unknown SemLang action detected: '" + action.getClass().getCanonicalName() + "'!");
         }
@@ -321,6 +329,13 @@ public class SemLangToJavaTranslator {
         writer.print(", \"" + action.getVarName() + "\")");
     }
 
+    private void translateCheckCollectionSizeAction(CheckCollectionSizeAction action, PrintStream writer) {
+        // The symbol itself is passed, its position is reported in the parse error.
+        writer.print("CollectionRangeUtils.checkSize(");
+        translateLValue(action.getRValue(), writer);
+        writer.print(", " + action.getMinOccurs() + ", " + action.getMaxOccurs() + ")");
+    }
+
     private void translateCreateEnumInstanceAction(CreateEnumInstanceAction action, PrintStream writer) {
         writer.print(action.getEnumType());
         writer.print(".");
@@ -43,13 +43,18 @@ public abstract class AbstractFileGenerator implements FilesGenerator {
     }
 
     public void generate(Language language, File file) {
+        long start = System.nanoTime();
         Writer writer = null;
         try {
             writer = new OutputStreamWriter(new FileOutputStream(file), Charset.forName("UTF-8"));
             generate(language, writer);
+            // File has to be complete before it is formatted.
+            writer.close();
+            writer = null;
             if (file.getName().toLowerCase().endsWith(".class")) {
-                Utilities.formatCode(file);
+                Utilities.formatCode(file, properties);
             }
+            System.out.println("Generated file " + file.getName() + " in " + (System.nanoTime() - start) / 1000000L + " ms");
         } catch (IOException ex) {
             throw new GeneratorException("Cannot write to file " + file.getAbsolutePath() + " (" + ex.getMessage() + ")", ex);
         } finally {
@@ -0,0 +1,20 @@
+package yajco.generator.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Parsing algorithm of parsers generated by a compiler generator, it is used to choose among several compiler
+ * generators found on the classpath.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface ParsingAlgorithm {
+    Algorithm value();
+
+    enum Algorithm {
+        LALR1, LL_K, ALL_STAR
+    }
+}
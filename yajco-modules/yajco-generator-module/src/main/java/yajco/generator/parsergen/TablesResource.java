@@ -0,0 +1,76 @@
+package yajco.generator.parsergen;
+
+import java.net.URL;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+/**
+ * Parsing tables stored as a binary resource next to the generated parser instead of an encoded string literal.
+ * The resource contains the compressed tables as Beaver encodes them into its string literal, without the text
+ * encoding, so Beaver reads it by its own specification loading of {@code ParsingTables(Class)}.
+ * Tables are shared by all class loaders which load the same resource and the same tables class, so a language
+ * loaded by several class loaders decodes its tables only once.
+ */
+public class TablesResource {
+
+    private static final String ENCODING = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz#$";
+    private static final ClassValue<ConcurrentMap<String, Object>> SHARED_TABLES = new ClassValue<ConcurrentMap<String, Object>>() {
+        @Override
+        protected ConcurrentMap<String, Object> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<String, Object>();
+        }
+    };
+
+    private TablesResource() {
+    }
+
+    /**
+     * Returns tables from the resource, creating them by the factory only if they were not created yet. Tables
+     * are shared by location of the resource, class loaders loading the parser from the same place share them.
+     *
+     * @param owner class near which the resource is located
+     * @param name name of the resource relative to the owner
+     * @param type class of the tables, tables are shared only among users of the same class
+     * @param factory creates tables from the resource of the owner class
+     */
+    public static <T> T load(Class<?> owner, String name, Class<T> type, Function<Class<?>, T> factory) {
+        URL url = owner.getResource(name);
+        if (url == null) {
+            throw new IllegalStateException("Parsing tables " + name + " of " + owner.getName() + " not found");
+        }
+        Object tables = SHARED_TABLES.get(type).computeIfAbsent(url.toString(), k -> factory.apply(owner));
+        return type.cast(tables);
+    }
+
+    /**
+     * Decodes the string literal of Beaver parsing tables into bytes stored in the resource.
+     */
+    public static byte[] decode(String spec) {
+        if (spec.length() % 4 != 0) {
+            throw new IllegalArgumentException("Encoded parsing tables have wrong length " + spec.length());
+        }
+        int padding = spec.endsWith("==") ? 2 : spec.endsWith("=") ? 1 : 0;
+        byte[] bytes = new byte[spec.length() / 4 * 3 - padding];
+        int index = 0;
+        for (int i = 0; i < spec.length(); i += 4) {
+            int group = decode(spec.charAt(i)) << 18 | decode(spec.charAt(i + 1)) << 12
+                    | decode(spec.charAt(i + 2)) << 6 | decode(spec.charAt(i + 3));
+            for (int shift = 16; shift >= 0 && index < bytes.length; shift -= 8) {
+                bytes[index++] = (byte) (group >> shift);
+            }
+        }
+        return bytes;
+    }
+
+    private static int decode(char c) {
+        if (c == '=') {
+            return 0;
+        }
+        int value = ENCODING.indexOf(c);
+        if (value < 0) {
+            throw new IllegalArgumentException("Illegal character '" + c + "' in encoded parsing tables");
+        }
+        return value;
+    }
+}
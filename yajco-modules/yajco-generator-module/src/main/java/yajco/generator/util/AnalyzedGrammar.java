@@ -0,0 +1,73 @@
+package yajco.generator.util;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.WeakHashMap;
+import yajco.grammar.analysis.GrammarAnalysis;
+import yajco.grammar.analysis.GrammarAnalyzer;
+import yajco.grammar.bnf.Grammar;
+import yajco.grammar.optimizer.GrammarOptimizer;
+import yajco.grammar.translator.YajcoModelToBNFGrammarTranslator;
+import yajco.model.Language;
+
+/**
+ * BNF grammar of a language, translated, optimized and analyzed only once for the language. It is shared by
+ * {@link CompilerGeneratorSelector}, compiler generators and tools, which all run on the finished language.
+ * The grammar must not be changed by its users and the language must not be changed after the grammar is
+ * obtained, otherwise a new language object has to be used.
+ */
+public class AnalyzedGrammar {
+
+    private static final Map<Language, AnalyzedGrammar> grammars = Collections.synchronizedMap(new WeakHashMap<Language, AnalyzedGrammar>());
+
+    private final boolean optimized;
+    private final Grammar grammar;
+    private final Map<Integer, GrammarAnalysis> analyses = new HashMap<Integer, GrammarAnalysis>();
+
+    private AnalyzedGrammar(Language language, boolean optimized) {
+        this.optimized = optimized;
+        this.grammar = YajcoModelToBNFGrammarTranslator.getInstance().translate(language);
+        if (optimized) {
+            GrammarOptimizer.Report report = new GrammarOptimizer().optimize(grammar);
+            System.out.println(report);
+        }
+    }
+
+    /**
+     * Returns grammar of the language, optimized unless the optimization is disabled by properties.
+     */
+    public static Grammar getGrammar(Language language, Properties properties) {
+        return get(language, properties).grammar;
+    }
+
+    /**
+     * Returns analysis of the grammar returned by {@link #getGrammar(Language, Properties)}.
+     *
+     * @param maxLookahead the biggest lookahead analyzed for LL decisions
+     */
+    public static GrammarAnalysis getAnalysis(Language language, Properties properties, int maxLookahead) {
+        AnalyzedGrammar analyzedGrammar = get(language, properties);
+        synchronized (analyzedGrammar.analyses) {
+            GrammarAnalysis analysis = analyzedGrammar.analyses.get(maxLookahead);
+            if (analysis == null) {
+                analysis = new GrammarAnalyzer(maxLookahead).analyze(analyzedGrammar.grammar);
+                analyzedGrammar.analyses.put(maxLookahead, analysis);
+            }
+            return analysis;
+        }
+    }
+
+    private static AnalyzedGrammar get(Language language, Properties properties) {
+        boolean optimized = GrammarOptimizer.isEnabled(properties);
+        synchronized (grammars) {
+            AnalyzedGrammar analyzedGrammar = grammars.get(language);
+            if (analyzedGrammar == null || analyzedGrammar.optimized != optimized) {
+                analyzedGrammar = new AnalyzedGrammar(language, optimized);
+                grammars.put(language, analyzedGrammar);
+            }
+            return analyzedGrammar;
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package yajco.generator.util;
+
+import de.hunsicker.jalopy.Jalopy;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import yajco.generator.GeneratorException;
+
+/**
+ * Formats generated Java sources by Jalopy. Files passed to {@link Utilities#formatCode(File, Properties)} while a generator
+ * runs through {@link #run(Runnable)} are only collected and formatted together on a thread pool when all
+ * generators have finished, see {@link #formatAll(int)}.
+ * <p>
+ * Formatting is turned off by setting 'yajco.generator.format' property to false, generated files then keep
+ * the indentation of their templates.
+ */
+public class CodeFormatter {
+
+    public static final String FORMAT_PROPERTY = "yajco.generator.format";
+
+    private static final ThreadLocal<CodeFormatter> current = new ThreadLocal<CodeFormatter>();
+    // Jalopy instances are not thread-safe.
+    private static final ThreadLocal<Jalopy> jalopy = new ThreadLocal<Jalopy>();
+
+    private final boolean enabled;
+    private final Set<File> files = new LinkedHashSet<File>();
+
+    public CodeFormatter(Properties properties) {
+        this.enabled = isEnabled(properties);
+    }
+
+    /**
+     * Returns false if formatting is turned off in the properties, null properties keep formatting on.
+     */
+    public static boolean isEnabled(Properties properties) {
+        return properties == null || !"false".equalsIgnoreCase(properties.getProperty(FORMAT_PROPERTY, "").trim());
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Runs the task, files it asks to format in the current thread are collected by this formatter.
+     */
+    public void run(Runnable task) {
+        CodeFormatter previous = current.get();
+        current.set(this);
+        try {
+            task.run();
+        } finally {
+            if (previous != null) {
+                current.set(previous);
+            } else {
+                current.remove();
+            }
+        }
+    }
+
+    /**
+     * Formats the file later if it is generated inside {@link #run(Runnable)}, otherwise immediately. Outside
+     * {@link #run(Runnable)} the file is formatted only if formatting is not turned off in the given properties.
+     */
+    static void formatOrSchedule(File file, Properties properties) {
+        CodeFormatter formatter = current.get();
+        if (formatter == null) {
+            if (isEnabled(properties)) {
+                format(file);
+            }
+        } else if (formatter.enabled) {
+            synchronized (formatter.files) {
+                formatter.files.add(file);
+            }
+        }
+    }
+
+    /**
+     * Formats all collected files and reports time spent on each of them.
+     *
+     * @param threads maximal number of threads used for formatting
+     */
+    public void formatAll(int threads) {
+        final List<File> pending;
+        synchronized (files) {
+            pending = new ArrayList<File>(files);
+            files.clear();
+        }
+        if (pending.isEmpty()) {
+            return;
+        }
+        threads = Math.max(1, Math.min(threads, pending.size()));
+        System.out.println("Formatting " + pending.size() + " generated files on " + threads + " threads");
+        if (threads == 1) {
+            for (File file : pending) {
+                formatAndReport(file);
+            }
+            return;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<Future<?>>();
+            for (final File file : pending) {
+                futures.add(executor.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        formatAndReport(file);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new GeneratorException("Cannot format generated code (" + e.getCause().getMessage() + ")", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GeneratorException("Formatting of generated code interrupted", e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void formatAndReport(File file) {
+        long start = System.nanoTime();
+        format(file);
+        System.out.println("Formatted file " + file.getName() + " in " + (System.nanoTime() - start) / 1000000L + " ms");
+    }
+
+    private static void format(File file) {
+        try {
+            Jalopy j = jalopy.get();
+            if (j == null) {
+                j = new Jalopy();
+                jalopy.set(j);
+            }
+            j.setInput(file);
+            j.setOutput(file);
+            j.format();
+        } catch (FileNotFoundException ex) {
+            throw new GeneratorException("File " + file.getAbsolutePath() + " is not available", ex);
+        }
+    }
+}
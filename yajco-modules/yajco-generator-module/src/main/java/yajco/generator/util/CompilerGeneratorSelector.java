@@ -0,0 +1,210 @@
+package yajco.generator.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import yajco.generator.GeneratorException;
+import yajco.generator.annotation.ParsingAlgorithm;
+import yajco.generator.parsergen.CompilerGenerator;
+import yajco.grammar.NonterminalSymbol;
+import yajco.grammar.analysis.GrammarAnalysis;
+import yajco.grammar.analysis.GrammarAnalyzer;
+import yajco.grammar.bnf.Alternative;
+import yajco.grammar.bnf.Grammar;
+import yajco.grammar.bnf.Production;
+import yajco.model.Language;
+
+/**
+ * Chooses one of several compiler generators by the grammar of the language. The grammar is analyzed by
+ * {@link GrammarAnalyzer}, the analyzed grammar is shared with the generators by {@link AnalyzedGrammar}. Every
+ * compiler generator gets an estimated relative parsing cost by its
+ * {@link ParsingAlgorithm}:
+ * <ul>
+ * <li>LALR(1) parsers are cheapest, unless the grammar has unresolved LALR(1) conflicts. Big parsing tables
+ * make them slightly more expensive.</li>
+ * <li>LL(k) parsers are cheap for LL(1) grammars, every additional token of lookahead and every level of
+ * operator priority makes them more expensive. They cannot be used if some decision needs more lookahead than
+ * analyzed. Operators and sequences are not counted, LL parser generators translate them without left
+ * recursion.</li>
+ * <li>ALL(*) parsers handle every grammar, adaptive prediction makes them more expensive than the others.</li>
+ * </ul>
+ * The compiler generator is pinned by 'yajco.compilerGenerator' property, either by its qualified or simple
+ * class name. The choice and its reasons are stored into 'yajco.compilerGenerator.selection' setting of the
+ * language and into properties. Only estimates of the compiler generators and the choice are printed, the whole
+ * analysis is reported by the grammar analysis tool of yajco-generator-tools.
+ */
+public class CompilerGeneratorSelector {
+
+    public static final String COMPILER_GENERATOR_PROPERTY = "yajco.compilerGenerator";
+    public static final String SELECTION_SETTING = "yajco.compilerGenerator.selection";
+
+    public CompilerGenerator select(List<CompilerGenerator> compilerGenerators, Language language, Properties properties) {
+        if (compilerGenerators.isEmpty()) {
+            return null;
+        }
+        String pinned = properties.getProperty(COMPILER_GENERATOR_PROPERTY, "").trim();
+        if (!pinned.isEmpty()) {
+            for (CompilerGenerator compilerGenerator : compilerGenerators) {
+                if (pinned.equals(compilerGenerator.getClass().getName()) || pinned.equals(compilerGenerator.getClass().getSimpleName())) {
+                    record(compilerGenerator, "pinned by property " + COMPILER_GENERATOR_PROPERTY, language, properties);
+                    return compilerGenerator;
+                }
+            }
+            List<String> names = new ArrayList<String>();
+            for (CompilerGenerator compilerGenerator : compilerGenerators) {
+                names.add(compilerGenerator.getClass().getName());
+            }
+            throw new GeneratorException("Compiler generator " + pinned + " set by property " + COMPILER_GENERATOR_PROPERTY + " is not in class path, found " + names);
+        }
+        if (compilerGenerators.size() == 1) {
+            return compilerGenerators.get(0);
+        }
+
+        Grammar grammar;
+        GrammarAnalysis analysis;
+        try {
+            grammar = AnalyzedGrammar.getGrammar(language, properties);
+            analysis = AnalyzedGrammar.getAnalysis(language, properties, GrammarAnalyzer.DEFAULT_MAX_LOOKAHEAD);
+        } catch (RuntimeException e) {
+            System.out.println("WARNING: Cannot analyze grammar to select compiler generator (" + e.getMessage() + "), using the first one found");
+            record(compilerGenerators.get(0), "grammar analysis failed", language, properties);
+            return compilerGenerators.get(0);
+        }
+
+        Estimate best = null;
+        for (CompilerGenerator compilerGenerator : compilerGenerators) {
+            Estimate estimate = estimate(compilerGenerator, grammar, analysis);
+            System.out.println("Compiler generator " + compilerGenerator.getClass().getName() + ": " + estimate);
+            if (best == null || estimate.cost < best.cost) {
+                best = estimate;
+            }
+        }
+        if (best.cost == Double.POSITIVE_INFINITY) {
+            System.out.println("WARNING: No compiler generator can handle the grammar without conflicts, using the first one found");
+        }
+        record(best.compilerGenerator, best.toString(), language, properties);
+        return best.compilerGenerator;
+    }
+
+    private Estimate estimate(CompilerGenerator compilerGenerator, Grammar grammar, GrammarAnalysis analysis) {
+        Estimate estimate = new Estimate(compilerGenerator);
+        ParsingAlgorithm algorithm = compilerGenerator.getClass().getAnnotation(ParsingAlgorithm.class);
+        int operatorLevels = grammar.getOperatorPool().size();
+        if (algorithm == null) {
+            estimate.add(2.0, "unknown parsing algorithm");
+            return estimate;
+        }
+        switch (algorithm.value()) {
+            case LALR1:
+                if (analysis.isLALR1()) {
+                    estimate.add(1.0, "LALR(1) without unresolved conflicts");
+                    estimate.add(analysis.getLalrStates() / 5000.0, analysis.getLalrStates() + " parser states");
+                    if (operatorLevels > 0) {
+                        estimate.reason(operatorLevels + " operator priorities resolved in parsing table");
+                    }
+                } else {
+                    estimate.add(Double.POSITIVE_INFINITY, analysis.getUnresolvedConflictCount() + " unresolved LALR(1) conflicts");
+                }
+                break;
+            case LL_K:
+                int lookahead = getLLLookahead(grammar, analysis, estimate);
+                if (lookahead < 0) {
+                    estimate.add(Double.POSITIVE_INFINITY, "decisions need more than " + analysis.getMaxLookahead() + " tokens of lookahead");
+                } else {
+                    estimate.add(1.0 + 0.5 * (lookahead - 1), "LL(" + lookahead + ")");
+                    if (operatorLevels > 0) {
+                        estimate.add(0.1 * operatorLevels, operatorLevels + " operator priorities need a nested call each");
+                    }
+                }
+                break;
+            case ALL_STAR:
+                estimate.add(1.3, "adaptive prediction handles any lookahead");
+                if (analysis.getRequiredLookahead() != 1) {
+                    estimate.add(0.2, "prediction needs more than one token");
+                }
+                if (operatorLevels > 0) {
+                    estimate.add(0.05 * operatorLevels, operatorLevels + " operator priorities in one left recursive rule");
+                }
+                break;
+        }
+        return estimate;
+    }
+
+    /**
+     * Returns lookahead of the hardest decision an LL parser generator has to make, or -1 if it is too big.
+     * Decisions among operators and in sequences are skipped, they are translated without left recursion.
+     */
+    private int getLLLookahead(Grammar grammar, GrammarAnalysis analysis, Estimate estimate) {
+        Set<String> skipped = new HashSet<String>();
+        for (NonterminalSymbol nonterminal : grammar.getSequenceNonterminals()) {
+            skipped.add(nonterminal.getName());
+        }
+        Set<Alternative> operatorAlternatives = Collections.newSetFromMap(new IdentityHashMap<Alternative, Boolean>());
+        for (List<Alternative> alternatives : grammar.getOperatorPool().values()) {
+            operatorAlternatives.addAll(alternatives);
+        }
+        for (Map.Entry<NonterminalSymbol, Production> entry : grammar.getProductions().entrySet()) {
+            for (Alternative alternative : entry.getValue().getRhs()) {
+                if (operatorAlternatives.contains(alternative)) {
+                    skipped.add(entry.getKey().getName());
+                }
+            }
+        }
+
+        int lookahead = 1;
+        for (GrammarAnalysis.Decision decision : analysis.getDecisions()) {
+            if (skipped.contains(decision.getNonterminal())) {
+                continue;
+            }
+            if (decision.isLeftRecursive() || decision.getLookahead() < 0) {
+                estimate.reason("decision in " + decision.getNonterminal() + (decision.isLeftRecursive() ? " is left recursive" : " needs backtracking"));
+                return -1;
+            }
+            lookahead = Math.max(lookahead, decision.getLookahead());
+        }
+        return lookahead;
+    }
+
+    private static void record(CompilerGenerator compilerGenerator, String reasons, Language language, Properties properties) {
+        String selection = compilerGenerator.getClass().getName() + " (" + reasons + ")";
+        System.out.println("Compiler generator selection: " + selection);
+        language.setSetting(SELECTION_SETTING, selection);
+        // Settings of the language are later replaced by properties in the annotation processor.
+        properties.setProperty(SELECTION_SETTING, selection);
+    }
+
+    private static class Estimate {
+        private final CompilerGenerator compilerGenerator;
+        private final List<String> reasons = new ArrayList<String>();
+        private double cost;
+
+        Estimate(CompilerGenerator compilerGenerator) {
+            this.compilerGenerator = compilerGenerator;
+        }
+
+        void add(double cost, String reason) {
+            this.cost += cost;
+            reasons.add(reason);
+        }
+
+        void reason(String reason) {
+            reasons.add(reason);
+        }
+
+        @Override
+        public String toString() {
+            String costText = cost == Double.POSITIVE_INFINITY ? "not applicable" : String.format(Locale.ROOT, "estimated cost %.2f", cost);
+            StringBuilder sb = new StringBuilder(costText);
+            for (String reason : reasons) {
+                sb.append(", ").append(reason);
+            }
+            return sb.toString();
+        }
+    }
+}
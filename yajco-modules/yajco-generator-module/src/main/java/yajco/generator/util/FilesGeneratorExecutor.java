@@ -0,0 +1,164 @@
+package yajco.generator.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.processing.Filer;
+import yajco.generator.FilesGenerator;
+import yajco.generator.GeneratorException;
+import yajco.generator.annotation.DependsOn;
+import yajco.model.Language;
+import yajco.model.utilities.XMLLanguageFormatHelper;
+
+/**
+ * Runs files generators on a bounded thread pool. A generator starts when all generators it depends on
+ * (see {@link DependsOn}) have finished. Each generator works on its own copy of the language and all of them
+ * share one synchronized filer.
+ * <p>
+ * Number of threads is set by 'yajco.generator.threads' property, by default it is the number of processors.
+ * With one thread generators run sequentially in the calling thread on the original language.
+ * <p>
+ * Generated sources are formatted when all generators have finished, see {@link CodeFormatter}.
+ */
+public class FilesGeneratorExecutor {
+
+    public static final String THREADS_PROPERTY = "yajco.generator.threads";
+
+    public static void generateFiles(Collection<FilesGenerator> generators, Language language, Filer filer, Properties properties) {
+        List<FilesGenerator> orderedGenerators = orderByDependencies(generators);
+        final CodeFormatter formatter = new CodeFormatter(properties);
+        int threads = Math.min(getThreadCount(properties), orderedGenerators.size());
+        if (threads <= 1) {
+            for (final FilesGenerator filesGenerator : orderedGenerators) {
+                formatter.run(new Runnable() {
+                    @Override
+                    public void run() {
+                        filesGenerator.generateFiles(language, filer, properties);
+                    }
+                });
+            }
+            formatter.formatAll(getThreadCount(properties));
+            return;
+        }
+
+        System.out.println("Running " + orderedGenerators.size() + " generators on " + threads + " threads");
+        ExecutorService executor = Executors.newFixedThreadPool(threads, new GeneratorThreadFactory());
+        Filer synchronizedFiler = new SynchronizedFiler(filer);
+        Map<String, CompletableFuture<Void>> futures = new LinkedHashMap<String, CompletableFuture<Void>>();
+        try {
+            for (final FilesGenerator filesGenerator : orderedGenerators) {
+                // Dependencies precede the generator, so their futures already exist.
+                List<CompletableFuture<Void>> dependencies = new ArrayList<CompletableFuture<Void>>();
+                for (String name : getDependencies(filesGenerator)) {
+                    if (futures.containsKey(name)) {
+                        dependencies.add(futures.get(name));
+                    }
+                }
+                CompletableFuture<Void> future = CompletableFuture
+                        .allOf(dependencies.toArray(new CompletableFuture<?>[dependencies.size()]))
+                        .thenRunAsync(new Runnable() {
+                            @Override
+                            public void run() {
+                                formatter.run(new Runnable() {
+                                    @Override
+                                    public void run() {
+                                        filesGenerator.generateFiles(XMLLanguageFormatHelper.copy(language), synchronizedFiler, properties);
+                                    }
+                                });
+                            }
+                        }, executor);
+                futures.put(getName(filesGenerator), future);
+            }
+            CompletableFuture.allOf(futures.values().toArray(new CompletableFuture<?>[futures.size()])).join();
+            formatter.formatAll(getThreadCount(properties));
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new GeneratorException("Generator failed (" + cause.getMessage() + ")", cause);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Orders generators so that every generator follows generators it depends on.
+     */
+    static List<FilesGenerator> orderByDependencies(Collection<FilesGenerator> generators) {
+        Map<String, FilesGenerator> generatorsByName = new LinkedHashMap<String, FilesGenerator>();
+        for (FilesGenerator filesGenerator : generators) {
+            generatorsByName.put(getName(filesGenerator), filesGenerator);
+        }
+        List<FilesGenerator> ordered = new ArrayList<FilesGenerator>();
+        Set<String> done = new HashSet<String>();
+        for (String name : generatorsByName.keySet()) {
+            addWithDependencies(name, generatorsByName, done, new HashSet<String>(), ordered);
+        }
+        return ordered;
+    }
+
+    private static void addWithDependencies(String name, Map<String, FilesGenerator> generatorsByName, Set<String> done, Set<String> visiting, List<FilesGenerator> ordered) {
+        FilesGenerator filesGenerator = generatorsByName.get(name);
+        if (filesGenerator == null || done.contains(name)) {
+            return;
+        }
+        if (!visiting.add(name)) {
+            throw new GeneratorException("Cyclic dependency of generators: " + visiting);
+        }
+        for (String dependency : getDependencies(filesGenerator)) {
+            addWithDependencies(dependency, generatorsByName, done, visiting, ordered);
+        }
+        visiting.remove(name);
+        done.add(name);
+        ordered.add(filesGenerator);
+    }
+
+    private static String[] getDependencies(FilesGenerator filesGenerator) {
+        DependsOn dependsOn = filesGenerator.getClass().getAnnotation(DependsOn.class);
+        return dependsOn != null ? dependsOn.value() : new String[0];
+    }
+
+    private static String getName(FilesGenerator filesGenerator) {
+        return filesGenerator.getClass().getCanonicalName();
+    }
+
+    private static int getThreadCount(Properties properties) {
+        String value = properties.getProperty(THREADS_PROPERTY);
+        if (value == null || value.trim().isEmpty()) {
+            return Runtime.getRuntime().availableProcessors();
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new GeneratorException("Property " + THREADS_PROPERTY + " should be a number, not '" + value + "'", e);
+        }
+    }
+
+    private static class GeneratorThreadFactory implements ThreadFactory {
+        private final AtomicInteger counter = new AtomicInteger();
+        // Generators find templates and services also by the context class loader.
+        private final ClassLoader contextClassLoader = Thread.currentThread().getContextClassLoader();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "yajco-generator-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            thread.setContextClassLoader(contextClassLoader);
+            return thread;
+        }
+    }
+}
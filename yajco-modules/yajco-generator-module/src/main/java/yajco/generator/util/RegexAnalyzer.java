@@ -0,0 +1,472 @@
+package yajco.generator.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+import yajco.generator.GeneratorException;
+import yajco.model.Language;
+import yajco.model.SkipDef;
+import yajco.model.TokenDef;
+
+/**
+ * Checks regular expressions of tokens and skips before the lexer is generated. Generated lexers try every
+ * pattern by backtracking {@link java.util.regex} on every token, so a badly written regular expression makes
+ * lexing slow on hostile input. Reported findings:
+ * <ul>
+ * <li>Catastrophic backtracking: a repetition inside another repetition which can match the same characters
+ * (e.g. {@code (a+)+}), repeated alternatives matching the same characters (e.g. {@code (\w|\d)*}) and
+ * adjacent repetitions of the same characters (e.g. {@code \d+\d*}).</li>
+ * <li>Tokens shadowed by earlier tokens, every string of the token is matched by an earlier token, which wins
+ * ties of the longest match. It is decided only for tokens matching a finite number of strings.</li>
+ * <li>Skips overlapping tokens, a skip consumes the beginning of a token string, and skips matching the empty
+ * string.</li>
+ * </ul>
+ * Findings are printed, the build fails if a finding is at least as severe as 'yajco.regex.analysis.failOn'
+ * property (WARNING or ERROR). Analysis is disabled by setting 'yajco.regex.analysis' to false.
+ */
+public class RegexAnalyzer {
+
+    public static final String ANALYSIS_PROPERTY = "yajco.regex.analysis";
+    public static final String FAIL_ON_PROPERTY = "yajco.regex.analysis.failOn";
+    private static final int MAX_STRINGS = 1000;
+
+    public enum Severity {
+        INFO, WARNING, ERROR
+    }
+
+    public static boolean isEnabled(Properties properties) {
+        return properties == null || !"false".equalsIgnoreCase(properties.getProperty(ANALYSIS_PROPERTY, "").trim());
+    }
+
+    /**
+     * Analyzes the language, prints findings and fails if some of them are too severe.
+     *
+     * @throws GeneratorException if there is a finding at least as severe as set by 'yajco.regex.analysis.failOn'
+     */
+    public static void check(Language language, Properties properties) {
+        Severity failOn = getFailOn(properties);
+        List<Finding> findings = new RegexAnalyzer().analyze(language);
+        int failing = 0;
+        for (Finding finding : findings) {
+            System.out.println(finding.getSeverity() == Severity.INFO ? finding.toString() : "WARNING: " + finding);
+            if (failOn != null && finding.getSeverity().compareTo(failOn) >= 0) {
+                failing++;
+            }
+        }
+        System.out.println("Regex analysis: " + language.getTokens().size() + " tokens, " + language.getSkips().size() + " skips, " + findings.size() + " findings");
+        if (failing > 0) {
+            throw new GeneratorException(failing + " findings of regular expressions are " + failOn + " or worse, build fails by property " + FAIL_ON_PROPERTY);
+        }
+    }
+
+    private static Severity getFailOn(Properties properties) {
+        String value = properties != null ? properties.getProperty(FAIL_ON_PROPERTY, "").trim() : "";
+        if (value.isEmpty()) {
+            return null;
+        }
+        try {
+            return Severity.valueOf(value.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new GeneratorException("Property " + FAIL_ON_PROPERTY + " should be one of INFO, WARNING or ERROR, not '" + value + "'", e);
+        }
+    }
+
+    public List<Finding> analyze(Language language) {
+        List<Finding> findings = new ArrayList<Finding>();
+        List<Analyzed> tokens = new ArrayList<Analyzed>();
+        List<Analyzed> skips = new ArrayList<Analyzed>();
+        for (TokenDef tokenDef : language.getTokens()) {
+            Analyzed token = parse("token " + tokenDef.getName(), tokenDef.getRegexp(), findings);
+            if (token != null) {
+                tokens.add(token);
+            }
+        }
+        for (SkipDef skipDef : language.getSkips()) {
+            Analyzed skip = parse("skip", skipDef.getRegexp(), findings);
+            if (skip != null) {
+                skips.add(skip);
+            }
+        }
+
+        for (Analyzed token : tokens) {
+            checkBacktracking(token, findings);
+        }
+        for (Analyzed skip : skips) {
+            checkBacktracking(skip, findings);
+            checkEmptySkip(skip, findings);
+        }
+        for (int i = 0; i < tokens.size(); i++) {
+            checkShadowing(tokens, i, findings);
+        }
+        for (Analyzed skip : skips) {
+            for (Analyzed token : tokens) {
+                checkOverlap(skip, token, findings);
+            }
+        }
+        return findings;
+    }
+
+    /**
+     * Returns why a lexer taking the longest match of the regular expression (e.g. native ANTLR4 lexer) can match
+     * a different string than {@link java.util.regex}, which takes the first match found by backtracking, or null
+     * if both match the same string. Alternatives starting with the same characters and repetitions which can
+     * give characters back to what follows them are reported, the check is conservative.
+     */
+    public static String findLongestMatchDifference(String regex) {
+        RegexTree tree;
+        try {
+            tree = new RegexTree(regex);
+        } catch (RuntimeException e) {
+            return "cannot be analyzed (" + e.getMessage() + ")";
+        }
+        return findLongestMatchDifference(tree, tree.getRoot(), RegexTree.Chars.none());
+    }
+
+    /**
+     * @param follow characters which can start a match of what follows the node
+     */
+    private static String findLongestMatchDifference(RegexTree tree, RegexTree.Node node, RegexTree.Chars follow) {
+        if (node instanceof RegexTree.Alternation) {
+            List<RegexTree.Node> alternatives = node.children();
+            for (int i = 0; i < alternatives.size(); i++) {
+                for (int j = i + 1; j < alternatives.size(); j++) {
+                    RegexTree.Node first = alternatives.get(i);
+                    RegexTree.Node second = alternatives.get(j);
+                    if (first.isNullable() && !second.first().isEmpty()) {
+                        return "has an alternative matching the empty string before a longer one, the first matching alternative is taken instead of the longest";
+                    }
+                    if (first.first().intersects(second.first())) {
+                        return "has alternatives which can both start with " + first.first().describeIntersection(second.first())
+                                + ", the first matching alternative is taken instead of the longest";
+                    }
+                }
+            }
+        } else if (node instanceof RegexTree.Sequence) {
+            List<RegexTree.Node> items = node.children();
+            RegexTree.Chars itemFollow = follow;
+            String difference = null;
+            for (int i = items.size() - 1; i >= 0 && difference == null; i--) {
+                difference = findLongestMatchDifference(tree, items.get(i), itemFollow);
+                itemFollow = items.get(i).isNullable() ? items.get(i).first().union(itemFollow) : items.get(i).first();
+            }
+            return difference;
+        } else if (node instanceof RegexTree.Repetition) {
+            RegexTree.Repetition repetition = (RegexTree.Repetition) node;
+            if (repetition.getMin() != repetition.getMax() && repetition.getBody().chars().intersects(follow)) {
+                return "has repetition '" + text(tree, repetition) + "' which can give characters "
+                        + repetition.getBody().chars().describeIntersection(follow)
+                        + " back to what follows, the first match found by backtracking is taken instead of the longest";
+            }
+            boolean repeated = repetition.isUnbounded() || repetition.getMax() > 1;
+            return findLongestMatchDifference(tree, repetition.getBody(), repeated ? repetition.getBody().first().union(follow) : follow);
+        }
+        for (RegexTree.Node child : node.children()) {
+            String difference = findLongestMatchDifference(tree, child, follow);
+            if (difference != null) {
+                return difference;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns true if both regular expressions can start matching at the same position, e.g. a skip and a token.
+     * Generated lexers try skips before tokens, while a lexer taking the longest match prefers a longer token.
+     * Regular expressions which cannot be analyzed are supposed to overlap.
+     */
+    public static boolean canStartWithSameCharacter(String regex, String otherRegex) {
+        try {
+            return new RegexTree(regex).getRoot().first().intersects(new RegexTree(otherRegex).getRoot().first());
+        } catch (RuntimeException e) {
+            return true;
+        }
+    }
+
+    private static Analyzed parse(String element, String regex, List<Finding> findings) {
+        Pattern pattern;
+        try {
+            pattern = Pattern.compile(regex);
+        } catch (PatternSyntaxException e) {
+            findings.add(new Finding(Severity.ERROR, element, regex, "invalid regular expression (" + e.getDescription() + ")", "fix the syntax"));
+            return null;
+        }
+        RegexTree tree;
+        try {
+            tree = new RegexTree(regex);
+        } catch (RuntimeException e) {
+            findings.add(new Finding(Severity.INFO, element, regex, "not analyzed (" + e.getMessage() + ")", "none"));
+            return null;
+        }
+        return new Analyzed(element, pattern, tree);
+    }
+
+    private static void checkBacktracking(Analyzed analyzed, List<Finding> findings) {
+        checkBacktracking(analyzed, analyzed.tree.getRoot(), null, findings);
+    }
+
+    /**
+     * @param enclosing the closest enclosing unbounded repetition which backtracks, or null
+     */
+    private static void checkBacktracking(Analyzed analyzed, RegexTree.Node node, RegexTree.Repetition enclosing, List<Finding> findings) {
+        if (node instanceof RegexTree.Atomic) {
+            // No backtracking into atomic group
+            return;
+        }
+        if (node instanceof RegexTree.Repetition) {
+            RegexTree.Repetition repetition = (RegexTree.Repetition) node;
+            if (repetition.isPossessive()) {
+                return;
+            }
+            if (repetition.isUnbounded()) {
+                if (enclosing != null && enclosing.getBody().canMatchWithin(repetition.getBody().chars())) {
+                    // Every split of a run of such characters among the inner and the outer repetition is tried
+                    findings.add(new Finding(Severity.ERROR, analyzed.element, analyzed.tree.getRegex(),
+                            "nested repetition '" + text(analyzed, repetition) + "' inside '" + text(analyzed, enclosing)
+                            + "' can match the same characters in exponentially many ways (catastrophic backtracking)",
+                            possessive(analyzed, enclosing)));
+                    return;
+                }
+                checkAlternatives(analyzed, repetition, findings);
+                enclosing = repetition;
+            }
+        }
+        if (node instanceof RegexTree.Sequence) {
+            checkAdjacent(analyzed, (RegexTree.Sequence) node, findings);
+        }
+        for (RegexTree.Node child : node.children()) {
+            checkBacktracking(analyzed, child, enclosing, findings);
+        }
+    }
+
+    /**
+     * Alternatives of a repeated alternation should not start with the same characters.
+     */
+    private static void checkAlternatives(Analyzed analyzed, RegexTree.Repetition repetition, List<Finding> findings) {
+        if (!(repetition.getBody() instanceof RegexTree.Alternation)) {
+            return;
+        }
+        List<RegexTree.Node> alternatives = repetition.getBody().children();
+        for (int i = 0; i < alternatives.size(); i++) {
+            for (int j = i + 1; j < alternatives.size(); j++) {
+                RegexTree.Node first = alternatives.get(i);
+                RegexTree.Node second = alternatives.get(j);
+                if (!first.first().intersects(second.first())) {
+                    continue;
+                }
+                // Both alternatives matching the same single characters give exponentially many ways
+                boolean same = first instanceof RegexTree.CharSet && second instanceof RegexTree.CharSet;
+                findings.add(new Finding(same ? Severity.ERROR : Severity.WARNING, analyzed.element, analyzed.tree.getRegex(),
+                        "alternatives of repeated '" + text(analyzed, repetition) + "' can both start with "
+                        + first.first().describeIntersection(second.first()) + ", backtracking tries "
+                        + (same ? "exponentially many combinations" : "every alternative at every repetition"),
+                        same ? "merge the alternatives into one character class" : possessive(analyzed, repetition)));
+                return;
+            }
+        }
+    }
+
+    /**
+     * Unbounded repetitions separated only by optional parts should not match the same characters.
+     */
+    private static void checkAdjacent(Analyzed analyzed, RegexTree.Sequence sequence, List<Finding> findings) {
+        RegexTree.Repetition previous = null;
+        for (RegexTree.Node item : sequence.children()) {
+            if (item instanceof RegexTree.Repetition && ((RegexTree.Repetition) item).isUnbounded()) {
+                RegexTree.Repetition repetition = (RegexTree.Repetition) item;
+                if (previous != null && previous.getBody().chars().intersects(repetition.getBody().chars())) {
+                    findings.add(new Finding(Severity.WARNING, analyzed.element, analyzed.tree.getRegex(),
+                            "adjacent repetitions '" + text(analyzed, previous) + "' and '" + text(analyzed, repetition)
+                            + "' can match the same characters " + previous.getBody().chars().describeIntersection(repetition.getBody().chars())
+                            + ", a failing match tries every split of them (polynomial backtracking)",
+                            "merge them into one repetition or make their characters disjoint"));
+                }
+                previous = repetition.isPossessive() ? null : repetition;
+            } else if (!item.isNullable()) {
+                previous = null;
+            }
+        }
+    }
+
+    private static void checkEmptySkip(Analyzed skip, List<Finding> findings) {
+        if (!skip.pattern.matcher("").matches()) {
+            return;
+        }
+        String suggestion = "require at least one character";
+        RegexTree.Node root = skip.tree.getRoot();
+        String regex = skip.tree.getRegex();
+        if (root instanceof RegexTree.Repetition && regex.endsWith("*")) {
+            suggestion = "use '" + regex.substring(0, regex.length() - 1) + "+'";
+        }
+        findings.add(new Finding(Severity.ERROR, skip.element, regex,
+                "skip matches the empty string, the lexer skips it again and again without consuming input", suggestion));
+    }
+
+    /**
+     * Token is shadowed if its strings are matched by earlier tokens, they win ties of the longest match.
+     */
+    private static void checkShadowing(List<Analyzed> tokens, int index, List<Finding> findings) {
+        Analyzed token = tokens.get(index);
+        Set<String> strings = token.tree.enumerate(MAX_STRINGS);
+        List<String> shadowing = new ArrayList<String>();
+        List<String> shadowed = new ArrayList<String>();
+        boolean beaverShadowed = false;
+        for (int i = 0; i < index; i++) {
+            Analyzed earlier = tokens.get(i);
+            boolean matched = false;
+            if (earlier.tree.getRegex().equals(token.tree.getRegex())) {
+                matched = true;
+                shadowed.add("all");
+            } else if (strings != null) {
+                for (String string : strings) {
+                    if (!shadowed.contains(string) && earlier.pattern.matcher(string).matches()) {
+                        shadowed.add(string);
+                        matched = true;
+                    }
+                }
+            }
+            if (matched) {
+                shadowing.add(earlier.element);
+                // Beaver tries tokens without repetition before the others
+                beaverShadowed |= RegexUtil.isCyclic(earlier.tree.getRegex()) == RegexUtil.isCyclic(token.tree.getRegex())
+                        || !RegexUtil.isCyclic(earlier.tree.getRegex());
+            }
+        }
+        if (shadowing.isEmpty()) {
+            return;
+        }
+        boolean fully = shadowed.contains("all") || (strings != null && shadowed.size() == strings.size());
+        if (fully) {
+            findings.add(new Finding(beaverShadowed ? Severity.ERROR : Severity.WARNING, token.element, token.tree.getRegex(),
+                    "token is never produced, all its strings are matched by earlier " + shadowing
+                    + (beaverShadowed ? "" : " (except in Beaver, which tries tokens without repetition first)"),
+                    "move the token before " + shadowing.get(0) + " or remove it"));
+        } else {
+            findings.add(new Finding(Severity.WARNING, token.element, token.tree.getRegex(),
+                    "strings " + quote(shadowed) + " are produced as earlier " + shadowing,
+                    "move the token before " + shadowing.get(0) + " if the strings should be " + token.element));
+        }
+    }
+
+    /**
+     * Skips are tried before tokens, a skip matching the beginning of a token string consumes it.
+     */
+    private static void checkOverlap(Analyzed skip, Analyzed token, List<Finding> findings) {
+        Set<String> strings = token.tree.enumerate(MAX_STRINGS);
+        if (strings != null) {
+            List<String> overlapping = new ArrayList<String>();
+            for (String string : strings) {
+                Matcher matcher = skip.pattern.matcher(string);
+                if (matcher.lookingAt() && matcher.end() > 0) {
+                    overlapping.add(string);
+                }
+            }
+            if (overlapping.isEmpty()) {
+                return;
+            }
+            boolean fully = overlapping.size() == strings.size();
+            findings.add(new Finding(fully ? Severity.ERROR : Severity.WARNING, skip.element, skip.tree.getRegex(),
+                    "skip consumes the beginning of " + token.element + " strings " + quote(overlapping)
+                    + (fully ? ", the token is never produced" : ""),
+                    "exclude the characters of " + token.element + " from the skip"));
+        } else if (skip.tree.getRoot().first().intersects(token.tree.getRoot().first())) {
+            findings.add(new Finding(Severity.WARNING, skip.element, skip.tree.getRegex(),
+                    "skip and " + token.element + " can both start with "
+                    + skip.tree.getRoot().first().describeIntersection(token.tree.getRoot().first())
+                    + ", the skip may consume the beginning of the token",
+                    "exclude the characters of " + token.element + " from the skip"));
+        }
+    }
+
+    private static String text(Analyzed analyzed, RegexTree.Repetition repetition) {
+        return text(analyzed.tree, repetition);
+    }
+
+    private static String text(RegexTree tree, RegexTree.Repetition repetition) {
+        return tree.getRegex().substring(repetition.getStart(), repetition.getEnd());
+    }
+
+    /**
+     * Returns suggestion to make the repetition possessive, so the engine does not backtrack into it.
+     */
+    private static String possessive(Analyzed analyzed, RegexTree.Repetition repetition) {
+        String regex = analyzed.tree.getRegex();
+        int end = repetition.getEnd();
+        String rewritten = regex.charAt(end - 1) == '?' && end - 2 > repetition.getStart() && "*+?}".indexOf(regex.charAt(end - 2)) >= 0
+                ? regex.substring(0, end - 1) + "+" + regex.substring(end)
+                : regex.substring(0, end) + "+" + regex.substring(end);
+        return "make the repetition possessive if it need not give characters back: '" + rewritten + "'";
+    }
+
+    private static String quote(List<String> strings) {
+        List<String> quoted = new ArrayList<String>();
+        for (String string : strings.subList(0, Math.min(strings.size(), 5))) {
+            quoted.add("'" + string + "'");
+        }
+        return quoted + (strings.size() > 5 ? " and " + (strings.size() - 5) + " more" : "");
+    }
+
+    private static class Analyzed {
+        private final String element;
+        private final Pattern pattern;
+        private final RegexTree tree;
+
+        Analyzed(String element, Pattern pattern, RegexTree tree) {
+            this.element = element;
+            this.pattern = pattern;
+            this.tree = tree;
+        }
+    }
+
+    /**
+     * Problem of a regular expression of a token or a skip.
+     */
+    public static class Finding {
+
+        private final Severity severity;
+        private final String element;
+        private final String regex;
+        private final String message;
+        private final String suggestion;
+
+        Finding(Severity severity, String element, String regex, String message, String suggestion) {
+            this.severity = severity;
+            this.element = element;
+            this.regex = regex;
+            this.message = message;
+            this.suggestion = suggestion;
+        }
+
+        public Severity getSeverity() {
+            return severity;
+        }
+
+        /**
+         * Returns 'token NAME' or 'skip'.
+         */
+        public String getElement() {
+            return element;
+        }
+
+        public String getRegex() {
+            return regex;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        public String getSuggestion() {
+            return suggestion;
+        }
+
+        @Override
+        public String toString() {
+            return severity + " " + element + " '" + regex + "': " + message + "; suggestion: " + suggestion;
+        }
+    }
+}
@@ -0,0 +1,871 @@
+package yajco.generator.util;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Syntax tree of a Java regular expression used by {@link RegexAnalyzer}. Sets of characters are approximated,
+ * ASCII characters are kept exactly and all other characters are represented by one flag. Constructs which are
+ * not understood (back references, inline flags, intersections of classes, ...) make the tree inexact, such tree
+ * is not used to enumerate strings of the regular expression.
+ */
+class RegexTree {
+
+    static final int UNBOUNDED = -1;
+    private static final int MAX_ENUMERATED_CHARS = 16;
+
+    private final String regex;
+    private final Node root;
+    private boolean exact = true;
+    private int position;
+
+    /**
+     * @throws IllegalArgumentException if the regular expression cannot be parsed
+     */
+    RegexTree(String regex) {
+        this.regex = regex;
+        this.root = parseAlternation();
+        if (position < regex.length()) {
+            throw new IllegalArgumentException("Unexpected '" + regex.charAt(position) + "' at " + position);
+        }
+    }
+
+    Node getRoot() {
+        return root;
+    }
+
+    String getRegex() {
+        return regex;
+    }
+
+    /**
+     * Returns true if sets of characters are not approximated and there are no unsupported constructs.
+     */
+    boolean isExact() {
+        return exact;
+    }
+
+    /**
+     * Returns all strings matched by the regular expression, or null if there are more than the limit, they
+     * cannot be enumerated or the tree is not exact.
+     */
+    Set<String> enumerate(int limit) {
+        if (!exact) {
+            return null;
+        }
+        return root.enumerate(limit);
+    }
+
+    private Node parseAlternation() {
+        List<Node> alternatives = new ArrayList<Node>();
+        alternatives.add(parseSequence());
+        while (peek('|')) {
+            position++;
+            alternatives.add(parseSequence());
+        }
+        return alternatives.size() == 1 ? alternatives.get(0) : new Alternation(alternatives);
+    }
+
+    private Node parseSequence() {
+        List<Node> items = new ArrayList<Node>();
+        while (position < regex.length() && !peek('|') && !peek(')')) {
+            items.add(parseQuantified());
+        }
+        return items.size() == 1 ? items.get(0) : new Sequence(items);
+    }
+
+    private Node parseQuantified() {
+        int start = position;
+        Node atom = parseAtom();
+        while (position < regex.length()) {
+            int min;
+            int max;
+            char c = regex.charAt(position);
+            if (c == '*') {
+                min = 0;
+                max = UNBOUNDED;
+                position++;
+            } else if (c == '+') {
+                min = 1;
+                max = UNBOUNDED;
+                position++;
+            } else if (c == '?') {
+                min = 0;
+                max = 1;
+                position++;
+            } else if (c == '{' && regex.indexOf('}', position) > position) {
+                String bounds = regex.substring(position + 1, regex.indexOf('}', position));
+                if (!bounds.matches("\\d+(,\\d*)?")) {
+                    throw new IllegalArgumentException("Wrong repetition {" + bounds + "}");
+                }
+                int comma = bounds.indexOf(',');
+                min = Integer.parseInt(comma < 0 ? bounds : bounds.substring(0, comma));
+                max = comma < 0 ? min : comma == bounds.length() - 1 ? UNBOUNDED : Integer.parseInt(bounds.substring(comma + 1));
+                position = regex.indexOf('}', position) + 1;
+            } else {
+                break;
+            }
+            boolean possessive = false;
+            if (peek('+')) {
+                possessive = true;
+                position++;
+            } else if (peek('?')) {
+                position++;
+            }
+            atom = new Repetition(atom, min, max, possessive, start, position);
+        }
+        return atom;
+    }
+
+    private Node parseAtom() {
+        char c = regex.charAt(position++);
+        switch (c) {
+            case '(':
+                return parseGroup();
+            case '[':
+                return new CharSet(parseClass());
+            case '.':
+                return new CharSet(Chars.all());
+            case '^':
+            case '$':
+                return new ZeroWidth();
+            case '\\':
+                return parseEscape();
+            case '*':
+            case '+':
+            case '?':
+            case ')':
+                throw new IllegalArgumentException("Unexpected '" + c + "' at " + (position - 1));
+            default:
+                return new CharSet(Chars.of(c));
+        }
+    }
+
+    private Node parseGroup() {
+        Node node;
+        if (peek('?')) {
+            position++;
+            if (peek(':')) {
+                position++;
+                node = parseAlternation();
+            } else if (peek('>')) {
+                position++;
+                node = new Atomic(parseAlternation());
+            } else if (peek('=') || peek('!')) {
+                position++;
+                parseAlternation();
+                node = new ZeroWidth();
+            } else if (regex.startsWith("<=", position) || regex.startsWith("<!", position)) {
+                position += 2;
+                parseAlternation();
+                node = new ZeroWidth();
+            } else if (peek('<')) {
+                // Named group
+                position = regex.indexOf('>', position) + 1;
+                if (position == 0) {
+                    throw new IllegalArgumentException("Unterminated group name");
+                }
+                node = parseAlternation();
+            } else {
+                // Inline flags, e.g. (?i) or (?i:...)
+                exact = false;
+                while (position < regex.length() && (Character.isLetter(regex.charAt(position)) || peek('-'))) {
+                    position++;
+                }
+                if (peek(')')) {
+                    position++;
+                    return new ZeroWidth();
+                }
+                expect(':');
+                node = parseAlternation();
+            }
+        } else {
+            node = parseAlternation();
+        }
+        expect(')');
+        return node;
+    }
+
+    private Node parseEscape() {
+        char c = regex.charAt(position++);
+        switch (c) {
+            case 'b':
+            case 'B':
+            case 'A':
+            case 'z':
+            case 'Z':
+            case 'G':
+                return new ZeroWidth();
+            case 'Q':
+                int end = regex.indexOf("\\E", position);
+                String quoted = regex.substring(position, end < 0 ? regex.length() : end);
+                position = end < 0 ? regex.length() : end + 2;
+                List<Node> items = new ArrayList<Node>();
+                for (char quotedChar : quoted.toCharArray()) {
+                    items.add(new CharSet(Chars.of(quotedChar)));
+                }
+                return new Sequence(items);
+            case 'k':
+                position = regex.indexOf('>', position) + 1;
+                exact = false;
+                return new Unknown();
+            case 'R':
+            case 'X':
+                exact = false;
+                return new Unknown();
+            default:
+                if (c >= '1' && c <= '9') {
+                    // Back reference
+                    exact = false;
+                    return new Unknown();
+                }
+                position--;
+                return new CharSet(parseClassEscape());
+        }
+    }
+
+    /**
+     * Parses escape denoting a set of characters, position is after the backslash.
+     */
+    private Chars parseClassEscape() {
+        char c = regex.charAt(position++);
+        switch (c) {
+            case 'd':
+                return Chars.range('0', '9');
+            case 'D':
+                return Chars.range('0', '9').complement();
+            case 'w':
+                return word();
+            case 'W':
+                return word().complement();
+            case 's':
+                return whitespace();
+            case 'S':
+                return whitespace().complement();
+            case 'h':
+            case 'H':
+            case 'v':
+            case 'V':
+            case 'p':
+            case 'P':
+                if ((c == 'p' || c == 'P') && peek('{')) {
+                    position = regex.indexOf('}', position) + 1;
+                }
+                exact = false;
+                return Chars.all();
+            case 't':
+                return Chars.of('\t');
+            case 'n':
+                return Chars.of('\n');
+            case 'r':
+                return Chars.of('\r');
+            case 'f':
+                return Chars.of('\f');
+            case 'a':
+                return Chars.of('\u0007');
+            case 'e':
+                return Chars.of('\u001B');
+            case 'c':
+                return Chars.of((char) (regex.charAt(position++) ^ 64));
+            case 'x':
+                if (peek('{')) {
+                    int end = regex.indexOf('}', position);
+                    int code = Integer.parseInt(regex.substring(position + 1, end), 16);
+                    position = end + 1;
+                    return Chars.of((char) code);
+                }
+                position += 2;
+                return Chars.of((char) Integer.parseInt(regex.substring(position - 2, position), 16));
+            case 'u':
+                position += 4;
+                return Chars.of((char) Integer.parseInt(regex.substring(position - 4, position), 16));
+            case '0':
+                int start = position;
+                while (position < regex.length() && position - start < 3 && regex.charAt(position) >= '0' && regex.charAt(position) <= '7') {
+                    position++;
+                }
+                return Chars.of((char) Integer.parseInt(regex.substring(start, position), 8));
+            default:
+                if (Character.isLetterOrDigit(c)) {
+                    throw new IllegalArgumentException("Unknown escape \\" + c);
+                }
+                return Chars.of(c);
+        }
+    }
+
+    /**
+     * Parses character class, position is after the opening bracket.
+     */
+    private Chars parseClass() {
+        boolean negated = false;
+        if (peek('^')) {
+            negated = true;
+            position++;
+        }
+        Chars result = Chars.none();
+        boolean first = true;
+        while (position < regex.length() && (first || !peek(']'))) {
+            first = false;
+            if (regex.startsWith("&&", position)) {
+                // Intersection is approximated by union
+                exact = false;
+                position += 2;
+                continue;
+            }
+            Chars item;
+            char single = 0;
+            boolean isSingle = false;
+            char c = regex.charAt(position++);
+            if (c == '[') {
+                item = parseClass();
+            } else if (c == '\\') {
+                item = parseClassEscape();
+                if (item.size() == 1 && !item.hasOther()) {
+                    single = (char) item.ascii.nextSetBit(0);
+                    isSingle = true;
+                }
+            } else {
+                item = Chars.of(c);
+                single = c;
+                isSingle = true;
+            }
+            if (isSingle && peek('-') && position + 1 < regex.length() && regex.charAt(position + 1) != ']') {
+                position++;
+                char to = regex.charAt(position++);
+                if (to == '\\') {
+                    Chars escaped = parseClassEscape();
+                    to = escaped.hasOther() ? Character.MAX_VALUE : (char) escaped.ascii.nextSetBit(0);
+                }
+                item = Chars.range(single, to);
+            }
+            result = result.union(item);
+        }
+        expect(']');
+        return negated ? result.complement() : result;
+    }
+
+    private static Chars word() {
+        return Chars.range('a', 'z').union(Chars.range('A', 'Z')).union(Chars.range('0', '9')).union(Chars.of('_'));
+    }
+
+    private static Chars whitespace() {
+        return Chars.of(' ').union(Chars.range('\t', '\r'));
+    }
+
+    private boolean peek(char c) {
+        return position < regex.length() && regex.charAt(position) == c;
+    }
+
+    private void expect(char c) {
+        if (!peek(c)) {
+            throw new IllegalArgumentException("Expected '" + c + "' at " + position);
+        }
+        position++;
+    }
+
+    /**
+     * Set of characters, ASCII characters are exact, other characters are represented by one flag.
+     */
+    static class Chars {
+
+        private static final int ASCII = 128;
+        private final BitSet ascii;
+        private final boolean other;
+
+        private Chars(BitSet ascii, boolean other) {
+            this.ascii = ascii;
+            this.other = other;
+        }
+
+        static Chars none() {
+            return new Chars(new BitSet(ASCII), false);
+        }
+
+        static Chars all() {
+            BitSet bits = new BitSet(ASCII);
+            bits.set(0, ASCII);
+            return new Chars(bits, true);
+        }
+
+        static Chars of(char c) {
+            return range(c, c);
+        }
+
+        static Chars range(char from, char to) {
+            BitSet bits = new BitSet(ASCII);
+            if (from < ASCII) {
+                bits.set(from, Math.min(to, ASCII - 1) + 1);
+            }
+            return new Chars(bits, to >= ASCII);
+        }
+
+        Chars union(Chars chars) {
+            BitSet bits = (BitSet) ascii.clone();
+            bits.or(chars.ascii);
+            return new Chars(bits, other || chars.other);
+        }
+
+        Chars complement() {
+            BitSet bits = (BitSet) ascii.clone();
+            bits.flip(0, ASCII);
+            // Complement of some non-ASCII characters still contains other non-ASCII characters
+            return new Chars(bits, true);
+        }
+
+        boolean intersects(Chars chars) {
+            return ascii.intersects(chars.ascii) || (other && chars.other);
+        }
+
+        boolean isEmpty() {
+            return ascii.isEmpty() && !other;
+        }
+
+        boolean hasOther() {
+            return other;
+        }
+
+        int size() {
+            return ascii.cardinality();
+        }
+
+        /**
+         * Returns printable representation of some common characters of the sets.
+         */
+        String describeIntersection(Chars chars) {
+            BitSet bits = (BitSet) ascii.clone();
+            bits.and(chars.ascii);
+            StringBuilder sb = new StringBuilder();
+            for (int i = bits.nextSetBit(0); i >= 0 && sb.length() < 10; i = bits.nextSetBit(i + 1)) {
+                sb.append(i < ' ' ? String.format("\\x%02X", i) : String.valueOf((char) i));
+            }
+            return sb.length() > 0 ? sb.toString() : "non-ASCII characters";
+        }
+    }
+
+    abstract static class Node {
+
+        abstract boolean isNullable();
+
+        /**
+         * Returns characters which can start a non-empty match.
+         */
+        abstract Chars first();
+
+        /**
+         * Returns all characters which can be matched.
+         */
+        abstract Chars chars();
+
+        /**
+         * Returns true if the node matches a non-empty string consisting of given characters only, or if it
+         * matches the empty string.
+         */
+        abstract boolean canMatchWithin(Chars chars);
+
+        abstract Set<String> enumerate(int limit);
+
+        List<Node> children() {
+            return Collections.emptyList();
+        }
+    }
+
+    static class CharSet extends Node {
+
+        private final Chars chars;
+
+        CharSet(Chars chars) {
+            this.chars = chars;
+        }
+
+        @Override
+        boolean isNullable() {
+            return false;
+        }
+
+        @Override
+        Chars first() {
+            return chars;
+        }
+
+        @Override
+        Chars chars() {
+            return chars;
+        }
+
+        @Override
+        boolean canMatchWithin(Chars chars) {
+            return this.chars.intersects(chars);
+        }
+
+        @Override
+        Set<String> enumerate(int limit) {
+            if (chars.hasOther() || chars.size() > Math.min(limit, MAX_ENUMERATED_CHARS)) {
+                return null;
+            }
+            Set<String> result = new LinkedHashSet<String>();
+            for (int i = chars.ascii.nextSetBit(0); i >= 0; i = chars.ascii.nextSetBit(i + 1)) {
+                result.add(String.valueOf((char) i));
+            }
+            return result;
+        }
+    }
+
+    static class Sequence extends Node {
+
+        private final List<Node> items;
+
+        Sequence(List<Node> items) {
+            this.items = items;
+        }
+
+        @Override
+        List<Node> children() {
+            return items;
+        }
+
+        @Override
+        boolean isNullable() {
+            for (Node item : items) {
+                if (!item.isNullable()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        Chars first() {
+            Chars result = Chars.none();
+            for (Node item : items) {
+                result = result.union(item.first());
+                if (!item.isNullable()) {
+                    break;
+                }
+            }
+            return result;
+        }
+
+        @Override
+        Chars chars() {
+            Chars result = Chars.none();
+            for (Node item : items) {
+                result = result.union(item.chars());
+            }
+            return result;
+        }
+
+        @Override
+        boolean canMatchWithin(Chars chars) {
+            for (Node item : items) {
+                if (!item.isNullable() && !item.canMatchWithin(chars)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        Set<String> enumerate(int limit) {
+            Set<String> result = Collections.singleton("");
+            for (Node item : items) {
+                Set<String> suffixes = item.enumerate(limit);
+                if (suffixes == null || (long) result.size() * suffixes.size() > limit) {
+                    return null;
+                }
+                Set<String> next = new LinkedHashSet<String>();
+                for (String prefix : result) {
+                    for (String suffix : suffixes) {
+                        next.add(prefix + suffix);
+                    }
+                }
+                result = next;
+            }
+            return result;
+        }
+    }
+
+    static class Alternation extends Node {
+
+        private final List<Node> alternatives;
+
+        Alternation(List<Node> alternatives) {
+            this.alternatives = alternatives;
+        }
+
+        @Override
+        List<Node> children() {
+            return alternatives;
+        }
+
+        @Override
+        boolean isNullable() {
+            for (Node alternative : alternatives) {
+                if (alternative.isNullable()) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        Chars first() {
+            Chars result = Chars.none();
+            for (Node alternative : alternatives) {
+                result = result.union(alternative.first());
+            }
+            return result;
+        }
+
+        @Override
+        Chars chars() {
+            Chars result = Chars.none();
+            for (Node alternative : alternatives) {
+                result = result.union(alternative.chars());
+            }
+            return result;
+        }
+
+        @Override
+        boolean canMatchWithin(Chars chars) {
+            for (Node alternative : alternatives) {
+                if (alternative.canMatchWithin(chars)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        Set<String> enumerate(int limit) {
+            Set<String> result = new LinkedHashSet<String>();
+            for (Node alternative : alternatives) {
+                Set<String> strings = alternative.enumerate(limit);
+                if (strings == null) {
+                    return null;
+                }
+                result.addAll(strings);
+                if (result.size() > limit) {
+                    return null;
+                }
+            }
+            return result;
+        }
+    }
+
+    static class Repetition extends Node {
+
+        private final Node body;
+        private final int min;
+        private final int max;
+        private final boolean possessive;
+        private final int start;
+        private final int end;
+
+        Repetition(Node body, int min, int max, boolean possessive, int start, int end) {
+            this.body = body;
+            this.min = min;
+            this.max = max;
+            this.possessive = possessive;
+            this.start = start;
+            this.end = end;
+        }
+
+        Node getBody() {
+            return body;
+        }
+
+        int getMin() {
+            return min;
+        }
+
+        int getMax() {
+            return max;
+        }
+
+        boolean isUnbounded() {
+            return max == UNBOUNDED;
+        }
+
+        boolean isPossessive() {
+            return possessive;
+        }
+
+        /**
+         * Returns index of the first character of the repeated atom in the regular expression.
+         */
+        int getStart() {
+            return start;
+        }
+
+        /**
+         * Returns index after the quantifier in the regular expression.
+         */
+        int getEnd() {
+            return end;
+        }
+
+        @Override
+        List<Node> children() {
+            return Collections.singletonList(body);
+        }
+
+        @Override
+        boolean isNullable() {
+            return min == 0 || body.isNullable();
+        }
+
+        @Override
+        Chars first() {
+            return max == 0 ? Chars.none() : body.first();
+        }
+
+        @Override
+        Chars chars() {
+            return max == 0 ? Chars.none() : body.chars();
+        }
+
+        @Override
+        boolean canMatchWithin(Chars chars) {
+            return min == 0 || body.canMatchWithin(chars);
+        }
+
+        @Override
+        Set<String> enumerate(int limit) {
+            if (max == UNBOUNDED) {
+                return null;
+            }
+            Set<String> strings = body.enumerate(limit);
+            if (strings == null) {
+                return null;
+            }
+            Set<String> result = new LinkedHashSet<String>();
+            Set<String> current = Collections.singleton("");
+            for (int count = 0; count <= max; count++) {
+                if (count >= min) {
+                    result.addAll(current);
+                }
+                if (result.size() > limit || (long) current.size() * strings.size() > limit) {
+                    return null;
+                }
+                Set<String> next = new LinkedHashSet<String>();
+                for (String prefix : current) {
+                    for (String suffix : strings) {
+                        next.add(prefix + suffix);
+                    }
+                }
+                current = next;
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Atomic group, the regex engine does not backtrack into it.
+     */
+    static class Atomic extends Node {
+
+        private final Node body;
+
+        Atomic(Node body) {
+            this.body = body;
+        }
+
+        @Override
+        List<Node> children() {
+            return Collections.singletonList(body);
+        }
+
+        @Override
+        boolean isNullable() {
+            return body.isNullable();
+        }
+
+        @Override
+        Chars first() {
+            return body.first();
+        }
+
+        @Override
+        Chars chars() {
+            return body.chars();
+        }
+
+        @Override
+        boolean canMatchWithin(Chars chars) {
+            return body.canMatchWithin(chars);
+        }
+
+        @Override
+        Set<String> enumerate(int limit) {
+            // Atomic group may match less than its body
+            return null;
+        }
+    }
+
+    /**
+     * Anchors, word boundaries, lookarounds and inline flags.
+     */
+    static class ZeroWidth extends Node {
+
+        @Override
+        boolean isNullable() {
+            return true;
+        }
+
+        @Override
+        Chars first() {
+            return Chars.none();
+        }
+
+        @Override
+        Chars chars() {
+            return Chars.none();
+        }
+
+        @Override
+        boolean canMatchWithin(Chars chars) {
+            return true;
+        }
+
+        @Override
+        Set<String> enumerate(int limit) {
+            // Empty string only if the assertion holds
+            return null;
+        }
+    }
+
+    /**
+     * Construct which can match anything, e.g. a back reference.
+     */
+    static class Unknown extends Node {
+
+        @Override
+        boolean isNullable() {
+            return true;
+        }
+
+        @Override
+        Chars first() {
+            return Chars.all();
+        }
+
+        @Override
+        Chars chars() {
+            return Chars.all();
+        }
+
+        @Override
+        boolean canMatchWithin(Chars chars) {
+            return true;
+        }
+
+        @Override
+        Set<String> enumerate(int limit) {
+            return null;
+        }
+    }
+}
@@ -1,7 +1,9 @@
 package yajco.generator.util;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.ServiceLoader;
@@ -10,6 +12,7 @@ import yajco.generator.FilesGenerator;
 import yajco.generator.GeneratorException;
 import yajco.generator.annotation.DependsOn;
 import yajco.generator.parsergen.CompilerGenerator;
+import yajco.model.Language;
 
 public class ServiceFinder {
 
@@ -42,29 +45,63 @@ public class ServiceFinder {
     }
 
     public static CompilerGenerator findCompilerGenerator() {
+        return findCompilerGenerator(null, null);
+    }
+
+    /**
+     * Finds compiler generators in class path. If there are more of them, one is chosen for the language by
+     * {@link CompilerGeneratorSelector}.
+     *
+     * @param language language of the parser or null to use the first compiler generator found
+     * @param properties settings, the choice is stored into them
+     * @return compiler generator or null if there is none
+     */
+    public static CompilerGenerator findCompilerGenerator(Language language, Properties properties) {
+        return selectCompilerGenerator(findCompilerGenerators(), language, properties);
+    }
+
+    /**
+     * Finds all compiler generators in class path, in the order of the service loader.
+     */
+    public static List<CompilerGenerator> findCompilerGenerators() {
         ServiceLoader<CompilerGenerator> compilerServiceLoader = ServiceLoader.load(CompilerGenerator.class, ServiceFinder.class.getClassLoader());
-        CompilerGenerator compilerGenerator = null;
-        int count = 0;
+        List<CompilerGenerator> compilerGenerators = new ArrayList<CompilerGenerator>();
         for (CompilerGenerator compGen : compilerServiceLoader) {
-            count++;
             //LOG name
             System.out.println("Found compiler generator: " + compGen.getClass().getName() + " [" + compGen.getClass().getClassLoader().getResource(compGen.getClass().getName().replace('.', '/') + ".class") + "]");
+            compilerGenerators.add(compGen);
+        }
+        return compilerGenerators;
+    }
 
-            if (compilerGenerator == null) {
-                compilerGenerator = compGen;
-            }
+    /**
+     * Chooses one of the compiler generators for the language by {@link CompilerGeneratorSelector}. The choice
+     * depends only on the language, properties and the compiler generators.
+     *
+     * @param compilerGenerators compiler generators found by {@link #findCompilerGenerators()}
+     * @param language language of the parser or null to use the first compiler generator
+     * @param properties settings, the choice is stored into them
+     * @return compiler generator or null if there is none
+     */
+    public static CompilerGenerator selectCompilerGenerator(List<CompilerGenerator> compilerGenerators, Language language, Properties properties) {
+        if (compilerGenerators.isEmpty()) {
+            //LOG ERROR
+            //don't throw error, return null - handle later
+            //throw new GeneratorException("No compiler generator in class path. Include service implementation of " + CompilerGenerator.class.getName() + " in your classpath.");
+            return null;
         }
-        if (count > 0) {
-            if (count > 1) {
+
+        CompilerGenerator compilerGenerator;
+        if (language != null && properties != null) {
+            compilerGenerator = new CompilerGeneratorSelector().select(compilerGenerators, language, properties);
+        } else {
+            if (compilerGenerators.size() > 1) {
                 // LOG WARNING
                 System.out.println("WARNING: Found more than 1 compiler generator!!!! Will use only one.");
             }
-            System.out.println("Selected compiler generator: " + compilerGenerator.getClass().getName());
-        } else {
-            //LOG ERROR
-            //don't throw error, return null - handle later
-            //throw new GeneratorException("No compiler generator in class path. Include service implementation of " + CompilerGenerator.class.getName() + " in your classpath.");
+            compilerGenerator = compilerGenerators.get(0);
         }
+        System.out.println("Selected compiler generator: " + compilerGenerator.getClass().getName());
         return compilerGenerator;
     }
 }
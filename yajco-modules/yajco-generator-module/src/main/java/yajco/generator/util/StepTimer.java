@@ -0,0 +1,59 @@
+package yajco.generator.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Measures time spent in named steps of a generator. Time of a step repeated several times is summed up.
+ */
+public class StepTimer {
+
+    private final Map<String, Long> durations = new LinkedHashMap<String, Long>();
+    private long start = System.nanoTime();
+
+    /**
+     * Ends the current step and starts the next one.
+     *
+     * @param step name of the ended step
+     */
+    public void stop(String step) {
+        long now = System.nanoTime();
+        Long duration = durations.get(step);
+        durations.put(step, (duration != null ? duration : 0L) + now - start);
+        start = now;
+    }
+
+    /**
+     * Starts the next step without recording time elapsed since the last one.
+     */
+    public void restart() {
+        start = System.nanoTime();
+    }
+
+    /**
+     * Returns measured steps and their durations in milliseconds, in the order they were first measured.
+     */
+    public Map<String, Long> getDurations() {
+        Map<String, Long> result = new LinkedHashMap<String, Long>();
+        for (Map.Entry<String, Long> entry : durations.entrySet()) {
+            result.put(entry.getKey(), entry.getValue() / 1000000L);
+        }
+        return result;
+    }
+
+    /**
+     * Prints durations of all steps and their total.
+     *
+     * @param title name of the measured task
+     */
+    public void report(String title) {
+        StringBuilder sb = new StringBuilder(title).append(":");
+        long total = 0;
+        for (Map.Entry<String, Long> entry : getDurations().entrySet()) {
+            sb.append(" ").append(entry.getKey()).append(" ").append(entry.getValue()).append(" ms,");
+            total += entry.getValue();
+        }
+        sb.append(" total ").append(total).append(" ms");
+        System.out.println(sb);
+    }
+}
@@ -0,0 +1,116 @@
+package yajco.generator.util;
+
+import java.io.FilterOutputStream;
+import java.io.FilterWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import javax.annotation.processing.Filer;
+import javax.lang.model.element.Element;
+import javax.tools.FileObject;
+import javax.tools.ForwardingFileObject;
+import javax.tools.ForwardingJavaFileObject;
+import javax.tools.JavaFileManager.Location;
+import javax.tools.JavaFileObject;
+
+/**
+ * Filer which can be shared by generators running in parallel. Compiler's filer is not thread-safe, so creating
+ * files and closing their streams is serialized, while writing into different files is not.
+ */
+class SynchronizedFiler implements Filer {
+
+    private final Filer filer;
+
+    SynchronizedFiler(Filer filer) {
+        this.filer = filer;
+    }
+
+    @Override
+    public synchronized JavaFileObject createSourceFile(CharSequence name, Element... originatingElements) throws IOException {
+        return new SynchronizedJavaFileObject(filer.createSourceFile(name, originatingElements));
+    }
+
+    @Override
+    public synchronized JavaFileObject createClassFile(CharSequence name, Element... originatingElements) throws IOException {
+        return new SynchronizedJavaFileObject(filer.createClassFile(name, originatingElements));
+    }
+
+    @Override
+    public synchronized FileObject createResource(Location location, CharSequence pkg, CharSequence relativeName, Element... originatingElements) throws IOException {
+        return new SynchronizedFileObject(filer.createResource(location, pkg, relativeName, originatingElements));
+    }
+
+    @Override
+    public synchronized FileObject getResource(Location location, CharSequence pkg, CharSequence relativeName) throws IOException {
+        return new SynchronizedFileObject(filer.getResource(location, pkg, relativeName));
+    }
+
+    private OutputStream closeSynchronized(OutputStream outputStream) {
+        return new FilterOutputStream(outputStream) {
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+            }
+
+            @Override
+            public void close() throws IOException {
+                synchronized (SynchronizedFiler.this) {
+                    super.close();
+                }
+            }
+        };
+    }
+
+    private Writer closeSynchronized(Writer writer) {
+        return new FilterWriter(writer) {
+            @Override
+            public void close() throws IOException {
+                synchronized (SynchronizedFiler.this) {
+                    super.close();
+                }
+            }
+        };
+    }
+
+    private class SynchronizedFileObject extends ForwardingFileObject<FileObject> {
+
+        SynchronizedFileObject(FileObject fileObject) {
+            super(fileObject);
+        }
+
+        @Override
+        public OutputStream openOutputStream() throws IOException {
+            synchronized (SynchronizedFiler.this) {
+                return closeSynchronized(super.openOutputStream());
+            }
+        }
+
+        @Override
+        public Writer openWriter() throws IOException {
+            synchronized (SynchronizedFiler.this) {
+                return closeSynchronized(super.openWriter());
+            }
+        }
+    }
+
+    private class SynchronizedJavaFileObject extends ForwardingJavaFileObject<JavaFileObject> {
+
+        SynchronizedJavaFileObject(JavaFileObject fileObject) {
+            super(fileObject);
+        }
+
+        @Override
+        public OutputStream openOutputStream() throws IOException {
+            synchronized (SynchronizedFiler.this) {
+                return closeSynchronized(super.openOutputStream());
+            }
+        }
+
+        @Override
+        public Writer openWriter() throws IOException {
+            synchronized (SynchronizedFiler.this) {
+                return closeSynchronized(super.openWriter());
+            }
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package yajco.generator.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import org.apache.velocity.Template;
+import org.apache.velocity.context.Context;
+import org.apache.velocity.runtime.RuntimeConstants;
+import org.apache.velocity.runtime.RuntimeInstance;
+import org.apache.velocity.runtime.parser.ParseException;
+import yajco.generator.GeneratorException;
+
+/**
+ * Velocity templates shared by all generators. One engine is initialized per class loader and every template
+ * is parsed only once, so repeated generation in the same JVM pays the parsing cost only for the first time.
+ * <p>
+ * Templates are found the same way as by {@link Class#getResourceAsStream(String)}, names are either absolute
+ * or relative to the package of the given class. Macros are local to the template they are defined in.
+ */
+public class TemplateService {
+
+    private static final TemplateService instance = new TemplateService();
+
+    private final RuntimeInstance runtime = new RuntimeInstance();
+    private final ConcurrentMap<String, Template> templates = new ConcurrentHashMap<String, Template>();
+
+    private TemplateService() {
+        // Different templates define macros with the same name.
+        runtime.setProperty(RuntimeConstants.VM_PERM_INLINE_LOCAL, true);
+        runtime.init();
+    }
+
+    public static TemplateService getInstance() {
+        return instance;
+    }
+
+    /**
+     * Renders the template into string.
+     *
+     * @param base class used to find the template
+     * @param templateName absolute name or name relative to the package of base class
+     * @param context context of the template
+     * @return rendered template
+     */
+    public String render(Class<?> base, String templateName, Context context) {
+        StringWriter writer = new StringWriter();
+        render(base, templateName, context, writer);
+        return writer.toString();
+    }
+
+    /**
+     * Renders the template into the writer.
+     *
+     * @param base class used to find the template
+     * @param templateName absolute name or name relative to the package of base class
+     * @param context context of the template
+     * @param writer output
+     */
+    public void render(Class<?> base, String templateName, Context context, Writer writer) {
+        getTemplate(base, templateName).merge(context, writer);
+    }
+
+    /**
+     * Returns parsed template.
+     *
+     * @param base class used to find the template
+     * @param templateName absolute name or name relative to the package of base class
+     * @return parsed template
+     */
+    public Template getTemplate(Class<?> base, String templateName) {
+        String name = resolveName(base, templateName);
+        Template template = templates.get(name);
+        if (template == null) {
+            template = parse(base, name);
+            Template previous = templates.putIfAbsent(name, template);
+            if (previous != null) {
+                template = previous;
+            }
+        }
+        return template;
+    }
+
+    private Template parse(Class<?> base, String name) {
+        InputStream inputStream = base.getResourceAsStream(name);
+        if (inputStream == null) {
+            throw new GeneratorException("Template " + name + " not found");
+        }
+        Template template = new Template();
+        template.setName(name);
+        template.setRuntimeServices(runtime);
+        try (Reader reader = new InputStreamReader(inputStream, StandardCharsets.UTF_8)) {
+            template.setData(runtime.parse(reader, template));
+            template.initDocument();
+        } catch (ParseException | IOException e) {
+            throw new GeneratorException("Cannot parse template " + name + " (" + e.getMessage() + ")", e);
+        }
+        return template;
+    }
+
+    private static String resolveName(Class<?> base, String templateName) {
+        if (templateName.startsWith("/")) {
+            return templateName;
+        }
+        String className = base.getName();
+        int lastDotIndex = className.lastIndexOf('.');
+        if (lastDotIndex < 0) {
+            return "/" + templateName;
+        }
+        return "/" + className.substring(0, lastDotIndex).replace('.', '/') + "/" + templateName;
+    }
+}
@@ -1,13 +1,12 @@
 package yajco.generator.util;
 
-import de.hunsicker.jalopy.Jalopy;
 import java.io.File;
-import java.io.FileNotFoundException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Properties;
 import yajco.generator.GeneratorException;
 import yajco.model.BindingNotationPart;
 import yajco.model.Concept;
@@ -34,8 +33,6 @@ import yajco.model.type.Type;
 
 public class Utilities {
 
-    private static Jalopy jalopy;
-
     public static String toUpperCaseIdent(String ident) {
         return Character.toUpperCase(ident.charAt(0)) + ident.substring(1);
     }
@@ -101,15 +98,19 @@ public class Utilities {
         throw new GeneratorException(message);
     }
 
+    /**
+     * Formats Java source file. Inside a generator run by {@link FilesGeneratorExecutor} the file is formatted
+     * after all generators finish, see {@link CodeFormatter}.
+     */
     public static void formatCode(File file) {
-        try {
-            Jalopy j = getJalopy();
-            j.setInput(file);
-            j.setOutput(file);
-            j.format();
-        } catch (FileNotFoundException ex) {
-            throw new GeneratorException("File " + file.getAbsolutePath() + " is not available", ex);
-        }
+        formatCode(file, null);
+    }
+
+    /**
+     * Formats Java source file unless formatting is turned off in the properties, see {@link CodeFormatter}.
+     */
+    public static void formatCode(File file, Properties properties) {
+        CodeFormatter.formatOrSchedule(file, properties);
     }
 
     public static List<Integer> getValuedNotationList(Concept concept) {
@@ -224,13 +225,6 @@ public class Utilities {
         return str.toString();
     }
 
-    private synchronized static Jalopy getJalopy() {
-        if (jalopy == null) {
-            jalopy = new Jalopy();
-        }
-        return jalopy;
-    }
-
     public static String encodeStringIntoTokenName(String s) {
         StringBuilder sb = new StringBuilder();
         if ("TOKEN".equals(s.toUpperCase())) {
@@ -0,0 +1,80 @@
+package yajco.generator.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.Properties;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+public class CodeFormatterTest {
+
+    private static final String SOURCE = "public class A {\nint a;\n}\n";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void formatsOutsideExecutorByDefault() throws IOException {
+        File file = source();
+        Utilities.formatCode(file, new Properties());
+        assertNotEquals(SOURCE, read(file));
+    }
+
+    @Test
+    public void formattingTurnedOffOutsideExecutor() throws IOException {
+        File file = source();
+        Utilities.formatCode(file, disabled());
+        assertEquals(SOURCE, read(file));
+    }
+
+    @Test
+    public void formattingTurnedOffInsideExecutor() throws IOException {
+        final File file = source();
+        CodeFormatter formatter = new CodeFormatter(disabled());
+        formatter.run(new Runnable() {
+            @Override
+            public void run() {
+                Utilities.formatCode(file, new Properties());
+            }
+        });
+        formatter.formatAll(1);
+        assertEquals(SOURCE, read(file));
+    }
+
+    @Test
+    public void filesFormattedAfterExecutorFinishes() throws IOException {
+        final File file = source();
+        CodeFormatter formatter = new CodeFormatter(new Properties());
+        formatter.run(new Runnable() {
+            @Override
+            public void run() {
+                Utilities.formatCode(file);
+            }
+        });
+        assertEquals(SOURCE, read(file));
+        formatter.formatAll(2);
+        assertNotEquals(SOURCE, read(file));
+    }
+
+    private File source() throws IOException {
+        File file = folder.newFile("A.java");
+        Files.write(file.toPath(), SOURCE.getBytes(Charset.forName("UTF-8")));
+        return file;
+    }
+
+    private static String read(File file) throws IOException {
+        return new String(Files.readAllBytes(file.toPath()), Charset.forName("UTF-8"));
+    }
+
+    private static Properties disabled() {
+        Properties properties = new Properties();
+        properties.setProperty(CodeFormatter.FORMAT_PROPERTY, "false");
+        return properties;
+    }
+}
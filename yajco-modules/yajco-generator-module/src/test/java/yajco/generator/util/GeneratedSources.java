@@ -0,0 +1,191 @@
+package yajco.generator.util;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import javax.annotation.processing.Filer;
+import javax.lang.model.element.Element;
+import javax.tools.FileObject;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+import yajco.ReferenceResolver;
+import yajco.generator.GeneratorException;
+import yajco.generator.parsergen.Parser;
+import yajco.model.Concept;
+import yajco.model.Language;
+import yajco.model.Property;
+import yajco.model.type.PrimitiveType;
+import yajco.model.type.ReferenceType;
+
+/**
+ * Directory for generated sources in tests of the generators, shared by other modules as the test jar of
+ * yajco-generator-module. Generators write into it through {@link #getFiler()}, the sources are then compiled
+ * by the system Java compiler.
+ */
+public class GeneratedSources {
+
+    private final File root;
+
+    public GeneratedSources(File root) {
+        this.root = root;
+    }
+
+    public File getRoot() {
+        return root;
+    }
+
+    /**
+     * Returns filer writing generated files by their packages, sources and resources alike.
+     */
+    public Filer getFiler() {
+        return new DirectoryFiler();
+    }
+
+    /**
+     * Writes classes of the concepts of an expression language. Every concept except the root one extends its
+     * parent and has a constructor with all properties, toString prints the tree with concept names, e.g.
+     * '(Add (Number 1) (Number 2))'. Integer properties are of type int, references are of the referenced concept.
+     */
+    public void writeConceptClasses(Language language) throws IOException {
+        for (Concept concept : language.getConcepts()) {
+            String className = yajco.model.utilities.Utilities.getFullConceptClassName(language, concept);
+            StringBuilder sb = new StringBuilder();
+            sb.append("package ").append(className.substring(0, className.lastIndexOf('.'))).append(";\n");
+            if (concept.getParent() == null) {
+                sb.append("public abstract class ").append(concept.getConceptName()).append(" {}\n");
+            } else {
+                StringBuilder params = new StringBuilder();
+                StringBuilder fields = new StringBuilder();
+                StringBuilder text = new StringBuilder("\"(").append(concept.getConceptName()).append("\"");
+                for (Property property : concept.getAbstractSyntax()) {
+                    String type = getTypeName(property);
+                    params.append(params.length() > 0 ? ", " : "").append(type).append(' ').append(property.getName());
+                    fields.append("  private final ").append(type).append(' ').append(property.getName()).append(";\n");
+                    text.append(" + \" \" + ").append(property.getName());
+                }
+                sb.append("public class ").append(concept.getConceptName()).append(" extends ").append(concept.getParent().getConceptName()).append(" {\n").append(fields);
+                sb.append("  public ").append(concept.getConceptName()).append("(").append(params).append(") {\n");
+                for (Property property : concept.getAbstractSyntax()) {
+                    sb.append("    this.").append(property.getName()).append(" = ").append(property.getName()).append(";\n");
+                }
+                sb.append("  }\n");
+                sb.append("  public String toString() {\n    return ").append(text).append(" + \")\";\n  }\n}\n");
+            }
+            try (Writer writer = getFiler().createSourceFile(className).openWriter()) {
+                writer.write(sb.toString());
+            }
+        }
+    }
+
+    private static String getTypeName(Property property) {
+        if (property.getType() instanceof PrimitiveType) {
+            return "int";
+        } else if (property.getType() instanceof ReferenceType) {
+            return ((ReferenceType) property.getType()).getConcept().getConceptName();
+        }
+        throw new IllegalArgumentException("Unsupported type of property " + property.getName());
+    }
+
+    /**
+     * Compiles all sources in the directory into its subdirectory 'classes'. Classes of yajco-annotations and
+     * yajco-generator-module are always on the class path.
+     *
+     * @param classPath classes whose jars or directories are added to the class path
+     * @return directory with compiled classes
+     */
+    public File compile(Class<?>... classPath) {
+        List<File> sources = new ArrayList<File>();
+        collectSources(root, sources);
+        File classes = new File(root, "classes");
+        classes.mkdirs();
+        StringBuilder path = new StringBuilder(getLocation(ReferenceResolver.class)).append(File.pathSeparator).append(getLocation(Parser.class));
+        for (Class<?> type : classPath) {
+            path.append(File.pathSeparator).append(getLocation(type));
+        }
+
+        List<String> arguments = new ArrayList<String>(Arrays.asList("-nowarn", "-encoding", "UTF-8", "-d", classes.getPath(), "-classpath", path.toString()));
+        for (File source : sources) {
+            arguments.add(source.getPath());
+        }
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler.run(null, null, null, arguments.toArray(new String[arguments.size()])) != 0) {
+            throw new GeneratorException("Compilation of generated sources in " + root + " failed");
+        }
+        return classes;
+    }
+
+    /**
+     * Returns jar or directory the class is loaded from.
+     */
+    public static String getLocation(Class<?> type) {
+        try {
+            return new File(type.getProtectionDomain().getCodeSource().getLocation().toURI()).getPath();
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Cannot find location of " + type.getName(), e);
+        }
+    }
+
+    private static void collectSources(File directory, List<File> sources) {
+        for (File file : directory.listFiles()) {
+            if (file.isDirectory()) {
+                collectSources(file, sources);
+            } else if (file.getName().endsWith(".java")) {
+                sources.add(file);
+            }
+        }
+    }
+
+    private class DirectoryFiler implements Filer {
+
+        @Override
+        public JavaFileObject createSourceFile(CharSequence name, Element... originatingElements) {
+            return new DirectoryFileObject(new File(root, name.toString().replace('.', File.separatorChar) + ".java"), JavaFileObject.Kind.SOURCE);
+        }
+
+        @Override
+        public JavaFileObject createClassFile(CharSequence name, Element... originatingElements) {
+            throw new UnsupportedOperationException("class files are not generated");
+        }
+
+        @Override
+        public FileObject createResource(JavaFileManager.Location location, CharSequence pkg, CharSequence relativeName, Element... originatingElements) {
+            return getResource(location, pkg, relativeName);
+        }
+
+        @Override
+        public FileObject getResource(JavaFileManager.Location location, CharSequence pkg, CharSequence relativeName) {
+            File directory = pkg.length() > 0 ? new File(root, pkg.toString().replace('.', File.separatorChar)) : root;
+            return new DirectoryFileObject(new File(directory, relativeName.toString()), JavaFileObject.Kind.OTHER);
+        }
+    }
+
+    private static class DirectoryFileObject extends SimpleJavaFileObject {
+
+        private final File file;
+
+        DirectoryFileObject(File file, Kind kind) {
+            super(file.toURI(), kind);
+            this.file = file;
+        }
+
+        @Override
+        public OutputStream openOutputStream() throws IOException {
+            file.getParentFile().mkdirs();
+            return new FileOutputStream(file);
+        }
+
+        @Override
+        public Writer openWriter() throws IOException {
+            return new OutputStreamWriter(openOutputStream(), "UTF-8");
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package yajco.generator.util;
+
+import java.util.Collections;
+import java.util.List;
+import org.junit.Test;
+import yajco.generator.util.RegexAnalyzer.Finding;
+import yajco.generator.util.RegexAnalyzer.Severity;
+import yajco.model.SkipDef;
+import yajco.model.TokenDef;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static yajco.model.LanguageFixtures.createLanguage;
+import static yajco.model.LanguageFixtures.skips;
+import static yajco.model.LanguageFixtures.tokens;
+
+public class RegexAnalyzerTest {
+
+    @Test
+    public void nestedRepetitionIsCatastrophic() {
+        Finding finding = single(analyzeToken("(a+)+"));
+        assertEquals(Severity.ERROR, finding.getSeverity());
+        assertTrue(finding.getMessage(), finding.getMessage().contains("nested repetition 'a+' inside '(a+)+'"));
+        assertEquals("make the repetition possessive if it need not give characters back: '(a+)++'", finding.getSuggestion());
+    }
+
+    @Test
+    public void repeatedAlternativesOfSameCharactersAreCatastrophic() {
+        Finding finding = single(analyzeToken("(\\w|\\d)*"));
+        assertEquals(Severity.ERROR, finding.getSeverity());
+        assertTrue(finding.getMessage(), finding.getMessage().contains("exponentially many combinations"));
+        assertEquals("merge the alternatives into one character class", finding.getSuggestion());
+    }
+
+    @Test
+    public void adjacentRepetitionsOfSameCharactersBacktrack() {
+        Finding finding = single(analyzeToken("\\d+\\d*"));
+        assertEquals(Severity.WARNING, finding.getSeverity());
+        assertTrue(finding.getMessage(), finding.getMessage().contains("adjacent repetitions '\\d+' and '\\d*'"));
+    }
+
+    @Test
+    public void possessiveRepetitionsDoNotBacktrack() {
+        assertEquals(Collections.<Finding>emptyList(), analyzeToken("(a++)+"));
+        assertEquals(Collections.<Finding>emptyList(), analyzeToken("(a+)++"));
+        assertEquals(Collections.<Finding>emptyList(), analyzeToken("(\\w|\\d)*+"));
+        assertEquals(Collections.<Finding>emptyList(), analyzeToken("\\d++\\d*"));
+    }
+
+    @Test
+    public void atomicGroupsDoNotBacktrack() {
+        assertEquals(Collections.<Finding>emptyList(), analyzeToken("(?>(a+)+)"));
+        assertEquals(Collections.<Finding>emptyList(), analyzeToken("(?>\\w|\\d)*"));
+        assertEquals(Collections.<Finding>emptyList(), analyzeToken("(?>\\d+)\\d*"));
+    }
+
+    @Test
+    public void disjointRepetitionsAreNotReported() {
+        assertEquals(Collections.<Finding>emptyList(), analyzeToken("[a-z]+[0-9]*"));
+        assertEquals(Collections.<Finding>emptyList(), analyzeToken("([a-z]|[0-9])*"));
+        assertEquals(Collections.<Finding>emptyList(), analyzeToken("([a-z]+,)+"));
+    }
+
+    @Test
+    public void tokenShadowedByEarlierTokenIsReported() {
+        Finding finding = single(analyze(tokens(new TokenDef("KEYWORD", "if|in", null), new TokenDef("IF", "if", null)), skips()));
+        assertEquals(Severity.ERROR, finding.getSeverity());
+        assertEquals("token IF", finding.getElement());
+        assertTrue(finding.getMessage(), finding.getMessage().contains("never produced"));
+
+        // Beaver tries tokens without repetition first, the keyword is shadowed only in the other lexers
+        finding = single(analyze(tokens(new TokenDef("NAME", "[a-z]+", null), new TokenDef("IF", "if", null)), skips()));
+        assertEquals(Severity.WARNING, finding.getSeverity());
+        assertTrue(finding.getMessage(), finding.getMessage().contains("except in Beaver"));
+
+        finding = single(analyze(tokens(new TokenDef("NAME", "[a-z]+", null), new TokenDef("KEY", "if|42", null)), skips()));
+        assertEquals(Severity.WARNING, finding.getSeverity());
+        assertTrue(finding.getMessage(), finding.getMessage().contains("strings ['if']"));
+
+        assertEquals(Collections.<Finding>emptyList(), analyze(tokens(new TokenDef("IF", "if", null), new TokenDef("NAME", "[a-z]+", null)), skips()));
+    }
+
+    @Test
+    public void skipOverlappingTokenIsReported() {
+        Finding finding = single(analyze(tokens(new TokenDef("DECREMENT", "--", null)), skips(new SkipDef("--[^\\n]*", null))));
+        assertEquals(Severity.ERROR, finding.getSeverity());
+        assertEquals("skip", finding.getElement());
+        assertTrue(finding.getMessage(), finding.getMessage().contains("token DECREMENT"));
+
+        assertEquals(Collections.<Finding>emptyList(), analyze(tokens(new TokenDef("MINUS", "-", null)), skips(new SkipDef("--[^\\n]*", null))));
+    }
+
+    @Test
+    public void skipMatchingEmptyStringIsReported() {
+        Finding finding = single(analyze(tokens(), skips(new SkipDef("\\s*", null))));
+        assertEquals(Severity.ERROR, finding.getSeverity());
+        assertEquals("use '\\s+'", finding.getSuggestion());
+    }
+
+    @Test
+    public void invalidRegexIsReported() {
+        Finding finding = single(analyzeToken("[a-z"));
+        assertEquals(Severity.ERROR, finding.getSeverity());
+        assertTrue(finding.getMessage(), finding.getMessage().startsWith("invalid regular expression"));
+    }
+
+    @Test
+    public void findsLongestMatchDifferences() {
+        assertNotNull(RegexAnalyzer.findLongestMatchDifference("a|ab"));
+        assertNotNull(RegexAnalyzer.findLongestMatchDifference("(|a)b*"));
+        assertNotNull(RegexAnalyzer.findLongestMatchDifference("[a-z0-9]*[0-9]"));
+        assertNull(RegexAnalyzer.findLongestMatchDifference("ab|cd"));
+        assertNull(RegexAnalyzer.findLongestMatchDifference("[a-z]*[0-9]"));
+        assertNull(RegexAnalyzer.findLongestMatchDifference("[0-9]+"));
+    }
+
+    @Test
+    public void findsCommonFirstCharacters() {
+        assertTrue(RegexAnalyzer.canStartWithSameCharacter("\\s", "[ a]+"));
+        assertFalse(RegexAnalyzer.canStartWithSameCharacter("\\s", "[a-z]+"));
+        assertTrue(RegexAnalyzer.canStartWithSameCharacter("[a", "[a-z]+"));
+    }
+
+    private static List<Finding> analyzeToken(String regex) {
+        return analyze(tokens(new TokenDef("TOKEN", regex, null)), skips());
+    }
+
+    private static List<Finding> analyze(List<TokenDef> tokens, List<SkipDef> skips) {
+        return new RegexAnalyzer().analyze(createLanguage("regex", tokens, skips));
+    }
+
+    private static Finding single(List<Finding> findings) {
+        assertEquals(findings.toString(), 1, findings.size());
+        return findings.get(0);
+    }
+}
@@ -0,0 +1,486 @@
+package yajco.grammar.analysis;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Result of {@link GrammarAnalyzer}, it can be written as a JSON report by {@link #writeJson(Writer)}.
+ */
+public class GrammarAnalysis {
+
+    private final String startSymbol;
+    private final int terminalCount;
+    private final int nonterminalCount;
+    private final int ruleCount;
+    private final int maxLookahead;
+    private final List<SymbolSets> symbolSets = new ArrayList<SymbolSets>();
+    private final List<String> leftRecursive = new ArrayList<String>();
+    private final List<Decision> decisions = new ArrayList<Decision>();
+    private final List<Conflict> conflicts = new ArrayList<Conflict>();
+    private int lalrStates;
+
+    GrammarAnalysis(String startSymbol, int terminalCount, int nonterminalCount, int ruleCount, int maxLookahead) {
+        this.startSymbol = startSymbol;
+        this.terminalCount = terminalCount;
+        this.nonterminalCount = nonterminalCount;
+        this.ruleCount = ruleCount;
+        this.maxLookahead = maxLookahead;
+    }
+
+    void addSets(String nonterminal, boolean nullable, List<String> first, List<String> follow) {
+        symbolSets.add(new SymbolSets(nonterminal, nullable, first, follow));
+    }
+
+    void addLeftRecursive(String nonterminal) {
+        leftRecursive.add(nonterminal);
+    }
+
+    void addDecision(String nonterminal, int alternatives, List<String> ll1Conflicts, int lookahead, boolean leftRecursive) {
+        decisions.add(new Decision(nonterminal, alternatives, ll1Conflicts, lookahead, leftRecursive));
+    }
+
+    void addConflict(int state, String type, String terminal, List<String> rules, boolean resolvedByPrecedence) {
+        conflicts.add(new Conflict(state, type, terminal, rules, resolvedByPrecedence));
+    }
+
+    void setLalrStates(int lalrStates) {
+        this.lalrStates = lalrStates;
+    }
+
+    public String getStartSymbol() {
+        return startSymbol;
+    }
+
+    public int getTerminalCount() {
+        return terminalCount;
+    }
+
+    public int getNonterminalCount() {
+        return nonterminalCount;
+    }
+
+    public int getRuleCount() {
+        return ruleCount;
+    }
+
+    /**
+     * Returns the biggest lookahead tried for LL decisions.
+     */
+    public int getMaxLookahead() {
+        return maxLookahead;
+    }
+
+    public List<SymbolSets> getSymbolSets() {
+        return Collections.unmodifiableList(symbolSets);
+    }
+
+    public List<String> getLeftRecursive() {
+        return Collections.unmodifiableList(leftRecursive);
+    }
+
+    public List<Decision> getDecisions() {
+        return Collections.unmodifiableList(decisions);
+    }
+
+    public List<Conflict> getConflicts() {
+        return Collections.unmodifiableList(conflicts);
+    }
+
+    public int getLalrStates() {
+        return lalrStates;
+    }
+
+    public boolean isLL1() {
+        for (Decision decision : decisions) {
+            if (!decision.getLl1Conflicts().isEmpty()) {
+                return false;
+            }
+        }
+        return leftRecursive.isEmpty();
+    }
+
+    /**
+     * Returns lookahead needed by the hardest LL decision, or -1 if some decision is not LL(k) for any k
+     * up to {@link #getMaxLookahead()}.
+     */
+    public int getRequiredLookahead() {
+        int required = 1;
+        for (Decision decision : decisions) {
+            if (decision.getLookahead() < 0) {
+                return -1;
+            }
+            required = Math.max(required, decision.getLookahead());
+        }
+        return required;
+    }
+
+    public int getUnresolvedConflictCount() {
+        int count = 0;
+        for (Conflict conflict : conflicts) {
+            if (!conflict.isResolvedByPrecedence()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public boolean isLALR1() {
+        return getUnresolvedConflictCount() == 0;
+    }
+
+    public void writeJson(Writer writer) throws IOException {
+        JsonWriter json = new JsonWriter(writer);
+        json.beginObject();
+        json.name("grammar").beginObject();
+        json.name("startSymbol").value(startSymbol);
+        json.name("terminals").value(terminalCount);
+        json.name("nonterminals").value(nonterminalCount);
+        json.name("rules").value(ruleCount);
+        json.endObject();
+
+        json.name("summary").beginObject();
+        json.name("ll1").value(isLL1());
+        json.name("maxLookahead").value(maxLookahead);
+        int required = getRequiredLookahead();
+        json.name("requiredLookahead");
+        if (required < 0) {
+            json.nullValue();
+        } else {
+            json.value(required);
+        }
+        json.name("lalr1").value(isLALR1());
+        json.name("lalrStates").value(lalrStates);
+        json.name("lalrConflicts").value(conflicts.size());
+        json.name("unresolvedLalrConflicts").value(getUnresolvedConflictCount());
+        json.endObject();
+
+        json.name("leftRecursive").value(leftRecursive);
+
+        json.name("decisions").beginArray();
+        for (Decision decision : decisions) {
+            json.beginObject();
+            json.name("nonterminal").value(decision.getNonterminal());
+            json.name("alternatives").value(decision.getAlternatives());
+            json.name("ll1Conflicts").value(decision.getLl1Conflicts());
+            json.name("lookahead");
+            if (decision.getLookahead() < 0) {
+                json.nullValue();
+            } else {
+                json.value(decision.getLookahead());
+            }
+            json.name("leftRecursive").value(decision.isLeftRecursive());
+            json.endObject();
+        }
+        json.endArray();
+
+        json.name("lalrConflicts").beginArray();
+        for (Conflict conflict : conflicts) {
+            json.beginObject();
+            json.name("state").value(conflict.getState());
+            json.name("type").value(conflict.getType());
+            json.name("terminal").value(conflict.getTerminal());
+            json.name("rules").value(conflict.getRules());
+            json.name("resolvedByPrecedence").value(conflict.isResolvedByPrecedence());
+            json.endObject();
+        }
+        json.endArray();
+
+        json.name("sets").beginArray();
+        for (SymbolSets sets : symbolSets) {
+            json.beginObject();
+            json.name("nonterminal").value(sets.getNonterminal());
+            json.name("nullable").value(sets.isNullable());
+            json.name("first").value(sets.getFirst());
+            json.name("follow").value(sets.getFollow());
+            json.endObject();
+        }
+        json.endArray();
+        json.endObject();
+        writer.write('\n');
+        writer.flush();
+    }
+
+    @Override
+    public String toString() {
+        int required = getRequiredLookahead();
+        return "Grammar analysis: " + ruleCount + " rules, LL(1) " + (isLL1() ? "yes" : "no")
+                + ", LL lookahead " + (required < 0 ? "more than " + maxLookahead : String.valueOf(required))
+                + ", " + lalrStates + " LALR states, " + conflicts.size() + " LALR(1) conflicts ("
+                + getUnresolvedConflictCount() + " unresolved)";
+    }
+
+    public static class SymbolSets {
+
+        private final String nonterminal;
+        private final boolean nullable;
+        private final List<String> first;
+        private final List<String> follow;
+
+        SymbolSets(String nonterminal, boolean nullable, List<String> first, List<String> follow) {
+            this.nonterminal = nonterminal;
+            this.nullable = nullable;
+            this.first = first;
+            this.follow = follow;
+        }
+
+        public String getNonterminal() {
+            return nonterminal;
+        }
+
+        public boolean isNullable() {
+            return nullable;
+        }
+
+        public List<String> getFirst() {
+            return Collections.unmodifiableList(first);
+        }
+
+        public List<String> getFollow() {
+            return Collections.unmodifiableList(follow);
+        }
+    }
+
+    /**
+     * Choice among alternatives of a nonterminal made by an LL parser.
+     */
+    public static class Decision {
+
+        private final String nonterminal;
+        private final int alternatives;
+        private final List<String> ll1Conflicts;
+        private final int lookahead;
+        private final boolean leftRecursive;
+
+        Decision(String nonterminal, int alternatives, List<String> ll1Conflicts, int lookahead, boolean leftRecursive) {
+            this.nonterminal = nonterminal;
+            this.alternatives = alternatives;
+            this.ll1Conflicts = ll1Conflicts;
+            this.lookahead = lookahead;
+            this.leftRecursive = leftRecursive;
+        }
+
+        public String getNonterminal() {
+            return nonterminal;
+        }
+
+        public int getAlternatives() {
+            return alternatives;
+        }
+
+        /**
+         * Returns terminals predicting more than one alternative.
+         */
+        public List<String> getLl1Conflicts() {
+            return Collections.unmodifiableList(ll1Conflicts);
+        }
+
+        /**
+         * Returns the smallest k for which the decision is strong LL(k), or -1 if there is no such k up to
+         * the maximal lookahead.
+         */
+        public int getLookahead() {
+            return lookahead;
+        }
+
+        public boolean isLeftRecursive() {
+            return leftRecursive;
+        }
+    }
+
+    /**
+     * Conflict in the LALR(1) parsing table.
+     */
+    public static class Conflict {
+
+        private final int state;
+        private final String type;
+        private final String terminal;
+        private final List<String> rules;
+        private final boolean resolvedByPrecedence;
+
+        Conflict(int state, String type, String terminal, List<String> rules, boolean resolvedByPrecedence) {
+            this.state = state;
+            this.type = type;
+            this.terminal = terminal;
+            this.rules = rules;
+            this.resolvedByPrecedence = resolvedByPrecedence;
+        }
+
+        public int getState() {
+            return state;
+        }
+
+        /**
+         * Returns either 'shift-reduce' or 'reduce-reduce'.
+         */
+        public String getType() {
+            return type;
+        }
+
+        public String getTerminal() {
+            return terminal;
+        }
+
+        /**
+         * Returns rules reduced in the conflict.
+         */
+        public List<String> getRules() {
+            return Collections.unmodifiableList(rules);
+        }
+
+        public boolean isResolvedByPrecedence() {
+            return resolvedByPrecedence;
+        }
+
+        @Override
+        public String toString() {
+            return type + " conflict on " + terminal + " in state " + state + ": " + rules;
+        }
+    }
+
+    /**
+     * Minimal streaming JSON writer, members are written on separate lines.
+     */
+    private static class JsonWriter {
+
+        private final Writer writer;
+        private final List<Boolean> first = new ArrayList<Boolean>();
+        private boolean afterName;
+
+        JsonWriter(Writer writer) {
+            this.writer = writer;
+        }
+
+        JsonWriter beginObject() throws IOException {
+            return begin('{');
+        }
+
+        JsonWriter endObject() throws IOException {
+            return end('}');
+        }
+
+        JsonWriter beginArray() throws IOException {
+            return begin('[');
+        }
+
+        JsonWriter endArray() throws IOException {
+            return end(']');
+        }
+
+        JsonWriter name(String name) throws IOException {
+            separate();
+            string(name);
+            writer.write(": ");
+            afterName = true;
+            return this;
+        }
+
+        JsonWriter value(String value) throws IOException {
+            separate();
+            string(value);
+            return this;
+        }
+
+        JsonWriter value(long value) throws IOException {
+            separate();
+            writer.write(String.valueOf(value));
+            return this;
+        }
+
+        JsonWriter value(boolean value) throws IOException {
+            separate();
+            writer.write(String.valueOf(value));
+            return this;
+        }
+
+        JsonWriter value(List<String> values) throws IOException {
+            separate();
+            writer.write('[');
+            for (int i = 0; i < values.size(); i++) {
+                if (i > 0) {
+                    writer.write(", ");
+                }
+                string(values.get(i));
+            }
+            writer.write(']');
+            return this;
+        }
+
+        JsonWriter nullValue() throws IOException {
+            separate();
+            writer.write("null");
+            return this;
+        }
+
+        private JsonWriter begin(char bracket) throws IOException {
+            separate();
+            writer.write(bracket);
+            first.add(Boolean.TRUE);
+            return this;
+        }
+
+        private JsonWriter end(char bracket) throws IOException {
+            boolean empty = first.remove(first.size() - 1);
+            if (!empty) {
+                newLine();
+            }
+            writer.write(bracket);
+            return this;
+        }
+
+        private void separate() throws IOException {
+            if (afterName) {
+                afterName = false;
+                return;
+            }
+            if (!first.isEmpty()) {
+                if (!first.get(first.size() - 1)) {
+                    writer.write(',');
+                }
+                first.set(first.size() - 1, Boolean.FALSE);
+                newLine();
+            }
+        }
+
+        private void newLine() throws IOException {
+            writer.write('\n');
+            for (int i = 0; i < first.size(); i++) {
+                writer.write("  ");
+            }
+        }
+
+        private void string(String value) throws IOException {
+            writer.write('"');
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                switch (c) {
+                    case '"':
+                        writer.write("\\\"");
+                        break;
+                    case '\\':
+                        writer.write("\\\\");
+                        break;
+                    case '\n':
+                        writer.write("\\n");
+                        break;
+                    case '\r':
+                        writer.write("\\r");
+                        break;
+                    case '\t':
+                        writer.write("\\t");
+                        break;
+                    default:
+                        if (c < 0x20) {
+                            writer.write(String.format("\\u%04x", (int) c));
+                        } else {
+                            writer.write(c);
+                        }
+                }
+            }
+            writer.write('"');
+        }
+    }
+}
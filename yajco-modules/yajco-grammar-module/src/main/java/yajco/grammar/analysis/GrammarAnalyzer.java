@@ -0,0 +1,714 @@
+package yajco.grammar.analysis;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import yajco.grammar.NonterminalSymbol;
+import yajco.grammar.Symbol;
+import yajco.grammar.TerminalSymbol;
+import yajco.grammar.bnf.Alternative;
+import yajco.grammar.bnf.Grammar;
+import yajco.grammar.bnf.Production;
+
+/**
+ * Computes FIRST and FOLLOW sets of a grammar, lookahead needed by an LL parser in every decision and conflicts
+ * of an LALR(1) parser.
+ * <p>
+ * Lookahead of a decision is the smallest k for which the decision is strong LL(k), up to the given maximum.
+ * LALR(1) conflicts are found in LR(0) automaton with lookaheads computed by propagation. Shift-reduce conflicts
+ * are considered resolved, if both the terminal and the rule have a precedence given by operator alternatives.
+ */
+public class GrammarAnalyzer {
+
+    public static final int DEFAULT_MAX_LOOKAHEAD = 3;
+
+    static final String EOF = "$EOF";
+    private static final String START = "$start";
+    // Sets of lookahead strings bigger than this are not computed, decisions are then reported as not LL(k).
+    private static final int MAX_LOOKAHEAD_SET_SIZE = 10000;
+
+    private final int maxLookahead;
+
+    // Terminals are numbered from 0, EOF follows them and a marker of propagated lookahead is the last one.
+    private List<String> terminals;
+    private List<String> nonterminals;
+    private int eof;
+    private int propagated;
+    // Symbols of rules, terminal t is encoded as t and nonterminal n as -(n + 1).
+    private int[][] rules;
+    private int[] ruleLhs;
+    private Alternative[] ruleAlternatives;
+    private List<List<Integer>> rulesOf;
+    private int[] ruleItemStart;
+    private int[] itemRule;
+
+    private boolean[] nullable;
+    private BitSet[] first;
+    private BitSet[] follow;
+
+    public GrammarAnalyzer() {
+        this(DEFAULT_MAX_LOOKAHEAD);
+    }
+
+    /**
+     * @param maxLookahead maximal lookahead computed for LL decisions
+     */
+    public GrammarAnalyzer(int maxLookahead) {
+        this.maxLookahead = Math.max(1, maxLookahead);
+    }
+
+    public GrammarAnalysis analyze(Grammar grammar) {
+        index(grammar);
+        computeNullableAndFirst();
+        computeFollow();
+
+        GrammarAnalysis analysis = new GrammarAnalysis(grammar.getStartSymbol().getName(), terminals.size(), nonterminals.size() - 1, rules.length - 1, maxLookahead);
+        for (int n = 0; n < nonterminals.size() - 1; n++) {
+            analysis.addSets(nonterminals.get(n), nullable[n], names(first[n]), names(follow[n]));
+        }
+        Set<Integer> leftRecursive = findLeftRecursive();
+        for (Integer n : leftRecursive) {
+            analysis.addLeftRecursive(nonterminals.get(n));
+        }
+        analyzeDecisions(analysis, leftRecursive);
+        analyzeLalr(analysis, grammar);
+        return analysis;
+    }
+
+    private void index(Grammar grammar) {
+        List<Production> productions = new ArrayList<Production>(grammar.getProductions().values());
+        Collections.sort(productions, new Comparator<Production>() {
+            @Override
+            public int compare(Production o1, Production o2) {
+                return o1.getLhs().getName().compareTo(o2.getLhs().getName());
+            }
+        });
+
+        Set<String> terminalNames = new LinkedHashSet<String>();
+        Map<String, Integer> nonterminalIds = new LinkedHashMap<String, Integer>();
+        for (Production production : productions) {
+            nonterminalIds.put(production.getLhs().getName(), nonterminalIds.size());
+        }
+        for (Production production : productions) {
+            for (Alternative alternative : production.getRhs()) {
+                for (Symbol symbol : alternative.getSymbols()) {
+                    if (symbol instanceof TerminalSymbol) {
+                        terminalNames.add(symbol.getName());
+                    } else if (!nonterminalIds.containsKey(symbol.getName())) {
+                        // Nonterminal without production derives nothing, it is kept to report it.
+                        nonterminalIds.put(symbol.getName(), nonterminalIds.size());
+                    }
+                }
+            }
+        }
+        nonterminalIds.put(START, nonterminalIds.size());
+
+        terminals = new ArrayList<String>(terminalNames);
+        Map<String, Integer> terminalIds = new HashMap<String, Integer>();
+        for (String terminal : terminals) {
+            terminalIds.put(terminal, terminalIds.size());
+        }
+        eof = terminals.size();
+        propagated = terminals.size() + 1;
+        nonterminals = new ArrayList<String>(nonterminalIds.keySet());
+
+        List<int[]> ruleList = new ArrayList<int[]>();
+        List<Integer> lhsList = new ArrayList<Integer>();
+        List<Alternative> alternativeList = new ArrayList<Alternative>();
+        // Rule 0 is the augmented start rule.
+        ruleList.add(new int[]{-(nonterminalIds.get(grammar.getStartSymbol().getName()) + 1)});
+        lhsList.add(nonterminalIds.get(START));
+        alternativeList.add(null);
+        for (Production production : productions) {
+            for (Alternative alternative : production.getRhs()) {
+                int[] rhs = new int[alternative.getSymbols().size()];
+                for (int i = 0; i < rhs.length; i++) {
+                    Symbol symbol = alternative.getSymbols().get(i);
+                    rhs[i] = symbol instanceof TerminalSymbol ? terminalIds.get(symbol.getName()) : -(nonterminalIds.get(symbol.getName()) + 1);
+                }
+                ruleList.add(rhs);
+                lhsList.add(nonterminalIds.get(production.getLhs().getName()));
+                alternativeList.add(alternative);
+            }
+        }
+
+        rules = ruleList.toArray(new int[ruleList.size()][]);
+        ruleLhs = new int[rules.length];
+        ruleAlternatives = alternativeList.toArray(new Alternative[alternativeList.size()]);
+        rulesOf = new ArrayList<List<Integer>>();
+        for (int n = 0; n < nonterminals.size(); n++) {
+            rulesOf.add(new ArrayList<Integer>());
+        }
+        ruleItemStart = new int[rules.length + 1];
+        for (int r = 0; r < rules.length; r++) {
+            ruleLhs[r] = lhsList.get(r);
+            rulesOf.get(ruleLhs[r]).add(r);
+            ruleItemStart[r + 1] = ruleItemStart[r] + rules[r].length + 1;
+        }
+        itemRule = new int[ruleItemStart[rules.length]];
+        for (int r = 0; r < rules.length; r++) {
+            Arrays.fill(itemRule, ruleItemStart[r], ruleItemStart[r + 1], r);
+        }
+    }
+
+    private void computeNullableAndFirst() {
+        nullable = new boolean[nonterminals.size()];
+        first = new BitSet[nonterminals.size()];
+        for (int n = 0; n < first.length; n++) {
+            first[n] = new BitSet();
+        }
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int r = 0; r < rules.length; r++) {
+                int lhs = ruleLhs[r];
+                BitSet sequenceFirst = new BitSet();
+                boolean sequenceNullable = firstOfSequence(rules[r], 0, sequenceFirst);
+                if (sequenceNullable && !nullable[lhs]) {
+                    nullable[lhs] = true;
+                    changed = true;
+                }
+                if (!contains(first[lhs], sequenceFirst)) {
+                    first[lhs].or(sequenceFirst);
+                    changed = true;
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds FIRST set of the rest of the sequence into the set and returns whether the rest is nullable.
+     */
+    private boolean firstOfSequence(int[] sequence, int from, BitSet result) {
+        for (int i = from; i < sequence.length; i++) {
+            int symbol = sequence[i];
+            if (symbol >= 0) {
+                result.set(symbol);
+                return false;
+            }
+            result.or(first[-symbol - 1]);
+            if (!nullable[-symbol - 1]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void computeFollow() {
+        follow = new BitSet[nonterminals.size()];
+        for (int n = 0; n < follow.length; n++) {
+            follow[n] = new BitSet();
+        }
+        follow[ruleLhs[0]].set(eof);
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int r = 0; r < rules.length; r++) {
+                int[] rhs = rules[r];
+                for (int i = 0; i < rhs.length; i++) {
+                    if (rhs[i] >= 0) {
+                        continue;
+                    }
+                    int n = -rhs[i] - 1;
+                    BitSet rest = new BitSet();
+                    if (firstOfSequence(rhs, i + 1, rest)) {
+                        rest.or(follow[ruleLhs[r]]);
+                    }
+                    if (!contains(follow[n], rest)) {
+                        follow[n].or(rest);
+                        changed = true;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Finds nonterminals deriving a sentential form starting with themselves.
+     */
+    private Set<Integer> findLeftRecursive() {
+        List<Set<Integer>> leftCorners = new ArrayList<Set<Integer>>();
+        for (int n = 0; n < nonterminals.size(); n++) {
+            leftCorners.add(new HashSet<Integer>());
+        }
+        for (int r = 0; r < rules.length; r++) {
+            for (int symbol : rules[r]) {
+                if (symbol >= 0) {
+                    break;
+                }
+                leftCorners.get(ruleLhs[r]).add(-symbol - 1);
+                if (!nullable[-symbol - 1]) {
+                    break;
+                }
+            }
+        }
+        Set<Integer> leftRecursive = new LinkedHashSet<Integer>();
+        for (int n = 0; n < nonterminals.size(); n++) {
+            Set<Integer> reached = new HashSet<Integer>();
+            List<Integer> queue = new ArrayList<Integer>(leftCorners.get(n));
+            while (!queue.isEmpty()) {
+                int m = queue.remove(queue.size() - 1);
+                if (reached.add(m)) {
+                    queue.addAll(leftCorners.get(m));
+                }
+            }
+            if (reached.contains(n)) {
+                leftRecursive.add(n);
+            }
+        }
+        return leftRecursive;
+    }
+
+    private void analyzeDecisions(GrammarAnalysis analysis, Set<Integer> leftRecursive) {
+        List<Integer> decisions = new ArrayList<Integer>();
+        for (int n = 0; n < nonterminals.size(); n++) {
+            if (rulesOf.get(n).size() > 1) {
+                decisions.add(n);
+            }
+        }
+
+        Map<Integer, BitSet> ll1Conflicts = new HashMap<Integer, BitSet>();
+        Map<Integer, Integer> lookahead = new HashMap<Integer, Integer>();
+        for (int n : decisions) {
+            List<BitSet> predictSets = new ArrayList<BitSet>();
+            for (int r : rulesOf.get(n)) {
+                BitSet predict = new BitSet();
+                if (firstOfSequence(rules[r], 0, predict)) {
+                    predict.or(follow[n]);
+                }
+                predictSets.add(predict);
+            }
+            BitSet conflicts = new BitSet();
+            for (int i = 0; i < predictSets.size(); i++) {
+                for (int j = i + 1; j < predictSets.size(); j++) {
+                    BitSet common = (BitSet) predictSets.get(i).clone();
+                    common.and(predictSets.get(j));
+                    conflicts.or(common);
+                }
+            }
+            ll1Conflicts.put(n, conflicts);
+            if (conflicts.isEmpty()) {
+                lookahead.put(n, 1);
+            }
+        }
+
+        for (int k = 2; k <= maxLookahead; k++) {
+            List<Integer> unresolved = new ArrayList<Integer>();
+            for (int n : decisions) {
+                if (!lookahead.containsKey(n) && !leftRecursive.contains(n)) {
+                    unresolved.add(n);
+                }
+            }
+            if (unresolved.isEmpty()) {
+                break;
+            }
+            LookaheadSets sets = new LookaheadSets(k);
+            if (!sets.compute()) {
+                break;
+            }
+            for (int n : unresolved) {
+                if (sets.isStrongLL(n)) {
+                    lookahead.put(n, k);
+                }
+            }
+        }
+
+        for (int n : decisions) {
+            Integer k = lookahead.get(n);
+            analysis.addDecision(nonterminals.get(n), rulesOf.get(n).size(), names(ll1Conflicts.get(n)), k != null ? k : -1, leftRecursive.contains(n));
+        }
+    }
+
+    private void analyzeLalr(GrammarAnalysis analysis, Grammar grammar) {
+        // Precedence of terminals and rules declared by operator alternatives.
+        Map<String, Integer> terminalPrecedence = new HashMap<String, Integer>();
+        Set<Alternative> operatorAlternatives = Collections.newSetFromMap(new IdentityHashMap<Alternative, Boolean>());
+        for (Map.Entry<Integer, List<Alternative>> entry : grammar.getOperatorPool().entrySet()) {
+            for (Alternative alternative : entry.getValue()) {
+                operatorAlternatives.add(alternative);
+                for (Symbol symbol : alternative.getSymbols()) {
+                    if (symbol instanceof TerminalSymbol) {
+                        terminalPrecedence.put(symbol.getName(), entry.getKey());
+                    }
+                }
+            }
+        }
+
+        // LR(0) automaton, states are identified by their kernels.
+        List<int[]> kernels = new ArrayList<int[]>();
+        List<Map<Integer, Integer>> transitions = new ArrayList<Map<Integer, Integer>>();
+        Map<List<Integer>, Integer> stateIds = new HashMap<List<Integer>, Integer>();
+        int[] initial = {ruleItemStart[0]};
+        kernels.add(initial);
+        stateIds.put(asList(initial), 0);
+        for (int s = 0; s < kernels.size(); s++) {
+            Map<Integer, Set<Integer>> successors = new LinkedHashMap<Integer, Set<Integer>>();
+            for (int item : closure(kernels.get(s))) {
+                int symbol = symbolAfterDot(item);
+                if (symbol != Integer.MIN_VALUE) {
+                    Set<Integer> kernel = successors.get(symbol);
+                    if (kernel == null) {
+                        kernel = new HashSet<Integer>();
+                        successors.put(symbol, kernel);
+                    }
+                    kernel.add(item + 1);
+                }
+            }
+            Map<Integer, Integer> stateTransitions = new HashMap<Integer, Integer>();
+            for (Map.Entry<Integer, Set<Integer>> entry : successors.entrySet()) {
+                int[] kernel = toSortedArray(entry.getValue());
+                List<Integer> key = asList(kernel);
+                Integer target = stateIds.get(key);
+                if (target == null) {
+                    target = kernels.size();
+                    kernels.add(kernel);
+                    stateIds.put(key, target);
+                }
+                stateTransitions.put(entry.getKey(), target);
+            }
+            transitions.add(stateTransitions);
+        }
+
+        // Lookaheads of kernel items, spontaneous ones and propagation links.
+        List<Map<Integer, BitSet>> lookaheads = new ArrayList<Map<Integer, BitSet>>();
+        for (int[] kernel : kernels) {
+            Map<Integer, BitSet> kernelLookaheads = new HashMap<Integer, BitSet>();
+            for (int item : kernel) {
+                kernelLookaheads.put(item, new BitSet());
+            }
+            lookaheads.add(kernelLookaheads);
+        }
+        lookaheads.get(0).get(initial[0]).set(eof);
+        List<int[]> links = new ArrayList<int[]>();
+        for (int s = 0; s < kernels.size(); s++) {
+            for (int kernelItem : kernels.get(s)) {
+                Map<Integer, BitSet> start = new HashMap<Integer, BitSet>();
+                BitSet marker = new BitSet();
+                marker.set(propagated);
+                start.put(kernelItem, marker);
+                for (Map.Entry<Integer, BitSet> entry : closure1(start).entrySet()) {
+                    int symbol = symbolAfterDot(entry.getKey());
+                    if (symbol == Integer.MIN_VALUE) {
+                        continue;
+                    }
+                    int target = transitions.get(s).get(symbol);
+                    BitSet spontaneous = (BitSet) entry.getValue().clone();
+                    if (spontaneous.get(propagated)) {
+                        spontaneous.clear(propagated);
+                        links.add(new int[]{s, kernelItem, target, entry.getKey() + 1});
+                    }
+                    lookaheads.get(target).get(entry.getKey() + 1).or(spontaneous);
+                }
+            }
+        }
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int[] link : links) {
+                BitSet from = lookaheads.get(link[0]).get(link[1]);
+                BitSet to = lookaheads.get(link[2]).get(link[3]);
+                if (!contains(to, from)) {
+                    to.or(from);
+                    changed = true;
+                }
+            }
+        }
+
+        analysis.setLalrStates(kernels.size());
+        Set<String> reported = new HashSet<String>();
+        for (int s = 0; s < kernels.size(); s++) {
+            Map<Integer, BitSet> items = closure1(lookaheads.get(s));
+            List<Integer> reductions = new ArrayList<Integer>();
+            for (int item : items.keySet()) {
+                if (symbolAfterDot(item) == Integer.MIN_VALUE) {
+                    reductions.add(item);
+                }
+            }
+            Collections.sort(reductions);
+            for (int i = 0; i < reductions.size(); i++) {
+                int rule = itemRule[reductions.get(i)];
+                BitSet reduceOn = items.get(reductions.get(i));
+                for (int t = reduceOn.nextSetBit(0); t >= 0; t = reduceOn.nextSetBit(t + 1)) {
+                    if (t < eof && transitions.get(s).containsKey(t)) {
+                        boolean resolved = terminalPrecedence.containsKey(terminals.get(t))
+                                && hasPrecedence(rule, operatorAlternatives, terminalPrecedence);
+                        report(analysis, reported, s, "shift-reduce", t, Collections.singletonList(rule), resolved);
+                    }
+                }
+                for (int j = i + 1; j < reductions.size(); j++) {
+                    BitSet common = (BitSet) reduceOn.clone();
+                    common.and(items.get(reductions.get(j)));
+                    for (int t = common.nextSetBit(0); t >= 0; t = common.nextSetBit(t + 1)) {
+                        report(analysis, reported, s, "reduce-reduce", t, Arrays.asList(rule, itemRule[reductions.get(j)]), false);
+                    }
+                }
+            }
+        }
+    }
+
+    private void report(GrammarAnalysis analysis, Set<String> reported, int state, String type, int terminal, List<Integer> conflictRules, boolean resolved) {
+        List<String> ruleStrings = new ArrayList<String>();
+        for (int rule : conflictRules) {
+            ruleStrings.add(ruleToString(rule));
+        }
+        String terminalName = terminal == eof ? EOF : terminals.get(terminal);
+        // The same conflict in several states is reported once.
+        if (reported.add(type + " " + terminalName + " " + ruleStrings)) {
+            analysis.addConflict(state, type, terminalName, ruleStrings, resolved);
+        }
+    }
+
+    private boolean hasPrecedence(int rule, Set<Alternative> operatorAlternatives, Map<String, Integer> terminalPrecedence) {
+        if (ruleAlternatives[rule] == null) {
+            return false;
+        }
+        if (operatorAlternatives.contains(ruleAlternatives[rule])) {
+            return true;
+        }
+        for (int i = rules[rule].length - 1; i >= 0; i--) {
+            if (rules[rule][i] >= 0) {
+                return terminalPrecedence.containsKey(terminals.get(rules[rule][i]));
+            }
+        }
+        return false;
+    }
+
+    private String ruleToString(int rule) {
+        StringBuilder sb = new StringBuilder(nonterminals.get(ruleLhs[rule])).append(" ::=");
+        for (int symbol : rules[rule]) {
+            sb.append(' ').append(symbol >= 0 ? terminals.get(symbol) : nonterminals.get(-symbol - 1));
+        }
+        return sb.toString();
+    }
+
+    private int symbolAfterDot(int item) {
+        int rule = itemRule[item];
+        int dot = item - ruleItemStart[rule];
+        return dot < rules[rule].length ? rules[rule][dot] : Integer.MIN_VALUE;
+    }
+
+    private Set<Integer> closure(int[] kernel) {
+        Set<Integer> items = new LinkedHashSet<Integer>();
+        List<Integer> queue = new ArrayList<Integer>();
+        for (int item : kernel) {
+            items.add(item);
+            queue.add(item);
+        }
+        Set<Integer> expanded = new HashSet<Integer>();
+        while (!queue.isEmpty()) {
+            int symbol = symbolAfterDot(queue.remove(queue.size() - 1));
+            if (symbol != Integer.MIN_VALUE && symbol < 0 && expanded.add(symbol)) {
+                for (int rule : rulesOf.get(-symbol - 1)) {
+                    if (items.add(ruleItemStart[rule])) {
+                        queue.add(ruleItemStart[rule]);
+                    }
+                }
+            }
+        }
+        return items;
+    }
+
+    /**
+     * LR(1) closure, items are mapped to their lookaheads.
+     */
+    private Map<Integer, BitSet> closure1(Map<Integer, BitSet> kernel) {
+        Map<Integer, BitSet> items = new HashMap<Integer, BitSet>();
+        List<Integer> queue = new ArrayList<Integer>();
+        for (Map.Entry<Integer, BitSet> entry : kernel.entrySet()) {
+            items.put(entry.getKey(), (BitSet) entry.getValue().clone());
+            queue.add(entry.getKey());
+        }
+        while (!queue.isEmpty()) {
+            int item = queue.remove(queue.size() - 1);
+            int symbol = symbolAfterDot(item);
+            if (symbol == Integer.MIN_VALUE || symbol >= 0) {
+                continue;
+            }
+            int rule = itemRule[item];
+            BitSet lookahead = new BitSet();
+            if (firstOfSequence(rules[rule], item - ruleItemStart[rule] + 1, lookahead)) {
+                lookahead.or(items.get(item));
+            }
+            for (int added : rulesOf.get(-symbol - 1)) {
+                int addedItem = ruleItemStart[added];
+                BitSet existing = items.get(addedItem);
+                if (existing == null) {
+                    items.put(addedItem, (BitSet) lookahead.clone());
+                    queue.add(addedItem);
+                } else if (!contains(existing, lookahead)) {
+                    existing.or(lookahead);
+                    queue.add(addedItem);
+                }
+            }
+        }
+        return items;
+    }
+
+    private List<String> names(BitSet set) {
+        List<String> names = new ArrayList<String>();
+        for (int t = set.nextSetBit(0); t >= 0; t = set.nextSetBit(t + 1)) {
+            names.add(t < eof ? terminals.get(t) : EOF);
+        }
+        return names;
+    }
+
+    private static boolean contains(BitSet set, BitSet subset) {
+        BitSet missing = (BitSet) subset.clone();
+        missing.andNot(set);
+        return missing.isEmpty();
+    }
+
+    private static int[] toSortedArray(Set<Integer> set) {
+        int[] array = new int[set.size()];
+        int i = 0;
+        for (int value : set) {
+            array[i++] = value;
+        }
+        Arrays.sort(array);
+        return array;
+    }
+
+    private static List<Integer> asList(int[] array) {
+        List<Integer> list = new ArrayList<Integer>(array.length);
+        for (int value : array) {
+            list.add(value);
+        }
+        return list;
+    }
+
+    /**
+     * FIRST and FOLLOW sets of terminal strings of length k, used to decide if a decision is strong LL(k).
+     */
+    private class LookaheadSets {
+
+        private final int k;
+        private final List<Set<List<Integer>>> firstK = new ArrayList<Set<List<Integer>>>();
+        private final List<Set<List<Integer>>> followK = new ArrayList<Set<List<Integer>>>();
+
+        LookaheadSets(int k) {
+            this.k = k;
+            for (int n = 0; n < nonterminals.size(); n++) {
+                firstK.add(new HashSet<List<Integer>>());
+                followK.add(new HashSet<List<Integer>>());
+            }
+        }
+
+        /**
+         * @return false if the sets are too big to be computed
+         */
+        boolean compute() {
+            boolean changed = true;
+            while (changed) {
+                changed = false;
+                for (int r = 0; r < rules.length; r++) {
+                    Set<List<Integer>> sequence = firstOfSequence(rules[r], 0);
+                    if (sequence == null) {
+                        return false;
+                    }
+                    changed |= firstK.get(ruleLhs[r]).addAll(sequence);
+                }
+            }
+
+            followK.get(ruleLhs[0]).add(Collections.singletonList(eof));
+            changed = true;
+            while (changed) {
+                changed = false;
+                for (int r = 0; r < rules.length; r++) {
+                    int[] rhs = rules[r];
+                    for (int i = 0; i < rhs.length; i++) {
+                        if (rhs[i] >= 0) {
+                            continue;
+                        }
+                        Set<List<Integer>> rest = firstOfSequence(rhs, i + 1);
+                        if (rest == null) {
+                            return false;
+                        }
+                        Set<List<Integer>> follows = concatenate(rest, followK.get(ruleLhs[r]));
+                        if (follows == null) {
+                            return false;
+                        }
+                        changed |= followK.get(-rhs[i] - 1).addAll(follows);
+                        if (followK.get(-rhs[i] - 1).size() > MAX_LOOKAHEAD_SET_SIZE) {
+                            return false;
+                        }
+                    }
+                }
+            }
+            return true;
+        }
+
+        boolean isStrongLL(int nonterminal) {
+            Set<List<Integer>> seen = new HashSet<List<Integer>>();
+            for (int r : rulesOf.get(nonterminal)) {
+                Set<List<Integer>> predict = concatenate(firstOfSequence(rules[r], 0), followK.get(nonterminal));
+                if (predict == null) {
+                    return false;
+                }
+                for (List<Integer> string : predict) {
+                    if (!seen.add(string)) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+
+        private Set<List<Integer>> firstOfSequence(int[] sequence, int from) {
+            Set<List<Integer>> result = new HashSet<List<Integer>>();
+            result.add(Collections.<Integer>emptyList());
+            for (int i = from; i < sequence.length && result != null && !allComplete(result); i++) {
+                Set<List<Integer>> symbolFirst = sequence[i] >= 0
+                        ? Collections.singleton(Collections.singletonList(sequence[i]))
+                        : firstK.get(-sequence[i] - 1);
+                result = concatenate(result, symbolFirst);
+            }
+            return result;
+        }
+
+        private boolean allComplete(Set<List<Integer>> strings) {
+            for (List<Integer> string : strings) {
+                if (string.size() < k) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Concatenates every pair of strings and truncates them to k terminals.
+         */
+        private Set<List<Integer>> concatenate(Set<List<Integer>> prefixes, Set<List<Integer>> suffixes) {
+            if (prefixes == null) {
+                return null;
+            }
+            Set<List<Integer>> result = new HashSet<List<Integer>>();
+            for (List<Integer> prefix : prefixes) {
+                if (prefix.size() >= k || (!prefix.isEmpty() && prefix.get(prefix.size() - 1) == eof)) {
+                    result.add(prefix);
+                    continue;
+                }
+                for (List<Integer> suffix : suffixes) {
+                    List<Integer> string = new ArrayList<Integer>(prefix);
+                    for (int i = 0; i < suffix.size() && string.size() < k; i++) {
+                        string.add(suffix.get(i));
+                    }
+                    result.add(string);
+                }
+                if (result.size() > MAX_LOOKAHEAD_SET_SIZE) {
+                    return null;
+                }
+            }
+            return result;
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package yajco.grammar.bnf;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Hashtable;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -120,6 +121,10 @@ public class Grammar extends PatternSupport {
         sequencePool.put(new RangeEntry(name, min, max, sep, unique, sharedPartName), nonterminal);
     }
 
+    public Collection<NonterminalSymbol> getSequenceNonterminals() {
+        return sequencePool.values();
+    }
+
     public Map<String, NonterminalSymbol> getNonterminals() {
         return nonterminals;
     }
@@ -0,0 +1,585 @@
+package yajco.grammar.optimizer;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import yajco.grammar.NonterminalSymbol;
+import yajco.grammar.Symbol;
+import yajco.grammar.TerminalSymbol;
+import yajco.grammar.bnf.Alternative;
+import yajco.grammar.bnf.Grammar;
+import yajco.grammar.bnf.Production;
+import yajco.grammar.semlang.Action;
+import yajco.grammar.semlang.AddElementToCollectionAction;
+import yajco.grammar.semlang.AssignAction;
+import yajco.grammar.semlang.CheckCollectionSizeAction;
+import yajco.grammar.semlang.ConvertCollectionToArrayAction;
+import yajco.grammar.semlang.ConvertListToCollectionAction;
+import yajco.grammar.semlang.ConvertListWithSharedToCollectionAction;
+import yajco.grammar.semlang.ConvertStringToPrimitiveTypeAction;
+import yajco.grammar.semlang.ConvertUnorderedParamsToObjectAction;
+import yajco.grammar.semlang.CreateClassInstanceAction;
+import yajco.grammar.semlang.CreateCollectionInstanceAction;
+import yajco.grammar.semlang.CreateEnumInstanceAction;
+import yajco.grammar.semlang.CreateOptionalClassInstanceAction;
+import yajco.grammar.semlang.CreateUnorderedParamClassInstanceAction;
+import yajco.grammar.semlang.DefineVariableAction;
+import yajco.grammar.semlang.LValue;
+import yajco.grammar.semlang.RValue;
+import yajco.grammar.semlang.ReturnAction;
+import yajco.grammar.semlang.UnquoteStringAction;
+import yajco.grammar.type.ObjectType;
+import yajco.model.type.ComponentType;
+import yajco.model.type.PrimitiveType;
+import yajco.model.type.ReferenceType;
+import yajco.model.type.Type;
+
+/**
+ * Simplifies the grammar produced by {@link yajco.grammar.translator.YajcoModelToBNFGrammarTranslator} before
+ * a parser is generated from it. The grammar is changed in place:
+ * <ul>
+ * <li>nonterminals not reachable from the start symbol are removed,</li>
+ * <li>unit alternatives only passing the value of the single nonterminal on through are replaced by alternatives
+ * of that nonterminal, if it is not used anywhere else, which saves one reduction and one wrapper object,</li>
+ * <li>productions with the same alternatives, actions and type are merged into one.</li>
+ * </ul>
+ * Productions with operator alternatives are neither inlined nor merged, since precedence of the operators
+ * depends on them.
+ * <p>
+ * Optimization is turned off by setting 'yajco.grammar.optimize' property to false.
+ */
+public class GrammarOptimizer {
+
+    public static final String OPTIMIZE_PROPERTY = "yajco.grammar.optimize";
+
+    private static final String SELF = "<self>";
+
+    private Grammar grammar;
+    private Set<Alternative> operatorAlternatives;
+    private Map<Object, Integer> uniqueIds;
+
+    public static boolean isEnabled(Properties properties) {
+        return properties == null || !"false".equalsIgnoreCase(properties.getProperty(OPTIMIZE_PROPERTY, "").trim());
+    }
+
+    /**
+     * Optimizes the grammar in place.
+     *
+     * @return sizes of the grammar before and after the optimization
+     */
+    public Report optimize(Grammar grammar) {
+        this.grammar = grammar;
+        this.operatorAlternatives = Collections.newSetFromMap(new IdentityHashMap<Alternative, Boolean>());
+        for (List<Alternative> alternatives : grammar.getOperatorPool().values()) {
+            operatorAlternatives.addAll(alternatives);
+        }
+        this.uniqueIds = new IdentityHashMap<Object, Integer>();
+
+        Report report = new Report(new Statistics(grammar));
+        report.removed += removeUnreachable();
+        boolean changed = true;
+        while (changed) {
+            int inlined = inlineUnitAlternatives();
+            int merged = mergeIdenticalProductions();
+            report.inlined += inlined;
+            report.merged += merged;
+            changed = inlined > 0 || merged > 0;
+        }
+        report.removed += removeUnreachable();
+        report.after = new Statistics(grammar);
+        return report;
+    }
+
+    private int removeUnreachable() {
+        Set<NonterminalSymbol> reachable = new HashSet<NonterminalSymbol>();
+        Deque<NonterminalSymbol> queue = new ArrayDeque<NonterminalSymbol>();
+        reachable.add(grammar.getStartSymbol());
+        queue.add(grammar.getStartSymbol());
+        while (!queue.isEmpty()) {
+            Production production = grammar.getProduction(queue.poll());
+            if (production == null) {
+                continue;
+            }
+            for (Alternative alternative : production.getRhs()) {
+                for (Symbol symbol : alternative.getSymbols()) {
+                    if (symbol instanceof NonterminalSymbol && reachable.add((NonterminalSymbol) symbol)) {
+                        queue.add((NonterminalSymbol) symbol);
+                    }
+                }
+            }
+        }
+
+        int removed = 0;
+        for (NonterminalSymbol lhs : sortedNonterminals()) {
+            if (!reachable.contains(lhs)) {
+                removeProduction(lhs);
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    private int inlineUnitAlternatives() {
+        Map<String, Integer> references = countReferences();
+        int inlined = 0;
+        for (NonterminalSymbol lhs : sortedNonterminals()) {
+            Production production = grammar.getProduction(lhs);
+            if (production == null) {
+                continue;
+            }
+            List<Alternative> rhs = production.getRhs();
+            for (int i = 0; i < rhs.size(); i++) {
+                NonterminalSymbol unit = getPassedOnNonterminal(rhs.get(i));
+                if (unit == null || unit.equals(lhs) || unit.equals(grammar.getStartSymbol())
+                        || !Integer.valueOf(1).equals(references.get(unit.getName()))) {
+                    continue;
+                }
+                Production unitProduction = grammar.getProduction(unit);
+                if (unitProduction == null || isPinned(unitProduction) || containsAny(rhs, unitProduction.getRhs())) {
+                    continue;
+                }
+
+                rhs.remove(i);
+                rhs.addAll(i, unitProduction.getRhs());
+                removeProduction(unit);
+                references.remove(unit.getName());
+                inlined++;
+                // Inlined alternatives are checked too, so whole unit chains are inlined.
+                i--;
+            }
+        }
+        return inlined;
+    }
+
+    private int mergeIdenticalProductions() {
+        Map<String, NonterminalSymbol> bySignature = new HashMap<String, NonterminalSymbol>();
+        Map<String, String> replacements = new LinkedHashMap<String, String>();
+        List<NonterminalSymbol> nonterminals = sortedNonterminals();
+        // Start symbol is kept if it is identical to another production.
+        nonterminals.remove(grammar.getStartSymbol());
+        nonterminals.add(0, grammar.getStartSymbol());
+        for (NonterminalSymbol lhs : nonterminals) {
+            Production production = grammar.getProduction(lhs);
+            if (production == null || production.getRhs().isEmpty() || isPinned(production)) {
+                continue;
+            }
+            String signature = signature(production);
+            NonterminalSymbol kept = bySignature.get(signature);
+            if (kept == null) {
+                bySignature.put(signature, lhs);
+            } else {
+                replacements.put(lhs.getName(), kept.getName());
+            }
+        }
+        if (replacements.isEmpty()) {
+            return 0;
+        }
+
+        for (String name : replacements.keySet()) {
+            removeProduction(new NonterminalSymbol(name, null));
+        }
+        for (Production production : grammar.getProductions().values()) {
+            for (Alternative alternative : production.getRhs()) {
+                List<Symbol> symbols = alternative.getSymbols();
+                for (int i = 0; i < symbols.size(); i++) {
+                    Symbol symbol = symbols.get(i);
+                    String replacement = replacements.get(symbol.getName());
+                    if (symbol instanceof NonterminalSymbol && replacement != null) {
+                        symbols.set(i, new NonterminalSymbol(replacement, symbol.getReturnType(), symbol.getVarName(), symbol.getPatterns()));
+                    }
+                }
+            }
+        }
+        return replacements.size();
+    }
+
+    /**
+     * Returns the nonterminal whose value is returned by the alternative, if it is the only symbol of the alternative.
+     */
+    private NonterminalSymbol getPassedOnNonterminal(Alternative alternative) {
+        if (alternative.getSymbols().size() != 1 || alternative.getActions().size() != 1
+                || operatorAlternatives.contains(alternative) || alternative.isOperatorAlternative()) {
+            return null;
+        }
+        Symbol symbol = alternative.getSymbols().get(0);
+        Action action = alternative.getActions().get(0);
+        if (!(symbol instanceof NonterminalSymbol) || !(action instanceof ReturnAction)) {
+            return null;
+        }
+        Symbol returned = ((ReturnAction) action).getRValue().getSymbol();
+        if (returned == null || !returned.getName().equals(symbol.getName())
+                || returned.getVarName() == null || !returned.getVarName().equals(symbol.getVarName())) {
+            return null;
+        }
+        return (NonterminalSymbol) symbol;
+    }
+
+    private boolean isPinned(Production production) {
+        for (Alternative alternative : production.getRhs()) {
+            if (operatorAlternatives.contains(alternative) || alternative.isOperatorAlternative()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean containsAny(List<Alternative> alternatives, List<Alternative> added) {
+        for (Alternative alternative : added) {
+            if (alternatives.contains(alternative)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Map<String, Integer> countReferences() {
+        Map<String, Integer> references = new HashMap<String, Integer>();
+        for (Production production : grammar.getProductions().values()) {
+            for (Alternative alternative : production.getRhs()) {
+                for (Symbol symbol : alternative.getSymbols()) {
+                    if (symbol instanceof NonterminalSymbol) {
+                        Integer count = references.get(symbol.getName());
+                        references.put(symbol.getName(), count != null ? count + 1 : 1);
+                    }
+                }
+            }
+        }
+        return references;
+    }
+
+    private void removeProduction(NonterminalSymbol lhs) {
+        Production production = grammar.getProductions().remove(lhs);
+        grammar.getNonterminals().remove(lhs.getName());
+        if (production == null) {
+            return;
+        }
+        for (Iterator<List<Alternative>> it = grammar.getOperatorPool().values().iterator(); it.hasNext();) {
+            List<Alternative> alternatives = it.next();
+            for (Iterator<Alternative> alternativeIt = alternatives.iterator(); alternativeIt.hasNext();) {
+                Alternative alternative = alternativeIt.next();
+                for (Alternative removed : production.getRhs()) {
+                    if (alternative == removed) {
+                        alternativeIt.remove();
+                        break;
+                    }
+                }
+            }
+            if (alternatives.isEmpty()) {
+                it.remove();
+            }
+        }
+    }
+
+    private List<NonterminalSymbol> sortedNonterminals() {
+        List<NonterminalSymbol> nonterminals = new ArrayList<NonterminalSymbol>(grammar.getProductions().keySet());
+        Collections.sort(nonterminals, new Comparator<NonterminalSymbol>() {
+            @Override
+            public int compare(NonterminalSymbol o1, NonterminalSymbol o2) {
+                return o1.getName().compareTo(o2.getName());
+            }
+        });
+        return nonterminals;
+    }
+
+    /**
+     * Describes alternatives, actions and type of the production, references to the production itself are
+     * replaced by a placeholder, so recursive productions differing only in their names have equal signatures.
+     */
+    private String signature(Production production) {
+        String self = production.getLhs().getName();
+        StringBuilder sb = new StringBuilder();
+        describeType(production.getLhs().getReturnType(), sb);
+        for (Alternative alternative : production.getRhs()) {
+            sb.append(" |");
+            for (Symbol symbol : alternative.getSymbols()) {
+                sb.append(' ');
+                describe(symbol, self, sb);
+            }
+            sb.append(" {");
+            for (Action action : alternative.getActions()) {
+                describe(action, self, sb);
+                sb.append(';');
+            }
+            sb.append('}');
+        }
+        return sb.toString();
+    }
+
+    private void describe(Symbol symbol, String self, StringBuilder sb) {
+        if (symbol == null) {
+            sb.append("null");
+            return;
+        }
+        sb.append(symbol instanceof TerminalSymbol ? "t:" : "n:");
+        sb.append(symbol.getName().equals(self) ? SELF : symbol.getName());
+        sb.append('.').append(symbol.getVarName()).append(':');
+        describeType(symbol.getReturnType(), sb);
+    }
+
+    private void describe(LValue value, String self, StringBuilder sb) {
+        if (value == null) {
+            sb.append("null");
+            return;
+        }
+        sb.append(value instanceof RValue ? "r(" : "l(");
+        describe(value.getSymbol(), self, sb);
+        sb.append(',').append(value.getVarName());
+        if (value instanceof RValue) {
+            sb.append(',');
+            describe(((RValue) value).getAction(), self, sb);
+        }
+        sb.append(')');
+    }
+
+    private void describe(List<RValue> values, String self, StringBuilder sb) {
+        sb.append('[');
+        for (RValue value : values) {
+            describe(value, self, sb);
+            sb.append(',');
+        }
+        sb.append(']');
+    }
+
+    private void describe(Action action, String self, StringBuilder sb) {
+        if (action == null) {
+            sb.append("null");
+            return;
+        }
+        sb.append(action.getActionType()).append('(');
+        switch (action.getActionType()) {
+            case RETURN:
+                describe(((ReturnAction) action).getRValue(), self, sb);
+                break;
+            case UNQUOTE_STRING:
+                describe(((UnquoteStringAction) action).getRValue(), self, sb);
+                sb.append(',').append(((UnquoteStringAction) action).getDelimiter());
+                break;
+            case CHECK_COLLECTION_SIZE:
+                CheckCollectionSizeAction checkAction = (CheckCollectionSizeAction) action;
+                describe(checkAction.getRValue(), self, sb);
+                sb.append(',').append(checkAction.getMinOccurs()).append(',').append(checkAction.getMaxOccurs());
+                break;
+            case CONVERT_STRING_TO_PRIMITIVE:
+                describe(((ConvertStringToPrimitiveTypeAction) action).getRValue(), self, sb);
+                sb.append(',');
+                describeType(((ConvertStringToPrimitiveTypeAction) action).getType(), sb);
+                break;
+            case CONVERT_LIST_TO_COLLECTION:
+                describe(((ConvertListToCollectionAction) action).getRValue(), self, sb);
+                sb.append(',');
+                describeType(((ConvertListToCollectionAction) action).getResultCollectionType(), sb);
+                break;
+            case CONVERT_COLLECTION_TO_ARRAY:
+                describe(((ConvertCollectionToArrayAction) action).getRValue(), self, sb);
+                sb.append(',');
+                describeType(((ConvertCollectionToArrayAction) action).getCollectionType(), sb);
+                break;
+            case CONVERT_LIST_WITH_SHARED_TO_COLLECTION:
+                ConvertListWithSharedToCollectionAction sharedAction = (ConvertListWithSharedToCollectionAction) action;
+                describe(sharedAction.getRValue(), self, sb);
+                sb.append(',');
+                describeType(sharedAction.getResultCollectionType(), sb);
+                sb.append(',').append(sharedAction.getSharedPartName());
+                break;
+            case CONVERT_UNORDERED_PARAMS_TO_OBJECT:
+                describe(((ConvertUnorderedParamsToObjectAction) action).getRValue(), self, sb);
+                sb.append(',');
+                describeType(((ConvertUnorderedParamsToObjectAction) action).getResultType(), sb);
+                break;
+            case ASSIGN:
+                describe(((AssignAction) action).getLValue(), self, sb);
+                sb.append(',');
+                describe(((AssignAction) action).getRValue(), self, sb);
+                break;
+            case ADD_ELEMENT_TO_COLLECTION:
+                AddElementToCollectionAction addAction = (AddElementToCollectionAction) action;
+                describe(addAction.getLValue(), self, sb);
+                sb.append(',');
+                describe(addAction.getRValue(), self, sb);
+                sb.append(',');
+                describeType(addAction.getComponentType(), sb);
+                break;
+            case DEFINE_VAR:
+                DefineVariableAction defineAction = (DefineVariableAction) action;
+                describeType(defineAction.getVarType(), sb);
+                sb.append(',').append(defineAction.getVarName());
+                break;
+            case CREATE_ENUM_INST:
+                CreateEnumInstanceAction enumAction = (CreateEnumInstanceAction) action;
+                sb.append(enumAction.getEnumType()).append('.').append(enumAction.getEnumConstant());
+                break;
+            case CREATE_CLASS_INST:
+            case REF_RESOLVER_REGISTER:
+                CreateClassInstanceAction classAction = (CreateClassInstanceAction) action;
+                sb.append(classAction.getClassType()).append(',').append(classAction.getFactoryMethodName()).append(',');
+                describe(classAction.getParameters(), self, sb);
+                break;
+            case CREATE_COLLECTION_INST:
+                describeType(((CreateCollectionInstanceAction) action).getComponentType(), sb);
+                break;
+            case CREATE_OPTIONAL_CLASS_INST:
+                describe(((CreateOptionalClassInstanceAction) action).getParameter(), self, sb);
+                break;
+            case CREATE_UNORDERED_PARAM_CLASS_INST:
+                CreateUnorderedParamClassInstanceAction unorderedAction = (CreateUnorderedParamClassInstanceAction) action;
+                describe(unorderedAction.getParameters(), self, sb);
+                sb.append(',').append(unorderedAction.getVarName());
+                break;
+            default:
+                describeUnique(action, sb);
+        }
+        sb.append(')');
+    }
+
+    /**
+     * Unknown values are described by their identity, so productions containing them are never merged.
+     * Identities are numbered within one optimization, different objects never get the same number.
+     */
+    private void describeUnique(Object value, StringBuilder sb) {
+        Integer id = uniqueIds.get(value);
+        if (id == null) {
+            id = uniqueIds.size();
+            uniqueIds.put(value, id);
+        }
+        sb.append(value.getClass().getName()).append('#').append(id);
+    }
+
+    private void describeType(Type type, StringBuilder sb) {
+        if (type == null) {
+            sb.append("null");
+        } else if (type instanceof PrimitiveType) {
+            sb.append(((PrimitiveType) type).getPrimitiveTypeConst());
+        } else if (type instanceof ReferenceType) {
+            ReferenceType referenceType = (ReferenceType) type;
+            sb.append("ref ").append(referenceType.getConcept() != null ? referenceType.getConcept().getConceptName() : "?");
+        } else if (type instanceof ComponentType) {
+            sb.append(type.getClass().getSimpleName()).append('<');
+            describeType(((ComponentType) type).getComponentType(), sb);
+            sb.append('>');
+        } else if (type instanceof ObjectType) {
+            sb.append("Object");
+        } else {
+            describeUnique(type, sb);
+        }
+    }
+
+    /**
+     * Size of a grammar. Number of LR(0) items estimates size of LALR parse tables, since states of the parser
+     * are sets of these items.
+     */
+    public static class Statistics {
+
+        private final int productions;
+        private final int alternatives;
+        private final int symbols;
+        private final int items;
+
+        public Statistics(Grammar grammar) {
+            int alternatives = 0;
+            int symbols = 0;
+            for (Production production : grammar.getProductions().values()) {
+                alternatives += production.getRhs().size();
+                for (Alternative alternative : production.getRhs()) {
+                    symbols += alternative.getSymbols().size();
+                }
+            }
+            this.productions = grammar.getProductions().size();
+            this.alternatives = alternatives;
+            this.symbols = symbols;
+            this.items = symbols + alternatives;
+        }
+
+        public int getProductions() {
+            return productions;
+        }
+
+        public int getAlternatives() {
+            return alternatives;
+        }
+
+        public int getSymbols() {
+            return symbols;
+        }
+
+        public int getItems() {
+            return items;
+        }
+    }
+
+    /**
+     * Result of an optimization.
+     */
+    public static class Report {
+
+        private final Statistics before;
+        private Statistics after;
+        private int removed;
+        private int inlined;
+        private int merged;
+
+        private Report(Statistics before) {
+            this.before = before;
+        }
+
+        public Statistics getBefore() {
+            return before;
+        }
+
+        public Statistics getAfter() {
+            return after;
+        }
+
+        /**
+         * Returns number of removed unreachable productions.
+         */
+        public int getRemoved() {
+            return removed;
+        }
+
+        /**
+         * Returns number of inlined unit alternatives.
+         */
+        public int getInlined() {
+            return inlined;
+        }
+
+        /**
+         * Returns number of productions merged into identical ones.
+         */
+        public int getMerged() {
+            return merged;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder("Grammar optimization:");
+            sb.append(" removed ").append(removed).append(" unreachable, inlined ").append(inlined)
+                    .append(" unit, merged ").append(merged).append(" identical productions;");
+            append(sb, "productions", before.getProductions(), after.getProductions());
+            append(sb, "alternatives", before.getAlternatives(), after.getAlternatives());
+            append(sb, "symbols", before.getSymbols(), after.getSymbols());
+            append(sb, "LR(0) items", before.getItems(), after.getItems());
+            sb.setLength(sb.length() - 1);
+            return sb.toString();
+        }
+
+        private static void append(StringBuilder sb, String name, int before, int after) {
+            sb.append(' ').append(name).append(' ').append(before).append(" -> ").append(after);
+            if (before > 0) {
+                sb.append(" (-").append(Math.round(100.0 * (before - after) / before)).append("%)");
+            }
+            sb.append(',');
+        }
+    }
+}
@@ -17,5 +17,6 @@ public enum ActionType {
     CONVERT_LIST_WITH_SHARED_TO_COLLECTION,
     UNQUOTE_STRING,
     CONVERT_UNORDERED_PARAMS_TO_OBJECT,
-    CREATE_UNORDERED_PARAM_CLASS_INST
+    CREATE_UNORDERED_PARAM_CLASS_INST,
+    CHECK_COLLECTION_SIZE
 }
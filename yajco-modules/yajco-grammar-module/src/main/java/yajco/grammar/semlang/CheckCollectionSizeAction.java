@@ -0,0 +1,31 @@
+package yajco.grammar.semlang;
+
+/**
+ * Checks that the collection has at least minOccurs and at most maxOccurs elements (no upper limit when
+ * maxOccurs is {@link yajco.model.pattern.impl.Range#INFINITY}) and results in the collection itself.
+ * A parse error is raised when the size is out of bounds.
+ */
+public class CheckCollectionSizeAction extends RValueAction {
+
+    private final int minOccurs;
+    private final int maxOccurs;
+
+    public CheckCollectionSizeAction(RValue rValue, int minOccurs, int maxOccurs) {
+        super(rValue);
+        this.minOccurs = minOccurs;
+        this.maxOccurs = maxOccurs;
+    }
+
+    public int getMinOccurs() {
+        return minOccurs;
+    }
+
+    public int getMaxOccurs() {
+        return maxOccurs;
+    }
+
+    @Override
+    public ActionType getActionType() {
+        return ActionType.CHECK_COLLECTION_SIZE;
+    }
+}
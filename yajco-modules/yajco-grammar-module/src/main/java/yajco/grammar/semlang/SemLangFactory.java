@@ -88,6 +88,10 @@ public final class SemLangFactory {
         return createAddElementsToCollectionAndReturnActions(new LValue(collection), simpleSymbolsToRValues(elements));
     }
 
+    public static List<Action> createCheckCollectionSizeAndReturnActions(Symbol collection, int minOccurs, int maxOccurs) {
+        return createReturnValueActions(new RValue(new CheckCollectionSizeAction(new RValue(collection), minOccurs, maxOccurs)));
+    }
+
     public static List<Action> createListAndReturnActions(Type innerType) {
         return createCollectionAndReturnActions(new ListType(innerType));
     }
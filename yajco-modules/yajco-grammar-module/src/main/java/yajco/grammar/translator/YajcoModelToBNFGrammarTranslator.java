@@ -53,16 +53,20 @@ public class YajcoModelToBNFGrammarTranslator {
         unorderedParamNonterminals = new ArrayList<NonterminalSymbol>();
     }
 
+    /**
+     * Translates the language into a new grammar. State of the translation is kept by a new translator for every
+     * call, so the shared instance can translate more languages concurrently.
+     */
     public Grammar translate(Language language) {
         if (language == null) {
             throw new IllegalArgumentException("Parameter 'language' cannot be null!");
         }
 
+        return new YajcoModelToBNFGrammarTranslator().translateLanguage(language);
+    }
+
+    private Grammar translateLanguage(Language language) {
         this.language = language;
-        arrayID = 1;
-        optionalID = 1;
-        unorderedParamID = 1;
-        unorderedParamNonterminals = new ArrayList<NonterminalSymbol>();
 
         Concept mainConcept = language.getConcepts().get(0);
         NonterminalSymbol startSymbol = new NonterminalSymbol(mainConcept.getConceptName(), new ReferenceType(Utilities.getTopLevelParent(mainConcept), null), toPatternList(mainConcept.getPatterns()));
@@ -651,28 +655,19 @@ public class YajcoModelToBNFGrammarTranslator {
                 production.addAlternative(alternative3);
             }
         } else {
-            int symID = 1;
-            List<Symbol> symbols = new ArrayList<>(maxOccurs);
-            for (int i = 0; i < minOccurs; i++) {
-                symbols.add(symbol.withVarName(DEFAULT_VAR_NAME + symID++));
+            // Other bounds are checked when the unbounded sequence is reduced, so the size of the grammar
+            // and of the parse tables does not depend on them.
+            int innerMinOccurs = minOccurs == 0 ? 0 : 1;
+            NonterminalSymbol inner = grammar.getSequenceNonterminalFor(symbol.toString(), innerMinOccurs, Range.INFINITY, separator, unique, null);
+            if (inner == null) {
+                inner = createSequenceProductionFor(symbol, innerMinOccurs, Range.INFINITY, separator, cmpType, unique);
             }
+            NonterminalSymbol innerNonterminal = new NonterminalSymbol(inner.getName(), lhs.getReturnType(), name);
 
-            for (int occurrenceIndex = minOccurs; occurrenceIndex <= maxOccurs; occurrenceIndex++) {
-                Alternative alternative = new Alternative();
-                for (int symbolIndex = 0; symbolIndex < symbols.size(); symbolIndex++) {
-                    if (symbolIndex > 0) {
-                        alternative.addSymbol(sepTerminal);
-                    }
-                    alternative.addSymbol(symbols.get(symbolIndex));
-                }
-                alternative.addActions(unique
-                        ? SemLangFactory.createOrderedSetAndAddElementsAndReturnActions(cmpType.getComponentType(), name, symbols)
-                        : SemLangFactory.createListAndAddElementsAndReturnActions(cmpType.getComponentType(), name, symbols)
-                );
-                production.addAlternative(alternative);
-
-                symbols.add(symbol.withVarName(DEFAULT_VAR_NAME + symID++));
-            }
+            Alternative alternative = new Alternative();
+            alternative.addSymbol(innerNonterminal);
+            alternative.addActions(SemLangFactory.createCheckCollectionSizeAndReturnActions(innerNonterminal, minOccurs, maxOccurs));
+            production.addAlternative(alternative);
         }
 
         grammar.addProduction(production);
@@ -0,0 +1,352 @@
+package yajco.grammar.optimizer;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+import org.junit.Test;
+import yajco.grammar.NonterminalSymbol;
+import yajco.grammar.Symbol;
+import yajco.grammar.TerminalSymbol;
+import yajco.grammar.bnf.Alternative;
+import yajco.grammar.bnf.Grammar;
+import yajco.grammar.bnf.Production;
+import yajco.grammar.semlang.Action;
+import yajco.grammar.semlang.ActionType;
+import yajco.grammar.semlang.CreateClassInstanceAction;
+import yajco.grammar.semlang.LValue;
+import yajco.grammar.semlang.RValue;
+import yajco.grammar.semlang.ReturnAction;
+import yajco.grammar.translator.YajcoModelToBNFGrammarTranslator;
+import yajco.model.Concept;
+import yajco.model.Language;
+import yajco.model.TokenPart;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static yajco.model.LanguageFixtures.createExpressionLanguage;
+import static yajco.model.LanguageFixtures.notation;
+
+/**
+ * Checks that the optimized grammar describes the same language with the same semantics. All sentences up to
+ * {@link #MAX_LENGTH} terminals are derived from the grammar before and after the optimization, together with
+ * values built by the semantic actions of their derivations, and both sets have to be equal.
+ */
+public class GrammarOptimizerTest {
+
+    private static final int MAX_LENGTH = 5;
+    private static final int MAX_ITERATIONS = 50;
+
+    @Test
+    public void unreachableProductionsAreRemoved() {
+        Grammar grammar = createGrammar("S");
+        grammar.addProduction(production("S", alternative("S", "a")));
+        grammar.addProduction(production("U", alternative("U", "b", "V")));
+        grammar.addProduction(production("V", alternative("V", "c")));
+
+        GrammarOptimizer.Report report = optimize(grammar);
+        assertEquals(2, report.getRemoved());
+        assertEquals(1, report.getAfter().getProductions());
+        assertNull(grammar.getProduction(nonterminal("U")));
+        assertNull(grammar.getNonterminal("V"));
+    }
+
+    @Test
+    public void unitChainsAreInlined() {
+        Grammar grammar = createGrammar("S");
+        grammar.addProduction(production("S", unit("A"), alternative("C", "c")));
+        grammar.addProduction(production("A", unit("B")));
+        grammar.addProduction(production("B", alternative("B", "b"), alternative("P", "(", "S", ")")));
+
+        GrammarOptimizer.Report report = optimize(grammar);
+        assertEquals(2, report.getInlined());
+        assertEquals(1, report.getAfter().getProductions());
+        assertEquals(3, grammar.getProduction(nonterminal("S")).getRhs().size());
+    }
+
+    @Test
+    public void sharedUnitsAreNotInlined() {
+        Grammar grammar = createGrammar("S");
+        grammar.addProduction(production("S", unit("A"), alternative("X", "x", "A")));
+        grammar.addProduction(production("A", alternative("A", "a")));
+
+        GrammarOptimizer.Report report = optimize(grammar);
+        assertEquals(0, report.getInlined());
+        assertNotNull(grammar.getProduction(nonterminal("A")));
+    }
+
+    @Test
+    public void identicalProductionsAreMerged() {
+        Grammar grammar = createGrammar("S");
+        grammar.addProduction(production("S", alternative("L", "l", "L1"), alternative("M", "m", "L2")));
+        grammar.addProduction(production("L1", alternative("Item", "L1", "x"), alternative("Item", "x")));
+        grammar.addProduction(production("L2", alternative("Item", "L2", "x"), alternative("Item", "x")));
+        // Same alternatives creating a different class
+        grammar.addProduction(production("O", alternative("Other", "O", "x"), alternative("Item", "x")));
+        grammar.getProduction(nonterminal("S")).addAlternative(alternative("N", "n", "O"));
+
+        GrammarOptimizer.Report report = optimize(grammar);
+        assertEquals(1, report.getMerged());
+        assertNotNull(grammar.getProduction(nonterminal("L1")));
+        assertNull(grammar.getProduction(nonterminal("L2")));
+        assertNotNull(grammar.getProduction(nonterminal("O")));
+    }
+
+    @Test
+    public void operatorProductionsAreKept() {
+        Grammar grammar = YajcoModelToBNFGrammarTranslator.getInstance().translate(createExpressionLanguage());
+        int operators = countOperatorAlternatives(grammar);
+
+        GrammarOptimizer.Report report = optimize(grammar);
+        assertEquals(2, report.getInlined());
+        assertEquals(1, report.getAfter().getProductions());
+        assertEquals(operators, countOperatorAlternatives(grammar));
+        List<Alternative> alternatives = grammar.getProduction(grammar.getStartSymbol()).getRhs();
+        for (List<Alternative> pool : grammar.getOperatorPool().values()) {
+            for (Alternative operator : pool) {
+                assertTrue(alternatives.contains(operator));
+            }
+        }
+    }
+
+    @Test
+    public void translatedLanguageKeepsSemantics() {
+        Language language = createExpressionLanguage();
+        // Concept not used by the main concept
+        Concept unused = new Concept("Unused", (Object) null);
+        unused.addNotation(notation(new TokenPart("#", null)));
+        language.addConcept(unused);
+        Grammar grammar = YajcoModelToBNFGrammarTranslator.getInstance().translate(language);
+
+        GrammarOptimizer.Report report = optimize(grammar);
+        assertEquals(1, report.getRemoved());
+        assertNull(grammar.getProduction(nonterminal("Unused")));
+    }
+
+    @Test
+    public void optimizationIsDisabledByProperty() {
+        Properties properties = new Properties();
+        assertTrue(GrammarOptimizer.isEnabled(null));
+        assertTrue(GrammarOptimizer.isEnabled(properties));
+        properties.setProperty(GrammarOptimizer.OPTIMIZE_PROPERTY, " FALSE ");
+        assertFalse(GrammarOptimizer.isEnabled(properties));
+    }
+
+    /**
+     * Optimizes the grammar and checks that it derives the same sentences with the same values as before.
+     */
+    private static GrammarOptimizer.Report optimize(Grammar grammar) {
+        Set<String> before = derive(grammar);
+        assertFalse(before.isEmpty());
+        GrammarOptimizer.Report report = new GrammarOptimizer().optimize(grammar);
+        assertEquals(report.toString(), before, derive(grammar));
+        assertTrue(report.toString(), report.getAfter().getItems() <= report.getBefore().getItems());
+        return report;
+    }
+
+    private static int countOperatorAlternatives(Grammar grammar) {
+        int count = 0;
+        for (List<Alternative> alternatives : grammar.getOperatorPool().values()) {
+            count += alternatives.size();
+        }
+        return count;
+    }
+
+    /**
+     * Returns sentences of the start symbol up to {@link #MAX_LENGTH} terminals, each with the value of its
+     * derivation. Values are computed bottom-up until no nonterminal gets a new sentence.
+     */
+    private static Set<String> derive(Grammar grammar) {
+        Map<String, Map<String, Derivation>> derivations = new HashMap<String, Map<String, Derivation>>();
+        for (NonterminalSymbol lhs : grammar.getProductions().keySet()) {
+            derivations.put(lhs.getName(), new LinkedHashMap<String, Derivation>());
+        }
+        boolean changed = true;
+        for (int iteration = 0; changed; iteration++) {
+            assertTrue("derivations of " + grammar + " do not converge", iteration < MAX_ITERATIONS);
+            changed = false;
+            for (Production production : grammar.getProductions().values()) {
+                Map<String, Derivation> known = derivations.get(production.getLhs().getName());
+                int size = known.size();
+                for (Alternative alternative : production.getRhs()) {
+                    combine(alternative, 0, new ArrayList<String>(), new HashMap<String, String>(), derivations, known);
+                }
+                changed |= known.size() > size;
+            }
+        }
+        return new TreeSet<String>(derivations.get(grammar.getStartSymbol().getName()).keySet());
+    }
+
+    private static void combine(Alternative alternative, int index, List<String> sentence, Map<String, String> values,
+            Map<String, Map<String, Derivation>> derivations, Map<String, Derivation> result) {
+        if (index == alternative.getSymbols().size()) {
+            Derivation derivation = new Derivation(new ArrayList<String>(sentence), evaluate(alternative, values));
+            result.put(derivation.toString(), derivation);
+            return;
+        }
+        Symbol symbol = alternative.getSymbols().get(index);
+        String key = key(symbol);
+        List<Derivation> options;
+        if (symbol instanceof TerminalSymbol) {
+            options = Collections.singletonList(new Derivation(Collections.singletonList(symbol.getName()), symbol.getName()));
+        } else {
+            Map<String, Derivation> known = derivations.get(symbol.getName());
+            options = known != null ? new ArrayList<Derivation>(known.values()) : Collections.<Derivation>emptyList();
+        }
+        for (Derivation option : options) {
+            if (sentence.size() + option.sentence.size() > MAX_LENGTH) {
+                continue;
+            }
+            String previous = values.put(key, option.value);
+            sentence.addAll(option.sentence);
+            combine(alternative, index + 1, sentence, values, derivations, result);
+            sentence.subList(sentence.size() - option.sentence.size(), sentence.size()).clear();
+            values.put(key, previous);
+        }
+    }
+
+    /**
+     * Value of a unit alternative returning its symbol is the value of the symbol, other alternatives are valued
+     * by description of their actions, where the symbols are replaced by their values.
+     */
+    private static String evaluate(Alternative alternative, Map<String, String> values) {
+        List<Action> actions = alternative.getActions();
+        if (actions.size() == 1 && actions.get(0).getActionType() == ActionType.RETURN) {
+            Symbol returned = ((ReturnAction) actions.get(0)).getRValue().getSymbol();
+            if (returned != null) {
+                return values.get(key(returned));
+            }
+        }
+        StringBuilder sb = new StringBuilder();
+        describe(actions, values, sb);
+        return sb.toString();
+    }
+
+    private static void describe(Object object, Map<String, String> values, StringBuilder sb) {
+        if (object instanceof LValue) {
+            LValue value = (LValue) object;
+            if (value.getSymbol() != null) {
+                sb.append(values.get(key(value.getSymbol())));
+            } else if (value instanceof RValue && ((RValue) value).getAction() != null) {
+                describe(((RValue) value).getAction(), values, sb);
+            } else {
+                sb.append('$').append(value.getVarName());
+            }
+        } else if (object instanceof Action) {
+            sb.append(((Action) object).getActionType()).append('(');
+            for (Method getter : getGetters(object.getClass())) {
+                try {
+                    describe(getter.invoke(object), values, sb);
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+                sb.append(',');
+            }
+            sb.append(')');
+        } else if (object instanceof List) {
+            sb.append('[');
+            for (Object element : (List<?>) object) {
+                describe(element, values, sb);
+                sb.append(';');
+            }
+            sb.append(']');
+        } else {
+            sb.append(object);
+        }
+    }
+
+    private static List<Method> getGetters(Class<?> type) {
+        List<Method> getters = new ArrayList<Method>();
+        for (Method method : type.getMethods()) {
+            if (method.getName().startsWith("get") && method.getParameterTypes().length == 0
+                    && method.getDeclaringClass() != Object.class && !method.getName().equals("getActionType")) {
+                getters.add(method);
+            }
+        }
+        Collections.sort(getters, new Comparator<Method>() {
+            @Override
+            public int compare(Method o1, Method o2) {
+                return o1.getName().compareTo(o2.getName());
+            }
+        });
+        return getters;
+    }
+
+    private static String key(Symbol symbol) {
+        return symbol.getVarName() != null ? symbol.getVarName() : symbol.getName();
+    }
+
+    private static Grammar createGrammar(String start) {
+        Grammar grammar = new Grammar(nonterminal(start));
+        grammar.addNonterminal(nonterminal(start));
+        return grammar;
+    }
+
+    private static NonterminalSymbol nonterminal(String name) {
+        return new NonterminalSymbol(name, null);
+    }
+
+    private static Production production(String lhs, Alternative... alternatives) {
+        return new Production(nonterminal(lhs), new ArrayList<Alternative>(Arrays.asList(alternatives)));
+    }
+
+    /**
+     * Alternative of the symbols creating the class from values of all its symbols. Names of nonterminals start
+     * with an upper case letter, other names are terminals. Symbols are named by their positions like in
+     * translated grammars, so alternatives differing only in names of nonterminals are identical.
+     */
+    private static Alternative alternative(String classType, String... names) {
+        Alternative alternative = new Alternative();
+        List<RValue> parameters = new ArrayList<RValue>();
+        for (int i = 0; i < names.length; i++) {
+            Symbol symbol = symbol(names[i], i);
+            alternative.addSymbol(symbol);
+            parameters.add(new RValue(symbol));
+        }
+        alternative.addAction(new CreateClassInstanceAction(classType, parameters));
+        return alternative;
+    }
+
+    /**
+     * Alternative returning value of the nonterminal.
+     */
+    private static Alternative unit(String name) {
+        Symbol symbol = symbol(name, 0);
+        Alternative alternative = new Alternative();
+        alternative.addSymbol(symbol);
+        alternative.addAction(new ReturnAction(new RValue(symbol)));
+        return alternative;
+    }
+
+    private static Symbol symbol(String name, int position) {
+        String varName = "val" + position;
+        return Character.isUpperCase(name.charAt(0)) ? new NonterminalSymbol(name, null, varName) : new TerminalSymbol(name, null, varName);
+    }
+
+    private static class Derivation {
+
+        private final List<String> sentence;
+        private final String value;
+
+        Derivation(List<String> sentence, String value) {
+            this.sentence = sentence;
+            this.value = value;
+        }
+
+        @Override
+        public String toString() {
+            return sentence + " = " + value;
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package yajco.grammar.translator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+import yajco.model.Concept;
+import yajco.model.Language;
+import yajco.model.Property;
+import yajco.model.PropertyReferencePart;
+import yajco.model.TokenDef;
+import yajco.model.TokenPart;
+import yajco.model.pattern.impl.Range;
+import yajco.model.pattern.impl.Separator;
+import yajco.model.type.ListType;
+import yajco.model.type.PrimitiveType;
+import yajco.model.type.PrimitiveTypeConst;
+import yajco.model.type.ReferenceType;
+
+import static org.junit.Assert.assertEquals;
+import static yajco.model.LanguageFixtures.createExpressionLanguage;
+import static yajco.model.LanguageFixtures.createLanguage;
+import static yajco.model.LanguageFixtures.notation;
+import static yajco.model.LanguageFixtures.skips;
+import static yajco.model.LanguageFixtures.tokens;
+
+/**
+ * Translates several languages by the shared translator instance from many threads at once, every translation
+ * has to give the same grammar as a translation done alone.
+ */
+public class YajcoModelToBNFGrammarTranslatorConcurrencyTest {
+
+    private static final int THREADS = 8;
+    private static final int ROUNDS = 50;
+
+    @Test
+    public void translatesSameGrammarFromManyThreads() throws Exception {
+        final List<Language> languages = Arrays.asList(createExpressionLanguage(), createStatementLanguage(), createKeywordLanguage());
+        final YajcoModelToBNFGrammarTranslator translator = YajcoModelToBNFGrammarTranslator.getInstance();
+        final List<String> expected = new ArrayList<String>();
+        for (Language language : languages) {
+            expected.add(translator.translate(language).toString());
+        }
+
+        final CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<List<String>>> results = new ArrayList<Future<List<String>>>();
+            for (int thread = 0; thread < THREADS; thread++) {
+                final int offset = thread;
+                results.add(executor.submit(new Callable<List<String>>() {
+                    @Override
+                    public List<String> call() throws Exception {
+                        start.await();
+                        List<String> grammars = new ArrayList<String>();
+                        for (int round = 0; round < ROUNDS; round++) {
+                            // Threads start with different languages, so different translations overlap.
+                            Language language = languages.get((offset + round) % languages.size());
+                            grammars.add(translator.translate(language).toString());
+                        }
+                        return grammars;
+                    }
+                }));
+            }
+            start.countDown();
+
+            for (int thread = 0; thread < THREADS; thread++) {
+                List<String> grammars = results.get(thread).get(60, TimeUnit.SECONDS);
+                for (int round = 0; round < ROUNDS; round++) {
+                    assertEquals("thread " + thread + ", round " + round,
+                            expected.get((thread + round) % languages.size()), grammars.get(round));
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Program with a bounded list of statements separated by semicolons.
+     */
+    private static Language createStatementLanguage() {
+        Language language = createLanguage("statements", tokens(new TokenDef("NAME", "[a-z]+", null)), skips());
+
+        Concept program = new Concept("Program", (Object) null);
+        Concept statement = new Concept("Statement", (Object) null);
+        Property statements = new Property("statements", new ListType(new ReferenceType(statement, null), null), (Object) null);
+        program.addProperty(statements);
+        PropertyReferencePart statementsPart = new PropertyReferencePart(statements, null);
+        statementsPart.addPattern(new Separator(";"));
+        statementsPart.addPattern(new Range(1, 5, null));
+        program.addNotation(notation(new TokenPart("begin", null), statementsPart, new TokenPart("end", null)));
+        language.addConcept(program);
+
+        Property name = new Property("name", new PrimitiveType(PrimitiveTypeConst.STRING, null), (Object) null);
+        statement.addProperty(name);
+        statement.addNotation(notation(new TokenPart("print", null), new PropertyReferencePart(name, null)));
+        language.addConcept(statement);
+        return language;
+    }
+
+    /**
+     * Concept with two notations sharing the keyword tokens.
+     */
+    private static Language createKeywordLanguage() {
+        Language language = createLanguage("keywords", tokens(new TokenDef("NAME", "[a-z]+", null)), skips());
+
+        Concept variable = new Concept("Variable", (Object) null);
+        Property name = new Property("name", new PrimitiveType(PrimitiveTypeConst.STRING, null), (Object) null);
+        variable.addProperty(name);
+        variable.addNotation(notation(new TokenPart("var", null), new PropertyReferencePart(name, null)));
+        variable.addNotation(notation(new TokenPart("let", null), new PropertyReferencePart(name, null), new TokenPart("=", null)));
+        language.addConcept(variable);
+        return language;
+    }
+}
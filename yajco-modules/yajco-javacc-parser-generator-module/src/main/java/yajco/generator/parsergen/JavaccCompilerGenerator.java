@@ -5,9 +5,11 @@ import java.util.Properties;
 import javax.annotation.processing.Filer;
 import javax.annotation.processing.ProcessingEnvironment;
 import yajco.generator.GeneratorException;
+import yajco.generator.annotation.ParsingAlgorithm;
 import yajco.generator.parsergen.javacc.JavaCCParserGenerator;
 import yajco.model.Language;
 
+@ParsingAlgorithm(ParsingAlgorithm.Algorithm.LL_K)
 public class JavaccCompilerGenerator implements CompilerGenerator {
 
     @Override
@@ -20,7 +22,7 @@ public class JavaccCompilerGenerator implements CompilerGenerator {
         if (language == null || filer == null) {
             throw new IllegalArgumentException("language and filer cannot be null");
         }
-        JavaCCParserGenerator generator = new JavaCCParserGenerator(language, filer, parserClassName);
+        JavaCCParserGenerator generator = new JavaCCParserGenerator(language, filer, parserClassName, properties);
         generator.generate();
     }
 
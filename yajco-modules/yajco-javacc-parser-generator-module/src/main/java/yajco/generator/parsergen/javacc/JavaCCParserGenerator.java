@@ -2,7 +2,6 @@ package yajco.generator.parsergen.javacc;
 
 import java.io.File;
 import java.io.IOException;
-import java.io.InputStreamReader;
 import java.io.StringWriter;
 import java.io.Writer;
 import java.net.URI;
@@ -11,22 +10,27 @@ import javax.annotation.processing.Filer;
 import javax.tools.FileObject;
 import javax.tools.StandardLocation;
 import org.apache.velocity.VelocityContext;
-import org.apache.velocity.app.VelocityEngine;
 import org.javacc.parser.Main;
 import yajco.annotation.config.Option;
 import yajco.generator.GeneratorException;
 import yajco.generator.parsergen.CompilerGenerator;
 import yajco.generator.parsergen.Conversions;
 import yajco.generator.parsergen.javacc.model.Choice;
+import yajco.generator.parsergen.javacc.model.CompositeExpansion;
 import yajco.generator.parsergen.javacc.model.Expansion;
+import yajco.generator.parsergen.javacc.model.LeftFactoring;
+import yajco.generator.parsergen.javacc.model.LookaheadMinimizer;
 import yajco.generator.parsergen.javacc.model.Model;
 import yajco.generator.parsergen.javacc.model.NonTerminal;
 import yajco.generator.parsergen.javacc.model.Production;
+import yajco.generator.parsergen.javacc.model.RepeatingExpansion;
 import yajco.generator.parsergen.javacc.model.Sequence;
 import yajco.generator.parsergen.javacc.model.Terminal;
 import yajco.generator.parsergen.javacc.model.ZeroOrMany;
 import yajco.generator.parsergen.javacc.model.ZeroOrOne;
+import yajco.generator.util.RegexAnalyzer;
 import yajco.generator.util.RegexUtil;
+import yajco.generator.util.TemplateService;
 import yajco.generator.util.Utilities;
 import yajco.model.BindingNotationPart;
 import yajco.model.Concept;
@@ -61,24 +65,42 @@ public class JavaCCParserGenerator {
     private static final String JAVACC_EXCEPTION_CLASS_TEMPLATE = "/yajco/generator/parsergen/javacc/templates/ParserException.javavm";
     private static final String JAVACC_TOKEN_MANAGER_CLASS_TEMPLATE = "/yajco/generator/parsergen/javacc/templates/TokenManager.javavm";
     private static final String JAVACC_PARSER_CLASS_TEMPLATE = "/yajco/generator/parsergen/javacc/templates/Parser.javavm";
+    private static final String NATIVE_LEXER_PROPERTY = "yajco.javacc.nativeLexer";
+    private static final String PRECEDENCE_CLIMBING_PROPERTY = "yajco.javacc.precedenceClimbing";
+    private static final String OPTIMIZE_CHOICES_PROPERTY = "yajco.javacc.optimizeChoices";
+    private static final String MAX_LOOKAHEAD_PROPERTY = "yajco.javacc.maxLookahead";
+    private static final String OPERATORS_SUFFIX = "Operators";
+    private static final String CLIMBING_SUFFIX = "Climbing";
+    private static final String INFIX_CHECK_SUFFIX = "InfixFollows";
     private final Language language;
     private final Map<String, Production> productions = new HashMap<String, Production>();
     private final Map<Concept, Set<Integer>> operatorConcepts = new HashMap<Concept, Set<Integer>>();
-    private final VelocityEngine velocityEngine = new VelocityEngine();
+    private final List<String> parserMembers = new ArrayList<String>();
+    private static final TemplateService templateService = TemplateService.getInstance();
     private final Map<String, String> definedTokens = new HashMap<String, String>();
     private final Set<Concept> processedConcepts = new HashSet<Concept>();
     private static final Conversions stringConversions = new Conversions();
     private final Filer filer;
+    private final Properties properties;
     private String providedParserClassName = null;
+    private boolean precedenceClimbing;
+    private boolean optimizeChoices;
 
     public JavaCCParserGenerator(Language language, Filer filer) {
         this(language, filer, null);
     }
 
     public JavaCCParserGenerator(Language language, Filer filer, String parserClassName) {
+        this(language, filer, parserClassName, null);
+    }
+
+    public JavaCCParserGenerator(Language language, Filer filer, String parserClassName, Properties properties) {
         this.language = language;
         this.filer = filer;
         this.providedParserClassName = parserClassName;
+        this.properties = properties != null ? properties : new Properties();
+        this.precedenceClimbing = "true".equalsIgnoreCase(this.properties.getProperty(PRECEDENCE_CLIMBING_PROPERTY));
+        this.optimizeChoices = !"false".equalsIgnoreCase(this.properties.getProperty(OPTIMIZE_CHOICES_PROPERTY));
     }
 
     public void generate() {
@@ -107,9 +129,30 @@ public class JavaCCParserGenerator {
             Concept concept = language.getConcepts().get(0);
             processMainConcept(concept, 0);
 
+            Map<String, String> nativeTokens = null;
+            List<String> nativeSkips = null;
+            if (!"false".equalsIgnoreCase(properties.getProperty(NATIVE_LEXER_PROPERTY))) {
+                nativeTokens = translateNativeTokens();
+                nativeSkips = translateNativeSkips();
+                if (nativeTokens == null || nativeSkips == null) {
+                    nativeTokens = null;
+                    nativeSkips = null;
+                }
+            }
+            final boolean nativeLexer = nativeTokens != null;
+
             Model model = new Model(parserJavaCCPackageName, parserClassName != null ? parserClassName.trim() : "",
-                    language.getSkips().toArray(new SkipDef[language.getSkips().size()]), definedTokens, new Option[]{}, productions.get(getNonterminal(concept, 0)),
+                    language.getSkips().toArray(new SkipDef[language.getSkips().size()]), definedTokens, nativeTokens, nativeSkips, new Option[]{}, productions.get(getNonterminal(concept, 0)),
                     productions.values().toArray(new Production[productions.values().size()]));
+            for (String member : parserMembers) {
+                model.addParserMember(member);
+            }
+            if (optimizeChoices) {
+                LookaheadMinimizer lookaheadMinimizer = new LookaheadMinimizer(model, getMaxLookahead());
+                lookaheadMinimizer.minimize();
+                System.out.println("YAJCo JavaCC parser generator: Fixed lookahead for " + lookaheadMinimizer.getResolvedChoices()
+                        + " choices, syntactic lookahead for " + lookaheadMinimizer.getSyntacticChoices() + " choices");
+            }
 
             //generate ebnf grammar file
             String ebnfGrammarName = "grammar.ebnf";
@@ -131,12 +174,14 @@ public class JavaCCParserGenerator {
             URI grammarURI = fileObject.toUri();
             grammarURI = new URI("file:///").resolve(grammarURI);
 
-            //generate token manager class
+            //generate token manager class, unless JavaCC generates its own
             //file = Utilities.createFile(filer, parserJavaCCPackageName, parserClassName + "TokenManager.java");
-            fileObject = filer.createSourceFile(parserJavaCCPackageName + "." + parserClassName + "TokenManager");
-            writer = fileObject.openWriter(); //new FileWriter(file);
-            writer.write(generateTokenManagerClass(parserClassName, parserMainParserPackageName, parserJavaCCPackageName, language.getSkips().toArray(new SkipDef[0])));
-            writer.close();
+            if (!nativeLexer) {
+                fileObject = filer.createSourceFile(parserJavaCCPackageName + "." + parserClassName + "TokenManager");
+                writer = fileObject.openWriter(); //new FileWriter(file);
+                writer.write(generateTokenManagerClass(parserClassName, parserMainParserPackageName, parserJavaCCPackageName, language.getSkips().toArray(new SkipDef[0])));
+                writer.close();
+            }
 
             //generate exception class
             //file = Utilities.createFile(filer, parserMainParserPackageName, "ParseException.java");
@@ -151,13 +196,20 @@ public class JavaCCParserGenerator {
             final String mainParserFQN = parserMainParserPackageName + "." + parserClassName;
             fileObject = filer.createSourceFile(mainParserFQN);
             writer = fileObject.openWriter(); //new FileWriter(file);
-            writer.write(generateParserClass(parserClassName, parserMainParserPackageName, parserJavaCCPackageName, language.getName() + "." + language.getConcepts().get(0).getName()));
+            writer.write(generateParserClass(parserClassName, parserMainParserPackageName, parserJavaCCPackageName, language.getName() + "." + language.getConcepts().get(0).getName(), nativeLexer));
             writer.flush();
             writer.close();
             CompilerGenerator.registerParserServiceProvider(mainParserFQN, filer);
 
             // register later generated files for compilation
-            String[] laterGenFiles = {
+            String[] laterGenFiles = nativeLexer ? new String[]{
+                parserJavaCCPackageName + ".ParseException",
+                parserJavaCCPackageName + ".Token",
+                parserJavaCCPackageName + ".SimpleCharStream",
+                parserJavaCCPackageName + ".TokenMgrError",
+                parserJavaCCPackageName + "." + parserClassName,
+                parserJavaCCPackageName + "." + parserClassName + "Constants",
+                parserJavaCCPackageName + "." + parserClassName + "TokenManager",} : new String[]{
                 parserJavaCCPackageName + ".ParseException",
                 parserJavaCCPackageName + ".Token",
                 parserJavaCCPackageName + ".TokenManager",
@@ -190,24 +242,140 @@ public class JavaCCParserGenerator {
         }
     }
 
-    private String generateParserClass(String parserClassName, String parserPackageName, String parserJavaCCPackageName, String mainElementName) throws IOException {
+    private String generateParserClass(String parserClassName, String parserPackageName, String parserJavaCCPackageName, String mainElementName, boolean nativeLexer) throws IOException {
         StringWriter writer = new StringWriter();
 
         VelocityContext context = new VelocityContext();
+        context.put("nativeLexer", nativeLexer);
         context.put("parserClassName", parserClassName);
         context.put("parserPackageName", parserPackageName);
         context.put("parserJavaCCPackageName", parserJavaCCPackageName);
         context.put("mainElementName", mainElementName);
 
-        velocityEngine.evaluate(context, writer, "", new InputStreamReader(JavaCCParserGenerator.class.getResourceAsStream(JAVACC_PARSER_CLASS_TEMPLATE), "utf-8"));
+        templateService.render(JavaCCParserGenerator.class, JAVACC_PARSER_CLASS_TEMPLATE, context, writer);
 
         return writer.toString();
     }
 
-    private String generateTokenManagerClass(String parserClassName, String parserPackageName, String parserJavaCCPackageName, SkipDef[] skips) throws IOException {
+    private Map<String, String> getOrderedDefinedTokens() {
         Map<String, String> orderedDefinedTokens = new LinkedHashMap<String, String>();
         orderedDefinedTokens.putAll(RegexUtil.filterMap(definedTokens, false)); // non-cyclic regex
         orderedDefinedTokens.putAll(RegexUtil.filterMap(definedTokens, true)); // cyclic regex
+        return orderedDefinedTokens;
+    }
+
+    /**
+     * Translates defined tokens into JavaCC regular expressions, in the same order as they are tried by
+     * the regex based token manager (TokenManager.javavm): keywords and operators first, then other patterns.
+     * JavaCC prefers the earlier declared token when more tokens match the same longest prefix, so equal order
+     * keeps both token managers choosing the same token.
+     *
+     * @return token names mapped to JavaCC regular expressions or null if some token cannot be translated
+     */
+    private Map<String, String> translateNativeTokens() {
+        Map<String, String> nativeTokens = new LinkedHashMap<String, String>();
+        Map<String, String> orderedTokens = getOrderedDefinedTokens();
+        try {
+            for (Map.Entry<String, String> entry : orderedTokens.entrySet()) {
+                if (entry.getKey().equals(entry.getValue())) {
+                    nativeTokens.put(Utilities.encodeStringIntoTokenName(entry.getKey()), Regex2JavaCC.toStringLiteral(entry.getValue()));
+                }
+            }
+            for (Map.Entry<String, String> entry : orderedTokens.entrySet()) {
+                if (!entry.getKey().equals(entry.getValue())) {
+                    nativeTokens.put(Utilities.encodeStringIntoTokenName(entry.getKey()), convertRegex(entry.getValue()));
+                }
+            }
+        } catch (Regex2JavaCC.ConvertException e) {
+            System.out.println("YAJCo JavaCC parser generator: " + e.getMessage() + ", using regex based token manager.");
+            return null;
+        }
+
+        // JavaCC token manager does not define tokens which are not declared
+        for (Production production : productions.values()) {
+            for (String token : getUsedTerminals(production.getExpansion(), new HashSet<String>())) {
+                if (!nativeTokens.containsKey(Utilities.encodeStringIntoTokenName(token))) {
+                    System.out.println("YAJCo JavaCC parser generator: Token '" + token + "' is not defined, using regex based token manager.");
+                    return null;
+                }
+            }
+        }
+        return nativeTokens;
+    }
+
+    /**
+     * Translates skips into JavaCC regular expressions. The regex based token manager tries skips before tokens
+     * and takes the first matching skip, JavaCC takes the longest match of all, so skips which can start where
+     * a token or another skip starts are not translated.
+     *
+     * @return JavaCC regular expressions of skips or null if some skip cannot be translated
+     */
+    private List<String> translateNativeSkips() {
+        List<String> nativeSkips = new ArrayList<String>();
+        List<SkipDef> skips = language.getSkips();
+        try {
+            for (int i = 0; i < skips.size(); i++) {
+                String skip = skips.get(i).getRegexp();
+                for (Map.Entry<String, String> entry : definedTokens.entrySet()) {
+                    if (RegexAnalyzer.canStartWithSameCharacter(skip, entry.getKey().equals(entry.getValue()) ? Utilities.encodeStringIntoRegex(entry.getValue()) : entry.getValue())) {
+                        throw new Regex2JavaCC.ConvertException("Skip '" + skip + "' can start where token " + entry.getKey() + " starts");
+                    }
+                }
+                for (int j = i + 1; j < skips.size(); j++) {
+                    if (RegexAnalyzer.canStartWithSameCharacter(skip, skips.get(j).getRegexp())) {
+                        throw new Regex2JavaCC.ConvertException("Skips '" + skip + "' and '" + skips.get(j).getRegexp() + "' can start with the same character");
+                    }
+                }
+                nativeSkips.add(convertRegex(skip));
+            }
+        } catch (Regex2JavaCC.ConvertException e) {
+            System.out.println("YAJCo JavaCC parser generator: " + e.getMessage() + ", using regex based token manager.");
+            return null;
+        }
+        return nativeSkips;
+    }
+
+    private String convertRegex(String regex) throws Regex2JavaCC.ConvertException {
+        java.util.regex.Pattern pattern;
+        try {
+            pattern = java.util.regex.Pattern.compile(regex);
+        } catch (java.util.regex.PatternSyntaxException e) {
+            throw new Regex2JavaCC.ConvertException("Regex '" + regex + "' is not valid");
+        }
+        // Regex based token manager uses the first matched group as the token image.
+        if (pattern.matcher("").groupCount() > 0) {
+            throw new Regex2JavaCC.ConvertException("Regex '" + regex + "' contains capturing group");
+        }
+        if (pattern.matcher("").matches()) {
+            throw new Regex2JavaCC.ConvertException("Regex '" + regex + "' matches an empty string");
+        }
+        // Regex based token manager takes the first match found by backtracking, JavaCC takes the longest one.
+        String difference = RegexAnalyzer.findLongestMatchDifference(regex);
+        if (difference != null) {
+            throw new Regex2JavaCC.ConvertException("Regex '" + regex + "' " + difference);
+        }
+        try {
+            return new Regex2JavaCC(regex).convert();
+        } catch (Regex2JavaCC.ConvertException e) {
+            throw new Regex2JavaCC.ConvertException("Regex '" + regex + "': " + e.getMessage());
+        }
+    }
+
+    private Set<String> getUsedTerminals(Expansion expansion, Set<String> terminals) {
+        if (expansion instanceof Terminal) {
+            terminals.add(((Terminal) expansion).getToken());
+        } else if (expansion instanceof CompositeExpansion) {
+            for (Expansion child : ((CompositeExpansion) expansion).getExpansions()) {
+                getUsedTerminals(child, terminals);
+            }
+        } else if (expansion instanceof RepeatingExpansion) {
+            getUsedTerminals(((RepeatingExpansion) expansion).getExpansion(), terminals);
+        }
+        return terminals;
+    }
+
+    private String generateTokenManagerClass(String parserClassName, String parserPackageName, String parserJavaCCPackageName, SkipDef[] skips) throws IOException {
+        Map<String, String> orderedDefinedTokens = getOrderedDefinedTokens();
 
         StringWriter writer = new StringWriter();
 
@@ -218,7 +386,7 @@ public class JavaCCParserGenerator {
         context.put("tokens", orderedDefinedTokens);
         context.put("skips", skips);
 
-        velocityEngine.evaluate(context, writer, "", new InputStreamReader(getClass().getResourceAsStream(JAVACC_TOKEN_MANAGER_CLASS_TEMPLATE), "utf-8"));
+        templateService.render(getClass(), JAVACC_TOKEN_MANAGER_CLASS_TEMPLATE, context, writer);
 
         return writer.toString();
     }
@@ -229,7 +397,7 @@ public class JavaCCParserGenerator {
         VelocityContext context = new VelocityContext();
         context.put("parserPackageName", parserPackageName);
 
-        velocityEngine.evaluate(context, writer, "", new InputStreamReader(getClass().getResourceAsStream(JAVACC_EXCEPTION_CLASS_TEMPLATE), "utf-8"));
+        templateService.render(getClass(), JAVACC_EXCEPTION_CLASS_TEMPLATE, context, writer);
 
         return writer.toString();
     }
@@ -288,7 +456,11 @@ public class JavaCCParserGenerator {
         if (priorityMap != null) {
             //Add to operator concepts with the lowest priority
             operatorConcepts.put(concept, priorityMap.keySet());
-            processPriorityMap(concept, priorityMap, paramNumber);
+            if (precedenceClimbing) {
+                processPriorityMapByClimbing(concept, priorityMap, paramNumber);
+            } else {
+                processPriorityMap(concept, priorityMap, paramNumber);
+            }
         }
 
         // Create production for subclasses
@@ -367,7 +539,16 @@ public class JavaCCParserGenerator {
             sequences.add(sequence);
         }
 
-        Choice choice = new Choice(sequences.toArray(new Expansion[]{}));
+        Choice choice;
+        if (optimizeChoices) {
+            List<Sequence> notationSequences = new ArrayList<Sequence>();
+            for (Expansion sequence : sequences) {
+                notationSequences.add((Sequence) sequence);
+            }
+            choice = new Choice(LeftFactoring.factor(notationSequences).toArray(new Expansion[]{}));
+        } else {
+            choice = new Choice(sequences.toArray(new Expansion[]{}));
+        }
 
         //Find subconcepts if there are any, create choice
         List<Expansion> expansionsInheritedConcepts = new ArrayList<Expansion>();
@@ -599,71 +780,7 @@ public class JavaCCParserGenerator {
 
 //            ExecutableElement constructorElement = getConstructorElement(operatorList.get(0));
             int arity = getArity(operatorConcept, operatorList.get(0).getConcreteSyntax().get(0));
-            Associativity associativity = Associativity.AUTO;
-
-            //Test validity
-            for (Concept concept : operatorList) {
-//                constructorElement = getConstructorElement(concept);
-                if (arity != getArity(operatorConcept, concept.getConcreteSyntax().get(0))) {
-                    throw new GeneratorException("All operators of type '" + getFullName(operatorConcept.getName())
-                            + "' with the same priority must have the same arity (difference found in '" + getFullName(concept.getName()) + "')");
-                }
-                Associativity operatorAssociativity = ((Operator) concept.getPattern(Operator.class)).getAssociativity();
-                //
-                if (operatorAssociativity == null) {
-                    operatorAssociativity = Associativity.AUTO;
-                }
-                //
-                if (associativity == Associativity.AUTO) {
-                    associativity = operatorAssociativity;
-                }
-                if (operatorAssociativity != Associativity.AUTO) {
-                    if (associativity != Associativity.AUTO && associativity != operatorAssociativity) {
-                        throw new GeneratorException("All operators of type '" + getFullName(operatorConcept.getName()) + "' with the same priority must have the same association type (difference found in '" + getFullName(concept.getName()) + "')");
-                    }
-                }
-                if (arity == 0) {
-                    throw new GeneratorException("Nulary operators are not supported '" + getFullName(concept.getName()) + "'");
-                }
-                boolean prefixed = hasPrefix(operatorConcept, concept.getConcreteSyntax().get(0));
-                boolean postfixed = hasPostfix(operatorConcept, concept.getConcreteSyntax().get(0));
-                if (prefixed && postfixed) {
-                    throw new GeneratorException("The operator of type '" + getFullName(concept.getName()) + "' is prefixed and postfixed at the same time. Remove the Operator pattern");
-                }
-                if (arity == 1) {
-                    if (!prefixed && !postfixed) {
-                        throw new GeneratorException("Unary prefix operator of type '" + getFullName(concept.getName()) + "' should be prefixed or postfixed");
-                    }
-                    if (associativity == Associativity.LEFT && prefixed) {
-                        throw new GeneratorException("Unary prefix operator of type '" + getFullName(concept.getName()) + "' should not be left-associative");
-                    }
-                    if (associativity == Associativity.RIGHT && postfixed) {
-                        throw new GeneratorException("Unary postfix operator of type '" + getFullName(concept.getName()) + "' should not be right-associative");
-                    }
-
-                    if (associativity == Associativity.AUTO) {
-                        if (prefixed) {
-                            associativity = Associativity.RIGHT;
-                        }
-                        if (postfixed) {
-                            associativity = Associativity.LEFT;
-                        }
-                    } /* else {
-                     if (associativity == Associativity.RIGHT && prefixed) {
-                     throw new GeneratorException("Nary right-associative operator of type " + subclassElement + " should not be prefixed");
-                     }
-                     if (associativity == Associativity.LEFT && postfixed) {
-                     throw new GeneratorException("N-ary left-associative operator of type " + subclassElement + " should not be postfixed");
-                     }
-                     } */
-                }
-
-            }
-
-            //Set auto associativity to left if it is not set
-            if (associativity == Associativity.AUTO) {
-                associativity = Associativity.LEFT;
-            }
+            Associativity associativity = getAssociativity(operatorConcept, operatorList, arity);
 
             //Declarations
             StringBuilder decl = new StringBuilder();
@@ -728,6 +845,275 @@ public class JavaCCParserGenerator {
         }
     }
 
+    /**
+     * Generates one production parsing all operators of the concept by precedence climbing instead of a production
+     * for every priority. The operator is chosen by its leading tokens and its priority, the loop over operators
+     * following an operand is entered by a switch over the kind of the next token, so an operand is parsed by one
+     * call regardless of the number of priorities. One token may start operators of several priorities. Nested
+     * operands are parsed with the minimal priority passed as a parameter.
+     */
+    private void processPriorityMapByClimbing(Concept operatorConcept, Map<Integer, List<Concept>> priorityMap, int paramNumber) {
+        String name = operatorConcept.getNameWithoutDots();
+        String type = getFullName(operatorConcept.getName());
+        String climbingNonterminal = name + CLIMBING_SUFFIX;
+        String infixCheck = "_" + name + INFIX_CHECK_SUFFIX;
+        List<Expansion> prefixExpansions = new ArrayList<Expansion>();
+        List<Expansion> infixExpansions = new ArrayList<Expansion>();
+        final Map<Expansion, List<String>> leadingTokens = new HashMap<Expansion, List<String>>();
+        Map<Expansion, String> infixConditions = new HashMap<Expansion, String>();
+        int maxArity = 1;
+        int operatorNumber = 0;
+
+        for (int priority : priorityMap.keySet()) {
+            List<Concept> operatorList = priorityMap.get(priority);
+            int arity = getArity(operatorConcept, operatorList.get(0).getConcreteSyntax().get(0));
+            Associativity associativity = getAssociativity(operatorConcept, operatorList, arity);
+            maxArity = Math.max(maxArity, arity);
+            // The last operand of left-associative and non-associative operators binds tighter
+            String lastOperandLevel = String.valueOf(associativity == Associativity.RIGHT ? priority : priority + 1);
+
+            for (Concept concept : operatorList) {
+                operatorNumber++;
+                Notation notation = concept.getConcreteSyntax().get(0);
+                boolean prefixed = hasPrefix(operatorConcept, notation);
+                List<NotationPart> notationParts = notation.getParts();
+                int first = prefixed ? 0 : 1;
+                if (notationParts.size() <= first || !(notationParts.get(first) instanceof TokenPart)) {
+                    throw new GeneratorException("Operator '" + getFullName(concept.getName()) + "' does not start with a token after its first operand, it cannot be parsed by precedence climbing (set " + PRECEDENCE_CLIMBING_PROPERTY + " to false)");
+                }
+
+                List<Expansion> sExpansions = new ArrayList<Expansion>();
+                StringBuilder lookahead = new StringBuilder();
+                List<String> lookaheadTokens = new ArrayList<String>();
+                StringBuilder params = new StringBuilder();
+                int index = 0;
+                int operands = 0;
+                boolean leading = true;
+                for (int i = 0; i < notationParts.size(); i++) {
+                    NotationPart notationPart = notationParts.get(i);
+                    if (notationPart instanceof TokenPart) {
+                        Terminal terminal = new Terminal(createTerminal(((TokenPart) notationPart).getToken()));
+                        // Operators are distinguished by their leading tokens
+                        if (leading && i >= first) {
+                            lookahead.append(lookahead.length() > 0 ? " " : "").append(terminal.generateExpansion(0, false));
+                            lookaheadTokens.add(Utilities.encodeStringIntoTokenName(terminal.getToken()));
+                        }
+                        sExpansions.add(terminal);
+                        continue;
+                    }
+                    if (i >= first) {
+                        leading = false;
+                    }
+                    if (params.length() > 0) {
+                        params.append(", ");
+                    }
+                    if (isOperatorType(operatorConcept, notationPart)) {
+                        index++;
+                        operands++;
+                        if (i > 0) {
+                            if (operands == arity) {
+                                sExpansions.add(new NonTerminal(climbingNonterminal, "_node" + index, lastOperandLevel));
+                            } else {
+                                sExpansions.add(new NonTerminal(getNonterminal(operatorConcept, paramNumber), "_node" + index));
+                            }
+                        }
+                        // add type casting if necessary
+                        if (isSameConcept(operatorConcept, bindingPartToConcept((BindingNotationPart) notationPart))) {
+                            params.append("_node").append(index);
+                        } else {
+                            params.append("(").append(getFullName(bindingPartToConcept((BindingNotationPart) notationPart).getName())).append(")" + "_node").append(index);
+                        }
+                    } else {
+                        sExpansions.add(processBindingNotation((BindingNotationPart) notationPart, operatorNumber));
+                        params.append(notationPartToName(notationPart)).append("_").append(operatorNumber);
+                    }
+                }
+
+                StringBuilder code = new StringBuilder();
+                code.append("_node1 = yajco.ReferenceResolver.getInstance().register(new ").append(getFullName(concept.getName())).append("(");
+                code.append(params).append("), (Object)").append(params).append(");");
+                // Operators of higher priorities are parsed in the operand, when one is left the operand stopped at
+                // a non-associative operator and the input has to be rejected like by productions for priorities
+                int limit = !prefixed && associativity == Associativity.NONE ? priority : priority + 1;
+                code.append(" _limit = ").append(limit).append(";");
+                Sequence sequence = new Sequence(null, code.toString(), sExpansions.toArray(new Expansion[sExpansions.size()]));
+                leadingTokens.put(sequence, lookaheadTokens);
+                // Operators sharing leading tokens are told apart by their priorities
+                if (prefixed) {
+                    sequence.setLookahead(lookahead + ", {" + priority + " >= _minLevel}");
+                    prefixExpansions.add(sequence);
+                } else {
+                    String levelCondition = priority + " >= _minLevel && " + priority + " < _limit";
+                    sequence.setLookahead(lookahead + ", {" + levelCondition + "}");
+                    infixExpansions.add(sequence);
+                    StringBuilder condition = new StringBuilder();
+                    for (int i = 1; i < lookaheadTokens.size(); i++) {
+                        condition.append("getToken(").append(i + 1).append(").kind == ").append(lookaheadTokens.get(i)).append(" && ");
+                    }
+                    infixConditions.put(sequence, condition.append(levelCondition).toString());
+                }
+            }
+        }
+
+        // Operators with more leading tokens are tried first, a shorter operator with the same first tokens would hide them
+        Comparator<Expansion> longerLookaheadFirst = new Comparator<Expansion>() {
+            @Override
+            public int compare(Expansion e1, Expansion e2) {
+                return leadingTokens.get(e2).size() - leadingTokens.get(e1).size();
+            }
+        };
+        Collections.sort(prefixExpansions, longerLookaheadFirst);
+        Collections.sort(infixExpansions, longerLookaheadFirst);
+
+        //Declarations
+        StringBuilder decl = new StringBuilder();
+        for (int i = 1; i <= maxArity; i++) {
+            decl.append("  ").append(type).append(" _node").append(i).append(" = null;\n");
+        }
+        decl.append("  int _limit = Integer.MAX_VALUE;\n");
+
+        List<Expansion> expansions = new ArrayList<Expansion>();
+        NonTerminal primary = new NonTerminal(name, "_node1");
+        if (prefixExpansions.isEmpty()) {
+            expansions.add(primary);
+        } else {
+            primary.setLookahead("1");
+            prefixExpansions.add(primary);
+            expansions.add(new Choice(prefixExpansions.toArray(new Expansion[prefixExpansions.size()])));
+        }
+        if (!infixExpansions.isEmpty()) {
+            Expansion options = infixExpansions.size() > 1 ? new Choice(infixExpansions.toArray(new Expansion[infixExpansions.size()])) : infixExpansions.get(0);
+            expansions.add(new ZeroOrMany(null, null, "{" + infixCheck + "(_minLevel, _limit)}", options));
+        }
+        productions.put(climbingNonterminal, new Production(climbingNonterminal, type, "int _minLevel",
+                new Sequence(decl.toString(), "return _node1;", expansions.toArray(new Expansion[expansions.size()]))));
+
+        // Entry production accepts operators of all priorities
+        String lowestPriority = String.valueOf(priorityMap.keySet().iterator().next());
+        productions.put(name + OPERATORS_SUFFIX, new Production(name + OPERATORS_SUFFIX, type,
+                new NonTerminal("  " + type + " _node1 = null;\n", "return _node1;", climbingNonterminal, "_node1", lowestPriority)));
+
+        if (!infixExpansions.isEmpty()) {
+            parserMembers.add(generateInfixCheck(infixCheck, infixExpansions, leadingTokens, infixConditions));
+        }
+    }
+
+    private int getMaxLookahead() {
+        String value = properties.getProperty(MAX_LOOKAHEAD_PROPERTY);
+        if (value == null || value.trim().isEmpty()) {
+            return LookaheadMinimizer.DEFAULT_MAX_LOOKAHEAD;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new GeneratorException("Property " + MAX_LOOKAHEAD_PROPERTY + " should be a number, not '" + value + "'", e);
+        }
+    }
+
+    /**
+     * Generates a method telling whether an infix or postfix operator allowed by the given priorities follows.
+     * Operators are grouped by the kind of their first token, the longer ones are checked first like in the choice
+     * of operators.
+     */
+    private String generateInfixCheck(String methodName, List<Expansion> infixExpansions, Map<Expansion, List<String>> leadingTokens, Map<Expansion, String> conditions) {
+        Map<String, List<String>> conditionsByKind = new LinkedHashMap<String, List<String>>();
+        for (Expansion expansion : infixExpansions) {
+            String kind = leadingTokens.get(expansion).get(0);
+            if (!conditionsByKind.containsKey(kind)) {
+                conditionsByKind.put(kind, new ArrayList<String>());
+            }
+            conditionsByKind.get(kind).add("(" + conditions.get(expansion) + ")");
+        }
+        StringBuilder sb = new StringBuilder();
+        sb.append("  private boolean ").append(methodName).append("(int _minLevel, int _limit) {\n");
+        sb.append("    switch (getToken(1).kind) {\n");
+        for (Map.Entry<String, List<String>> entry : conditionsByKind.entrySet()) {
+            sb.append("      case ").append(entry.getKey()).append(":\n");
+            sb.append("        return ");
+            for (int i = 0; i < entry.getValue().size(); i++) {
+                sb.append(i > 0 ? " || " : "").append(entry.getValue().get(i));
+            }
+            sb.append(";\n");
+        }
+        sb.append("      default:\n");
+        sb.append("        return false;\n");
+        sb.append("    }\n");
+        sb.append("  }\n");
+        return sb.toString();
+    }
+
+    /**
+     * Checks operators with the same priority and returns their associativity, the default one is resolved.
+     */
+    private Associativity getAssociativity(Concept operatorConcept, List<Concept> operatorList, int arity) {
+        Associativity associativity = Associativity.AUTO;
+
+        //Test validity
+        for (Concept concept : operatorList) {
+//                constructorElement = getConstructorElement(concept);
+            if (arity != getArity(operatorConcept, concept.getConcreteSyntax().get(0))) {
+                throw new GeneratorException("All operators of type '" + getFullName(operatorConcept.getName())
+                        + "' with the same priority must have the same arity (difference found in '" + getFullName(concept.getName()) + "')");
+            }
+            Associativity operatorAssociativity = ((Operator) concept.getPattern(Operator.class)).getAssociativity();
+            //
+            if (operatorAssociativity == null) {
+                operatorAssociativity = Associativity.AUTO;
+            }
+            //
+            if (associativity == Associativity.AUTO) {
+                associativity = operatorAssociativity;
+            }
+            if (operatorAssociativity != Associativity.AUTO) {
+                if (associativity != Associativity.AUTO && associativity != operatorAssociativity) {
+                    throw new GeneratorException("All operators of type '" + getFullName(operatorConcept.getName()) + "' with the same priority must have the same association type (difference found in '" + getFullName(concept.getName()) + "')");
+                }
+            }
+            if (arity == 0) {
+                throw new GeneratorException("Nulary operators are not supported '" + getFullName(concept.getName()) + "'");
+            }
+            boolean prefixed = hasPrefix(operatorConcept, concept.getConcreteSyntax().get(0));
+            boolean postfixed = hasPostfix(operatorConcept, concept.getConcreteSyntax().get(0));
+            if (prefixed && postfixed) {
+                throw new GeneratorException("The operator of type '" + getFullName(concept.getName()) + "' is prefixed and postfixed at the same time. Remove the Operator pattern");
+            }
+            if (arity == 1) {
+                if (!prefixed && !postfixed) {
+                    throw new GeneratorException("Unary prefix operator of type '" + getFullName(concept.getName()) + "' should be prefixed or postfixed");
+                }
+                if (associativity == Associativity.LEFT && prefixed) {
+                    throw new GeneratorException("Unary prefix operator of type '" + getFullName(concept.getName()) + "' should not be left-associative");
+                }
+                if (associativity == Associativity.RIGHT && postfixed) {
+                    throw new GeneratorException("Unary postfix operator of type '" + getFullName(concept.getName()) + "' should not be right-associative");
+                }
+
+                if (associativity == Associativity.AUTO) {
+                    if (prefixed) {
+                        associativity = Associativity.RIGHT;
+                    }
+                    if (postfixed) {
+                        associativity = Associativity.LEFT;
+                    }
+                } /* else {
+                 if (associativity == Associativity.RIGHT && prefixed) {
+                 throw new GeneratorException("Nary right-associative operator of type " + subclassElement + " should not be prefixed");
+                 }
+                 if (associativity == Associativity.LEFT && postfixed) {
+                 throw new GeneratorException("N-ary left-associative operator of type " + subclassElement + " should not be postfixed");
+                 }
+                 } */
+            }
+
+        }
+
+        //Set auto associativity to left if it is not set
+        if (associativity == Associativity.AUTO) {
+            associativity = Associativity.LEFT;
+        }
+        return associativity;
+    }
+
     private Expansion generatePrefixOptions(String nonterminal, List<Concept> operatorList, Concept operatorConcept, int paramNumber) {
         List<Expansion> oExpansions = new ArrayList<Expansion>();
         int type = 0;
@@ -945,6 +1331,9 @@ public class JavaCCParserGenerator {
     private String getNonterminal(Concept concept, int paramNumber) {
         processMainConcept(concept, paramNumber);
         if (operatorConcepts.containsKey(concept)) {
+            if (precedenceClimbing) {
+                return concept.getNameWithoutDots() + OPERATORS_SUFFIX;
+            }
             return concept.getNameWithoutDots() + operatorConcepts.get(concept).iterator().next().toString();
         }
         return concept.getNameWithoutDots();
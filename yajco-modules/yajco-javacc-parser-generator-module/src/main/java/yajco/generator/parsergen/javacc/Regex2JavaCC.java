@@ -0,0 +1,299 @@
+package yajco.generator.parsergen.javacc;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+Converts Java/YAJCo regexes into JavaCC regular expressions.
+
+For example: aa[abc]+(bb|cc) is converted into "aa" (["a", "b", "c"])+ ("bb" | "cc").
+
+Only basic regexes are supported. Constructs which have no JavaCC counterpart
+(bounded quantifiers, anchors, lookaround, reluctant or possessive quantifiers,
+back references, ...) are rejected with ConvertException, so that the caller can
+fall back to the regex based yajco.lexer.Lexer.
+*/
+public class Regex2JavaCC {
+    public static class ConvertException extends Exception {
+        public ConvertException(String message) {
+            super(message);
+        }
+    }
+
+    private static final int EOF = -1;
+    private static final String DIGITS = "\"0\"-\"9\"";
+    private static final String WORD_CHARACTERS = "\"a\"-\"z\", \"A\"-\"Z\", \"_\", \"0\"-\"9\"";
+    private static final String WHITESPACES = "\" \", \"\\t\", \"\\n\", \"\\u000b\", \"\\f\", \"\\r\"";
+    private static final String LINE_TERMINATORS = "\"\\n\", \"\\r\", \"\\u0085\", \"\\u2028\", \"\\u2029\"";
+
+    private final String regex;
+    private int pos;
+
+    public Regex2JavaCC(String regex) {
+        this.regex = regex;
+        this.pos = 0;
+    }
+
+    /**
+     * Converts the given string into JavaCC string literal matching exactly this string.
+     */
+    public static String toStringLiteral(String s) {
+        StringBuilder sb = new StringBuilder("\"");
+        for (int i = 0; i < s.length(); i++) {
+            sb.append(escape(s.charAt(i)));
+        }
+        return sb.append('"').toString();
+    }
+
+    public String convert() throws ConvertException {
+        String result = convertChoices();
+        if (peek() != EOF) {
+            throw new ConvertException("Unexpected character: " + (char) peek());
+        }
+        return result;
+    }
+
+    private int peek() {
+        return pos < regex.length() ? regex.charAt(pos) : EOF;
+    }
+
+    private int consume() throws ConvertException {
+        if (pos >= regex.length()) {
+            throw new ConvertException("Reached EOF unexpectedly");
+        }
+        return regex.charAt(pos++);
+    }
+
+    private String convertChoices() throws ConvertException {
+        StringBuilder sb = new StringBuilder(convertSequence());
+        while (peek() == '|') {
+            consume();
+            sb.append(" | ").append(convertSequence());
+        }
+        return sb.toString();
+    }
+
+    private String convertSequence() throws ConvertException {
+        List<String> items = new ArrayList<String>();
+        // Characters of a string literal are collected until some other construct appears
+        StringBuilder literal = new StringBuilder();
+        while (peek() != EOF && peek() != '|' && peek() != ')') {
+            int start = pos;
+            String unit = convertUnit();
+            String quantifier = convertQuantifier();
+            if (unit == null && quantifier.isEmpty()) {
+                literal.append(literalCharacter(start));
+                continue;
+            }
+            if (literal.length() > 0) {
+                items.add("\"" + literal + "\"");
+                literal.setLength(0);
+            }
+            if (unit == null) {
+                unit = "\"" + literalCharacter(start) + "\"";
+            }
+            items.add(quantifier.isEmpty() ? unit : "(" + unit + ")" + quantifier);
+        }
+        if (literal.length() > 0) {
+            items.add("\"" + literal + "\"");
+        }
+        if (items.isEmpty()) {
+            throw new ConvertException("Empty alternatives are not supported");
+        }
+
+        StringBuilder sb = new StringBuilder();
+        for (String item : items) {
+            if (sb.length() > 0) {
+                sb.append(' ');
+            }
+            sb.append(item);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Converts one unit of the regex.
+     *
+     * @return converted unit or null if the unit is a single literal character, which can be obtained by
+     * {@link #literalCharacter(int)}
+     */
+    private String convertUnit() throws ConvertException {
+        int ch = consume();
+        switch (ch) {
+            case '(':
+                if (peek() == '?') {
+                    consume();
+                    if (consume() != ':') {
+                        throw new ConvertException("Only non-capturing groups are supported");
+                    }
+                }
+                String choices = convertChoices();
+                if (consume() != ')') {
+                    throw new ConvertException("Missing closing parenthesis");
+                }
+                return "(" + choices + ")";
+            case '[':
+                return convertCharacterList();
+            case '.':
+                // In Java regexes the dot does not match line terminators.
+                return "~[" + LINE_TERMINATORS + "]";
+            case '\\':
+                String characterClass = convertCharacterClass(peek());
+                if (characterClass != null) {
+                    consume();
+                    return characterClass;
+                }
+                escapedCharacter(consume());
+                return null;
+            case '*':
+            case '+':
+            case '?':
+            case '{':
+            case '}':
+            case '^':
+            case '$':
+            case ']':
+                throw new ConvertException("Unsupported construct: " + (char) ch);
+            default:
+                return null;
+        }
+    }
+
+    private String convertQuantifier() throws ConvertException {
+        int ch = peek();
+        if (ch == '{') {
+            throw new ConvertException("Bounded quantifiers are not supported");
+        }
+        if (ch != '*' && ch != '+' && ch != '?') {
+            return "";
+        }
+        consume();
+        if (peek() == '?' || peek() == '+') {
+            throw new ConvertException("Reluctant and possessive quantifiers are not supported");
+        }
+        return String.valueOf((char) ch);
+    }
+
+    private String convertCharacterClass(int ch) {
+        switch (ch) {
+            case 'd':
+                return "[" + DIGITS + "]";
+            case 'D':
+                return "~[" + DIGITS + "]";
+            case 's':
+                return "[" + WHITESPACES + "]";
+            case 'S':
+                return "~[" + WHITESPACES + "]";
+            case 'w':
+                return "[" + WORD_CHARACTERS + "]";
+            case 'W':
+                return "~[" + WORD_CHARACTERS + "]";
+            default:
+                return null;
+        }
+    }
+
+    private String convertCharacterList() throws ConvertException {
+        boolean negated = false;
+        if (peek() == '^') {
+            consume();
+            negated = true;
+        }
+        List<String> items = new ArrayList<String>();
+        while (peek() != ']') {
+            int ch = consume();
+            if (ch == '[' || (ch == '&' && peek() == '&')) {
+                throw new ConvertException("Nested character classes are not supported");
+            }
+            if (ch == '\\') {
+                ch = consume();
+                if ("dsw".indexOf((char) ch) != -1) {
+                    String characterClass = convertCharacterClass(ch);
+                    items.add(characterClass.substring(1, characterClass.length() - 1));
+                    continue;
+                }
+                ch = escapedCharacter(ch);
+            }
+            String item = "\"" + escape(ch) + "\"";
+            if (peek() == '-' && pos + 1 < regex.length() && regex.charAt(pos + 1) != ']') {
+                consume();
+                int to = consume();
+                if (to == '\\') {
+                    to = escapedCharacter(consume());
+                } else if (to == '[') {
+                    throw new ConvertException("Nested character classes are not supported");
+                }
+                item += "-\"" + escape(to) + "\"";
+            }
+            items.add(item);
+        }
+        consume();
+        if (items.isEmpty()) {
+            throw new ConvertException("Empty character class");
+        }
+
+        StringBuilder sb = new StringBuilder(negated ? "~[" : "[");
+        for (int i = 0; i < items.size(); i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append(items.get(i));
+        }
+        return sb.append(']').toString();
+    }
+
+    /**
+     * Returns the character denoted by escape sequence with the given character after backslash.
+     */
+    private int escapedCharacter(int ch) throws ConvertException {
+        switch (ch) {
+            case 't':
+                return '\t';
+            case 'n':
+                return '\n';
+            case 'r':
+                return '\r';
+            case 'f':
+                return '\f';
+            default:
+                // Backslash before non-alphabetic character always denotes the character itself.
+                if (Character.isLetterOrDigit(ch)) {
+                    throw new ConvertException("Unsupported escape sequence: \\" + (char) ch);
+                }
+                return ch;
+        }
+    }
+
+    /**
+     * Returns escaped literal character of the unit starting at the given position.
+     */
+    private String literalCharacter(int start) throws ConvertException {
+        int ch = regex.charAt(start);
+        if (ch == '\\') {
+            ch = escapedCharacter(regex.charAt(start + 1));
+        }
+        return escape(ch);
+    }
+
+    private static String escape(int ch) {
+        switch (ch) {
+            case '\\':
+                return "\\\\";
+            case '"':
+                return "\\\"";
+            case '\t':
+                return "\\t";
+            case '\n':
+                return "\\n";
+            case '\r':
+                return "\\r";
+            case '\f':
+                return "\\f";
+            default:
+                if (ch < 0x20 || ch > 0x7e) {
+                    return String.format("\\u%04x", ch);
+                }
+                return String.valueOf((char) ch);
+        }
+    }
+}
@@ -80,7 +80,11 @@ public class Choice extends CompositeExpansion {
     private void resolveLookahead() {
         if (expansions.length > 1) {
             for (Expansion expansion : expansions) {
-                expansion.setLookahead(expansion.generateExpansion(1, false));
+                // Lookahead set explicitly, e.g. a semantic one, is kept. Empty alternative needs none.
+                boolean empty = expansion instanceof Sequence && ((Sequence) expansion).getExpansions().length == 0;
+                if (expansion.getLookahead() == null && !empty) {
+                    expansion.setLookahead(expansion.generateExpansion(1, false));
+                }
             }
         }
 //        int size = expansions.length;
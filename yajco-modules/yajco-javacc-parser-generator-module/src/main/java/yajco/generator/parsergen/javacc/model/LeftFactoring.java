@@ -0,0 +1,126 @@
+package yajco.generator.parsergen.javacc.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Left factoring of alternatives of a choice. Alternatives starting with the same terminal or nonterminal share it
+ * and continue by a choice among their remainders, so they do not need lookahead over the common prefix.
+ * Variables of the shared terminal or nonterminal are assigned to variables of all factored alternatives, so their
+ * actions still build the right concept.
+ */
+public class LeftFactoring {
+
+    private LeftFactoring() {
+    }
+
+    /**
+     * Returns alternatives of the choice after factoring. Alternatives which became empty are placed at the end.
+     */
+    public static List<Expansion> factor(List<Sequence> alternatives) {
+        Map<String, List<Sequence>> groups = new LinkedHashMap<String, List<Sequence>>();
+        List<Sequence> emptyAlternatives = new ArrayList<Sequence>();
+        int unique = 0;
+        for (Sequence alternative : alternatives) {
+            Expansion[] expansions = alternative.getExpansions();
+            if (expansions.length == 0) {
+                emptyAlternatives.add(alternative);
+                continue;
+            }
+            String key = getKey(expansions[0]);
+            if (key == null) {
+                key = "#" + unique++;
+            }
+            if (!groups.containsKey(key)) {
+                groups.put(key, new ArrayList<Sequence>());
+            }
+            groups.get(key).add(alternative);
+        }
+
+        List<Expansion> result = new ArrayList<Expansion>();
+        for (List<Sequence> group : groups.values()) {
+            if (group.size() == 1) {
+                result.add(group.get(0));
+                continue;
+            }
+            List<Expansion> heads = new ArrayList<Expansion>();
+            List<Sequence> remainders = new ArrayList<Sequence>();
+            for (Sequence alternative : group) {
+                Expansion[] expansions = alternative.getExpansions();
+                heads.add(expansions[0]);
+                remainders.add(new Sequence(alternative.getDecl(), alternative.getCode(), Arrays.copyOfRange(expansions, 1, expansions.length)));
+            }
+            List<Expansion> rest = factor(remainders);
+            Expansion restExpansion = rest.size() == 1 ? rest.get(0) : new Choice(rest.toArray(new Expansion[rest.size()]));
+            result.add(new Sequence(merge(heads), restExpansion));
+        }
+        result.addAll(emptyAlternatives);
+        return result;
+    }
+
+    /**
+     * Returns key of equal terminals and nonterminals or null if the expansion cannot be shared.
+     */
+    private static String getKey(Expansion expansion) {
+        if (expansion.getLookahead() != null || (expansion.getCode() != null && expansion.getCode().contains("return"))) {
+            return null;
+        }
+        if (expansion instanceof Terminal) {
+            return "T:" + ((Terminal) expansion).getToken();
+        }
+        if (expansion instanceof NonTerminal) {
+            NonTerminal nonTerminal = (NonTerminal) expansion;
+            return "N:" + nonTerminal.getName() + "(" + (nonTerminal.getArguments() != null ? nonTerminal.getArguments() : "") + ")";
+        }
+        return null;
+    }
+
+    private static String getVariable(Expansion expansion) {
+        if (expansion instanceof Terminal) {
+            return ((Terminal) expansion).getVariable();
+        }
+        return ((NonTerminal) expansion).getVariable();
+    }
+
+    private static Expansion merge(List<Expansion> heads) {
+        Expansion representative = heads.get(0);
+        for (Expansion head : heads) {
+            if (getVariable(head) != null) {
+                representative = head;
+                break;
+            }
+        }
+        String variable = getVariable(representative);
+
+        StringBuilder decl = new StringBuilder();
+        StringBuilder code = new StringBuilder();
+        if (representative.getCode() != null) {
+            code.append(representative.getCode());
+        }
+        for (Expansion head : heads) {
+            if (head.getDecl() != null) {
+                decl.append(head.getDecl());
+            }
+            if (head == representative) {
+                continue;
+            }
+            if (getVariable(head) != null) {
+                code.append(" ").append(getVariable(head)).append(" = ").append(variable).append(";");
+            }
+            if (head.getCode() != null) {
+                code.append(" ").append(head.getCode());
+            }
+        }
+
+        String declString = decl.length() > 0 ? decl.toString() : null;
+        String codeString = code.toString().trim().isEmpty() ? null : code.toString().trim();
+        if (representative instanceof Terminal) {
+            return new Terminal(declString, codeString, ((Terminal) representative).getToken(), variable);
+        }
+        NonTerminal nonTerminal = (NonTerminal) representative;
+        return new NonTerminal(declString, codeString, nonTerminal.getName(), variable, nonTerminal.getArguments());
+    }
+}
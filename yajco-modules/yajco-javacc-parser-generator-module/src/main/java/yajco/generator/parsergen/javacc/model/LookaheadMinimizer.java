@@ -0,0 +1,255 @@
+package yajco.generator.parsergen.javacc.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Replaces syntactic lookahead of choices by the smallest fixed lookahead distinguishing their alternatives.
+ * Token strings of length k are computed for every alternative, k is enough if no string of an alternative is
+ * a prefix of a string of another one. Choices with lookahead set explicitly, with alternatives matching the
+ * empty string or needing more than the maximal lookahead keep syntactic lookahead. An empty last alternative is
+ * taken when no other alternative matches.
+ */
+public class LookaheadMinimizer {
+
+    public static final int DEFAULT_MAX_LOOKAHEAD = 3;
+    private static final int MAX_STRINGS = 10000;
+    private static final List<String> EMPTY = Collections.emptyList();
+    private final Model model;
+    private final int maxLookahead;
+    private final Map<String, Set<List<String>>> productionStrings = new HashMap<String, Set<List<String>>>();
+    private final Set<String> inProgress = new HashSet<String>();
+    private int resolvedChoices;
+    private int syntacticChoices;
+
+    public LookaheadMinimizer(Model model, int maxLookahead) {
+        this.model = model;
+        this.maxLookahead = maxLookahead;
+    }
+
+    public void minimize() {
+        for (Production production : model.getProductions()) {
+            visit(production.getExpansion());
+        }
+    }
+
+    /**
+     * Returns number of choices with fixed lookahead.
+     */
+    public int getResolvedChoices() {
+        return resolvedChoices;
+    }
+
+    /**
+     * Returns number of choices left with syntactic lookahead.
+     */
+    public int getSyntacticChoices() {
+        return syntacticChoices;
+    }
+
+    private void visit(Expansion expansion) {
+        if (expansion instanceof CompositeExpansion) {
+            for (Expansion child : ((CompositeExpansion) expansion).getExpansions()) {
+                visit(child);
+            }
+            if (expansion instanceof Choice) {
+                resolve((Choice) expansion);
+            }
+        } else if (expansion instanceof RepeatingExpansion) {
+            visit(((RepeatingExpansion) expansion).getExpansion());
+        }
+    }
+
+    private void resolve(Choice choice) {
+        Expansion[] alternatives = choice.getExpansions();
+        if (alternatives.length < 2) {
+            return;
+        }
+        for (Expansion alternative : alternatives) {
+            if (alternative.getLookahead() != null) {
+                return;
+            }
+        }
+
+        for (int k = 1; k <= maxLookahead; k++) {
+            List<Set<List<String>>> strings = new ArrayList<Set<List<String>>>();
+            try {
+                for (int i = 0; i < alternatives.length; i++) {
+                    if (i == alternatives.length - 1 && isEmpty(alternatives[i])) {
+                        break;
+                    }
+                    Set<List<String>> alternativeStrings = strings(alternatives[i], k);
+                    if (alternativeStrings.contains(EMPTY)) {
+                        syntacticChoices++;
+                        return;
+                    }
+                    strings.add(alternativeStrings);
+                }
+            } catch (TooComplexException e) {
+                syntacticChoices++;
+                return;
+            }
+            if (!hasConflict(strings)) {
+                for (Expansion alternative : alternatives) {
+                    if (!isEmpty(alternative)) {
+                        alternative.setLookahead(String.valueOf(k));
+                    }
+                }
+                resolvedChoices++;
+                return;
+            }
+        }
+        syntacticChoices++;
+    }
+
+    private static boolean isEmpty(Expansion expansion) {
+        return expansion instanceof Sequence && ((Sequence) expansion).getExpansions().length == 0;
+    }
+
+    /**
+     * Returns true if a string of an alternative is equal to or a prefix of a string of another alternative.
+     */
+    private static boolean hasConflict(List<Set<List<String>>> strings) {
+        // Strings and their proper prefixes mapped to the alternative, -1 if there are more alternatives
+        Map<List<String>, Integer> owners = new HashMap<List<String>, Integer>();
+        Map<List<String>, Integer> prefixOwners = new HashMap<List<String>, Integer>();
+        for (int i = 0; i < strings.size(); i++) {
+            for (List<String> string : strings.get(i)) {
+                if (isOwnedByOther(owners, string, i) || isOwnedByOther(prefixOwners, string, i)) {
+                    return true;
+                }
+                for (int length = 1; length < string.size(); length++) {
+                    if (isOwnedByOther(owners, string.subList(0, length), i)) {
+                        return true;
+                    }
+                }
+            }
+            for (List<String> string : strings.get(i)) {
+                owners.put(string, i);
+                for (int length = 1; length < string.size(); length++) {
+                    List<String> prefix = string.subList(0, length);
+                    Integer owner = prefixOwners.get(prefix);
+                    prefixOwners.put(prefix, owner == null || owner == i ? i : -1);
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean isOwnedByOther(Map<List<String>, Integer> owners, List<String> string, int alternative) {
+        Integer owner = owners.get(string);
+        return owner != null && owner != alternative;
+    }
+
+    /**
+     * Returns token strings of length k which the expansion can start with, shorter strings are complete
+     * expansions.
+     */
+    private Set<List<String>> strings(Expansion expansion, int k) {
+        if (expansion instanceof Terminal) {
+            return Collections.singleton(Collections.singletonList(((Terminal) expansion).getToken()));
+        } else if (expansion instanceof NonTerminal) {
+            return productionStrings(((NonTerminal) expansion).getName(), k);
+        } else if (expansion instanceof Sequence) {
+            Set<List<String>> result = Collections.singleton(EMPTY);
+            for (Expansion child : ((Sequence) expansion).getExpansions()) {
+                if (isComplete(result, k)) {
+                    break;
+                }
+                result = concat(result, strings(child, k), k);
+            }
+            return result;
+        } else if (expansion instanceof Choice) {
+            Set<List<String>> result = new HashSet<List<String>>();
+            for (Expansion child : ((Choice) expansion).getExpansions()) {
+                result.addAll(strings(child, k));
+                checkSize(result);
+            }
+            return result;
+        } else if (expansion instanceof ZeroOrOne) {
+            Set<List<String>> result = new HashSet<List<String>>(strings(((ZeroOrOne) expansion).getExpansion(), k));
+            result.add(EMPTY);
+            return result;
+        } else if (expansion instanceof ZeroOrMany) {
+            return repeat(strings(((ZeroOrMany) expansion).getExpansion(), k), k);
+        } else if (expansion instanceof OneOrMany) {
+            Set<List<String>> body = strings(((OneOrMany) expansion).getExpansion(), k);
+            return concat(body, repeat(body, k), k);
+        }
+        throw new TooComplexException();
+    }
+
+    private Set<List<String>> productionStrings(String name, int k) {
+        String key = name + "#" + k;
+        Set<List<String>> result = productionStrings.get(key);
+        if (result != null) {
+            return result;
+        }
+        Production production = model.getProduction(name);
+        // Recursion without consuming a token or unknown production
+        if (production == null || !inProgress.add(key)) {
+            throw new TooComplexException();
+        }
+        try {
+            result = strings(production.getExpansion(), k);
+        } finally {
+            inProgress.remove(key);
+        }
+        productionStrings.put(key, result);
+        return result;
+    }
+
+    private static Set<List<String>> repeat(Set<List<String>> body, int k) {
+        Set<List<String>> result = new HashSet<List<String>>();
+        result.add(EMPTY);
+        for (int i = 0; i < k; i++) {
+            Set<List<String>> next = concat(result, body, k);
+            next.addAll(result);
+            if (next.equals(result)) {
+                break;
+            }
+            result = next;
+        }
+        return result;
+    }
+
+    private static Set<List<String>> concat(Set<List<String>> prefixes, Set<List<String>> suffixes, int k) {
+        Set<List<String>> result = new HashSet<List<String>>();
+        for (List<String> prefix : prefixes) {
+            if (prefix.size() >= k) {
+                result.add(prefix);
+                continue;
+            }
+            for (List<String> suffix : suffixes) {
+                List<String> string = new ArrayList<String>(prefix);
+                string.addAll(suffix.subList(0, Math.min(suffix.size(), k - prefix.size())));
+                result.add(string);
+            }
+            checkSize(result);
+        }
+        return result;
+    }
+
+    private static boolean isComplete(Set<List<String>> strings, int k) {
+        for (List<String> string : strings) {
+            if (string.size() < k) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void checkSize(Set<List<String>> strings) {
+        if (strings.size() > MAX_STRINGS) {
+            throw new TooComplexException();
+        }
+    }
+
+    private static class TooComplexException extends RuntimeException {
+    }
+}
@@ -23,15 +23,36 @@ public class Model {
 
     private final List<yajco.annotation.config.Option> options;
 
+    /**
+     * Token names mapped to JavaCC regular expressions or null if user token manager is used.
+     */
+    private final Map<String, String> nativeTokens;
+
+    /**
+     * JavaCC regular expressions of skips or null if user token manager is used.
+     */
+    private final List<String> nativeSkips;
+
     private final Production mainProduction;
 
     private final Production[] productions;
 
+    /**
+     * Java code of fields and methods added into the parser class.
+     */
+    private final StringBuilder parserMembers = new StringBuilder();
+
     public Model(String packageName, String className, SkipDef[] skips, Map<String, String> tokens, yajco.annotation.config.Option[] options, Production mainProduction, Production[] productions) {
+        this(packageName, className, skips, tokens, null, null, options, mainProduction, productions);
+    }
+
+    public Model(String packageName, String className, SkipDef[] skips, Map<String, String> tokens, Map<String, String> nativeTokens, List<String> nativeSkips, yajco.annotation.config.Option[] options, Production mainProduction, Production[] productions) {
         this.packageName = packageName;
         this.className = className;
         this.skips = Arrays.asList(skips);
         this.tokens = tokens;
+        this.nativeTokens = nativeTokens;
+        this.nativeSkips = nativeSkips;
         this.options = Arrays.asList(options);
         this.mainProduction = mainProduction;
         this.productions = productions;
@@ -72,7 +93,13 @@ public class Model {
         Formatter code = new Formatter();
 
             code.format("options {\n");
+        if (!hasNativeTokens()) {
             code.format("  USER_TOKEN_MANAGER = true;\n");
+        }
+        if (getOption("STATIC") == null) {
+            //Instance based parser, so that more parsers can run concurrently
+            code.format("  STATIC = false;\n");
+        }
         if (options.size() > 0) {
             for (Option option : options) {
                 code.format("  %s = %s;\n", option.name(), option.value());
@@ -85,9 +112,13 @@ public class Model {
         if (packageName != null) {
             code.format("package %s;\n\n", packageName);
         }
-        code.format("public class %s {}\n\n", className);
+        code.format("public class %s {\n%s}\n\n", className, parserMembers);
         code.format("PARSER_END(%s)\n\n", className);
 
+        if (hasNativeTokens()) {
+            generateNativeTokens(code);
+        }
+
         //Toto je tu kvoli chybe v javacc ak je pouzity vlastny tokenmanager ale je tam konflikt
         //snazi sa to vypisat meno tokenu a spadne to - null pointer exception
         //ukazuje sa preto vhodne geenerovat vsetky lex. jedntotky aj ked pise, ze ich ignoruje
@@ -147,6 +178,41 @@ public class Model {
         return code.toString();
     }
 
+    private Option getOption(String name) {
+        for (Option option : options) {
+            if (option.name().equalsIgnoreCase(name)) {
+                return option;
+            }
+        }
+        return null;
+    }
+
+    private void generateNativeTokens(Formatter code) {
+        //SKIP definition
+        if (nativeSkips.size() > 0) {
+            code.format("SKIP :\n{\n");
+            boolean separator = false;
+            for (String skip : nativeSkips) {
+                printSeparator(code, separator, "| ", "  ");
+                separator = true;
+                code.format("<%s>\n", skip);
+            }
+            code.format("}\n\n");
+        }
+
+        //TOKEN definition
+        if (nativeTokens.size() > 0) {
+            code.format("TOKEN :\n{\n");
+            boolean separator = false;
+            for (Map.Entry<String, String> token : nativeTokens.entrySet()) {
+                printSeparator(code, separator, "| ", "  ");
+                separator = true;
+                code.format("<%s : %s>\n", token.getKey(), token.getValue());
+            }
+            code.format("}\n\n");
+        }
+    }
+
     private void printSeparator(Formatter code, boolean separate, String trueCase, String falseCase) {
         if (separate) {
             code.format(trueCase);
@@ -159,6 +225,10 @@ public class Model {
         return className;
     }
 
+    public void addParserMember(String member) {
+        parserMembers.append(member);
+    }
+
     public Production getMainProduction() {
         return mainProduction;
     }
@@ -167,6 +237,18 @@ public class Model {
         return options;
     }
 
+    public boolean hasNativeTokens() {
+        return nativeTokens != null;
+    }
+
+    public Map<String, String> getNativeTokens() {
+        return nativeTokens;
+    }
+
+    public List<String> getNativeSkips() {
+        return nativeSkips;
+    }
+
     public String getPackageName() {
         return packageName;
     }
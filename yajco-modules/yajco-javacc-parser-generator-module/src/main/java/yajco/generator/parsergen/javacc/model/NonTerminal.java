@@ -6,17 +6,27 @@ public class NonTerminal extends Expansion {
 
     private final String variable;
     private final String name;
+    private final String arguments;
 
     public NonTerminal(String decl, String code, String name, String variable) {
+        this(decl, code, name, variable, null);
+    }
+
+    public NonTerminal(String decl, String code, String name, String variable, String arguments) {
         super(decl, code, null);
         this.name = name;
         this.variable = variable;
+        this.arguments = arguments;
     }
 
     public NonTerminal(String name, String variable) {
         this(null, null, name, variable);
     }
 
+    public NonTerminal(String name, String variable, String arguments) {
+        this(null, null, name, variable, arguments);
+    }
+
     public String getVariable() {
         return variable;
     }
@@ -25,6 +35,10 @@ public class NonTerminal extends Expansion {
         return name;
     }
 
+    public String getArguments() {
+        return arguments;
+    }
+
     @Override
     public ExpansionType getType() {
         return ExpansionType.NONTERMINAL;
@@ -37,7 +51,7 @@ public class NonTerminal extends Expansion {
         if (withCode && variable != null) {
             sb.append(variable).append(" = ");
         }
-        sb.append(name).append(Production.NON_TERMINAL_SUFFIX + "()");
+        sb.append(name).append(Production.NON_TERMINAL_SUFFIX + "(").append(arguments != null ? arguments : "").append(")");
         if (withCode) {
             sb.append(generateCode());
         }
@@ -8,10 +8,19 @@ public class Production {
     private final Expansion expansion;
     private Model model;
     private Integer shortestLength;
+    private final String parameters;
 
     public Production(String name, String returnType, Expansion expansion) {
+        this(name, returnType, null, expansion);
+    }
+
+    /**
+     * @param parameters declaration of parameters of the production, e.g. "int level"
+     */
+    public Production(String name, String returnType, String parameters, Expansion expansion) {
         this.name = name;
         this.returnType = returnType;
+        this.parameters = parameters;
         this.expansion = expansion;
         expansion.setParent(this);
     }
@@ -28,6 +37,10 @@ public class Production {
         return returnType;
     }
 
+    public String getParameters() {
+        return parameters;
+    }
+
     public Expansion getExpansion() {
         return expansion;
     }
@@ -42,7 +55,7 @@ public class Production {
 
     public String generate() {
         StringBuilder sb = new StringBuilder();
-        sb.append(returnType + " " + getSymbolName() + "() :\n");
+        sb.append(returnType + " " + getSymbolName() + "(" + (parameters != null ? parameters : "") + ") :\n");
         sb.append("{\n");
         sb.append(expansion.generateDeclaration());
         sb.append("}\n");
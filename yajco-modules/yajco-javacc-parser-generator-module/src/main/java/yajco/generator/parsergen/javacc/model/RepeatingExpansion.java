@@ -17,7 +17,9 @@ public abstract class RepeatingExpansion extends Expansion {
     }
     
     protected void resolveLookahead() {
-        this.setLookahead(expansion.generateExpansion(1, false));
+        if (getLookahead() == null) {
+            this.setLookahead(expansion.generateExpansion(1, false));
+        }
     }
 
     @Override
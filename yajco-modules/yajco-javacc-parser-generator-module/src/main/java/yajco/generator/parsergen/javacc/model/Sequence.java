@@ -16,6 +16,13 @@ public class Sequence extends CompositeExpansion {
     @Override
     public String generateExpansion(int level, boolean withCode) {
         StringBuilder sb = new StringBuilder();
+        if (expansions.length == 0) {
+            // Empty alternative left by left factoring, JavaCC does not accept empty parentheses
+            if (withCode) {
+                sb.append(spaces(level)).append("{").append(getCode() != null ? getCode() : "").append("}\n");
+            }
+            return sb.toString();
+        }
         sb.append("(");
         for (Expansion expansion : expansions) {
             sb.append(expansion.generateExpansion(level + 1, withCode)).append("\n");
@@ -0,0 +1,82 @@
+package yajco.generator.parsergen.javacc;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.util.Properties;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import yajco.generator.util.GeneratedSources;
+import yajco.model.Language;
+
+import static org.junit.Assert.assertEquals;
+import static yajco.model.LanguageFixtures.createExpressionLanguage;
+
+/**
+ * Measures the first parse of a generated parser in a fresh JVM, which includes loading and initialization of the
+ * parser, its token manager and token patterns. Each run forks a new JVM, which parses a small input twice and
+ * prints both times, the second parse shows the cost of the parse alone. Times are only printed.
+ */
+public class ParserStartupBenchmarkTest {
+
+    private static final int RUNS = 3;
+    private static final String INPUT = "1 + 2 * (3 + 4)";
+    private static final String TREE = "(Add (Number 1) (Mul (Number 2) (Parentheses (Add (Number 3) (Number 4)))))";
+    private static final String MAIN_SOURCE = "package calc;\n"
+            + "public class FirstParse {\n"
+            + "  public static void main(String[] args) throws Exception {\n"
+            + "    long start = System.nanoTime();\n"
+            + "    Object tree = new calc.parser.Parser().parse(args[0]);\n"
+            + "    long first = System.nanoTime() - start;\n"
+            + "    start = System.nanoTime();\n"
+            + "    new calc.parser.Parser().parse(args[0]);\n"
+            + "    long second = System.nanoTime() - start;\n"
+            + "    System.out.println(tree);\n"
+            + "    System.out.println(first / 1000L + \" \" + second / 1000L);\n"
+            + "  }\n"
+            + "}\n";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void firstParseInFreshJvm() throws Exception {
+        GeneratedSources sources = new GeneratedSources(folder.getRoot());
+        Language language = createExpressionLanguage();
+        sources.writeConceptClasses(language);
+        new JavaCCParserGenerator(language, sources.getFiler(), "calc.parser.Parser", new Properties()).generate();
+        try (Writer writer = sources.getFiler().createSourceFile("calc.FirstParse").openWriter()) {
+            writer.write(MAIN_SOURCE);
+        }
+        File classes = sources.compile();
+        // Runtime dependencies of generated parsers are on the class path of the tests.
+        String classPath = classes.getPath() + File.pathSeparator + System.getProperty("java.class.path");
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+
+        for (int run = 1; run <= RUNS; run++) {
+            long start = System.nanoTime();
+            Process process = new ProcessBuilder(java, "-cp", classPath, "calc.FirstParse", INPUT).redirectErrorStream(true).start();
+            String output = read(process.getInputStream());
+            assertEquals(output, 0, process.waitFor());
+            long total = System.nanoTime() - start;
+
+            String[] lines = output.trim().split("\\r?\\n");
+            assertEquals(output, TREE, lines[lines.length - 2]);
+            String[] times = lines[lines.length - 1].split(" ");
+            System.out.println("JavaCC parser startup, run " + run + ": first parse " + times[0] + " us, second parse "
+                    + times[1] + " us, whole JVM " + total / 1000000L + " ms");
+        }
+    }
+
+    private static String read(InputStream input) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        for (int read; (read = input.read(buffer)) > 0; ) {
+            output.write(buffer, 0, read);
+        }
+        return output.toString("UTF-8");
+    }
+}
@@ -0,0 +1,160 @@
+package yajco.generator.parsergen.javacc;
+
+import java.io.File;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import yajco.generator.parsergen.Parser;
+import yajco.generator.util.GeneratedSources;
+import yajco.model.Concept;
+import yajco.model.Language;
+import yajco.model.SkipDef;
+import yajco.model.TokenDef;
+import yajco.model.pattern.impl.Associativity;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static yajco.model.LanguageFixtures.createLanguage;
+import static yajco.model.LanguageFixtures.createLiteral;
+import static yajco.model.LanguageFixtures.createOperator;
+import static yajco.model.LanguageFixtures.createParentheses;
+import static yajco.model.LanguageFixtures.skips;
+import static yajco.model.LanguageFixtures.tokens;
+
+/**
+ * Generates parsers of a language with 15 operator priorities with and without precedence climbing, compiles them
+ * and checks both give the same trees. The language has operators of different priorities sharing their leading
+ * tokens, both as prefix and infix operators and as two infix operators.
+ */
+public class PrecedenceClimbingTest {
+
+    private static final String LANGUAGE_NAME = "ops";
+    private static final int RANDOM_INPUTS = 300;
+    private static final String[] BINARY_OPERATORS = {"||", "&&", "==", "is", "is not", "<", "+", "-", "*", "/", "%", "^"};
+    private static final String[] FIXED_INPUTS = {
+        "1 + 2 * 3 - 4",
+        "1 - 2 - 3",
+        "2 ^ 3 ^ 4",
+        "- 2 ^ 3",
+        "- 1 - - 2",
+        "! 1 - 2 ++ ++",
+        "1 is 2 is not 3 is 4",
+        "1 is not - 2 < 3",
+        "1 == 2 == 3",
+        "1 ? 2 ? 3 : 4 : 5 ? 6 : 7",
+        "( 1 || 2 ) && 3 % 4 / 5",};
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void precedenceClimbingParsesSameTreesAsLayeredProductions() throws Exception {
+        GeneratedSources sources = new GeneratedSources(folder.getRoot());
+        Language language = createOperatorLanguage();
+        sources.writeConceptClasses(language);
+
+        Properties layeredProperties = new Properties();
+        new JavaCCParserGenerator(language, sources.getFiler(), LANGUAGE_NAME + ".layered.Parser", layeredProperties).generate();
+        Properties climbingProperties = new Properties();
+        climbingProperties.setProperty("yajco.javacc.precedenceClimbing", "true");
+        new JavaCCParserGenerator(language, sources.getFiler(), LANGUAGE_NAME + ".climbing.Parser", climbingProperties).generate();
+
+        File classes = sources.compile();
+        try (URLClassLoader classLoader = new URLClassLoader(new URL[]{classes.toURI().toURL()}, getClass().getClassLoader())) {
+            Parser<?, ?> layered = (Parser<?, ?>) classLoader.loadClass(LANGUAGE_NAME + ".layered.Parser").newInstance();
+            Parser<?, ?> climbing = (Parser<?, ?>) classLoader.loadClass(LANGUAGE_NAME + ".climbing.Parser").newInstance();
+
+            List<String> inputs = new ArrayList<String>(Arrays.asList(FIXED_INPUTS));
+            Random random = new Random(42);
+            for (int i = 0; i < RANDOM_INPUTS; i++) {
+                inputs.add(createExpression(random, 0));
+            }
+            int parsed = 0;
+            for (String input : inputs) {
+                String expected = parse(layered, input);
+                assertEquals(input, expected, parse(climbing, input));
+                if (expected != null) {
+                    parsed++;
+                }
+            }
+            assertEquals("(Sub (Sub (Literal 1) (Literal 2)) (Literal 3))", parse(climbing, "1 - 2 - 3"));
+            assertEquals("(Pow (Literal 2) (Pow (Literal 3) (Literal 4)))", parse(climbing, "2 ^ 3 ^ 4"));
+            assertTrue("only " + parsed + " inputs parsed", parsed > inputs.size() / 2);
+        }
+    }
+
+    /**
+     * Returns the tree of the parsed input, or null if the input is rejected.
+     */
+    private static String parse(Parser<?, ?> parser, String input) {
+        try {
+            return String.valueOf(parser.parse(input));
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private static String createExpression(Random random, int depth) {
+        StringBuilder sb = new StringBuilder(createTerm(random, depth));
+        int operators = random.nextInt(depth > 2 ? 2 : 5);
+        for (int i = 0; i < operators; i++) {
+            if (random.nextInt(10) == 0) {
+                sb.append(" ? ").append(createExpression(random, depth + 1)).append(" : ");
+            } else {
+                sb.append(' ').append(BINARY_OPERATORS[random.nextInt(BINARY_OPERATORS.length)]).append(' ');
+            }
+            sb.append(createTerm(random, depth));
+        }
+        return sb.toString();
+    }
+
+    private static String createTerm(Random random, int depth) {
+        switch (random.nextInt(depth > 2 ? 2 : 8)) {
+            case 2:
+                return "- " + createTerm(random, depth);
+            case 3:
+                return "! " + createTerm(random, depth);
+            case 4:
+                return createTerm(random, depth) + " ++";
+            case 5:
+                return "( " + createExpression(random, depth + 1) + " )";
+            default:
+                return String.valueOf(random.nextInt(100));
+        }
+    }
+
+    /**
+     * Expression with numbers, parentheses and operators of 15 priorities.
+     */
+    private static Language createOperatorLanguage() {
+        Language language = createLanguage(LANGUAGE_NAME, tokens(new TokenDef("VALUE", "[0-9]+", null)), skips(new SkipDef("\\s", null)));
+        Concept expression = new Concept("Expression", (Object) null);
+        language.addConcept(expression);
+        language.addConcept(createLiteral("Literal", expression));
+        language.addConcept(createParentheses(expression));
+        language.addConcept(createOperator("Conditional", 1, Associativity.RIGHT, expression, null, "?", null, ":", null));
+        language.addConcept(createOperator("Or", 2, Associativity.LEFT, expression, null, "||", null));
+        language.addConcept(createOperator("And", 3, Associativity.LEFT, expression, null, "&&", null));
+        language.addConcept(createOperator("Equals", 4, Associativity.NONE, expression, null, "==", null));
+        language.addConcept(createOperator("Is", 5, Associativity.LEFT, expression, null, "is", null));
+        language.addConcept(createOperator("IsNot", 6, Associativity.LEFT, expression, null, "is", "not", null));
+        language.addConcept(createOperator("Less", 7, Associativity.LEFT, expression, null, "<", null));
+        language.addConcept(createOperator("Add", 8, Associativity.LEFT, expression, null, "+", null));
+        language.addConcept(createOperator("Sub", 9, Associativity.LEFT, expression, null, "-", null));
+        language.addConcept(createOperator("Mul", 10, Associativity.LEFT, expression, null, "*", null));
+        language.addConcept(createOperator("Div", 11, Associativity.LEFT, expression, null, "/", null));
+        language.addConcept(createOperator("Mod", 12, Associativity.LEFT, expression, null, "%", null));
+        language.addConcept(createOperator("Neg", 13, Associativity.RIGHT, expression, "-", null));
+        language.addConcept(createOperator("Not", 13, Associativity.RIGHT, expression, "!", null));
+        language.addConcept(createOperator("Pow", 14, Associativity.RIGHT, expression, null, "^", null));
+        language.addConcept(createOperator("Increment", 15, Associativity.LEFT, expression, null, "++"));
+        return language;
+    }
+}
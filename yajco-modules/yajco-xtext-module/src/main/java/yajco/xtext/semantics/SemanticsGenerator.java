@@ -4,12 +4,12 @@ import org.apache.maven.model.Model;
 import org.apache.maven.model.io.xpp3.MavenXpp3Reader;
 import org.apache.maven.project.MavenProject;
 import org.apache.velocity.VelocityContext;
-import org.apache.velocity.app.VelocityEngine;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 import org.w3c.dom.Node;
 import org.xml.sax.SAXException;
 import yajco.generator.GeneratorException;
+import yajco.generator.util.TemplateService;
 import yajco.xtext.commons.settings.XtextProjectSettings;
 
 import javax.xml.parsers.DocumentBuilder;
@@ -223,11 +223,7 @@ public class SemanticsGenerator {
         VelocityContext context = new VelocityContext();
         context.put("package", settings.getLanguageBaseName());
         context.put("codeRunner", settings.getCodeRunner());
-        VelocityEngine engine = new VelocityEngine();
-        StringWriter writer = new StringWriter();
-        engine.evaluate(context, writer, "",
-                new InputStreamReader(getClass().getResourceAsStream("/templates/InterpretCodeHandler.vm")));
-        return writer.toString();
+        return TemplateService.getInstance().render(getClass(), "/templates/InterpretCodeHandler.vm", context);
     }
 
 }
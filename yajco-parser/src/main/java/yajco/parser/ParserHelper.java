@@ -22,9 +22,11 @@ import javax.tools.JavaFileObject;
 import javax.tools.SimpleJavaFileObject;
 import yajco.generator.FilesGenerator;
 import yajco.generator.parsergen.CompilerGenerator;
+import yajco.generator.util.FilesGeneratorExecutor;
 import yajco.generator.util.ServiceFinder;
 import yajco.model.Language;
-import yajco.model.utilities.XMLLanguageFormatHelper;
+import yajco.model.utilities.BinaryLanguageFormatHelper;
+import yajco.model.utilities.LanguageCompositionLoader;
 
 public class ParserHelper {
 
@@ -71,14 +73,14 @@ public class ParserHelper {
 
     public Language parse() {
         if (reader == null) {
-            List<Language> languages = XMLLanguageFormatHelper.getAllLanguagesFromXML();
+            List<Language> languages = BinaryLanguageFormatHelper.getAllLanguages();
             if (languages.size() > 0) {
                 System.out.println("Loaded external language specifications: "+languages.size());
                 Language composedLanguage = new Language(null);
                 for (Language incLang : languages) {
                     
-                    addToListAsSet(composedLanguage.getSkips(), incLang.getSkips(), true);
-                    addToListAsSet(composedLanguage.getTokens(), incLang.getTokens(), true);
+                    LanguageCompositionLoader.mergeAsSet(composedLanguage.getSkips(), incLang.getSkips());
+                    LanguageCompositionLoader.mergeAsSet(composedLanguage.getTokens(), incLang.getTokens());
                     composedLanguage.getConcepts().addAll(incLang.getConcepts());
                 }
                 return composedLanguage;
@@ -122,16 +124,14 @@ public class ParserHelper {
         Filer filer = new MySimpleFiler(destinationDir);
 
         if (generateCompiler) {
-            CompilerGenerator compilerGenerator = ServiceFinder.findCompilerGenerator();
+            CompilerGenerator compilerGenerator = ServiceFinder.findCompilerGenerator(language, properties);
             if (compilerGenerator != null) {
                 compilerGenerator.generateFiles(language, filer, properties);
             }
         }
 
         Set<FilesGenerator> filesGenerators = ServiceFinder.findFilesGenerators(properties);
-        for (FilesGenerator filesGenerator : filesGenerators) {
-            filesGenerator.generateFiles(language, filer, properties);
-        }
+        FilesGeneratorExecutor.generateFiles(filesGenerators, language, filer, properties);
     }
 
     public class MySimpleFiler implements Filer {
@@ -235,17 +235,4 @@ public class ParserHelper {
         }
     }
 
-    private <T> void addToListAsSet(List<T> originalList, List<T> newItems, boolean overwrite) {
-        for (T item : newItems) {
-            if (originalList.contains(item)) {
-                if (overwrite) {
-                    // dolezite je to, aby item.equals fungoval spravne
-                    originalList.remove(item); // odstrani povodny
-                    originalList.add(item); // vlozi novy
-                }
-            } else {
-                originalList.add(item);
-            }
-        }
-    }
 }
@@ -21,6 +21,8 @@ public class YajcoParser implements yajco.generator.parsergen.Parser<yajco.model
             throw new LALRParseException("Problem parsing source code ", e);
         } catch (yajco.parser.beaver.YajcoParser.Exception e) {
             throw new LALRParseException("Problem parsing source code ", e);
+        } finally {
+            yajco.ReferenceResolver.removeInstance();
         }
     }
 
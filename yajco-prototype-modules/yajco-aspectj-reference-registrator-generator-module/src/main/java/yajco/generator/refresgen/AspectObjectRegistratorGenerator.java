@@ -36,11 +36,11 @@ public class AspectObjectRegistratorGenerator implements FilesGenerator {
 
     @Override
     public void generateFiles(Language language, Filer filer, Properties properties) {
-        generateAspectFile(language, filer);
+        generateAspectFile(language, filer, properties);
         generateAspectConfigFile(language, filer);
     }
 
-    private void generateAspectFile(Language language, Filer filer) {
+    private void generateAspectFile(Language language, Filer filer, Properties properties) {
         Writer writer = null;
         try {
             String filePath = yajco.model.utilities.Utilities.getLanguagePackageName(language)+"."+PACKAGE_NAME+ "." + CLASS_NAME;
@@ -51,12 +51,17 @@ public class AspectObjectRegistratorGenerator implements FilesGenerator {
             //Utilities.createDirectories(file,false);
             writer = fileObject.openWriter(); //new FileWriter(file);
             generateAspectFile(language, writer);
-            Utilities.formatCode(new File(fileObject.toUri()));
+            // File has to be complete before it is formatted.
+            writer.close();
+            writer = null;
+            Utilities.formatCode(new File(fileObject.toUri()), properties);
         } catch (IOException ex) {
             throw new GeneratorException("Problem writing aspect java file.", ex);
         } finally {
             try {
-                writer.close();
+                if (writer != null) {
+                    writer.close();
+                }
             } catch (IOException ex) {
                 throw new GeneratorException("Problem writing aspect java file.", ex);
             }
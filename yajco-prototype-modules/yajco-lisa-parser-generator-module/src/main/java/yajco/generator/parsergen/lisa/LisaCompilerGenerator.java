@@ -33,6 +33,7 @@ import yajco.grammar.TerminalSymbol;
 import yajco.grammar.bnf.Alternative;
 import yajco.grammar.bnf.Grammar;
 import yajco.grammar.bnf.Production;
+import yajco.grammar.optimizer.GrammarOptimizer;
 import yajco.grammar.translator.YajcoModelToBNFGrammarTranslator;
 import yajco.model.Language;
 import yajco.model.SkipDef;
@@ -55,6 +56,7 @@ public class LisaCompilerGenerator implements CompilerGenerator {
     private Filer filer;
     private Language language;
     private VelocityEngine engine;
+    private Properties generatorProperties;
     private YajcoModelToBNFGrammarTranslator grammarTranslator = YajcoModelToBNFGrammarTranslator.getInstance();
 
     @Override
@@ -75,6 +77,7 @@ public class LisaCompilerGenerator implements CompilerGenerator {
 //        }
         this.filer = filer;
         this.language = language;
+        this.generatorProperties = properties;
         if (engine == null) {
             engine = new VelocityEngine();
         }
@@ -168,8 +171,19 @@ public class LisaCompilerGenerator implements CompilerGenerator {
         } 
     }
 
-    private String getLisaSpecification(Language language) {
+    private Grammar translateGrammar(Language language, boolean report) {
         Grammar grammar = grammarTranslator.translate(language);
+        if (GrammarOptimizer.isEnabled(generatorProperties)) {
+            GrammarOptimizer.Report optimizationReport = new GrammarOptimizer().optimize(grammar);
+            if (report) {
+                System.out.println(optimizationReport);
+            }
+        }
+        return grammar;
+    }
+
+    private String getLisaSpecification(Language language) {
+        Grammar grammar = translateGrammar(language, true);
         StringBuilder ls = new StringBuilder();
         ls.append("language ").append(getLisaLangName(language)).append(" ");
         ls.append("{");
@@ -267,8 +281,9 @@ public class LisaCompilerGenerator implements CompilerGenerator {
     }
 
     private String getLisaYajcoTranslator(Language language, CLanguage lisaLang) {
-        Grammar grammar = grammarTranslator.translate(language);
-        SemLangToLisaJavaTranslator translator = SemLangToLisaJavaTranslator.getInstance();
+        // Translated again the same way as for the specification.
+        Grammar grammar = translateGrammar(language, false);
+        SemLangToLisaJavaTranslator translator = new SemLangToLisaJavaTranslator();
         translator.setLanguage(language);
         List<Alternative> alternatives = sortAlternatives(grammar, lisaLang);
         StringBuilder sb = new StringBuilder();
@@ -286,6 +301,14 @@ public class LisaCompilerGenerator implements CompilerGenerator {
         sb.append("    return null; // or throw Excepction\n");
         sb.append("}\n");
         sb.append("}\n\n");
+        // Size check of @Range sequences, the exception is turned into LisaParseException by the parser.
+        sb.append("static <T extends java.util.Collection<?>> T checkSize(T collection, int minOccurs, int maxOccurs) {\n");
+        sb.append("if (collection.size() < minOccurs || (maxOccurs >= 0 && collection.size() > maxOccurs)) {\n");
+        sb.append("    String expected = maxOccurs >= 0 ? \"from \" + minOccurs + \" to \" + maxOccurs : \"at least \" + minOccurs;\n");
+        sb.append("    throw new IllegalArgumentException(\"Expected \" + expected + \" elements, found \" + collection.size());\n");
+        sb.append("}\n");
+        sb.append("return collection;\n");
+        sb.append("}\n\n");
         sb.append("private static Object production(Lisa.Parser.CTreeNode node) {\n");
         sb.append("switch (node.getProdNumber()) {\n");
         sb.append("case 0:");
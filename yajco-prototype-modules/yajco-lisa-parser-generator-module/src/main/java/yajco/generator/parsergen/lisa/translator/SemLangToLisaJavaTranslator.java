@@ -8,6 +8,7 @@ import yajco.model.Language;
 import yajco.grammar.semlang.Action;
 import yajco.grammar.semlang.AddElementToCollectionAction;
 import yajco.grammar.semlang.AssignAction;
+import yajco.grammar.semlang.CheckCollectionSizeAction;
 import yajco.grammar.semlang.ConvertCollectionToArrayAction;
 import yajco.grammar.semlang.ConvertListToCollectionAction;
 import yajco.grammar.semlang.ConvertStringToPrimitiveTypeAction;
@@ -36,7 +37,10 @@ public class SemLangToLisaJavaTranslator {
     private Language language;
     private String parserPackageName;
 
-    private SemLangToLisaJavaTranslator() {
+    /**
+     * Creates a translator for one language, its state is not shared with other translators.
+     */
+    public SemLangToLisaJavaTranslator() {
     }
 
     public void translateActions(List<Action> actions, Language language, PrintStream writer) {
@@ -97,6 +101,9 @@ public class SemLangToLisaJavaTranslator {
             case REF_RESOLVER_REGISTER:
                 translateReferenceResolverRegisterAction((ReferenceResolverRegisterAction) action, writer);
                 break;
+            case CHECK_COLLECTION_SIZE:
+                translateCheckCollectionSizeAction((CheckCollectionSizeAction) action, writer);
+                break;
 
             default:
                 throw new IllegalArgumentException("Unknown SemLang action detected: '" + action.getClass().getCanonicalName() + "'!");
@@ -245,6 +252,13 @@ public class SemLangToLisaJavaTranslator {
         writer.print(")");
     }
 
+    private void translateCheckCollectionSizeAction(CheckCollectionSizeAction action, PrintStream writer) {
+        // checkSize is generated into the translator class, see LisaCompilerGenerator.
+        writer.print("checkSize(");
+        translateRValue(action.getRValue(), writer);
+        writer.print(", " + action.getMinOccurs() + ", " + action.getMaxOccurs() + ")");
+    }
+
     private void translateLValue(LValue lValue, PrintStream writer) {
         if (lValue.getSymbol() != null) {
             //DOMINIK TEST